@@ -0,0 +1,86 @@
+package com.zeronote.accounting.benchmark;
+
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据
+ * 固定随机种子，同一参数在任何机器、任何提交上生成完全相同的数据，结果才可比
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 20240101L;
+
+    private static final String[][] MERCHANTS = {
+            {"星巴克", "COFFEE_TEA", "拿铁"},
+            {"瑞幸咖啡", "COFFEE_TEA", "生椰拿铁"},
+            {"麦当劳", "FOOD_DINING", "午餐套餐"},
+            {"海底捞", "FOOD_DINING", "聚餐"},
+            {"滴滴出行", "TAXI_RIDESHARE", "打车回家"},
+            {"北京地铁", "PUBLIC_TRANSPORT", "地铁"},
+            {"中国石化", "FUEL", "加油"},
+            {"京东", "ELECTRONICS", "蓝牙耳机"},
+            {"淘宝", "SHOPPING", "日用百货"},
+            {"盒马鲜生", "GROCERIES", "买菜"},
+            {"当当网", "BOOKS", "技术书籍"},
+            {"万达影城", "MOVIES", "电影票"},
+            {"Steam", "GAMES", "游戏"},
+            {"中国移动", "UTILITIES", "话费充值"}
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成count笔交易（未持久化，ID为空），交易时间均匀分布在2024年内
+     */
+    public static List<Transaction> transactions(int count) {
+        Random random = new Random(SEED);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+            Transaction transaction = new Transaction(BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            transaction.setType(random.nextInt(20) == 0 ? TransactionType.INCOME : TransactionType.EXPENSE);
+            transaction.setCategory(TransactionCategory.valueOf(merchant[1]));
+            transaction.setScenario(TransactionScenario.REGULAR);
+            transaction.setMerchant(merchant[0] + (random.nextInt(4) == 0 ? "（" + random.nextInt(50) + "号店）" : ""));
+            transaction.setDescription(merchant[2] + " " + random.nextInt(1000));
+            transaction.setLocation("北京市");
+            transaction.setTransactionDate(start.plusMinutes(random.nextInt(366 * 24 * 60)));
+            transaction.setClassificationSource(ClassificationSource.LLM);
+            transaction.setAiAnalysis("根据商户名称判断为" + merchant[1]);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * 与transactions(count)相同，但带有连续ID，供不经过数据库的基准使用
+     */
+    public static List<Transaction> transactionsWithIds(int count) {
+        List<Transaction> transactions = transactions(count);
+        for (int i = 0; i < transactions.size(); i++) {
+            transactions.get(i).setId((long) i + 1);
+        }
+        return transactions;
+    }
+
+    /**
+     * 一条典型的大模型单笔分析响应（JSON模式下的紧凑格式，c=1为咖啡茶饮）
+     */
+    public static String analysisResponse() {
+        return """
+                {"r":[{"i":0,"t":0,"c":1,"s":0,"m":"星巴克","d":"拿铁","a":"咖啡连锁品牌，单杯咖啡消费"}]}
+                """;
+    }
+}
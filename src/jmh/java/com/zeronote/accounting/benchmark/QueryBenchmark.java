@@ -0,0 +1,123 @@
+package com.zeronote.accounting.benchmark;
+
+import com.zeronote.accounting.AiSimpleAccountingApplication;
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索与统计查询基准，运行在内嵌H2内存库上
+ * 启动完整的Spring上下文（不含Web层），经TransactionService写入固定种子的数据，
+ * 汇总表与搜索索引随写入事件同步维护，与线上路径一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    @Param({"50000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionRepository transactionRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(AiSimpleAccountingApplication.class)
+                .web(WebApplicationType.NONE)
+                // 以命令行参数传入，优先级高于application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:query-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.zeronote=WARN",
+                        "--app.classification-cache.enabled=false",
+                        "--app.local-classifier.enabled=false",
+                        "--ai.openai.api-key=benchmark-key");
+        transactionService = context.getBean(TransactionService.class);
+        transactionRepository = context.getBean(TransactionRepository.class);
+
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        List<Transaction> transactions = BenchmarkData.transactions(rows);
+        for (int from = 0; from < transactions.size(); from += SEED_BATCH_SIZE) {
+            List<Transaction> batch = transactions.subList(from, Math.min(from + SEED_BATCH_SIZE, transactions.size()));
+            transactionTemplate.executeWithoutResult(status -> transactionService.saveImportedTransactions(batch));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 内存倒排索引命中后按ID批量取回一页
+     */
+    @Benchmark
+    public Page<TransactionResponse> searchIndexed() {
+        return transactionService.searchTransactions("星巴克", PageRequest.of(0, 20));
+    }
+
+    /**
+     * 索引未就绪时的回退路径：数据库LIKE全表扫描
+     */
+    @Benchmark
+    public List<TransactionResponse> searchLike() {
+        return transactionRepository.findResponsesByKeyword("星巴克");
+    }
+
+    /**
+     * 整年统计，全部落在月汇总上
+     */
+    @Benchmark
+    public TransactionService.TransactionStatistics statisticsWholeYear() {
+        return transactionService.getStatistics(LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59));
+    }
+
+    /**
+     * 首尾不足一天的区间，需同时读取交易表、日汇总和月汇总
+     */
+    @Benchmark
+    public TransactionService.TransactionStatistics statisticsRaggedRange() {
+        return transactionService.getStatistics(LocalDateTime.of(2024, 3, 15, 10, 30),
+                LocalDateTime.of(2024, 6, 20, 18, 0));
+    }
+
+    @Benchmark
+    public List<TransactionService.CategoryBreakdown> categoryBreakdown() {
+        return transactionService.getCategoryBreakdown(LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59), TransactionType.EXPENSE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.zeronote.accounting.service;
+
+import com.theokanning.openai.service.OpenAiService;
+import com.zeronote.accounting.benchmark.BenchmarkData;
+import com.zeronote.accounting.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大模型提示词构建与响应解析基准，不发起网络调用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiAnalysisBenchmark {
+
+    private AiAnalysisService aiAnalysisService;
+    private List<Transaction> transactions;
+    private String response;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        aiAnalysisService = new AiAnalysisService(new OpenAiService("benchmark-key"), 1000, false, 20, 50,
+                false, 0, false, null, null, new AiConcurrencyLimiter(1, 1000),
+                new AiCircuitBreaker(20, 10, 0.5, 10000, 30000, 3), new SimpleMeterRegistry());
+        transactions = BenchmarkData.transactions(1024);
+        response = BenchmarkData.analysisResponse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aiAnalysisService.shutdown();
+    }
+
+    @Benchmark
+    public String buildAnalysisPrompt() {
+        Transaction transaction = transactions.get(next++ & 1023);
+        return aiAnalysisService.buildAnalysisPrompt(transaction.getAmount(), transaction.getDescription(),
+                transaction.getMerchant(), transaction.getLocation());
+    }
+
+    @Benchmark
+    public AiAnalysisService.AiAnalysisResult parseAnalysisResult() {
+        return aiAnalysisService.parseAnalysisResult(response);
+    }
+}
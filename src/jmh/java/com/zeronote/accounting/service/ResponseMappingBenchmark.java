@@ -0,0 +1,70 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.benchmark.BenchmarkData;
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体到响应DTO的转换与分页响应的JSON序列化基准
+ * ObjectMapper与Spring MVC默认配置一致（注册JavaTimeModule等）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<Transaction> transactions;
+    private Page<TransactionResponse> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transactions = BenchmarkData.transactionsWithIds(pageSize);
+        List<TransactionResponse> responses = new ArrayList<>(pageSize);
+        for (Transaction transaction : transactions) {
+            responses.add(TransactionService.convertToResponse(transaction));
+        }
+        page = new PageImpl<>(responses, PageRequest.of(0, pageSize), 200_000);
+    }
+
+    @Benchmark
+    public void convertToResponse(Blackhole blackhole) {
+        for (Transaction transaction : transactions) {
+            blackhole.consume(TransactionService.convertToResponse(transaction));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,44 @@
+package com.zeronote.accounting.config;
+
+import com.zeronote.accounting.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 交易ID序列迁移
+ * 旧版本的交易表使用自增列生成ID，切换到序列后，序列需从现有最大ID之后开始，避免与已有数据冲突。
+ * 在Hibernate完成建表/更新之后、应用接收请求之前执行，可重复运行。
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)",
+                Long.class, Transaction.ID_SEQUENCE);
+        // pooled优化器把取到的序列值作为号段上界，号段为(值-步长, 值]，因此需比最大ID再多出一个步长
+        long required = maxId + Transaction.ID_ALLOCATION_SIZE;
+        if (nextValue == null || nextValue < required) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + Transaction.ID_SEQUENCE + " RESTART WITH " + required);
+            logger.info("交易ID序列已调整: 现有最大ID {}，序列从 {} 开始", maxId, required);
+        }
+    }
+}
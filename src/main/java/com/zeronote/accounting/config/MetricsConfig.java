@@ -0,0 +1,103 @@
+package com.zeronote.accounting.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.service.AiAnalysisService;
+import com.zeronote.accounting.service.AiCircuitBreaker;
+import com.zeronote.accounting.service.AiConcurrencyLimiter;
+import com.zeronote.accounting.util.ServerTiming;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点路径指标
+ * 各仓库方法的耗时由Spring Boot自带的spring.data.repository.invocations计时，这里额外把耗时计入
+ * 当前请求的Server-Timing（db）；JSON序列化耗时计入ser；并发限制器与熔断器的状态以仪表形式暴露。
+ * 大模型各阶段（ai.analysis、ai.llm.stage）与兜底次数（ai.analysis.fallback）在AiAnalysisService中记录。
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 仓库方法调用监听，与Boot注册指标监听的方式相同
+     */
+    @Bean
+    public static BeanPostProcessor serverTimingRepositoryListenerPostProcessor() {
+        RepositoryMethodInvocationListener listener = invocation ->
+                ServerTiming.record("db", invocation.getDuration(TimeUnit.NANOSECONDS));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 替换Boot默认的Jackson消息转换器，记录响应体序列化耗时
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   MeterRegistry meterRegistry) {
+        Timer timer = Timer.builder("http.response.serialization")
+                .description("响应体JSON序列化耗时")
+                .register(meterRegistry);
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    timer.record(elapsed, TimeUnit.NANOSECONDS);
+                    ServerTiming.record("ser", elapsed);
+                }
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder aiResilienceMetrics(AiConcurrencyLimiter limiter, AiCircuitBreaker circuitBreaker,
+                                           AiAnalysisService aiAnalysisService) {
+        return registry -> {
+            Gauge.builder("ai.limiter.in.use", limiter, l -> l.getStats().getInUse())
+                    .description("占用中的大模型并发许可数")
+                    .register(registry);
+            Gauge.builder("ai.limiter.queue", limiter, l -> l.getStats().getQueueLength())
+                    .description("排队等待大模型并发许可的调用数")
+                    .register(registry);
+            FunctionCounter.builder("ai.limiter.timeouts", limiter, l -> l.getStats().getTimeoutCount())
+                    .register(registry);
+            // 0=关闭，1=半开，2=熔断
+            Gauge.builder("ai.circuit.state", circuitBreaker, c -> switch (c.getStats().getState()) {
+                        case CLOSED -> 0;
+                        case HALF_OPEN -> 1;
+                        case OPEN -> 2;
+                    })
+                    .register(registry);
+            FunctionCounter.builder("ai.circuit.rejected", circuitBreaker, c -> c.getStats().getRejectedCount())
+                    .register(registry);
+            FunctionCounter.builder("ai.circuit.short.circuits", aiAnalysisService,
+                            s -> s.getResilienceStats().getShortCircuitCount())
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.zeronote.accounting.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * OpenAI客户端配置
+ * 连接超时与读取超时分开配置：上游不可达时尽快失败，响应慢时最多等待ai.openai.timeout；
+ * base-url可指向兼容OpenAI接口的代理或本地压测用的模拟服务
+ */
+@Configuration
+public class OpenAiClientConfig {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Bean
+    public OpenAiService openAiService(@Value("${ai.openai.api-key}") String apiKey,
+                                       @Value("${ai.openai.timeout:30000}") long timeoutMillis,
+                                       @Value("${ai.openai.connect-timeout:5000}") long connectTimeoutMillis,
+                                       @Value("${ai.openai.base-url:https://api.openai.com/}") String baseUrl,
+                                       @Value("${ai.openai.json-mode:true}") boolean jsonMode) {
+        OkHttpClient.Builder builder = OpenAiService.defaultClient(apiKey, Duration.ofMillis(timeoutMillis))
+                .newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .readTimeout(Duration.ofMillis(timeoutMillis))
+                .callTimeout(Duration.ofMillis(timeoutMillis + connectTimeoutMillis));
+        if (jsonMode) {
+            builder.addInterceptor(jsonModeInterceptor());
+        }
+        OkHttpClient client = builder.build();
+        OpenAiApi api = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper())
+                .newBuilder()
+                .baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/")
+                .build()
+                .create(OpenAiApi.class);
+        return new OpenAiService(api, client.dispatcher().executorService());
+    }
+
+    /**
+     * 为对话补全请求加上response_format=json_object，强制模型只输出JSON对象
+     * 当前客户端版本的ChatCompletionRequest没有该字段，在发送前改写请求体
+     */
+    static Interceptor jsonModeInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            RequestBody body = request.body();
+            if (body == null || !"POST".equals(request.method())
+                    || !request.url().encodedPath().endsWith("/chat/completions")) {
+                return chain.proceed(request);
+            }
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            JsonNode json = MAPPER.readTree(buffer.readByteArray());
+            if (json instanceof ObjectNode node && !node.has("response_format")) {
+                node.putObject("response_format").put("type", "json_object");
+                request = request.newBuilder()
+                        .post(RequestBody.create(MAPPER.writeValueAsBytes(node), body.contentType()))
+                        .build();
+            }
+            return chain.proceed(request);
+        };
+    }
+}
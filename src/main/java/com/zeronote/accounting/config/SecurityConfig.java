@@ -0,0 +1,75 @@
+package com.zeronote.accounting.config;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.util.regex.Pattern;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * 压测安全配置，仅在loadtest profile下生效，未启用时使用Spring Boot默认的安全配置（表单登录、HTTP Basic与CSRF校验）
+ * /api/**只接受HTTP Basic认证且不创建、不读取会话，登录后的浏览器会话Cookie对其无效，因此无需CSRF校验；
+ * 其余路径保持默认的表单登录、HTTP Basic认证与CSRF校验
+ */
+@Configuration
+@Profile("loadtest")
+public class SecurityConfig {
+
+    private static final Pattern ENCODED_PASSWORD = Pattern.compile("^\\{.+}.*$");
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(antMatcher("/api/**"))
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().authenticated())
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable);
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
+    public SecurityFilterChain defaultSecurityFilterChain(HttpSecurity http) throws Exception {
+        http.authorizeHttpRequests(authorize -> authorize.anyRequest().authenticated())
+                .formLogin(Customizer.withDefaults())
+                .httpBasic(Customizer.withDefaults());
+        return http.build();
+    }
+
+    /**
+     * 按spring.security.user配置的编码原样校验密码
+     * 默认的内存用户管理器会在首次登录后把明文密码升级为bcrypt，此后每个Basic认证请求都要做一次bcrypt校验
+     * （单核约80ms），会掩盖压测要测量的延迟
+     */
+    @Bean
+    public UserDetailsService plainPasswordUserDetailsService(SecurityProperties properties) {
+        SecurityProperties.User user = properties.getUser();
+        String password = ENCODED_PASSWORD.matcher(user.getPassword()).matches()
+                ? user.getPassword() : "{noop}" + user.getPassword();
+        UserDetails configured = User.withUsername(user.getName())
+                .password(password)
+                .roles(user.getRoles().toArray(new String[0]))
+                .build();
+        return username -> {
+            if (!configured.getUsername().equals(username)) {
+                throw new UsernameNotFoundException(username);
+            }
+            // 认证成功后凭证会被擦除，每次返回副本
+            return User.withUserDetails(configured).build();
+        };
+    }
+}
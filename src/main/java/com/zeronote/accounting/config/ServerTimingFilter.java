@@ -0,0 +1,52 @@
+package com.zeronote.accounting.config;
+
+import com.zeronote.accounting.util.ServerTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * 在响应头中输出Server-Timing
+ * 响应头必须在响应体之前发出，而序列化耗时要等响应体写完才知道，因此先把响应体缓存在内存中，
+ * 处理完成后补上响应头再一并写出。导出接口为流式大响应，不做缓存也不输出该头。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+
+    public ServerTimingFilter(@Value("${app.server-timing.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || request.getRequestURI().endsWith("/export");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ServerTiming timing = ServerTiming.start();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            ServerTiming.end();
+            if (!request.isAsyncStarted()) {
+                wrapper.setHeader("Server-Timing", timing.toHeaderValue());
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.zeronote.accounting.controller;
+
+import com.zeronote.accounting.service.AiAnalysisService;
+import com.zeronote.accounting.service.AiConcurrencyLimiter;
+import com.zeronote.accounting.service.ClassificationBackfill;
+import com.zeronote.accounting.service.ClassificationCache;
+import com.zeronote.accounting.service.EnrichmentPipeline;
+import com.zeronote.accounting.service.LocalClassifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * AI分析运维接口
+ * 提供分类缓存、本地分类器、异步分类流水线等AI相关组件的运行状态
+ */
+@RestController
+@RequestMapping("/api/ai")
+@CrossOrigin(origins = "*")
+public class AiController {
+    
+    private final ClassificationCache classificationCache;
+    private final LocalClassifier localClassifier;
+    private final EnrichmentPipeline enrichmentPipeline;
+    private final AiAnalysisService aiAnalysisService;
+    private final AiConcurrencyLimiter concurrencyLimiter;
+    private final ClassificationBackfill classificationBackfill;
+    
+    @Autowired
+    public AiController(ClassificationCache classificationCache, LocalClassifier localClassifier,
+                        EnrichmentPipeline enrichmentPipeline, AiAnalysisService aiAnalysisService,
+                        AiConcurrencyLimiter concurrencyLimiter, ClassificationBackfill classificationBackfill) {
+        this.aiAnalysisService = aiAnalysisService;
+        this.classificationCache = classificationCache;
+        this.localClassifier = localClassifier;
+        this.enrichmentPipeline = enrichmentPipeline;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.classificationBackfill = classificationBackfill;
+    }
+    
+    /**
+     * 获取分类缓存统计（命中/未命中/淘汰次数）
+     * GET /api/ai/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ClassificationCache.CacheStats> getCacheStats() {
+        return ResponseEntity.ok(classificationCache.getStats());
+    }
+    
+    /**
+     * 清空分类缓存
+     * DELETE /api/ai/cache
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() {
+        classificationCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * 获取本地分类器统计（训练样本数、本地命中与低置信度次数）
+     * GET /api/ai/classifier/stats
+     */
+    @GetMapping("/classifier/stats")
+    public ResponseEntity<LocalClassifier.ClassifierStats> getClassifierStats() {
+        return ResponseEntity.ok(localClassifier.getStats());
+    }
+    
+    /**
+     * 获取异步分类流水线统计（队列长度、待分类数、重试与拒绝次数）
+     * GET /api/ai/enrichment/stats
+     */
+    @GetMapping("/enrichment/stats")
+    public ResponseEntity<EnrichmentPipeline.PipelineStats> getEnrichmentStats() {
+        return ResponseEntity.ok(enrichmentPipeline.getStats());
+    }
+    
+    /**
+     * 获取大模型微批统计（批次数、请求数、平均批大小）
+     * GET /api/ai/batch/stats
+     */
+    @GetMapping("/batch/stats")
+    public ResponseEntity<AiAnalysisService.BatchStats> getBatchStats() {
+        return ResponseEntity.ok(aiAnalysisService.getBatchStats());
+    }
+    
+    /**
+     * 获取大模型token用量统计（调用次数、输入与输出token、每笔交易平均token）
+     * GET /api/ai/tokens/stats
+     */
+    @GetMapping("/tokens/stats")
+    public ResponseEntity<AiAnalysisService.TokenStats> getTokenStats() {
+        return ResponseEntity.ok(aiAnalysisService.getTokenStats());
+    }
+    
+    /**
+     * 获取大模型并发限制统计（占用许可数、排队长度、等待超时次数）
+     * GET /api/ai/limiter/stats
+     */
+    @GetMapping("/limiter/stats")
+    public ResponseEntity<AiConcurrencyLimiter.LimiterStats> getLimiterStats() {
+        return ResponseEntity.ok(concurrencyLimiter.getStats());
+    }
+    
+    /**
+     * 获取熔断与对冲统计（熔断状态、窗口失败数、短路次数、对冲次数）
+     * GET /api/ai/resilience/stats
+     */
+    @GetMapping("/resilience/stats")
+    public ResponseEntity<AiAnalysisService.ResilienceStats> getResilienceStats() {
+        return ResponseEntity.ok(aiAnalysisService.getResilienceStats());
+    }
+    
+    /**
+     * 获取默认分类积压重分类统计（检查点、剩余积压数、重分类成功数）
+     * GET /api/ai/backfill/stats
+     */
+    @GetMapping("/backfill/stats")
+    public ResponseEntity<ClassificationBackfill.BackfillStats> getBackfillStats() {
+        return ResponseEntity.ok(classificationBackfill.getStats());
+    }
+    
+    /**
+     * 立即执行一批积压重分类（仍受每分钟预算与熔断限制）
+     * POST /api/ai/backfill/run
+     */
+    @PostMapping("/backfill/run")
+    public ResponseEntity<ClassificationBackfill.BackfillStats> runBackfill() {
+        classificationBackfill.runOnce();
+        return ResponseEntity.ok(classificationBackfill.getStats());
+    }
+}
@@ -0,0 +1,66 @@
+package com.zeronote.accounting.controller;
+
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.service.ColumnarStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 交易分析接口
+ * 基于内存列存副本做分组聚合，不查询数据库
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsController.class);
+
+    private final ColumnarStore columnarStore;
+
+    @Autowired
+    public AnalyticsController(ColumnarStore columnarStore) {
+        this.columnarStore = columnarStore;
+    }
+
+    /**
+     * 按维度分组汇总金额与笔数，例如每月每个分类的支出
+     * GET /api/analytics/aggregate?startDate=2024-01-01&endDate=2024-12-31&type=EXPENSE&groupBy=MONTH,CATEGORY
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<List<ColumnarStore.GroupTotal>> aggregate(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) TransactionCategory category,
+            @RequestParam(defaultValue = "") List<ColumnarStore.Dimension> groupBy) {
+
+        if (!columnarStore.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(columnarStore.aggregate(startDate, endDate, type, category, groupBy));
+        } catch (IllegalArgumentException e) {
+            logger.warn("分组聚合参数无效: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 获取列存副本统计（行数、已删除行数、来源字典大小、列数组占用）
+     * GET /api/analytics/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ColumnarStore.StoreStats> getStats() {
+        return ResponseEntity.ok(columnarStore.getStats());
+    }
+}
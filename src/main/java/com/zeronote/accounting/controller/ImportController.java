@@ -0,0 +1,86 @@
+package com.zeronote.accounting.controller;
+
+import com.zeronote.accounting.service.StatementImportService;
+import com.zeronote.accounting.service.StatementParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+
+/**
+ * 账单批量导入API控制器
+ * 支持微信支付、支付宝、银行流水等导出的CSV/JSON账单
+ */
+@RestController
+@RequestMapping("/api/transactions/import")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+    private final StatementImportService statementImportService;
+
+    @Autowired
+    public ImportController(StatementImportService statementImportService) {
+        this.statementImportService = statementImportService;
+    }
+
+    /**
+     * 上传账单并开始后台导入，返回任务进度
+     * POST /api/transactions/import
+     * format可选csv/json（json支持数组或每行一个对象），未指定时按文件扩展名判断；支付宝账单需指定charset=GBK
+     */
+    @PostMapping
+    public ResponseEntity<StatementImportService.ImportJob> importStatement(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "charset", defaultValue = "UTF-8") String charset,
+            @RequestParam(value = "source", defaultValue = "批量导入") String source) {
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            StatementImportService.ImportJob job = statementImportService.startImport(
+                    file, resolveFormat(format, file.getOriginalFilename()), Charset.forName(charset), source);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            logger.error("导入参数错误: format={}, charset={}", format, charset);
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("提交账单导入失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 查询导入进度与逐行错误
+     * GET /api/transactions/import/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<StatementImportService.ImportJob> getImportJob(@PathVariable String jobId) {
+        return statementImportService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private StatementParser.Format resolveFormat(String format, String fileName) {
+        if (format != null) {
+            return StatementParser.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        }
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".json") || name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return StatementParser.Format.JSON;
+        }
+        return StatementParser.Format.CSV;
+    }
+}
@@ -1,7 +1,17 @@
 package com.zeronote.accounting.controller;
 
+import com.zeronote.accounting.dto.CursorPage;
+import com.zeronote.accounting.dto.TransactionPatchRequest;
 import com.zeronote.accounting.dto.TransactionRequest;
 import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.service.DuplicateDetector;
+import com.zeronote.accounting.service.RecurringDetector;
+import com.zeronote.accounting.service.RollupService;
+import com.zeronote.accounting.service.SpendSketches;
+import com.zeronote.accounting.service.TransactionExportService;
+import com.zeronote.accounting.service.TransactionResponseCache;
 import com.zeronote.accounting.service.TransactionService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -11,11 +21,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,10 +48,28 @@ public class TransactionController {
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
     
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final RollupService rollupService;
+    private final TransactionResponseCache responseCache;
+    private final SpendSketches spendSketches;
+    private final DuplicateDetector duplicateDetector;
+    private final RecurringDetector recurringDetector;
     
     @Autowired
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService,
+                                 TransactionExportService transactionExportService,
+                                 RollupService rollupService,
+                                 TransactionResponseCache responseCache,
+                                 SpendSketches spendSketches,
+                                 DuplicateDetector duplicateDetector,
+                                 RecurringDetector recurringDetector) {
         this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
+        this.rollupService = rollupService;
+        this.responseCache = responseCache;
+        this.spendSketches = spendSketches;
+        this.duplicateDetector = duplicateDetector;
+        this.recurringDetector = recurringDetector;
     }
     
     /**
@@ -93,6 +128,23 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
     
+    /**
+     * 游标分页获取所有交易（不返回总数，深翻页不变慢）
+     * GET /api/transactions/scroll?cursor=&size=20（size限制在1~200）
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<TransactionResponse>> scrollTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        try {
+            return ResponseEntity.ok(transactionService.scrollTransactions(cursor, size));
+        } catch (IllegalArgumentException e) {
+            logger.warn("分页游标无效: {}", cursor);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * 根据ID获取交易
      * GET /api/transactions/{id}
@@ -105,6 +157,73 @@ public class TransactionController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * 分页获取被标记为疑似重复的交易，duplicateOfId为原交易ID
+     * GET /api/transactions/duplicates
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<Page<TransactionResponse>> getDuplicateTransactions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        return ResponseEntity.ok(transactionService.getDuplicateTransactions(PageRequest.of(page, size)));
+    }
+    
+    /**
+     * 获取重复检测索引统计（索引笔数、桶数、检测与命中次数）
+     * GET /api/transactions/duplicates/stats
+     */
+    @GetMapping("/duplicates/stats")
+    public ResponseEntity<DuplicateDetector.DetectorStats> getDuplicateStats() {
+        return ResponseEntity.ok(duplicateDetector.getStats());
+    }
+    
+    /**
+     * 获取仍活跃的订阅与定期交易，含下次预计扣款日期与金额
+     * GET /api/transactions/subscriptions
+     */
+    @GetMapping("/subscriptions")
+    public ResponseEntity<List<RecurringDetector.Subscription>> getSubscriptions() {
+        if (!recurringDetector.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(recurringDetector.getSubscriptions(LocalDate.now()));
+    }
+    
+    /**
+     * 合并疑似重复交易：补全原交易缺失的信息后删除该交易，返回原交易
+     * POST /api/transactions/{id}/duplicate/merge
+     */
+    @PostMapping("/{id}/duplicate/merge")
+    public ResponseEntity<TransactionResponse> mergeDuplicate(@PathVariable Long id) {
+        try {
+            return transactionService.mergeDuplicate(id).map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            logger.warn("无法合并交易 {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * 取消疑似重复标记
+     * DELETE /api/transactions/{id}/duplicate
+     */
+    @DeleteMapping("/{id}/duplicate")
+    public ResponseEntity<TransactionResponse> dismissDuplicate(@PathVariable Long id) {
+        return transactionService.dismissDuplicate(id).map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * 获取交易响应缓存统计（命中率、失效次数）
+     * GET /api/transactions/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<TransactionResponseCache.ResponseCacheStats> getCacheStats() {
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+    
     /**
      * 获取最近的交易
      * GET /api/transactions/recent
@@ -131,6 +250,24 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
     
+    /**
+     * 游标分页查询指定分类的交易
+     * GET /api/transactions/category/{category}/scroll?cursor=&size=20（size限制在1~200）
+     */
+    @GetMapping("/category/{category}/scroll")
+    public ResponseEntity<CursorPage<TransactionResponse>> scrollTransactionsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        try {
+            return ResponseEntity.ok(transactionService.scrollTransactionsByCategory(category, cursor, size));
+        } catch (IllegalArgumentException e) {
+            logger.warn("分页游标无效: {}", cursor);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * 根据时间范围查询交易
      * GET /api/transactions/date-range
@@ -144,13 +281,46 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
     
+    /**
+     * 流式导出时间范围内的交易
+     * GET /api/transactions/export?startDate=&endDate=&format=ndjson|csv
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("不支持的导出格式: {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        boolean csv = exportFormat == TransactionExportService.Format.CSV;
+        StreamingResponseBody body = output ->
+                transactionExportService.export(startDate, endDate, exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + (csv ? "csv" : "ndjson")).build().toString())
+                .body(body);
+    }
+    
     /**
      * 搜索交易
      * GET /api/transactions/search
      */
     @GetMapping("/search")
-    public ResponseEntity<List<TransactionResponse>> searchTransactions(@RequestParam String keyword) {
-        List<TransactionResponse> transactions = transactionService.searchTransactions(keyword);
+    public ResponseEntity<Page<TransactionResponse>> searchTransactions(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Pageable pageable = PageRequest.of(page, size);
+        Page<TransactionResponse> transactions = transactionService.searchTransactions(keyword, pageable);
         return ResponseEntity.ok(transactions);
     }
     
@@ -167,6 +337,82 @@ public class TransactionController {
         return ResponseEntity.ok(statistics);
     }
     
+    /**
+     * 按分类统计（默认统计支出）
+     * GET /api/transactions/statistics/categories
+     */
+    @GetMapping("/statistics/categories")
+    public ResponseEntity<List<TransactionService.CategoryBreakdown>> getCategoryBreakdown(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "EXPENSE") TransactionType type) {
+        
+        return ResponseEntity.ok(transactionService.getCategoryBreakdown(startDate, endDate, type));
+    }
+    
+    /**
+     * 各分类单笔支出的p50/p90/p99（近似值，相对误差不超过relativeAccuracy），不指定分类时返回全部分类
+     * GET /api/transactions/statistics/percentiles?category=FOOD_DINING&fromMonth=2024-01&toMonth=2024-06
+     */
+    @GetMapping("/statistics/percentiles")
+    public ResponseEntity<List<SpendSketches.SpendPercentiles>> getSpendPercentiles(
+            @RequestParam(required = false) TransactionCategory category,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth fromMonth,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth toMonth) {
+        
+        if (!spendSketches.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (category != null) {
+            return ResponseEntity.ok(List.of(spendSketches.percentiles(category, fromMonth, toMonth)));
+        }
+        return ResponseEntity.ok(spendSketches.percentiles(fromMonth, toMonth));
+    }
+    
+    /**
+     * 支出笔数最多的商户（近似值，每个商户最多高估maxOverestimate笔），不指定分类时合并全部分类
+     * GET /api/transactions/statistics/top-merchants?category=COFFEE_TEA&limit=10
+     */
+    @GetMapping("/statistics/top-merchants")
+    public ResponseEntity<SpendSketches.TopMerchants> getTopMerchants(
+            @RequestParam(required = false) TransactionCategory category,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        if (!spendSketches.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(spendSketches.topMerchants(category, Math.max(1, Math.min(limit, 100))));
+    }
+    
+    /**
+     * 获取支出统计草图状态（草图数、桶数、跟踪的商户数）
+     * GET /api/transactions/statistics/sketches/stats
+     */
+    @GetMapping("/statistics/sketches/stats")
+    public ResponseEntity<SpendSketches.SketchStats> getSketchStats() {
+        return ResponseEntity.ok(spendSketches.getStats());
+    }
+    
+    /**
+     * 从交易表重建支出统计草图
+     * POST /api/transactions/statistics/sketches/rebuild
+     */
+    @PostMapping("/statistics/sketches/rebuild")
+    public ResponseEntity<Void> rebuildSketches() {
+        spendSketches.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * 从交易表重建统计汇总
+     * POST /api/transactions/statistics/rebuild
+     */
+    @PostMapping("/statistics/rebuild")
+    public ResponseEntity<Void> rebuildStatistics() {
+        rollupService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+    
     /**
      * 更新交易
      * PUT /api/transactions/{id}
@@ -182,6 +428,21 @@ public class TransactionController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * 部分更新交易（只传需要修改的字段）
+     * PATCH /api/transactions/{id}
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<TransactionResponse> patchTransaction(
+            @PathVariable Long id,
+            @Valid @RequestBody TransactionPatchRequest request) {
+        
+        Optional<TransactionResponse> response = transactionService.patchTransaction(id, request);
+        
+        return response.map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * 删除交易
      * DELETE /api/transactions/{id}
@@ -0,0 +1,38 @@
+package com.zeronote.accounting.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页响应DTO
+ * 不返回总数，客户端使用nextCursor获取下一页，nextCursor为空表示已到末页
+ */
+public class CursorPage<T> {
+
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+
+    // 构造函数
+    public CursorPage() {}
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.size = content.size();
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+
+    // Getter和Setter方法
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
@@ -0,0 +1,70 @@
+package com.zeronote.accounting.dto;
+
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 交易部分更新DTO
+ * 只修改非null字段；指定type、category或scenario任一项即视为手动修正分类，
+ * 之后修改描述、商户、地点不再重新分类，除非reclassify为true
+ */
+public class TransactionPatchRequest {
+    
+    @Positive
+    private BigDecimal amount;
+    
+    private String description;
+    private String merchant;
+    private String location;
+    private LocalDateTime transactionDate;
+    private TransactionType type;
+    private TransactionCategory category;
+    private TransactionScenario scenario;
+    private boolean reclassify; // 解除手动分类并重新自动分类
+    
+    // Getter和Setter方法
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public String getMerchant() { return merchant; }
+    public void setMerchant(String merchant) { this.merchant = merchant; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
+    
+    public TransactionType getType() { return type; }
+    public void setType(TransactionType type) { this.type = type; }
+    
+    public TransactionCategory getCategory() { return category; }
+    public void setCategory(TransactionCategory category) { this.category = category; }
+    
+    public TransactionScenario getScenario() { return scenario; }
+    public void setScenario(TransactionScenario scenario) { this.scenario = scenario; }
+    
+    public boolean isReclassify() { return reclassify; }
+    public void setReclassify(boolean reclassify) { this.reclassify = reclassify; }
+    
+    /**
+     * 是否手动指定了分类
+     */
+    public boolean hasManualClassification() {
+        return type != null || category != null || scenario != null;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("TransactionPatchRequest{amount=%s, description='%s', merchant='%s', location='%s', "
+                        + "transactionDate=%s, type=%s, category=%s, scenario=%s, reclassify=%s}",
+                amount, description, merchant, location, transactionDate, type, category, scenario, reclassify);
+    }
+}
@@ -1,5 +1,7 @@
 package com.zeronote.accounting.dto;
 
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.EnrichmentStatus;
 import com.zeronote.accounting.model.TransactionCategory;
 import com.zeronote.accounting.model.TransactionScenario;
 import com.zeronote.accounting.model.TransactionType;
@@ -20,12 +22,40 @@ public class TransactionResponse {
     private TransactionScenario scenario;
     private LocalDateTime transactionDate;
     private String aiAnalysis;
+    private ClassificationSource classificationSource;
+    private EnrichmentStatus enrichmentStatus;
     private String source;
     private LocalDateTime createdAt;
+    private Long duplicateOfId;
     
     // 构造函数
     public TransactionResponse() {}
     
+    /**
+     * 全字段构造，供JPQL构造器投影直接使用，不经过实体
+     */
+    public TransactionResponse(Long id, BigDecimal amount, TransactionType type, TransactionCategory category,
+                               String description, String merchant, String location, TransactionScenario scenario,
+                               LocalDateTime transactionDate, String aiAnalysis,
+                               ClassificationSource classificationSource, EnrichmentStatus enrichmentStatus,
+                               String source, LocalDateTime createdAt, Long duplicateOfId) {
+        this.id = id;
+        this.amount = amount;
+        this.type = type;
+        this.category = category;
+        this.description = description;
+        this.merchant = merchant;
+        this.location = location;
+        this.scenario = scenario;
+        this.transactionDate = transactionDate;
+        this.aiAnalysis = aiAnalysis;
+        this.classificationSource = classificationSource;
+        this.enrichmentStatus = enrichmentStatus;
+        this.source = source;
+        this.createdAt = createdAt;
+        this.duplicateOfId = duplicateOfId;
+    }
+    
     // Getter和Setter方法
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -57,12 +87,21 @@ public class TransactionResponse {
     public String getAiAnalysis() { return aiAnalysis; }
     public void setAiAnalysis(String aiAnalysis) { this.aiAnalysis = aiAnalysis; }
     
+    public ClassificationSource getClassificationSource() { return classificationSource; }
+    public void setClassificationSource(ClassificationSource classificationSource) { this.classificationSource = classificationSource; }
+    
+    public EnrichmentStatus getEnrichmentStatus() { return enrichmentStatus; }
+    public void setEnrichmentStatus(EnrichmentStatus enrichmentStatus) { this.enrichmentStatus = enrichmentStatus; }
+    
     public String getSource() { return source; }
     public void setSource(String source) { this.source = source; }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
+    public Long getDuplicateOfId() { return duplicateOfId; }
+    public void setDuplicateOfId(Long duplicateOfId) { this.duplicateOfId = duplicateOfId; }
+    
     @Override
     public String toString() {
         return String.format("TransactionResponse{id=%d, amount=%s, category=%s, description='%s', scenario=%s}",
@@ -0,0 +1,49 @@
+package com.zeronote.accounting.event;
+
+import com.zeronote.accounting.model.Transaction;
+
+/**
+ * 交易变更事件
+ * 在交易创建、更新、删除时发布，供缓存、索引等内存结构同步更新。
+ * previous 为变更前的快照（创建时为null），current 为变更后的实体（删除时为null）。
+ */
+public class TransactionChangedEvent {
+    
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+    
+    private final ChangeType changeType;
+    private final Transaction previous;
+    private final Transaction current;
+    
+    private TransactionChangedEvent(ChangeType changeType, Transaction previous, Transaction current) {
+        this.changeType = changeType;
+        this.previous = previous;
+        this.current = current;
+    }
+    
+    public static TransactionChangedEvent created(Transaction current) {
+        return new TransactionChangedEvent(ChangeType.CREATED, null, current);
+    }
+    
+    public static TransactionChangedEvent updated(Transaction previous, Transaction current) {
+        return new TransactionChangedEvent(ChangeType.UPDATED, previous, current);
+    }
+    
+    public static TransactionChangedEvent deleted(Transaction previous) {
+        return new TransactionChangedEvent(ChangeType.DELETED, previous, null);
+    }
+    
+    public ChangeType getChangeType() { return changeType; }
+    public Transaction getPrevious() { return previous; }
+    public Transaction getCurrent() { return current; }
+    
+    @Override
+    public String toString() {
+        return String.format("TransactionChangedEvent{changeType=%s, previous=%s, current=%s}",
+                changeType, previous, current);
+    }
+}
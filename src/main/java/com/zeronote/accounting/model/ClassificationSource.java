@@ -0,0 +1,23 @@
+package com.zeronote.accounting.model;
+
+/**
+ * 分类来源枚举
+ * 记录交易分类结果由哪条路径产生
+ */
+public enum ClassificationSource {
+    CACHE("分类缓存"),
+    LOCAL_MODEL("本地模型"),
+    LLM("大模型"),
+    DEFAULT("默认分类"),
+    MANUAL("手动指定"); // 用户修正的分类，此后修改交易不再被自动分类覆盖
+    
+    private final String displayName;
+    
+    ClassificationSource(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
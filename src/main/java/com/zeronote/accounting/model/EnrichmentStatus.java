@@ -0,0 +1,21 @@
+package com.zeronote.accounting.model;
+
+/**
+ * AI分类状态枚举
+ * 异步分类模式下，交易先以PENDING状态保存，后台分类完成后更新
+ */
+public enum EnrichmentStatus {
+    PENDING("待分类"),
+    COMPLETED("已分类"),
+    FAILED("分类失败");
+    
+    private final String displayName;
+    
+    EnrichmentStatus(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,55 @@
+package com.zeronote.accounting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 后台任务进度检查点
+ * 按交易ID递增处理的任务记录已处理到的位置，重启后从该位置继续
+ */
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint {
+    
+    @Id
+    @Column(length = 50)
+    private String jobName;
+    
+    @Column(nullable = false)
+    private long lastId; // 已处理的最大交易ID，0表示从头开始
+    
+    @Column(nullable = false)
+    private long passCount; // 已完成的完整扫描轮数
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
+    // 构造函数
+    public JobCheckpoint() {}
+    
+    public JobCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+    
+    // Getter和Setter方法
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    
+    public long getLastId() { return lastId; }
+    public void setLastId(long lastId) { this.lastId = lastId; }
+    
+    public long getPassCount() { return passCount; }
+    public void setPassCount(long passCount) { this.passCount = passCount; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
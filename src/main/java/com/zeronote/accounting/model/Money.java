@@ -0,0 +1,213 @@
+package com.zeronote.accounting.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * 金额值类型
+ * 以币种最小单位（人民币为分）的long保存，不可变。加减与比较都是整数运算，溢出时抛出ArithmeticException，
+ * 不同币种之间运算抛出IllegalArgumentException。从BigDecimal创建时默认要求精确（小数位不超过币种精度），
+ * 需要舍入时显式传入RoundingMode。JSON中与原BigDecimal字段一样输出为数字，读取时按默认币种解析。
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("CNY");
+
+    private static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money zero() {
+        return ZERO;
+    }
+
+    public static Money zero(Currency currency) {
+        return ofMinor(0, currency);
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        fractionDigits(currency);
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * 按默认币种精确转换，小数位超出币种精度时抛出ArithmeticException
+     */
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY, RoundingMode.UNNECESSARY);
+    }
+
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        return of(amount, currency, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * 按币种精度舍入后转换，超出long范围时抛出ArithmeticException
+     */
+    public static Money of(BigDecimal amount, Currency currency, RoundingMode roundingMode) {
+        BigDecimal scaled = amount.setScale(fractionDigits(currency), roundingMode);
+        return new Money(scaled.unscaledValue().longValueExact(), currency);
+    }
+
+    /**
+     * 默认币种下的最小单位数，不创建Money对象，用于批量累加
+     */
+    public static long minorUnitsOf(BigDecimal amount, RoundingMode roundingMode) {
+        return amount.setScale(DEFAULT_CURRENCY.getDefaultFractionDigits(), roundingMode)
+                .unscaledValue().longValueExact();
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public Money times(long multiplier) {
+        return new Money(Math.multiplyExact(minorUnits, multiplier), currency);
+    }
+
+    /**
+     * 占total的百分比，保留两位小数，四舍五入；total为0时返回0
+     */
+    public BigDecimal percentageOf(Money total) {
+        requireSameCurrency(total);
+        if (total.minorUnits == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(minorUnits).multiply(ONE_HUNDRED)
+                .divide(BigDecimal.valueOf(total.minorUnits), 2, RoundingMode.HALF_UP);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * 转换为BigDecimal，小数位数等于币种精度
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money that = (Money) o;
+        return minorUnits == that.minorUnits && currency.equals(that.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode() + " " + toBigDecimal().toPlainString();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("币种不一致: " + currency + " / " + other.currency);
+        }
+    }
+
+    private static int fractionDigits(Currency currency) {
+        int digits = currency.getDefaultFractionDigits();
+        if (digits < 0) {
+            throw new IllegalArgumentException("不支持的币种: " + currency);
+        }
+        return digits;
+    }
+
+    public static class Serializer extends StdSerializer<Money> {
+        public Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Money> {
+        public Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            try {
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return of(parser.getDecimalValue());
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    return of(parser.getText().trim());
+                }
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, parser.getText(), "无效的金额");
+            }
+            return (Money) context.handleUnexpectedToken(Money.class, parser);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.zeronote.accounting.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+/**
+ * 金额列转换：数据库中为DECIMAL，实体中为默认币种的Money
+ * 列的小数位与币种精度一致，读取时不需要舍入
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount != null ? Money.of(amount) : null;
+    }
+}
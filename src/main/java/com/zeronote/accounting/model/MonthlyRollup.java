@@ -0,0 +1,45 @@
+package com.zeronote.accounting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/**
+ * 交易月汇总
+ * 按月累计各类型、分类、场景的金额与笔数，随交易增删改在同一事务内更新
+ */
+@Entity
+@Table(name = "monthly_rollups")
+public class MonthlyRollup {
+    
+    @EmbeddedId
+    private RollupKey id;
+    
+    @Convert(converter = MoneyConverter.class)
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money totalAmount = Money.zero();
+    
+    @Column(nullable = false)
+    private long transactionCount;
+    
+    // 构造函数
+    public MonthlyRollup() {}
+    
+    public MonthlyRollup(RollupKey id, Money totalAmount, long transactionCount) {
+        this.id = id;
+        this.totalAmount = totalAmount;
+        this.transactionCount = transactionCount;
+    }
+    
+    // Getter和Setter方法
+    public RollupKey getId() { return id; }
+    public void setId(RollupKey id) { this.id = id; }
+    
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
+    
+    public long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(long transactionCount) { this.transactionCount = transactionCount; }
+}
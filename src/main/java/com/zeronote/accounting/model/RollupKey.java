@@ -0,0 +1,76 @@
+package com.zeronote.accounting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * 汇总表主键：时间桶 × 类型 × 分类 × 场景
+ * 日汇总的时间桶为当天，月汇总为当月1日
+ */
+@Embeddable
+public class RollupKey implements Serializable {
+    
+    @Column(nullable = false)
+    private LocalDate bucketDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TransactionType type;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TransactionCategory category;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TransactionScenario scenario;
+    
+    // 构造函数
+    public RollupKey() {}
+    
+    public RollupKey(LocalDate bucketDate, TransactionType type, TransactionCategory category,
+                     TransactionScenario scenario) {
+        this.bucketDate = bucketDate;
+        this.type = type;
+        this.category = category;
+        this.scenario = scenario;
+    }
+    
+    // Getter和Setter方法
+    public LocalDate getBucketDate() { return bucketDate; }
+    public void setBucketDate(LocalDate bucketDate) { this.bucketDate = bucketDate; }
+    
+    public TransactionType getType() { return type; }
+    public void setType(TransactionType type) { this.type = type; }
+    
+    public TransactionCategory getCategory() { return category; }
+    public void setCategory(TransactionCategory category) { this.category = category; }
+    
+    public TransactionScenario getScenario() { return scenario; }
+    public void setScenario(TransactionScenario scenario) { this.scenario = scenario; }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RollupKey)) return false;
+        RollupKey that = (RollupKey) o;
+        return Objects.equals(bucketDate, that.bucketDate) && type == that.type
+                && category == that.category && scenario == that.scenario;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucketDate, type, category, scenario);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("RollupKey{bucketDate=%s, type=%s, category=%s, scenario=%s}",
+                bucketDate, type, category, scenario);
+    }
+}
@@ -11,12 +11,20 @@ import java.time.LocalDateTime;
  * 代表用户的每一笔财务交易
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_date_id", columnList = "transaction_date DESC, id DESC"),
+        @Index(name = "idx_transactions_category_date_id", columnList = "category, transaction_date DESC, id DESC"),
+        @Index(name = "idx_transactions_duplicate_of", columnList = "duplicate_of_id")
+})
 public class Transaction {
     
+    public static final String ID_SEQUENCE = "transactions_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_id")
+    @SequenceGenerator(name = "transaction_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id; // 序列+pooled优化器，每次取号分配50个ID，使批量插入可走JDBC batch
     
     @NotNull
     @Positive
@@ -56,12 +64,26 @@ public class Transaction {
     @Column(length = 1000)
     private String aiAnalysis;
     
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private ClassificationSource classificationSource; // 分类来源：缓存、本地模型、大模型等
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private EnrichmentStatus enrichmentStatus; // AI分类状态，异步分类时为PENDING
+    
+    private Integer enrichmentAttempts; // 后台分类已失败的次数
+    
+    private LocalDateTime nextEnrichmentAt; // 后台分类下次重试的时间，为空表示可立即处理
+    
     @Column(length = 50)
     private String source; // 数据来源：手动输入、微信支付、支付宝等
     
     @Column(length = 100)
     private String externalId; // 外部系统ID
     
+    private Long duplicateOfId; // 疑似重复时指向最早记录的那笔交易
+    
     // 构造函数
     public Transaction() {}
     
@@ -69,6 +91,31 @@ public class Transaction {
         this.amount = amount;
     }
     
+    /**
+     * 复制构造函数，用于在修改前保留快照
+     */
+    public Transaction(Transaction other) {
+        this.id = other.id;
+        this.amount = other.amount;
+        this.type = other.type;
+        this.category = other.category;
+        this.description = other.description;
+        this.merchant = other.merchant;
+        this.location = other.location;
+        this.scenario = other.scenario;
+        this.transactionDate = other.transactionDate;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.aiAnalysis = other.aiAnalysis;
+        this.classificationSource = other.classificationSource;
+        this.enrichmentStatus = other.enrichmentStatus;
+        this.enrichmentAttempts = other.enrichmentAttempts;
+        this.nextEnrichmentAt = other.nextEnrichmentAt;
+        this.source = other.source;
+        this.externalId = other.externalId;
+        this.duplicateOfId = other.duplicateOfId;
+    }
+    
     // Getter和Setter方法
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -106,12 +153,27 @@ public class Transaction {
     public String getAiAnalysis() { return aiAnalysis; }
     public void setAiAnalysis(String aiAnalysis) { this.aiAnalysis = aiAnalysis; }
     
+    public ClassificationSource getClassificationSource() { return classificationSource; }
+    public void setClassificationSource(ClassificationSource classificationSource) { this.classificationSource = classificationSource; }
+    
+    public EnrichmentStatus getEnrichmentStatus() { return enrichmentStatus; }
+    public void setEnrichmentStatus(EnrichmentStatus enrichmentStatus) { this.enrichmentStatus = enrichmentStatus; }
+    
+    public Integer getEnrichmentAttempts() { return enrichmentAttempts; }
+    public void setEnrichmentAttempts(Integer enrichmentAttempts) { this.enrichmentAttempts = enrichmentAttempts; }
+    
+    public LocalDateTime getNextEnrichmentAt() { return nextEnrichmentAt; }
+    public void setNextEnrichmentAt(LocalDateTime nextEnrichmentAt) { this.nextEnrichmentAt = nextEnrichmentAt; }
+    
     public String getSource() { return source; }
     public void setSource(String source) { this.source = source; }
     
     public String getExternalId() { return externalId; }
     public void setExternalId(String externalId) { this.externalId = externalId; }
     
+    public Long getDuplicateOfId() { return duplicateOfId; }
+    public void setDuplicateOfId(Long duplicateOfId) { this.duplicateOfId = duplicateOfId; }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -0,0 +1,12 @@
+package com.zeronote.accounting.repository;
+
+import com.zeronote.accounting.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 后台任务检查点数据访问层
+ */
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
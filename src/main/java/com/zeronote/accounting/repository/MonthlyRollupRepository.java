@@ -0,0 +1,65 @@
+package com.zeronote.accounting.repository;
+
+import com.zeronote.accounting.model.MonthlyRollup;
+import com.zeronote.accounting.model.RollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 交易月汇总数据访问层
+ */
+@Repository
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, RollupKey> {
+    
+    /**
+     * 累加汇总增量（不存在则插入）
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "MERGE INTO monthly_rollups r "
+            + "USING (VALUES (CAST(:bucketDate AS DATE), :type, :category, :scenario)) "
+            + "AS s(bucket_date, type, category, scenario) "
+            + "ON r.bucket_date = s.bucket_date AND r.type = s.type AND r.category = s.category AND r.scenario = s.scenario "
+            + "WHEN MATCHED THEN UPDATE SET total_amount = r.total_amount + :amount, "
+            + "transaction_count = r.transaction_count + :count "
+            + "WHEN NOT MATCHED THEN INSERT (bucket_date, type, category, scenario, total_amount, transaction_count) "
+            + "VALUES (s.bucket_date, s.type, s.category, s.scenario, :amount, :count)")
+    int mergeDelta(@Param("bucketDate") LocalDate bucketDate, @Param("type") String type,
+                   @Param("category") String category, @Param("scenario") String scenario,
+                   @Param("amount") BigDecimal amount, @Param("count") long count);
+    
+    /**
+     * 笔数已减为0时删除该汇总行
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM monthly_rollups WHERE bucket_date = :bucketDate AND type = :type "
+            + "AND category = :category AND scenario = :scenario AND transaction_count <= 0")
+    int deleteIfEmpty(@Param("bucketDate") LocalDate bucketDate, @Param("type") String type,
+                      @Param("category") String category, @Param("scenario") String scenario);
+    
+    /**
+     * 从交易表重新生成全部汇总
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO monthly_rollups (bucket_date, type, category, scenario, total_amount, transaction_count) "
+            + "SELECT CAST(DATE_TRUNC('MONTH', transaction_date) AS DATE), type, category, scenario, SUM(amount), COUNT(*) FROM transactions "
+            + "GROUP BY CAST(DATE_TRUNC('MONTH', transaction_date) AS DATE), type, category, scenario")
+    int rebuildFromTransactions();
+    
+    /**
+     * 按类型、分类汇总时间桶范围内的金额与笔数：[type, category, sum, count]
+     */
+    @Query("SELECT r.id.type, r.id.category, SUM(r.totalAmount), SUM(r.transactionCount) FROM MonthlyRollup r "
+            + "WHERE r.id.bucketDate BETWEEN :fromBucket AND :toBucket GROUP BY r.id.type, r.id.category")
+    List<Object[]> sumByTypeAndCategory(@Param("fromBucket") LocalDate fromBucket, @Param("toBucket") LocalDate toBucket);
+}
@@ -1,18 +1,28 @@
 package com.zeronote.accounting.repository;
 
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.EnrichmentStatus;
 import com.zeronote.accounting.model.Transaction;
 import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
 import com.zeronote.accounting.model.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 交易数据访问层
@@ -20,6 +30,13 @@ import java.util.List;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
+    /**
+     * 响应DTO构造器投影：只取标量列直接构造TransactionResponse，不创建托管实体、不做脏检查快照
+     */
+    String RESPONSE_PROJECTION = "SELECT new com.zeronote.accounting.dto.TransactionResponse(t.id, t.amount, t.type, "
+            + "t.category, t.description, t.merchant, t.location, t.scenario, t.transactionDate, t.aiAnalysis, "
+            + "t.classificationSource, t.enrichmentStatus, t.source, t.createdAt, t.duplicateOfId) FROM Transaction t ";
+    
     /**
      * 根据类型查询交易
      */
@@ -35,6 +52,18 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     List<Transaction> findByTransactionDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
+    /**
+     * 按时间范围流式读取交易（只进游标，按批从数据库拉取，实体只读不做脏检查）
+     * 调用方需在事务内消费并关闭Stream
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.transactionDate BETWEEN :startDate AND :endDate ORDER BY t.transactionDate, t.id")
+    Stream<Transaction> streamByTransactionDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                       @Param("endDate") LocalDateTime endDate);
+    
     /**
      * 根据金额范围查询交易
      */
@@ -55,6 +84,89 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     Page<Transaction> findAllByOrderByTransactionDateDesc(Pageable pageable);
     
+    /**
+     * 分页查询所有交易（DTO投影）
+     */
+    @Query(value = RESPONSE_PROJECTION + "ORDER BY t.transactionDate DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Transaction t")
+    Page<TransactionResponse> findResponsePage(Pageable pageable);
+    
+    /**
+     * 根据分类分页查询（DTO投影）
+     */
+    @Query(value = RESPONSE_PROJECTION + "WHERE t.category = :category ORDER BY t.transactionDate DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.category = :category")
+    Page<TransactionResponse> findResponsePageByCategory(@Param("category") TransactionCategory category,
+                                                         Pageable pageable);
+    
+    /**
+     * 根据时间范围查询（DTO投影）
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(RESPONSE_PROJECTION + "WHERE t.transactionDate BETWEEN :startDate AND :endDate")
+    List<TransactionResponse> findResponsesByDateRange(@Param("startDate") LocalDateTime startDate,
+                                                       @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * 按ID批量查询（DTO投影），返回顺序不保证
+     */
+    @Query(RESPONSE_PROJECTION + "WHERE t.id IN :ids")
+    List<TransactionResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 商户名或描述包含关键词（忽略大小写，DTO投影）
+     */
+    @Query(RESPONSE_PROJECTION + "WHERE LOWER(t.merchant) LIKE LOWER(CONCAT('%', :keyword, '%')) "
+            + "OR LOWER(t.description) LIKE LOWER(CONCAT('%', :keyword, '%')) ORDER BY t.transactionDate DESC")
+    List<TransactionResponse> findResponsesByKeyword(@Param("keyword") String keyword);
+    
+    /**
+     * 键集分页：第一页（按交易时间、ID倒序，不查询总数，DTO投影）
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_PROJECTION + "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findFirstKeysetPage(Pageable pageable);
+    
+    /**
+     * 键集分页：游标(交易时间, ID)之后的一页
+     * 条件写成 时间<=游标 AND (时间<游标 OR ID<游标)，使索引可按交易时间做范围扫描
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_PROJECTION + "WHERE t.transactionDate <= :transactionDate "
+            + "AND (t.transactionDate < :transactionDate OR t.id < :id) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findKeysetPageAfter(@Param("transactionDate") LocalDateTime transactionDate,
+                                                  @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * 键集分页：指定分类的第一页
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_PROJECTION + "WHERE t.category = :category ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findFirstKeysetPageByCategory(@Param("category") TransactionCategory category,
+                                                            Pageable pageable);
+    
+    /**
+     * 键集分页：指定分类在游标之后的一页
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_PROJECTION + "WHERE t.category = :category AND t.transactionDate <= :transactionDate "
+            + "AND (t.transactionDate < :transactionDate OR t.id < :id) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findKeysetPageByCategoryAfter(@Param("category") TransactionCategory category,
+                                                            @Param("transactionDate") LocalDateTime transactionDate,
+                                                            @Param("id") Long id, Pageable pageable);
+    
     /**
      * 根据类型分页查询
      */
@@ -83,6 +195,13 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t.category, COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.type = 'EXPENSE' AND t.transactionDate BETWEEN :startDate AND :endDate GROUP BY t.category")
     List<Object[]> sumExpensesByCategory(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
+    /**
+     * 按类型、分类汇总半开区间[startDate, endDate)内的金额与笔数：[type, category, sum, count]
+     */
+    @Query("SELECT t.type, t.category, SUM(t.amount), COUNT(t) FROM Transaction t "
+            + "WHERE t.transactionDate >= :startDate AND t.transactionDate < :endDate GROUP BY t.type, t.category")
+    List<Object[]> sumByTypeAndCategory(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
     /**
      * 查找最近的交易
      */
@@ -97,4 +216,184 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * 检查外部ID是否存在
      */
     boolean existsByExternalId(String externalId);
-} 
\ No newline at end of file
+    
+    /**
+     * 批量查询已存在的外部ID
+     */
+    @Query("SELECT t.externalId FROM Transaction t WHERE t.externalId IN :externalIds")
+    List<String> findExistingExternalIds(@Param("externalIds") Collection<String> externalIds);
+    
+    /**
+     * 按ID游标分批读取外部ID
+     */
+    @Query("SELECT t.id AS id, t.externalId AS externalId FROM Transaction t WHERE t.externalId IS NOT NULL AND t.id > :afterId ORDER BY t.id")
+    List<ExternalIdView> findExternalIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 按ID游标分批读取搜索索引所需字段
+     */
+    @Query("SELECT t.id AS id, t.merchant AS merchant, t.description AS description, t.transactionDate AS transactionDate FROM Transaction t WHERE t.id > :afterId ORDER BY t.id")
+    List<SearchView> findSearchViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 按ID游标分批读取列存分析所需字段
+     */
+    @Query("SELECT t.id AS id, t.amount AS amount, t.transactionDate AS transactionDate, t.type AS type, "
+            + "t.category AS category, t.scenario AS scenario, t.source AS source FROM Transaction t "
+            + "WHERE t.id > :afterId ORDER BY t.id")
+    List<ColumnarView> findColumnarViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 按ID游标分批读取支出草图所需字段
+     */
+    @Query("SELECT t.id AS id, t.amount AS amount, t.transactionDate AS transactionDate, t.category AS category, "
+            + "t.merchant AS merchant FROM Transaction t "
+            + "WHERE t.type = com.zeronote.accounting.model.TransactionType.EXPENSE AND t.id > :afterId ORDER BY t.id")
+    List<SketchView> findExpenseSketchViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 按ID游标分批读取交易日期不早于since的重复检测所需字段
+     */
+    @Query("SELECT t.id AS id, t.amount AS amount, t.transactionDate AS transactionDate, t.type AS type, "
+            + "t.merchant AS merchant, t.description AS description, t.source AS source, t.externalId AS externalId, "
+            + "t.duplicateOfId AS duplicateOfId FROM Transaction t WHERE t.transactionDate >= :since AND t.id > :afterId ORDER BY t.id")
+    List<DuplicateView> findDuplicateViewsSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                                Pageable pageable);
+    
+    /**
+     * 按ID游标分批读取周期检测所需字段（有商户且未被标记为重复的交易）
+     */
+    @Query("SELECT t.id AS id, t.amount AS amount, t.transactionDate AS transactionDate, t.type AS type, "
+            + "t.merchant AS merchant, t.scenario AS scenario FROM Transaction t "
+            + "WHERE t.merchant IS NOT NULL AND t.duplicateOfId IS NULL AND t.id > :afterId ORDER BY t.id")
+    List<RecurringView> findRecurringViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 指向某笔交易的疑似重复交易
+     */
+    List<Transaction> findByDuplicateOfId(Long duplicateOfId);
+    
+    /**
+     * 被标记为疑似重复的交易（按ID降序）
+     */
+    @Query(value = RESPONSE_PROJECTION + "WHERE t.duplicateOfId IS NOT NULL ORDER BY t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.duplicateOfId IS NOT NULL")
+    Page<TransactionResponse> findDuplicateResponses(Pageable pageable);
+    
+    /**
+     * 支出的笔数与总额：[count, sum]
+     */
+    @Query("SELECT COUNT(t), COALESCE(SUM(t.amount), 0) FROM Transaction t "
+            + "WHERE t.type = com.zeronote.accounting.model.TransactionType.EXPENSE")
+    List<Object[]> countAndSumExpenses();
+    
+    /**
+     * 到期可处理的待分类交易（未设置重试时间或重试时间已到，按ID升序）
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.enrichmentStatus = com.zeronote.accounting.model.EnrichmentStatus.PENDING "
+            + "AND (t.nextEnrichmentAt IS NULL OR t.nextEnrichmentAt <= :now) ORDER BY t.id")
+    List<Transaction> findEnrichmentDue(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * 记录后台分类失败次数并推迟到下次重试时间，仅对仍待分类的交易生效
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.enrichmentAttempts = :attempts, t.nextEnrichmentAt = :nextAttemptAt "
+            + "WHERE t.id = :id AND t.enrichmentStatus = com.zeronote.accounting.model.EnrichmentStatus.PENDING")
+    int deferEnrichment(@Param("id") Long id, @Param("attempts") int attempts,
+                        @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+    
+    /**
+     * 统计指定分类状态的交易数
+     */
+    long countByEnrichmentStatus(EnrichmentStatus enrichmentStatus);
+    
+    /**
+     * 使用默认分类兜底的交易条件：分类来源为DEFAULT，或早期未记录来源但分析说明为默认说明的
+     */
+    String FALLBACK_CONDITION = "(t.classificationSource = com.zeronote.accounting.model.ClassificationSource.DEFAULT "
+            + "OR (t.classificationSource IS NULL AND t.aiAnalysis = :defaultAnalysis))";
+    
+    /**
+     * 按ID游标分批读取使用默认分类兜底的交易
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.id > :afterId AND " + FALLBACK_CONDITION + " ORDER BY t.id")
+    List<Transaction> findFallbackAfter(@Param("afterId") Long afterId,
+                                        @Param("defaultAnalysis") String defaultAnalysis, Pageable pageable);
+    
+    /**
+     * 统计使用默认分类兜底的交易数
+     */
+    @Query("SELECT COUNT(t) FROM Transaction t WHERE " + FALLBACK_CONDITION)
+    long countFallback(@Param("defaultAnalysis") String defaultAnalysis);
+    
+    /**
+     * 外部ID投影
+     */
+    interface ExternalIdView {
+        Long getId();
+        String getExternalId();
+    }
+    
+    /**
+     * 列存分析投影
+     */
+    interface ColumnarView {
+        Long getId();
+        BigDecimal getAmount();
+        LocalDateTime getTransactionDate();
+        TransactionType getType();
+        TransactionCategory getCategory();
+        TransactionScenario getScenario();
+        String getSource();
+    }
+    
+    /**
+     * 支出草图投影
+     */
+    interface SketchView {
+        Long getId();
+        BigDecimal getAmount();
+        LocalDateTime getTransactionDate();
+        TransactionCategory getCategory();
+        String getMerchant();
+    }
+    
+    /**
+     * 重复检测投影
+     */
+    interface DuplicateView {
+        Long getId();
+        BigDecimal getAmount();
+        LocalDateTime getTransactionDate();
+        TransactionType getType();
+        String getMerchant();
+        String getDescription();
+        String getSource();
+        String getExternalId();
+        Long getDuplicateOfId();
+    }
+    
+    /**
+     * 周期检测投影
+     */
+    interface RecurringView {
+        Long getId();
+        BigDecimal getAmount();
+        LocalDateTime getTransactionDate();
+        TransactionType getType();
+        String getMerchant();
+        TransactionScenario getScenario();
+    }
+    
+    /**
+     * 搜索索引投影
+     */
+    interface SearchView {
+        Long getId();
+        String getMerchant();
+        String getDescription();
+        LocalDateTime getTransactionDate();
+    }
+}
\ No newline at end of file
@@ -1,21 +1,43 @@
 package com.zeronote.accounting.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.Usage;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.OpenAiService;
+import com.zeronote.accounting.model.ClassificationSource;
 import com.zeronote.accounting.model.TransactionCategory;
 import com.zeronote.accounting.model.TransactionScenario;
 import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.util.MicroBatcher;
+import com.zeronote.accounting.util.ServerTiming;
+import com.zeronote.accounting.util.ThreadFactories;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * AI分析服务
@@ -26,115 +48,461 @@ public class AiAnalysisService {
     
     private static final Logger logger = LoggerFactory.getLogger(AiAnalysisService.class);
     
+    /**
+     * 默认分类时写入的分析说明
+     */
+    public static final String DEFAULT_ANALYSIS = "AI分析暂时不可用，使用默认分类";
+    
+    /**
+     * 默认分类时的占位商户与描述
+     */
+    static final String DEFAULT_MERCHANT = "未知商户";
+    static final String DEFAULT_DESCRIPTION = "交易";
+    
     private final OpenAiService openAiService;
     private final ObjectMapper objectMapper;
+    private final ClassificationCache classificationCache;
+    private final LocalClassifier localClassifier;
+    private final AiConcurrencyLimiter concurrencyLimiter;
+    private final AiCircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService hedgeExecutor;
+    private final long hedgeDelayMillis;
+    private final AtomicLong shortCircuitCount = new AtomicLong();
+    private final AtomicLong hedgedCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong llmCallCount = new AtomicLong();
+    private final AtomicLong llmItemCount = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final MicroBatcher<AnalysisRequest, AiAnalysisResult> batcher;
+    private final Map<String, CompletableFuture<AiAnalysisResult>> inFlightRequests = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
     
     @Value("${ai.openai.model:gpt-3.5-turbo}")
     private String model;
     
-    public AiAnalysisService(@Value("${ai.openai.api-key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey);
+    @Value("${ai.openai.max-tokens-per-item:120}")
+    private int maxTokensPerItem = 120;
+    
+    public AiAnalysisService(OpenAiService openAiService,
+                             @Value("${ai.openai.timeout:30000}") long timeoutMillis,
+                             @Value("${ai.openai.batch.enabled:true}") boolean batchEnabled,
+                             @Value("${ai.openai.batch.max-size:20}") int batchMaxSize,
+                             @Value("${ai.openai.batch.max-wait-ms:50}") long batchMaxWaitMillis,
+                             @Value("${ai.openai.hedge.enabled:false}") boolean hedgeEnabled,
+                             @Value("${ai.openai.hedge.delay-ms:3000}") long hedgeDelayMillis,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             ClassificationCache classificationCache,
+                             LocalClassifier localClassifier,
+                             AiConcurrencyLimiter concurrencyLimiter,
+                             AiCircuitBreaker circuitBreaker,
+                             MeterRegistry meterRegistry) {
+        this.openAiService = openAiService;
         this.objectMapper = new ObjectMapper();
+        this.classificationCache = classificationCache;
+        this.localClassifier = localClassifier;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.hedgeExecutor = !hedgeEnabled ? null : virtualThreads
+                ? Executors.newThreadPerTaskExecutor(ThreadFactories.named("ai-hedge", true))
+                : Executors.newCachedThreadPool(ThreadFactories.named("ai-hedge", false));
+        this.batcher = batchEnabled
+                ? new MicroBatcher<>("ai-batch", batchMaxSize, batchMaxWaitMillis, this::analyzeBatch, virtualThreads)
+                : null;
     }
     
     /**
      * 分析交易并返回智能分类结果
+     * 依次尝试分类缓存、本地分类模型，只有低置信度的交易才调用大模型，
+     * 大模型的成功结果会写入缓存
      */
     public AiAnalysisResult analyzeTransaction(BigDecimal amount, String description, 
                                              String merchant, String location) {
+        long start = System.nanoTime();
+        AiAnalysisResult result = analyzeLocally(amount, description, merchant, location)
+                .orElseGet(() -> analyzeWithLlm(amount, description, merchant, location));
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("ai.analysis", "source", String.valueOf(result.getSource()))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        ServerTiming.record("ai", elapsed);
+        return result;
+    }
+    
+    /**
+     * 仅使用分类缓存和本地分类模型进行分析，不发起网络调用
+     */
+    public Optional<AiAnalysisResult> analyzeLocally(BigDecimal amount, String description,
+                                                     String merchant, String location) {
+        String cacheKey = ClassificationCache.buildKey(amount, description, merchant, location);
+        Optional<AiAnalysisResult> cached = classificationCache.get(cacheKey);
+        if (cached.isPresent()) {
+            logger.debug("分类缓存命中: {}", cacheKey);
+            return cached;
+        }
+        return localClassifier.classify(amount, description, merchant, location);
+    }
+    
+    /**
+     * 调用大模型分析，失败时返回默认分类
+     * 启用微批时与其他并发请求合并为一次调用；相同输入的并发请求只发送一次；
+     * 熔断期间不排队等待，直接使用本地低置信度分类或默认分类
+     */
+    private AiAnalysisResult analyzeWithLlm(BigDecimal amount, String description,
+                                            String merchant, String location) {
+        if (!circuitBreaker.isCallPermitted()) {
+            shortCircuitCount.incrementAndGet();
+            countFallback("circuit_open");
+            return localClassifier.bestGuess(amount, description, merchant, location)
+                    .orElseGet(() -> getDefaultAnalysis(amount));
+        }
+        String cacheKey = ClassificationCache.buildKey(amount, description, merchant, location);
+        CompletableFuture<AiAnalysisResult> future = new CompletableFuture<>();
+        CompletableFuture<AiAnalysisResult> existing = inFlightRequests.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            return await(existing, amount);
+        }
+        
+        AiAnalysisResult result = getDefaultAnalysis(amount);
         try {
-            String prompt = buildAnalysisPrompt(amount, description, merchant, location);
-            
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(model)
-                    .messages(List.of(new ChatMessage("user", prompt)))
-                    .temperature(0.1)
-                    .build();
-            
-            String response = openAiService.createChatCompletion(request)
-                    .getChoices().get(0).getMessage().getContent();
-            
-            return parseAnalysisResult(response);
-            
+            AnalysisRequest request = new AnalysisRequest(amount, description, merchant, location);
+            if (batcher != null) {
+                // 微批的提示词构建、网络与解析发生在批处理线程上，请求线程只记录等待时间
+                long start = System.nanoTime();
+                result = await(batcher.submit(request), amount);
+                ServerTiming.record("llm", System.nanoTime() - start);
+            } else {
+                result = requestSingle(request);
+            }
+            if (!result.isFallback()) {
+                classificationCache.put(cacheKey, result);
+            }
+            return result;
+        } finally {
+            inFlightRequests.remove(cacheKey, future);
+            future.complete(result);
+        }
+    }
+    
+    private AiAnalysisResult await(CompletableFuture<AiAnalysisResult> future, BigDecimal amount) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(amount, "interrupted");
+        } catch (TimeoutException e) {
+            logger.error("等待AI分析结果超时（{}ms）", timeoutMillis);
+            return fallback(amount, "timeout");
         } catch (Exception e) {
             logger.error("AI分析失败", e);
-            return getDefaultAnalysis(amount);
-        }
-    }
-    
-    /**
-     * 构建分析提示词
-     */
-    private String buildAnalysisPrompt(BigDecimal amount, String description, 
-                                     String merchant, String location) {
-        return String.format("""
-                请分析以下交易信息，并返回JSON格式的分析结果：
-                
-                金额: %s
-                描述: %s
-                商户: %s
-                位置: %s
-                时间: %s
-                
-                请根据以下规则进行分析：
-                1. 交易类型：EXPENSE(支出)、INCOME(收入)、TRANSFER(转账)
-                2. 交易分类：从预定义分类中选择最合适的
-                3. 交易场景：识别特殊场景如报销、退款、订阅等
-                4. 商户名称：提取或推断商户名称
-                5. 描述：生成简洁的描述
-                
-                预定义分类：
-                - FOOD_DINING(餐饮)、COFFEE_TEA(咖啡茶饮)、SNACKS(零食小吃)
-                - TRANSPORTATION(交通)、PUBLIC_TRANSPORT(公共交通)、TAXI_RIDESHARE(打车)
-                - SHOPPING(购物)、CLOTHING(服装)、ELECTRONICS(电子产品)
-                - ENTERTAINMENT(娱乐)、MOVIES(电影)、GAMES(游戏)
-                - UTILITIES(水电费)、RENT(房租)、HEALTHCARE(医疗)
-                - WORK_EXPENSES(工作支出)、REIMBURSEMENT(报销)
-                - OTHER(其他)、REFUND(退款)
-                
-                场景类型：
-                - REGULAR(常规交易)、REIMBURSEMENT(报销)、REFUND(退款)
-                - SUBSCRIPTION(订阅)、RECURRING(定期交易)、GIFT(礼物)
-                
-                返回JSON格式：
-                {
-                    "type": "EXPENSE",
-                    "category": "FOOD_DINING",
-                    "scenario": "REGULAR",
-                    "merchant": "商户名称",
-                    "description": "交易描述",
-                    "analysis": "AI分析说明"
-                }
-                """, 
-                amount, 
-                description != null ? description : "", 
-                merchant != null ? merchant : "", 
-                location != null ? location : "",
-                LocalDateTime.now());
+            return fallback(amount, "error");
+        }
+    }
+    
+    /**
+     * 单笔交易调用大模型
+     */
+    private AiAnalysisResult requestSingle(AnalysisRequest item) {
+        try {
+            long start = System.nanoTime();
+            String prompt = buildAnalysisPrompt(item.amount, item.description, item.merchant, item.location);
+            start = recordStage("prompt", "single", start);
+            String response = requestCompletion(prompt, 1);
+            start = recordStage("llm", "single", start);
+            AiAnalysisResult result = parseAnalysisResult(response);
+            recordStage("parse", "single", start);
+            return result;
+        } catch (Exception e) {
+            logger.error("AI分析失败", e);
+            return fallback(item.amount, "error");
+        }
+    }
+    
+    /**
+     * 多笔交易合并为一次调用，单条结果无效时只有该条使用默认分类
+     */
+    private List<AiAnalysisResult> analyzeBatch(List<AnalysisRequest> items) {
+        if (items.size() == 1) {
+            return List.of(requestSingle(items.get(0)));
+        }
+        try {
+            long start = System.nanoTime();
+            String prompt = buildBatchAnalysisPrompt(items);
+            start = recordStage("prompt", "batch", start);
+            String response = requestCompletion(prompt, items.size());
+            start = recordStage("llm", "batch", start);
+            List<AiAnalysisResult> results = parseBatchAnalysisResult(response, items);
+            recordStage("parse", "batch", start);
+            return results;
+        } catch (Exception e) {
+            logger.error("AI批量分析失败，共{}笔交易使用默认分类", items.size(), e);
+            List<AiAnalysisResult> results = new ArrayList<>(items.size());
+            for (AnalysisRequest item : items) {
+                results.add(fallback(item.amount, "batch_error"));
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * 系统提示词固定不变，用户消息只含交易行；输出token上限按交易笔数计算，避免异常长的回复
+     */
+    private String requestCompletion(String userPrompt, int itemCount) {
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(model)
+                .messages(List.of(
+                        new ChatMessage(ChatMessageRole.SYSTEM.value(), AnalysisPrompt.SYSTEM_PROMPT),
+                        new ChatMessage(ChatMessageRole.USER.value(), userPrompt)))
+                .temperature(0.1)
+                .maxTokens(maxTokensPerItem * itemCount + 20)
+                .build();
+        
+        llmItemCount.addAndGet(itemCount);
+        return hedgeExecutor != null ? requestHedged(request) : requestOnce(request);
+    }
+    
+    /**
+     * 调用一次大模型：先经并发限制器排队获取许可，再经熔断器放行，调用结果与耗时计入熔断统计
+     */
+    private String requestOnce(ChatCompletionRequest request) {
+        return concurrencyLimiter.execute(() -> {
+            AiCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+            if (permit == null) {
+                throw new IllegalStateException("大模型调用已熔断");
+            }
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                ChatCompletionResult result = openAiService.createChatCompletion(request);
+                recordUsage(result.getUsage());
+                String content = result.getChoices().get(0).getMessage().getContent();
+                success = true;
+                return content;
+            } finally {
+                circuitBreaker.record(permit, success, System.nanoTime() - start);
+            }
+        });
+    }
+    
+    /**
+     * 对冲调用：首次调用超过hedge.delay-ms仍未返回时再发起一次，取先成功的结果
+     * 落后的调用无法取消，会继续占用一个并发许可直到返回
+     */
+    private String requestHedged(ChatCompletionRequest request) {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        hedgeExecutor.execute(() -> attempt(request, winner, pending, false));
+        try {
+            return winner.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (circuitBreaker.isCallPermitted()) {
+                hedgedCount.incrementAndGet();
+                pending.incrementAndGet();
+                hedgeExecutor.execute(() -> attempt(request, winner, pending, true));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待大模型响应时被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("大模型调用失败", e.getCause());
+        }
+        try {
+            return winner.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("大模型调用失败", e.getCause());
+        }
+    }
+    
+    private void attempt(ChatCompletionRequest request, CompletableFuture<String> winner,
+                         AtomicInteger pending, boolean hedge) {
+        try {
+            if (winner.complete(requestOnce(request)) && hedge) {
+                hedgeWinCount.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * 构建单笔交易的用户消息
+     */
+    String buildAnalysisPrompt(BigDecimal amount, String description, 
+                               String merchant, String location) {
+        StringBuilder prompt = new StringBuilder(64);
+        AnalysisPrompt.appendLine(prompt, 0, amount, description, merchant, location);
+        return prompt.toString();
+    }
+    
+    /**
+     * 构建批量交易的用户消息，规则说明都在系统提示词中
+     */
+    private String buildBatchAnalysisPrompt(List<AnalysisRequest> items) {
+        return AnalysisPrompt.userPrompt(items);
     }
     
     /**
      * 解析AI分析结果
      */
-    private AiAnalysisResult parseAnalysisResult(String response) {
+    AiAnalysisResult parseAnalysisResult(String response) {
         try {
-            JsonNode jsonNode = objectMapper.readTree(response);
-            
-            return AiAnalysisResult.builder()
-                    .type(TransactionType.valueOf(jsonNode.get("type").asText()))
-                    .category(TransactionCategory.valueOf(jsonNode.get("category").asText()))
-                    .scenario(TransactionScenario.valueOf(jsonNode.get("scenario").asText()))
-                    .merchant(jsonNode.get("merchant").asText())
-                    .description(jsonNode.get("description").asText())
-                    .analysis(jsonNode.get("analysis").asText())
-                    .build();
-                    
+            JsonNode root = objectMapper.readTree(AnalysisPrompt.extractJson(response));
+            JsonNode results = resultArray(root);
+            return toAnalysisResult(results != null ? results.get(0) : root);
         } catch (Exception e) {
             logger.error("解析AI分析结果失败", e);
-            return getDefaultAnalysis(null);
+            return fallback(null, "parse_error");
         }
     }
     
+    /**
+     * 解析批量分析结果，按index映射回各笔交易
+     */
+    List<AiAnalysisResult> parseBatchAnalysisResult(String response, List<AnalysisRequest> items)
+            throws JsonProcessingException {
+        JsonNode root = resultArray(objectMapper.readTree(AnalysisPrompt.extractJson(response)));
+        if (root == null) {
+            throw new IllegalArgumentException("批量分析结果中没有结果数组");
+        }
+        
+        AiAnalysisResult[] results = new AiAnalysisResult[items.size()];
+        for (int i = 0; i < root.size(); i++) {
+            JsonNode node = root.get(i);
+            JsonNode indexNode = field(node, "i", "index");
+            int index = indexNode != null ? indexNode.asInt(-1) : i;
+            if (index < 0 || index >= results.length || results[index] != null) {
+                logger.warn("批量分析结果第{}个元素的index无效: {}", i, index);
+                continue;
+            }
+            try {
+                results[index] = toAnalysisResult(node);
+            } catch (Exception e) {
+                logger.warn("批量分析结果第{}笔交易解析失败，使用默认分类: {}", index, e.getMessage());
+            }
+        }
+        
+        List<AiAnalysisResult> parsed = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            parsed.add(results[i] != null ? results[i] : fallback(items.get(i).amount, "parse_error"));
+        }
+        return parsed;
+    }
+    
+    /**
+     * 结果数组：JSON模式下为{"r":[...]}，也兼容直接返回数组；单个对象时返回null
+     */
+    private static JsonNode resultArray(JsonNode root) {
+        if (root.isArray()) {
+            return root;
+        }
+        JsonNode results = field(root, "r", "results");
+        return results != null && results.isArray() && results.size() > 0 ? results : null;
+    }
+    
+    /**
+     * 同时接受单字母字段名与完整字段名
+     */
+    private static JsonNode field(JsonNode node, String shortName, String name) {
+        JsonNode value = node.get(shortName);
+        if (value == null || value.isNull()) {
+            value = node.get(name);
+        }
+        return value == null || value.isNull() ? null : value;
+    }
+    
+    private static String text(JsonNode node, String shortName, String name) {
+        JsonNode value = field(node, shortName, name);
+        return value != null ? value.asText() : "";
+    }
+    
+    private AiAnalysisResult toAnalysisResult(JsonNode jsonNode) {
+        return AiAnalysisResult.builder()
+                .type(AnalysisPrompt.decode(field(jsonNode, "t", "type"), TransactionType.class))
+                .category(AnalysisPrompt.decode(field(jsonNode, "c", "category"), TransactionCategory.class))
+                .scenario(AnalysisPrompt.decode(field(jsonNode, "s", "scenario"), TransactionScenario.class))
+                .merchant(text(jsonNode, "m", "merchant"))
+                .description(text(jsonNode, "d", "description"))
+                .analysis(text(jsonNode, "a", "analysis"))
+                .source(ClassificationSource.LLM)
+                .build();
+    }
+    
+    public BatchStats getBatchStats() {
+        if (batcher == null) {
+            return new BatchStats(false, 0, 0, 0, 0);
+        }
+        return new BatchStats(true, batcher.getMaxBatchSize(), batcher.getQueueSize(),
+                batcher.getBatchCount(), batcher.getItemCount());
+    }
+    
+    /**
+     * 大模型token用量统计
+     */
+    public TokenStats getTokenStats() {
+        return new TokenStats(llmCallCount.get(), llmItemCount.get(), promptTokens.get(), completionTokens.get());
+    }
+    
+    /**
+     * 熔断与对冲统计
+     */
+    public ResilienceStats getResilienceStats() {
+        return new ResilienceStats(circuitBreaker.getStats(), shortCircuitCount.get(),
+                hedgeExecutor != null, hedgedCount.get(), hedgeWinCount.get());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 记录一个大模型调用阶段的耗时，返回当前时间作为下一阶段的起点
+     */
+    private long recordStage(String stage, String mode, long start) {
+        long now = System.nanoTime();
+        meterRegistry.timer("ai.llm.stage", "stage", stage, "mode", mode).record(now - start, TimeUnit.NANOSECONDS);
+        ServerTiming.record(stage, now - start);
+        return now;
+    }
+    
+    /**
+     * 累计一次调用的token用量，对冲调用的两次请求都计入
+     */
+    private void recordUsage(Usage usage) {
+        llmCallCount.incrementAndGet();
+        if (usage == null) {
+            return;
+        }
+        promptTokens.addAndGet(usage.getPromptTokens());
+        completionTokens.addAndGet(usage.getCompletionTokens());
+        meterRegistry.counter("ai.llm.tokens", "type", "prompt").increment(usage.getPromptTokens());
+        meterRegistry.counter("ai.llm.tokens", "type", "completion").increment(usage.getCompletionTokens());
+    }
+    
+    /**
+     * 使用默认分类兜底，按原因计数
+     */
+    private AiAnalysisResult fallback(BigDecimal amount, String reason) {
+        countFallback(reason);
+        AiAnalysisResult result = getDefaultAnalysis(amount);
+        result.fallbackReason = reason;
+        return result;
+    }
+    
+    private void countFallback(String reason) {
+        meterRegistry.counter("ai.analysis.fallback", "reason", reason).increment();
+    }
+    
     /**
      * 获取默认分析结果
      */
@@ -143,12 +511,116 @@ public class AiAnalysisService {
                 .type(TransactionType.EXPENSE)
                 .category(TransactionCategory.OTHER)
                 .scenario(TransactionScenario.REGULAR)
-                .merchant("未知商户")
-                .description("交易")
-                .analysis("AI分析暂时不可用，使用默认分类")
+                .merchant(DEFAULT_MERCHANT)
+                .description(DEFAULT_DESCRIPTION)
+                .analysis(DEFAULT_ANALYSIS)
+                .source(ClassificationSource.DEFAULT)
                 .build();
     }
     
+    /**
+     * 待分析的交易输入
+     */
+    static final class AnalysisRequest {
+        private final BigDecimal amount;
+        private final String description;
+        private final String merchant;
+        private final String location;
+        
+        AnalysisRequest(BigDecimal amount, String description, String merchant, String location) {
+            this.amount = amount;
+            this.description = description;
+            this.merchant = merchant;
+            this.location = location;
+        }
+        
+        BigDecimal getAmount() { return amount; }
+        String getDescription() { return description; }
+        String getMerchant() { return merchant; }
+        String getLocation() { return location; }
+    }
+    
+    /**
+     * 微批统计信息
+     */
+    public static class BatchStats {
+        private final boolean enabled;
+        private final int maxBatchSize;
+        private final int queueSize;
+        private final long batchCount;
+        private final long itemCount;
+        
+        public BatchStats(boolean enabled, int maxBatchSize, int queueSize, long batchCount, long itemCount) {
+            this.enabled = enabled;
+            this.maxBatchSize = maxBatchSize;
+            this.queueSize = queueSize;
+            this.batchCount = batchCount;
+            this.itemCount = itemCount;
+        }
+        
+        public boolean isEnabled() { return enabled; }
+        public int getMaxBatchSize() { return maxBatchSize; }
+        public int getQueueSize() { return queueSize; }
+        public long getBatchCount() { return batchCount; }
+        public long getItemCount() { return itemCount; }
+        
+        public double getAverageBatchSize() {
+            return batchCount == 0 ? 0.0 : (double) itemCount / batchCount;
+        }
+    }
+    
+    /**
+     * token用量统计信息
+     */
+    public static class TokenStats {
+        private final long callCount;
+        private final long itemCount;
+        private final long promptTokens;
+        private final long completionTokens;
+        
+        public TokenStats(long callCount, long itemCount, long promptTokens, long completionTokens) {
+            this.callCount = callCount;
+            this.itemCount = itemCount;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+        }
+        
+        public long getCallCount() { return callCount; }
+        public long getItemCount() { return itemCount; }
+        public long getPromptTokens() { return promptTokens; }
+        public long getCompletionTokens() { return completionTokens; }
+        
+        public double getTokensPerItem() {
+            return itemCount == 0 ? 0.0 : (double) (promptTokens + completionTokens) / itemCount;
+        }
+    }
+    
+    /**
+     * 熔断与对冲统计信息
+     */
+    public static class ResilienceStats {
+        private final AiCircuitBreaker.CircuitStats circuit;
+        private final long shortCircuitCount;
+        private final boolean hedgeEnabled;
+        private final long hedgedCount;
+        private final long hedgeWinCount;
+        
+        public ResilienceStats(AiCircuitBreaker.CircuitStats circuit, long shortCircuitCount,
+                               boolean hedgeEnabled, long hedgedCount, long hedgeWinCount) {
+            this.circuit = circuit;
+            this.shortCircuitCount = shortCircuitCount;
+            this.hedgeEnabled = hedgeEnabled;
+            this.hedgedCount = hedgedCount;
+            this.hedgeWinCount = hedgeWinCount;
+        }
+        
+        public AiCircuitBreaker.CircuitStats getCircuit() { return circuit; }
+        public long getShortCircuitCount() { return shortCircuitCount; }
+        public boolean isHedgeEnabled() { return hedgeEnabled; }
+        public long getHedgedCount() { return hedgedCount; }
+        public long getHedgeWinCount() { return hedgeWinCount; }
+    }
+    
     /**
      * AI分析结果内部类
      */
@@ -159,6 +631,8 @@ public class AiAnalysisService {
         private String merchant;
         private String description;
         private String analysis;
+        private ClassificationSource source;
+        private String fallbackReason;
         
         // Builder模式
         public static Builder builder() {
@@ -198,6 +672,16 @@ public class AiAnalysisService {
                 return this;
             }
             
+            public Builder source(ClassificationSource source) {
+                result.source = source;
+                return this;
+            }
+            
+            public Builder fallbackReason(String fallbackReason) {
+                result.fallbackReason = fallbackReason;
+                return this;
+            }
+            
             public AiAnalysisResult build() {
                 return result;
             }
@@ -210,5 +694,33 @@ public class AiAnalysisService {
         public String getMerchant() { return merchant; }
         public String getDescription() { return description; }
         public String getAnalysis() { return analysis; }
+        public ClassificationSource getSource() { return source; }
+        public String getFallbackReason() { return fallbackReason; }
+        
+        public boolean isFallback() {
+            return source == ClassificationSource.DEFAULT;
+        }
+        
+        /**
+         * 大模型已响应但这一条给不出有效分类（兜底原因为解析失败），区别于超时、出错、熔断等服务不可用
+         */
+        public boolean isUnclassifiable() {
+            return isFallback() && "parse_error".equals(fallbackReason);
+        }
+        
+        /**
+         * 复制结果并替换分类来源
+         */
+        public AiAnalysisResult withSource(ClassificationSource source) {
+            return builder()
+                    .type(type)
+                    .category(category)
+                    .scenario(scenario)
+                    .merchant(merchant)
+                    .description(description)
+                    .analysis(analysis)
+                    .source(source)
+                    .build();
+        }
     }
 } 
\ No newline at end of file
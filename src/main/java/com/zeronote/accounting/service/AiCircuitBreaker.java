@@ -0,0 +1,235 @@
+package com.zeronote.accounting.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 大模型调用熔断器
+ * 按最近N次调用结果（失败或超过慢调用阈值都计为失败）计算失败率，达到阈值后熔断：
+ * 熔断期间不再调用大模型，直接走本地分类或默认分类；熔断时长结束后放行少量试探调用，全部成功才恢复。
+ * 每次状态切换递增代次，许可带有放行时的代次，状态切换前放行、之后才返回的调用结果不计入。
+ */
+@Component
+public class AiCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 最近windowSize次调用结果的环形缓冲
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong openedCount = new AtomicLong();
+
+    @Autowired
+    public AiCircuitBreaker(@Value("${ai.openai.circuit-breaker.window-size:20}") int windowSize,
+                            @Value("${ai.openai.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${ai.openai.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                            @Value("${ai.openai.circuit-breaker.slow-call-ms:10000}") long slowCallMillis,
+                            @Value("${ai.openai.circuit-breaker.open-duration-ms:30000}") long openDurationMillis,
+                            @Value("${ai.openai.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallMillis, openDurationMillis, halfOpenCalls,
+                System::nanoTime);
+    }
+
+    AiCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis,
+                     long openDurationMillis, int halfOpenCalls, LongSupplier clock) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /**
+     * 是否允许调用（不占用试探名额），用于在排队之前快速决定是否直接降级
+     */
+    public boolean isCallPermitted() {
+        lock.lock();
+        try {
+            return switch (currentState()) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> halfOpenInFlight < halfOpenCalls;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 申请一次调用许可，半开状态下占用一个试探名额；返回null时调用方应直接降级
+     */
+    public Permit tryAcquirePermission() {
+        lock.lock();
+        try {
+            State current = currentState();
+            if (current == State.CLOSED) {
+                return new Permit(generation, false);
+            }
+            if (current == State.HALF_OPEN && halfOpenInFlight < halfOpenCalls) {
+                halfOpenInFlight++;
+                return new Permit(generation, true);
+            }
+            rejectedCount.incrementAndGet();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次已放行调用的结果；许可的代次与当前不同（放行后状态已切换）时忽略
+     * 例如关闭状态下放行、超时挂起直到半开后才返回的调用，既不算试探调用，也不释放试探名额
+     */
+    public void record(Permit permit, boolean success, long durationNanos) {
+        boolean ok = success && durationNanos <= slowCallNanos;
+        lock.lock();
+        try {
+            if (permit.generation != generation) {
+                logger.debug("忽略状态切换前放行的调用结果（代次{}，当前{}）", permit.generation, generation);
+                return;
+            }
+            if (permit.trial) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                if (!ok) {
+                    transitionToOpen();
+                } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                    transitionToClosed();
+                }
+                return;
+            }
+            if (recorded == windowSize && !outcomes[next]) {
+                failures--;
+            }
+            outcomes[next] = ok;
+            if (!ok) {
+                failures++;
+            }
+            next = (next + 1) % windowSize;
+            recorded = Math.min(recorded + 1, windowSize);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                transitionToOpen();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            generation++;
+            halfOpenInFlight = 0;
+            halfOpenSucceeded = 0;
+            logger.info("大模型熔断进入半开状态，放行{}次试探调用", halfOpenCalls);
+        }
+        return state;
+    }
+
+    private void transitionToOpen() {
+        state = State.OPEN;
+        generation++;
+        openedAt = clock.getAsLong();
+        openedCount.incrementAndGet();
+        logger.warn("大模型调用失败率过高，熔断{}ms（最近{}次调用失败{}次）",
+                TimeUnit.NANOSECONDS.toMillis(openDurationNanos), recorded, failures);
+        resetWindow();
+    }
+
+    private void transitionToClosed() {
+        state = State.CLOSED;
+        generation++;
+        logger.info("大模型试探调用成功，熔断恢复");
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    public CircuitStats getStats() {
+        lock.lock();
+        try {
+            return new CircuitStats(currentState(), recorded, failures, rejectedCount.get(), openedCount.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用许可：放行时的状态代次，以及是否占用了半开试探名额
+     */
+    public static final class Permit {
+        private final long generation;
+        private final boolean trial;
+
+        private Permit(long generation, boolean trial) {
+            this.generation = generation;
+            this.trial = trial;
+        }
+
+        public boolean isTrial() { return trial; }
+    }
+
+    /**
+     * 熔断器统计信息
+     */
+    public static class CircuitStats {
+        private final State state;
+        private final int windowCalls;
+        private final int windowFailures;
+        private final long rejectedCount;
+        private final long openedCount;
+
+        public CircuitStats(State state, int windowCalls, int windowFailures, long rejectedCount, long openedCount) {
+            this.state = state;
+            this.windowCalls = windowCalls;
+            this.windowFailures = windowFailures;
+            this.rejectedCount = rejectedCount;
+            this.openedCount = openedCount;
+        }
+
+        public State getState() { return state; }
+        public int getWindowCalls() { return windowCalls; }
+        public int getWindowFailures() { return windowFailures; }
+        public long getRejectedCount() { return rejectedCount; }
+        public long getOpenedCount() { return openedCount; }
+    }
+}
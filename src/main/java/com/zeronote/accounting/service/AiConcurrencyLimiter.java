@@ -0,0 +1,104 @@
+package com.zeronote.accounting.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用并发限制
+ * 公平信号量：许可按到达顺序发放，等待者不会被插队饿死；等待超时的调用直接失败，由调用方走默认分类。
+ * 虚拟线程下请求线程数不再受线程池约束，所有对OpenAI的调用都必须经过这里限流。
+ */
+@Component
+public class AiConcurrencyLimiter {
+
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+    public AiConcurrencyLimiter(@Value("${ai.openai.max-concurrency:16}") int maxConcurrency,
+                                @Value("${ai.openai.acquire-timeout-ms:10000}") long acquireTimeoutMillis) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(this.maxConcurrency, true);
+    }
+
+    /**
+     * 获取许可后执行调用，等待超时或被中断时抛出IllegalStateException
+     */
+    public <T> T execute(Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待AI调用许可时被中断", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulate(waited);
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new IllegalStateException("等待AI调用许可超时: " + acquireTimeoutMillis + "ms");
+        }
+        acquiredCount.incrementAndGet();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public LimiterStats getStats() {
+        long acquired = acquiredCount.get();
+        long timeouts = timeoutCount.get();
+        long attempts = acquired + timeouts;
+        return new LimiterStats(maxConcurrency, maxConcurrency - permits.availablePermits(),
+                permits.getQueueLength(), acquired, timeouts,
+                attempts == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / attempts),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    /**
+     * 限流统计信息
+     */
+    public static class LimiterStats {
+        private final int maxConcurrency;
+        private final int inUse;
+        private final int queueLength;
+        private final long acquiredCount;
+        private final long timeoutCount;
+        private final long averageWaitMillis;
+        private final long maxWaitMillis;
+
+        public LimiterStats(int maxConcurrency, int inUse, int queueLength, long acquiredCount,
+                            long timeoutCount, long averageWaitMillis, long maxWaitMillis) {
+            this.maxConcurrency = maxConcurrency;
+            this.inUse = inUse;
+            this.queueLength = queueLength;
+            this.acquiredCount = acquiredCount;
+            this.timeoutCount = timeoutCount;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public int getInUse() { return inUse; }
+        public int getQueueLength() { return queueLength; }
+        public long getAcquiredCount() { return acquiredCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getAverageWaitMillis() { return averageWaitMillis; }
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+    }
+}
@@ -0,0 +1,119 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 大模型分类提示词格式
+ * 规则、编码表与输出格式全部放在系统提示词中，由枚举生成，进程内逐字节不变，
+ * 可以命中服务端的前缀缓存（OpenAI要求前缀不少于1024个token，部分兼容服务的粒度更细）；
+ * 用户消息只包含交易本身，每笔一行。单笔与批量使用同一套格式，单笔即只有一行的批量。
+ * 分类、类型、场景以枚举序号编码，输出使用单字母字段名，减少输入与输出token。
+ */
+public final class AnalysisPrompt {
+
+    public static final String SYSTEM_PROMPT = """
+            你是记账应用的交易分类助手。用户每行给出一笔交易：序号|金额|描述|商户|位置，未知的字段为空。
+            只输出一个JSON对象，不要输出其他文字：
+            {"r":[{"i":序号,"t":类型,"c":分类,"s":场景,"m":"商户名称","d":"描述","a":"分类依据"}]}
+            r中每笔交易对应一个元素，i与输入序号一致；t、c、s填写下列编号。
+            t 类型：%s
+            c 分类：%s
+            s 场景：%s
+            识别报销、退款、订阅、定期扣款等特殊场景，其余为常规交易。
+            m 提取或推断商户名称；d 简洁描述，不超过15字；a 分类依据，不超过20字。
+            """.formatted(
+            codeTable(TransactionType.values(), TransactionType::getDisplayName),
+            codeTable(TransactionCategory.values(), TransactionCategory::getDisplayName),
+            codeTable(TransactionScenario.values(), TransactionScenario::getDisplayName));
+
+    private AnalysisPrompt() {
+    }
+
+    /**
+     * 构建用户消息，每笔交易一行
+     */
+    static String userPrompt(List<AiAnalysisService.AnalysisRequest> items) {
+        StringBuilder prompt = new StringBuilder(items.size() * 48);
+        for (int i = 0; i < items.size(); i++) {
+            AiAnalysisService.AnalysisRequest item = items.get(i);
+            appendLine(prompt, i, item.getAmount(), item.getDescription(), item.getMerchant(), item.getLocation());
+        }
+        return prompt.toString();
+    }
+
+    static void appendLine(StringBuilder prompt, int index, BigDecimal amount, String description,
+                           String merchant, String location) {
+        prompt.append(index).append('|').append(amount.toPlainString())
+                .append('|').append(field(description))
+                .append('|').append(field(merchant))
+                .append('|').append(field(location))
+                .append('\n');
+    }
+
+    public static int code(Enum<?> value) {
+        return value.ordinal();
+    }
+
+    /**
+     * 解析编号或枚举名，兼容模型直接输出枚举名的情况
+     */
+    static <E extends Enum<E>> E decode(JsonNode node, Class<E> type) {
+        if (node == null || node.isNull()) {
+            throw new IllegalArgumentException("缺少" + type.getSimpleName());
+        }
+        String text = node.asText().trim();
+        if (node.isIntegralNumber() || (!text.isEmpty() && text.chars().allMatch(Character::isDigit))) {
+            E[] values = type.getEnumConstants();
+            int index = node.isIntegralNumber() ? node.asInt() : Integer.parseInt(text);
+            if (index < 0 || index >= values.length) {
+                throw new IllegalArgumentException("无效的" + type.getSimpleName() + "编号: " + index);
+            }
+            return values[index];
+        }
+        return Enum.valueOf(type, text);
+    }
+
+    /**
+     * 去掉模型在JSON前后附加的说明文字或Markdown代码块
+     */
+    static String extractJson(String response) {
+        String trimmed = response.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            return trimmed;
+        }
+        int objectStart = trimmed.indexOf('{');
+        int arrayStart = trimmed.indexOf('[');
+        int start = objectStart < 0 ? arrayStart : arrayStart < 0 ? objectStart : Math.min(objectStart, arrayStart);
+        if (start < 0) {
+            return trimmed;
+        }
+        int end = trimmed.lastIndexOf(trimmed.charAt(start) == '{' ? '}' : ']');
+        return end > start ? trimmed.substring(start, end + 1) : trimmed;
+    }
+
+    // 分隔符与换行会破坏行格式，替换为空格
+    private static String field(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        return value.replace('|', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static <E extends Enum<E>> String codeTable(E[] values, Function<E, String> displayName) {
+        StringBuilder table = new StringBuilder();
+        for (E value : values) {
+            if (table.length() > 0) {
+                table.append(' ');
+            }
+            table.append(value.ordinal()).append(displayName.apply(value));
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,294 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.JobCheckpoint;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.JobCheckpointRepository;
+import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.ThreadFactories;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 默认分类积压重分类任务
+ * 大模型不可用时交易以默认分类保存，本任务定期按ID顺序找出这些交易分批重新分类，
+ * 进度写入检查点表，重启后从上次位置继续；扫到末尾后从头开始下一轮。
+ * 每分钟提交的交易数受预算限制，预算大于一批时定时运行会连续处理多批；熔断期间不运行。
+ * 整批都因超时、出错或熔断兜底时视为服务未恢复，检查点不前进，同一位置连续多次如此后越过该批，
+ * 避免个别交易把任务卡住；大模型已响应但给不出分类的交易不影响检查点前进，下一轮再试。
+ * 同一批交易并发提交，由微批处理器合并为少量大模型调用。
+ */
+@Component
+public class ClassificationBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationBackfill.class);
+
+    static final String JOB_NAME = "classification-backfill";
+
+    private final TransactionRepository transactionRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionService transactionService;
+    private final AiAnalysisService aiAnalysisService;
+    private final AiCircuitBreaker circuitBreaker;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxStalledRuns;
+    private final double permitsPerNano;
+    private final double permitCapacity;
+    private final LongSupplier clock;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // 令牌桶：容量为每分钟预算（至少一批），按预算匀速补充；启动时只给一批，避免重启后集中调用
+    private double availablePermits;
+    private long lastRefill;
+
+    // 检查点停留的位置与连续整批失败次数，仅由持有running的线程访问
+    private long stalledAt = -1;
+    private int stalledRuns;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong reclassifiedCount = new AtomicLong();
+    private final AtomicLong stillFallbackCount = new AtomicLong();
+    private final AtomicLong budgetSkipCount = new AtomicLong();
+    private final AtomicLong circuitSkipCount = new AtomicLong();
+    private final AtomicLong stalledSkipCount = new AtomicLong();
+
+    @Autowired
+    public ClassificationBackfill(TransactionRepository transactionRepository,
+                                  JobCheckpointRepository checkpointRepository,
+                                  TransactionService transactionService,
+                                  AiAnalysisService aiAnalysisService,
+                                  AiCircuitBreaker circuitBreaker,
+                                  @Value("${app.backfill.enabled:true}") boolean enabled,
+                                  @Value("${app.backfill.batch-size:20}") int batchSize,
+                                  @Value("${app.backfill.items-per-minute:60}") int itemsPerMinute,
+                                  @Value("${app.backfill.concurrency:4}") int concurrency,
+                                  @Value("${app.backfill.max-stalled-runs:5}") int maxStalledRuns,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this(transactionRepository, checkpointRepository, transactionService, aiAnalysisService, circuitBreaker,
+                enabled, batchSize, itemsPerMinute, concurrency, maxStalledRuns, virtualThreads, System::nanoTime);
+    }
+
+    ClassificationBackfill(TransactionRepository transactionRepository,
+                           JobCheckpointRepository checkpointRepository,
+                           TransactionService transactionService,
+                           AiAnalysisService aiAnalysisService,
+                           AiCircuitBreaker circuitBreaker,
+                           boolean enabled, int batchSize, int itemsPerMinute, int concurrency,
+                           int maxStalledRuns, boolean virtualThreads, LongSupplier clock) {
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionService = transactionService;
+        this.aiAnalysisService = aiAnalysisService;
+        this.circuitBreaker = circuitBreaker;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxStalledRuns = Math.max(1, maxStalledRuns);
+        this.permitsPerNano = Math.max(0, itemsPerMinute) / (double) TimeUnit.MINUTES.toNanos(1);
+        this.permitCapacity = Math.max(this.batchSize, itemsPerMinute);
+        this.clock = clock;
+        this.availablePermits = this.batchSize;
+        this.lastRefill = clock.getAsLong();
+        this.executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(ThreadFactories.named("backfill", true))
+                : Executors.newFixedThreadPool(Math.max(1, concurrency), ThreadFactories.named("backfill", false));
+    }
+
+    @Scheduled(initialDelayString = "${app.backfill.interval-ms:60000}",
+            fixedDelayString = "${app.backfill.interval-ms:60000}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        // 每次处理一批，有进展且预算还够时继续，使每分钟预算不受批大小和运行间隔限制
+        while (runOnce() > 0 && hasPermits()) {
+            logger.debug("积压重分类预算未用完，继续处理下一批");
+        }
+    }
+
+    /**
+     * 处理一批积压交易，返回重新分类成功的笔数；已有任务在运行时直接返回0
+     */
+    public int runOnce() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return processBatch();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int processBatch() {
+        if (!circuitBreaker.isCallPermitted()) {
+            circuitSkipCount.incrementAndGet();
+            logger.debug("大模型调用熔断中，跳过本次积压重分类");
+            return 0;
+        }
+        int permits = acquirePermits(batchSize);
+        if (permits == 0) {
+            budgetSkipCount.incrementAndGet();
+            return 0;
+        }
+        runCount.incrementAndGet();
+
+        JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .orElseGet(() -> new JobCheckpoint(JOB_NAME));
+        List<Transaction> rows = transactionRepository.findFallbackAfter(checkpoint.getLastId(),
+                AiAnalysisService.DEFAULT_ANALYSIS, PageRequest.of(0, permits));
+        releasePermits(permits - rows.size());
+        if (rows.isEmpty()) {
+            if (checkpoint.getLastId() > 0) {
+                checkpoint.setLastId(0);
+                checkpoint.setPassCount(checkpoint.getPassCount() + 1);
+                checkpointRepository.save(checkpoint);
+                logger.info("积压重分类完成第 {} 轮扫描，下次从头开始", checkpoint.getPassCount());
+            }
+            return 0;
+        }
+
+        List<CompletableFuture<AiAnalysisService.AiAnalysisResult>> analyses = new ArrayList<>(rows.size());
+        for (Transaction row : rows) {
+            analyses.add(CompletableFuture.supplyAsync(() -> aiAnalysisService.analyzeTransaction(
+                    row.getAmount(),
+                    input(row.getDescription(), AiAnalysisService.DEFAULT_DESCRIPTION),
+                    input(row.getMerchant(), AiAnalysisService.DEFAULT_MERCHANT),
+                    row.getLocation()
+            ), executor));
+        }
+
+        int reclassified = 0;
+        int stillFallback = 0;
+        int unavailable = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            AiAnalysisService.AiAnalysisResult analysis = analyses.get(i).join();
+            if (analysis.isFallback()) {
+                stillFallback++;
+                if (!analysis.isUnclassifiable()) {
+                    unavailable++;
+                }
+            } else if (transactionService.completeBackfill(rows.get(i).getId(), analysis).isPresent()) {
+                reclassified++;
+            }
+        }
+        reclassifiedCount.addAndGet(reclassified);
+        stillFallbackCount.addAndGet(stillFallback);
+
+        if (unavailable == rows.size()) {
+            // 整批都是服务不可用，保留检查点下次重试这一批；同一位置失败次数过多时越过
+            if (stalledAt != checkpoint.getLastId()) {
+                stalledAt = checkpoint.getLastId();
+                stalledRuns = 0;
+            }
+            if (++stalledRuns < maxStalledRuns) {
+                logger.warn("积压重分类整批 {} 笔因服务不可用仍使用默认分类，检查点保持在 {}",
+                        rows.size(), checkpoint.getLastId());
+                return reclassified;
+            }
+            stalledSkipCount.incrementAndGet();
+            logger.warn("积压重分类在检查点 {} 连续 {} 次整批失败，越过这一批，下一轮再试",
+                    checkpoint.getLastId(), stalledRuns);
+        }
+        stalledAt = -1;
+        stalledRuns = 0;
+        checkpoint.setLastId(rows.get(rows.size() - 1).getId());
+        checkpointRepository.save(checkpoint);
+        logger.info("积压重分类 {} 笔，成功 {} 笔，检查点前进到 {}", rows.size(), reclassified, checkpoint.getLastId());
+        return reclassified;
+    }
+
+    // 默认分类写入的占位值不作为分类依据
+    private static String input(String value, String placeholder) {
+        return placeholder.equals(value) ? null : value;
+    }
+
+    private synchronized int acquirePermits(int wanted) {
+        long now = clock.getAsLong();
+        availablePermits = Math.min(permitCapacity, availablePermits + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        int granted = (int) Math.min(wanted, Math.floor(availablePermits));
+        availablePermits -= granted;
+        return granted;
+    }
+
+    private synchronized void releasePermits(int unused) {
+        availablePermits = Math.min(permitCapacity, availablePermits + unused);
+    }
+
+    private synchronized boolean hasPermits() {
+        return availablePermits >= 1;
+    }
+
+    public BackfillStats getStats() {
+        JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElse(null);
+        return new BackfillStats(enabled, checkpoint != null ? checkpoint.getLastId() : 0,
+                checkpoint != null ? checkpoint.getPassCount() : 0,
+                transactionRepository.countFallback(AiAnalysisService.DEFAULT_ANALYSIS),
+                runCount.get(), reclassifiedCount.get(), stillFallbackCount.get(),
+                budgetSkipCount.get(), circuitSkipCount.get(), stalledSkipCount.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 积压重分类统计信息
+     */
+    public static class BackfillStats {
+        private final boolean enabled;
+        private final long checkpointId;
+        private final long completedPasses;
+        private final long remainingFallbacks;
+        private final long runs;
+        private final long reclassified;
+        private final long stillFallback;
+        private final long budgetSkips;
+        private final long circuitSkips;
+        private final long stalledSkips;
+
+        public BackfillStats(boolean enabled, long checkpointId, long completedPasses, long remainingFallbacks,
+                             long runs, long reclassified, long stillFallback, long budgetSkips, long circuitSkips,
+                             long stalledSkips) {
+            this.enabled = enabled;
+            this.checkpointId = checkpointId;
+            this.completedPasses = completedPasses;
+            this.remainingFallbacks = remainingFallbacks;
+            this.runs = runs;
+            this.reclassified = reclassified;
+            this.stillFallback = stillFallback;
+            this.budgetSkips = budgetSkips;
+            this.circuitSkips = circuitSkips;
+            this.stalledSkips = stalledSkips;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public long getCheckpointId() { return checkpointId; }
+        public long getCompletedPasses() { return completedPasses; }
+        public long getRemainingFallbacks() { return remainingFallbacks; }
+        public long getRuns() { return runs; }
+        public long getReclassified() { return reclassified; }
+        public long getStillFallback() { return stillFallback; }
+        public long getBudgetSkips() { return budgetSkips; }
+        public long getCircuitSkips() { return circuitSkips; }
+        public long getStalledSkips() { return stalledSkips; }
+    }
+}
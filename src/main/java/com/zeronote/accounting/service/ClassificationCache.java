@@ -0,0 +1,271 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI分类结果缓存
+ * 以规范化的商户+描述+位置+金额区间为键缓存分类结果，命中时无需调用大模型。
+ * 缓存内容定期落盘到数据目录，重启后自动加载。
+ */
+@Component
+public class ClassificationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationCache.class);
+
+    private static final char KEY_SEPARATOR = '\u001f';
+
+    private final boolean enabled;
+    private final Path storeFile;
+    private final LruCache<String, AiAnalysisService.AiAnalysisResult> entries;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public ClassificationCache(@Value("${app.classification-cache.enabled:true}") boolean enabled,
+                               @Value("${app.classification-cache.max-entries:10000}") int maxEntries,
+                               @Value("${app.classification-cache.file:./data/classification-cache.json}") String storeFile) {
+        this.enabled = enabled;
+        this.storeFile = Paths.get(storeFile);
+        this.entries = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * 构建缓存键：规范化后的商户、描述、位置以及金额区间
+     */
+    public static String buildKey(BigDecimal amount, String description, String merchant, String location) {
+        return normalize(merchant) + KEY_SEPARATOR
+                + normalize(description) + KEY_SEPARATOR
+                + normalize(location) + KEY_SEPARATOR
+                + amountBucket(amount);
+    }
+
+    /**
+     * 规范化文本：全角转半角、去除首尾空白、合并连续空白并转小写
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).trim();
+        return normalized.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 金额区间：按整数部分的二进制位数分桶，即 [2^(n-1), 2^n)
+     */
+    static int amountBucket(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return 0;
+        }
+        return 64 - Long.numberOfLeadingZeros(amount.longValue());
+    }
+
+    public Optional<AiAnalysisService.AiAnalysisResult> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        AiAnalysisService.AiAnalysisResult result = entries.get(key);
+        if (result == null) {
+            missCount.incrementAndGet();
+            return Optional.empty();
+        }
+        hitCount.incrementAndGet();
+        return Optional.of(result.withSource(ClassificationSource.CACHE));
+    }
+
+    public void put(String key, AiAnalysisService.AiAnalysisResult result) {
+        if (!enabled) {
+            return;
+        }
+        entries.put(key, result);
+        dirty.set(true);
+    }
+
+    public void clear() {
+        entries.clear();
+        dirty.set(true);
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(enabled, entries.size(), entries.getMaxEntries(),
+                hitCount.get(), missCount.get(), entries.getEvictionCount());
+    }
+
+    /**
+     * 启动时从文件加载缓存
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.exists(storeFile)) {
+            return;
+        }
+        try {
+            List<PersistedEntry> persisted = objectMapper.readValue(storeFile.toFile(),
+                    new TypeReference<List<PersistedEntry>>() {});
+            for (PersistedEntry entry : persisted) {
+                entries.put(entry.getKey(), entry.toResult());
+            }
+            logger.info("已加载分类缓存 {} 条: {}", entries.size(), storeFile);
+        } catch (Exception e) {
+            logger.warn("加载分类缓存失败，将以空缓存启动: {}", storeFile, e);
+        }
+    }
+
+    /**
+     * 定期将有变更的缓存写回文件
+     */
+    @Scheduled(fixedDelayString = "${app.classification-cache.flush-interval-ms:60000}")
+    public void flushIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        List<PersistedEntry> persisted = new ArrayList<>();
+        for (Map.Entry<String, AiAnalysisService.AiAnalysisResult> entry : entries.snapshot()) {
+            persisted.add(PersistedEntry.of(entry.getKey(), entry.getValue()));
+        }
+        try {
+            Path parent = storeFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), persisted);
+            Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("分类缓存已写入 {} 条: {}", persisted.size(), storeFile);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("写入分类缓存失败: {}", storeFile, e);
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public static class CacheStats {
+        private final boolean enabled;
+        private final int size;
+        private final int maxEntries;
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        public CacheStats(boolean enabled, int size, int maxEntries,
+                          long hitCount, long missCount, long evictionCount) {
+            this.enabled = enabled;
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHitCount() { return hitCount; }
+        public long getMissCount() { return missCount; }
+        public long getEvictionCount() { return evictionCount; }
+
+        public double getHitRatio() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+
+    /**
+     * 落盘格式
+     */
+    public static class PersistedEntry {
+        private String key;
+        private TransactionType type;
+        private TransactionCategory category;
+        private TransactionScenario scenario;
+        private String merchant;
+        private String description;
+        private String analysis;
+
+        public PersistedEntry() {}
+
+        static PersistedEntry of(String key, AiAnalysisService.AiAnalysisResult result) {
+            PersistedEntry entry = new PersistedEntry();
+            entry.key = key;
+            entry.type = result.getType();
+            entry.category = result.getCategory();
+            entry.scenario = result.getScenario();
+            entry.merchant = result.getMerchant();
+            entry.description = result.getDescription();
+            entry.analysis = result.getAnalysis();
+            return entry;
+        }
+
+        AiAnalysisService.AiAnalysisResult toResult() {
+            return AiAnalysisService.AiAnalysisResult.builder()
+                    .type(type)
+                    .category(category)
+                    .scenario(scenario)
+                    .merchant(merchant)
+                    .description(description)
+                    .analysis(analysis)
+                    .source(ClassificationSource.LLM)
+                    .build();
+        }
+
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public TransactionType getType() { return type; }
+        public void setType(TransactionType type) { this.type = type; }
+
+        public TransactionCategory getCategory() { return category; }
+        public void setCategory(TransactionCategory category) { this.category = category; }
+
+        public TransactionScenario getScenario() { return scenario; }
+        public void setScenario(TransactionScenario scenario) { this.scenario = scenario; }
+
+        public String getMerchant() { return merchant; }
+        public void setMerchant(String merchant) { this.merchant = merchant; }
+
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+
+        public String getAnalysis() { return analysis; }
+        public void setAnalysis(String analysis) { this.analysis = analysis; }
+    }
+}
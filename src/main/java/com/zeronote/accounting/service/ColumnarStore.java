@@ -0,0 +1,507 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * 交易列存副本，用于分组聚合分析
+ * 每列一个基本类型数组：金额为分（long），日期为epoch天（int），类型、分类、场景为枚举序号（byte），
+ * 来源字符串字典编码为byte。启动时按ID游标加载，交易变更提交后追加新行、旧行标记删除（类型列置为-1），
+ * 删除行过多时压缩。聚合时顺序扫描数组，分组键按各维度基数混合进制编码后直接累加到long数组，
+ * 扫描过程不创建对象；行数超过阈值时按块并行扫描再合并。
+ */
+@Component
+public class ColumnarStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarStore.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int MAX_GROUPS = 1 << 20;
+    private static final byte DELETED = -1;
+
+    // 来源字典最多127项，超出的来源归入最后一项
+    static final int MAX_SOURCES = 127;
+    static final String UNKNOWN_SOURCE = "未知来源";
+    static final String OTHER_SOURCE = "其他来源";
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionCategory[] CATEGORIES = TransactionCategory.values();
+    private static final TransactionScenario[] SCENARIOS = TransactionScenario.values();
+
+    /**
+     * 分组维度
+     */
+    public enum Dimension {
+        TYPE,
+        CATEGORY,
+        SCENARIO,
+        SOURCE,
+        MONTH
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final int parallelThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private byte[] scenarios = new byte[INITIAL_CAPACITY];
+    private byte[] sources = new byte[INITIAL_CAPACITY];
+    private int rowCount;
+    private int deletedCount;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final List<String> sourceNames = new ArrayList<>();
+    private final Map<String, Byte> sourceCodes = new HashMap<>();
+    private volatile boolean loaded;
+
+    public ColumnarStore(TransactionRepository transactionRepository,
+                         @Value("${app.columnar-store.enabled:true}") boolean enabled,
+                         @Value("${app.columnar-store.parallel-threshold:100000}") int parallelThreshold) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * 启动时按ID游标分批加载全部交易
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            long afterId = 0;
+            while (true) {
+                List<TransactionRepository.ColumnarView> page = transactionRepository.findColumnarViewsAfter(
+                        afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (TransactionRepository.ColumnarView view : page) {
+                    append(view.getId(), view.getAmount(), view.getTransactionDate(), view.getType(),
+                            view.getCategory(), view.getScenario(), view.getSource());
+                    afterId = view.getId();
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("列存分析副本加载完成，共{}条交易，约{}KB，耗时{}ms", rowCount, estimatedBytes() / 1024,
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.getPrevious() != null) {
+                remove(event.getPrevious().getId());
+            }
+            Transaction current = event.getCurrent();
+            if (current != null) {
+                remove(current.getId());
+                append(current.getId(), current.getAmount(), current.getTransactionDate(), current.getType(),
+                        current.getCategory(), current.getScenario(), current.getSource());
+            }
+            if (deletedCount > 1000 && deletedCount > rowById.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 按维度分组汇总金额与笔数
+     *
+     * @param from     起始日期（含），null表示不限
+     * @param to       结束日期（含），null表示不限
+     * @param type     只统计该类型，null表示全部
+     * @param category 只统计该分类，null表示全部
+     * @param groupBy  分组维度，为空时汇总为一行
+     * @return 各分组的合计，按分组键顺序排列，不含笔数为0的分组
+     */
+    public List<GroupTotal> aggregate(LocalDate from, LocalDate to, TransactionType type,
+                                      TransactionCategory category, List<Dimension> groupBy) {
+        lock.readLock().lock();
+        try {
+            int fromDay = Math.max(from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE, minDay);
+            int toDay = Math.min(to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE, maxDay);
+            if (rowCount == 0 || fromDay > toDay) {
+                return List.of();
+            }
+
+            Dimension[] dimensions = groupBy.toArray(new Dimension[0]);
+            int[] radix = new int[dimensions.length];
+            long groupCount = 1;
+            YearMonth firstMonth = YearMonth.from(LocalDate.ofEpochDay(fromDay));
+            int[] monthOfDay = null;
+            for (int d = 0; d < dimensions.length; d++) {
+                radix[d] = switch (dimensions[d]) {
+                    case TYPE -> TYPES.length;
+                    case CATEGORY -> CATEGORIES.length;
+                    case SCENARIO -> SCENARIOS.length;
+                    case SOURCE -> sourceNames.size();
+                    case MONTH -> (int) ChronoUnit.MONTHS.between(firstMonth,
+                            YearMonth.from(LocalDate.ofEpochDay(toDay))) + 1;
+                };
+                if (dimensions[d] == Dimension.MONTH && monthOfDay == null) {
+                    monthOfDay = monthTable(fromDay, toDay, firstMonth);
+                }
+                groupCount *= radix[d];
+                if (groupCount > MAX_GROUPS) {
+                    throw new IllegalArgumentException("分组数过多: " + groupBy);
+                }
+            }
+
+            Scan scan = new Scan(dimensions, radix, (int) groupCount, fromDay, toDay, monthOfDay,
+                    type != null ? type.ordinal() : -1, category != null ? category.ordinal() : -1);
+            long[][] totals;
+            if (rowCount >= parallelThreshold && rowCount > CHUNK_SIZE) {
+                int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                totals = IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> scan.run(chunk * CHUNK_SIZE, Math.min(rowCount, (chunk + 1) * CHUNK_SIZE)))
+                        .reduce(Scan::merge)
+                        .orElseThrow();
+            } else {
+                totals = scan.run(0, rowCount);
+            }
+            return toGroupTotals(dimensions, radix, firstMonth, totals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public StoreStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new StoreStats(enabled, loaded, rowById.size(), deletedCount, sourceNames.size(),
+                    estimatedBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 单次扫描：各维度取值按混合进制编码为分组下标，累加到sums与counts
+     */
+    private final class Scan {
+        private final Dimension[] dimensions;
+        private final int[] radix;
+        private final int groupCount;
+        private final int fromDay;
+        private final int toDay;
+        private final int[] monthOfDay;
+        private final int typeFilter;
+        private final int categoryFilter;
+
+        private Scan(Dimension[] dimensions, int[] radix, int groupCount, int fromDay, int toDay, int[] monthOfDay,
+                     int typeFilter, int categoryFilter) {
+            this.dimensions = dimensions;
+            this.radix = radix;
+            this.groupCount = groupCount;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.monthOfDay = monthOfDay;
+            this.typeFilter = typeFilter;
+            this.categoryFilter = categoryFilter;
+        }
+
+        /**
+         * 扫描[start, end)行，返回{sums, counts}
+         */
+        long[][] run(int start, int end) {
+            long[] sums = new long[groupCount];
+            long[] counts = new long[groupCount];
+            long[] amountColumn = amounts;
+            int[] dayColumn = days;
+            byte[] typeColumn = types;
+            byte[] categoryColumn = categories;
+            for (int row = start; row < end; row++) {
+                int type = typeColumn[row];
+                int day = dayColumn[row];
+                if (type == DELETED || day < fromDay || day > toDay
+                        || (typeFilter >= 0 && type != typeFilter)
+                        || (categoryFilter >= 0 && categoryColumn[row] != categoryFilter)) {
+                    continue;
+                }
+                int key = 0;
+                for (int d = 0; d < dimensions.length; d++) {
+                    key = key * radix[d] + value(dimensions[d], row, day);
+                }
+                sums[key] += amountColumn[row];
+                counts[key]++;
+            }
+            return new long[][]{sums, counts};
+        }
+
+        private int value(Dimension dimension, int row, int day) {
+            return switch (dimension) {
+                case TYPE -> types[row];
+                case CATEGORY -> categories[row];
+                case SCENARIO -> scenarios[row];
+                case SOURCE -> sources[row];
+                case MONTH -> monthOfDay[day - fromDay];
+            };
+        }
+
+        static long[][] merge(long[][] left, long[][] right) {
+            for (int i = 0; i < left[0].length; i++) {
+                left[0][i] += right[0][i];
+                left[1][i] += right[1][i];
+            }
+            return left;
+        }
+    }
+
+    private List<GroupTotal> toGroupTotals(Dimension[] dimensions, int[] radix, YearMonth firstMonth,
+                                           long[][] totals) {
+        List<GroupTotal> result = new ArrayList<>();
+        int[] values = new int[dimensions.length];
+        for (int key = 0; key < totals[1].length; key++) {
+            if (totals[1][key] == 0) {
+                continue;
+            }
+            int remainder = key;
+            for (int d = dimensions.length - 1; d >= 0; d--) {
+                values[d] = remainder % radix[d];
+                remainder /= radix[d];
+            }
+            GroupTotal total = new GroupTotal(Money.ofMinor(totals[0][key]), totals[1][key]);
+            for (int d = 0; d < dimensions.length; d++) {
+                switch (dimensions[d]) {
+                    case TYPE -> total.type = TYPES[values[d]];
+                    case CATEGORY -> total.category = CATEGORIES[values[d]];
+                    case SCENARIO -> total.scenario = SCENARIOS[values[d]];
+                    case SOURCE -> total.source = sourceNames.get(values[d]);
+                    case MONTH -> total.month = firstMonth.plusMonths(values[d]);
+                }
+            }
+            result.add(total);
+        }
+        return result;
+    }
+
+    private static int[] monthTable(int fromDay, int toDay, YearMonth firstMonth) {
+        int[] table = new int[toDay - fromDay + 1];
+        LocalDate date = LocalDate.ofEpochDay(fromDay);
+        int month = 0;
+        YearMonth current = firstMonth;
+        for (int i = 0; i < table.length; i++) {
+            if (date.getMonthValue() != current.getMonthValue() || date.getYear() != current.getYear()) {
+                current = YearMonth.from(date);
+                month++;
+            }
+            table[i] = month;
+            date = date.plusDays(1);
+        }
+        return table;
+    }
+
+    private void append(long id, BigDecimal amount, LocalDateTime transactionDate, TransactionType type,
+                        TransactionCategory category, TransactionScenario scenario, String source) {
+        if (amount == null || transactionDate == null) {
+            return;
+        }
+        if (rowCount == ids.length) {
+            grow();
+        }
+        int row = rowCount++;
+        int day = (int) transactionDate.toLocalDate().toEpochDay();
+        ids[row] = id;
+        amounts[row] = Money.minorUnitsOf(amount, RoundingMode.HALF_UP);
+        days[row] = day;
+        types[row] = (byte) (type != null ? type : TransactionType.EXPENSE).ordinal();
+        categories[row] = (byte) (category != null ? category : TransactionCategory.OTHER).ordinal();
+        scenarios[row] = (byte) (scenario != null ? scenario : TransactionScenario.REGULAR).ordinal();
+        sources[row] = sourceCode(source);
+        minDay = Math.min(minDay, day);
+        maxDay = Math.max(maxDay, day);
+        rowById.put(id, row);
+    }
+
+    private void remove(Long id) {
+        Integer row = rowById.remove(id);
+        if (row != null) {
+            types[row] = DELETED;
+            deletedCount++;
+        }
+    }
+
+    private byte sourceCode(String source) {
+        String name = source == null || source.isBlank() ? UNKNOWN_SOURCE : source;
+        Byte code = sourceCodes.get(name);
+        if (code != null) {
+            return code;
+        }
+        if (sourceNames.size() == MAX_SOURCES - 1) {
+            sourceNames.add(OTHER_SOURCE);
+        }
+        if (sourceNames.size() >= MAX_SOURCES) {
+            return (byte) (MAX_SOURCES - 1);
+        }
+        byte assigned = (byte) sourceNames.size();
+        sourceNames.add(name);
+        sourceCodes.put(name, assigned);
+        return assigned;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        days = Arrays.copyOf(days, capacity);
+        types = Arrays.copyOf(types, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        scenarios = Arrays.copyOf(scenarios, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+    }
+
+    /**
+     * 去掉已删除的行，行号重新编排
+     */
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == DELETED) {
+                continue;
+            }
+            ids[live] = ids[row];
+            amounts[live] = amounts[row];
+            days[live] = days[row];
+            types[live] = types[row];
+            categories[live] = categories[row];
+            scenarios[live] = scenarios[row];
+            sources[live] = sources[row];
+            rowById.put(ids[live], live);
+            live++;
+        }
+        rowCount = live;
+        deletedCount = 0;
+    }
+
+    private void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        amounts = new long[INITIAL_CAPACITY];
+        days = new int[INITIAL_CAPACITY];
+        types = new byte[INITIAL_CAPACITY];
+        categories = new byte[INITIAL_CAPACITY];
+        scenarios = new byte[INITIAL_CAPACITY];
+        sources = new byte[INITIAL_CAPACITY];
+        rowCount = 0;
+        deletedCount = 0;
+        minDay = Integer.MAX_VALUE;
+        maxDay = Integer.MIN_VALUE;
+        rowById.clear();
+        sourceNames.clear();
+        sourceCodes.clear();
+        loaded = false;
+    }
+
+    // 列数组的容量（每行8+8+4+1+1+1+1字节）
+    private long estimatedBytes() {
+        return (long) ids.length * 24;
+    }
+
+    /**
+     * 一个分组的合计，未参与分组的维度为null
+     */
+    public static class GroupTotal {
+        private TransactionType type;
+        private TransactionCategory category;
+        private TransactionScenario scenario;
+        private String source;
+        private YearMonth month;
+        private final Money totalAmount;
+        private final long transactionCount;
+
+        public GroupTotal(Money totalAmount, long transactionCount) {
+            this.totalAmount = totalAmount;
+            this.transactionCount = transactionCount;
+        }
+
+        public TransactionType getType() { return type; }
+        public TransactionCategory getCategory() { return category; }
+        public TransactionScenario getScenario() { return scenario; }
+        public String getSource() { return source; }
+        public YearMonth getMonth() { return month; }
+        public Money getTotalAmount() { return totalAmount; }
+        public long getTransactionCount() { return transactionCount; }
+    }
+
+    /**
+     * 列存副本统计信息
+     */
+    public static class StoreStats {
+        private final boolean enabled;
+        private final boolean loaded;
+        private final int rows;
+        private final int deletedRows;
+        private final int sources;
+        private final long columnBytes;
+
+        public StoreStats(boolean enabled, boolean loaded, int rows, int deletedRows, int sources, long columnBytes) {
+            this.enabled = enabled;
+            this.loaded = loaded;
+            this.rows = rows;
+            this.deletedRows = deletedRows;
+            this.sources = sources;
+            this.columnBytes = columnBytes;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public boolean isLoaded() { return loaded; }
+        public int getRows() { return rows; }
+        public int getDeletedRows() { return deletedRows; }
+        public int getSources() { return sources; }
+        public long getColumnBytes() { return columnBytes; }
+    }
+}
@@ -0,0 +1,369 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 跨来源重复交易检测
+ * 同一笔消费可能分别从微信支付、银行账单和快速记账录入，来源和外部ID对不上。
+ * 内存中按 (金额, 时间桶) 哈希索引近期交易，桶宽等于匹配窗口，
+ * 新交易只需查相邻的3个桶，再按金额、类型、时间差和商户相似度过滤，与交易总数无关。
+ * 商户未知时（如快速记账）改用描述比较，双方都没有可比较的名称时不视为重复。
+ * 启动时从交易表加载保留期内的交易，交易变更提交后增量更新，超出保留期的定期清理。
+ * 同一来源且都带外部ID的两笔视为账单里的不同条目，不互相匹配。
+ */
+@Component
+public class DuplicateDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetector.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final String UNKNOWN_MERCHANT = ClassificationCache.normalize(AiAnalysisService.DEFAULT_MERCHANT);
+    private static final String DEFAULT_DESCRIPTION = ClassificationCache.normalize(AiAnalysisService.DEFAULT_DESCRIPTION);
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final long windowMinutes;
+    private final int retentionDays;
+    private final double minMerchantSimilarity;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private volatile boolean loaded;
+
+    public DuplicateDetector(TransactionRepository transactionRepository,
+                             @Value("${app.duplicate-detection.enabled:true}") boolean enabled,
+                             @Value("${app.duplicate-detection.window-minutes:30}") long windowMinutes,
+                             @Value("${app.duplicate-detection.retention-days:90}") int retentionDays,
+                             @Value("${app.duplicate-detection.min-merchant-similarity:0.5}") double minMerchantSimilarity) {
+        if (windowMinutes <= 0) {
+            throw new IllegalArgumentException("匹配窗口必须大于0: " + windowMinutes);
+        }
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.windowMinutes = windowMinutes;
+        this.retentionDays = retentionDays;
+        this.minMerchantSimilarity = minMerchantSimilarity;
+    }
+
+    /**
+     * 启动时加载保留期内的交易
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LocalDateTime since = cutoff();
+        lock.writeLock().lock();
+        try {
+            buckets.clear();
+            entries.clear();
+            long afterId = 0;
+            while (true) {
+                List<TransactionRepository.DuplicateView> page = transactionRepository.findDuplicateViewsSince(
+                        since, afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (TransactionRepository.DuplicateView view : page) {
+                    put(new Entry(view.getId(), view.getAmount(), view.getTransactionDate(), view.getType(),
+                            view.getMerchant(), view.getDescription(), view.getSource(), view.getExternalId(), view.getDuplicateOfId()));
+                    afterId = view.getId();
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("重复交易索引加载完成，共{}笔，{}个桶，耗时{}ms", entries.size(), buckets.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime since = cutoff();
+        lock.writeLock().lock();
+        try {
+            if (event.getPrevious() != null) {
+                remove(event.getPrevious().getId());
+            }
+            Transaction current = event.getCurrent();
+            if (current != null && current.getAmount() != null && current.getTransactionDate() != null
+                    && !current.getTransactionDate().isBefore(since)) {
+                put(new Entry(current.getId(), current.getAmount(), current.getTransactionDate(), current.getType(),
+                        current.getMerchant(), current.getDescription(), current.getSource(), current.getExternalId(),
+                        current.getDuplicateOfId()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找新交易疑似重复的已有交易，返回最早记录的那笔的ID，没有时返回null
+     * 多个候选时取时间最接近的一笔
+     */
+    public Long findDuplicateOf(Transaction transaction) {
+        if (!enabled || transaction.getAmount() == null || transaction.getTransactionDate() == null) {
+            return null;
+        }
+        checks.incrementAndGet();
+        Entry probe = new Entry(transaction.getId(), transaction.getAmount(), transaction.getTransactionDate(),
+                transaction.getType(), transaction.getMerchant(), transaction.getDescription(), transaction.getSource(),
+                transaction.getExternalId(), null);
+        long bucket = Math.floorDiv(probe.epochMinute, windowMinutes);
+        Entry best = null;
+        lock.readLock().lock();
+        try {
+            for (long b = bucket - 1; b <= bucket + 1; b++) {
+                List<Entry> candidates = buckets.get(bucketKey(probe.minorUnits, b));
+                if (candidates == null) {
+                    continue;
+                }
+                for (Entry candidate : candidates) {
+                    if (matches(probe, candidate) && (best == null || closer(probe, candidate, best))) {
+                        best = candidate;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (best == null) {
+            return null;
+        }
+        flagged.incrementAndGet();
+        return best.duplicateOfId != null ? best.duplicateOfId : best.id;
+    }
+
+    /**
+     * 清理交易日期超出保留期的条目
+     */
+    @Scheduled(fixedDelayString = "${app.duplicate-detection.evict-interval-ms:3600000}")
+    public void evictExpired() {
+        if (!enabled || !loaded) {
+            return;
+        }
+        long cutoffMinute = epochMinute(cutoff());
+        int evicted = 0;
+        lock.writeLock().lock();
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.epochMinute < cutoffMinute) {
+                    iterator.remove();
+                    removeFromBucket(entry);
+                    evicted++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (evicted > 0) {
+            logger.info("重复交易索引清理{}笔过期条目", evicted);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public DetectorStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new DetectorStats(entries.size(), buckets.size(), checks.get(), flagged.get(), windowMinutes,
+                    retentionDays);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 商户相似度：一方为空时为0，互相包含时为1，否则为二元组Dice系数
+     */
+    static double merchantSimilarity(String left, String right) {
+        if (left == null || right == null || left.isEmpty() || right.isEmpty()) {
+            return 0;
+        }
+        if (left.contains(right) || right.contains(left)) {
+            return 1;
+        }
+        Set<String> leftTokens = SearchIndex.tokenize(left);
+        Set<String> rightTokens = SearchIndex.tokenize(right);
+        if (leftTokens.isEmpty() || rightTokens.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String token : leftTokens) {
+            if (rightTokens.contains(token)) {
+                common++;
+            }
+        }
+        return 2.0 * common / (leftTokens.size() + rightTokens.size());
+    }
+
+    private boolean matches(Entry probe, Entry candidate) {
+        if (candidate.minorUnits != probe.minorUnits || candidate.type != probe.type
+                || candidate.id.equals(probe.id)
+                || Math.abs(candidate.epochMinute - probe.epochMinute) > windowMinutes) {
+            return false;
+        }
+        if (probe.hasExternalId && candidate.hasExternalId && probe.source != null
+                && probe.source.equals(candidate.source)) {
+            return false;
+        }
+        return merchantSimilarity(probe.name, candidate.name) >= minMerchantSimilarity;
+    }
+
+    private static boolean closer(Entry probe, Entry candidate, Entry best) {
+        long candidateDistance = Math.abs(candidate.epochMinute - probe.epochMinute);
+        long bestDistance = Math.abs(best.epochMinute - probe.epochMinute);
+        return candidateDistance < bestDistance || (candidateDistance == bestDistance && candidate.id < best.id);
+    }
+
+    private void put(Entry entry) {
+        if (entry.id == null) {
+            return;
+        }
+        remove(entry.id);
+        entries.put(entry.id, entry);
+        buckets.computeIfAbsent(entry.bucketKey, key -> new ArrayList<>(2)).add(entry);
+    }
+
+    private void remove(Long id) {
+        Entry existing = id != null ? entries.remove(id) : null;
+        if (existing != null) {
+            removeFromBucket(existing);
+        }
+    }
+
+    private void removeFromBucket(Entry entry) {
+        List<Entry> bucket = buckets.get(entry.bucketKey);
+        if (bucket != null) {
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                buckets.remove(entry.bucketKey);
+            }
+        }
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    private static long epochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * 金额与时间桶组合成哈希键，不同组合偶有冲突时由逐条比较过滤
+     */
+    private static long bucketKey(long minorUnits, long bucket) {
+        return minorUnits * HASH_MULTIPLIER + bucket;
+    }
+
+    /**
+     * 用于比较的名称：优先商户，商户未知时用描述，都没有时为null
+     */
+    private static String comparableName(String merchant, String description) {
+        String normalized = ClassificationCache.normalize(merchant);
+        if (!normalized.isEmpty() && !normalized.equals(UNKNOWN_MERCHANT)) {
+            return normalized;
+        }
+        normalized = ClassificationCache.normalize(description);
+        return normalized.isEmpty() || normalized.equals(DEFAULT_DESCRIPTION) ? null : normalized;
+    }
+
+    /**
+     * 索引条目
+     */
+    private final class Entry {
+        private final Long id;
+        private final long minorUnits;
+        private final long epochMinute;
+        private final TransactionType type;
+        private final String name;
+        private final String source;
+        private final boolean hasExternalId;
+        private final Long duplicateOfId;
+        private final long bucketKey;
+
+        Entry(Long id, BigDecimal amount, LocalDateTime transactionDate, TransactionType type, String merchant,
+              String description, String source, String externalId, Long duplicateOfId) {
+            this.id = id;
+            this.minorUnits = Money.minorUnitsOf(amount, RoundingMode.HALF_UP);
+            this.epochMinute = epochMinute(transactionDate);
+            this.type = type;
+            this.name = comparableName(merchant, description);
+            this.source = source;
+            this.hasExternalId = externalId != null && !externalId.isBlank();
+            this.duplicateOfId = duplicateOfId;
+            this.bucketKey = bucketKey(minorUnits, Math.floorDiv(epochMinute, windowMinutes));
+        }
+    }
+
+    /**
+     * 重复检测统计
+     */
+    public static class DetectorStats {
+        private final int indexedTransactions;
+        private final int buckets;
+        private final long checks;
+        private final long flagged;
+        private final long windowMinutes;
+        private final int retentionDays;
+
+        public DetectorStats(int indexedTransactions, int buckets, long checks, long flagged, long windowMinutes,
+                             int retentionDays) {
+            this.indexedTransactions = indexedTransactions;
+            this.buckets = buckets;
+            this.checks = checks;
+            this.flagged = flagged;
+            this.windowMinutes = windowMinutes;
+            this.retentionDays = retentionDays;
+        }
+
+        public int getIndexedTransactions() { return indexedTransactions; }
+        public int getBuckets() { return buckets; }
+        public long getChecks() { return checks; }
+        public long getFlagged() { return flagged; }
+        public long getWindowMinutes() { return windowMinutes; }
+        public int getRetentionDays() { return retentionDays; }
+    }
+}
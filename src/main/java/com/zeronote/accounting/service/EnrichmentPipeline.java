@@ -0,0 +1,251 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.EnrichmentStatus;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.ThreadFactories;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步分类流水线
+ * 待分类交易提交后进入有界队列，由后台线程调用AI分析并回写结果。
+ * 队列满时拒绝入队（背压），交易保持待分类状态，由定时扫描在队列空闲时补充入队；
+ * 大模型失败或回写出错时不在工作线程中等待，而是记录失败次数和下次重试时间（指数退避），交易保持待分类，
+ * 到期后由定时扫描重新入队，超过次数后标记为分类失败；熔断期间不分类，也不消耗重试次数。
+ */
+@Component
+public class EnrichmentPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentPipeline.class);
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final AiAnalysisService aiAnalysisService;
+    private final AiCircuitBreaker circuitBreaker;
+    private final ThreadPoolTaskExecutor executor;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final int sweepBatchSize;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public EnrichmentPipeline(TransactionRepository transactionRepository,
+                              TransactionService transactionService,
+                              AiAnalysisService aiAnalysisService,
+                              AiCircuitBreaker circuitBreaker,
+                              @Value("${app.enrichment.core-pool-size:2}") int corePoolSize,
+                              @Value("${app.enrichment.max-pool-size:4}") int maxPoolSize,
+                              @Value("${app.enrichment.queue-capacity:500}") int queueCapacity,
+                              @Value("${app.enrichment.max-attempts:3}") int maxAttempts,
+                              @Value("${app.enrichment.retry-backoff-ms:1000}") long retryBackoffMs,
+                              @Value("${app.enrichment.sweep-batch-size:100}") int sweepBatchSize,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.aiAnalysisService = aiAnalysisService;
+        this.circuitBreaker = circuitBreaker;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.sweepBatchSize = sweepBatchSize;
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("enrichment-");
+        if (virtualThreads) {
+            // 仍由线程池大小限制并发，工作线程阻塞在大模型调用上时不占用平台线程
+            executor.setThreadFactory(ThreadFactories.named("enrichment", true));
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+    }
+
+    /**
+     * 待分类交易提交后立即入队
+     */
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        Transaction current = event.getCurrent();
+        if (event.getChangeType() == TransactionChangedEvent.ChangeType.CREATED
+                && current != null && current.getEnrichmentStatus() == EnrichmentStatus.PENDING) {
+            submit(new Transaction(current));
+        }
+    }
+
+    /**
+     * 定期扫描仍处于待分类状态的交易（队列满被拒绝、重试时间已到或重启前未完成的），熔断期间跳过
+     */
+    @Scheduled(initialDelayString = "${app.enrichment.sweep-interval-ms:30000}",
+            fixedDelayString = "${app.enrichment.sweep-interval-ms:30000}")
+    public void sweepPending() {
+        int capacity = executor.getQueueCapacity() - executor.getQueueSize();
+        if (capacity <= 0 || !circuitBreaker.isCallPermitted()) {
+            return;
+        }
+        List<Transaction> pending = transactionRepository.findEnrichmentDue(
+                LocalDateTime.now(), PageRequest.of(0, Math.min(capacity, sweepBatchSize)));
+        int submitted = 0;
+        for (Transaction transaction : pending) {
+            if (!inFlight.contains(transaction.getId())) {
+                if (!submit(transaction)) {
+                    break;
+                }
+                submitted++;
+            }
+        }
+        if (submitted > 0) {
+            logger.info("补充入队待分类交易 {} 条", submitted);
+        }
+    }
+
+    /**
+     * 提交分类任务，队列已满时返回false
+     */
+    boolean submit(Transaction transaction) {
+        Long id = transaction.getId();
+        if (!inFlight.add(id)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> enrich(transaction));
+            submittedCount.incrementAndGet();
+            return true;
+        } catch (TaskRejectedException e) {
+            inFlight.remove(id);
+            rejectedCount.incrementAndGet();
+            logger.warn("分类队列已满，交易 {} 保持待分类状态，稍后由定时扫描处理", id);
+            return false;
+        }
+    }
+
+    /**
+     * 单次分类：成功则回写结果；失败则推迟到退避时间后由定时扫描重试，达到最大次数后标记为分类失败
+     */
+    void enrich(Transaction transaction) {
+        try {
+            if (!circuitBreaker.isCallPermitted()) {
+                // 熔断期间保持待分类，恢复后由定时扫描处理
+                return;
+            }
+            AiAnalysisService.AiAnalysisResult analysis = aiAnalysisService.analyzeTransaction(
+                    transaction.getAmount(),
+                    transaction.getDescription(),
+                    transaction.getMerchant(),
+                    transaction.getLocation()
+            );
+            if (!analysis.isFallback()) {
+                transactionService.completeEnrichment(transaction.getId(), analysis);
+                completedCount.incrementAndGet();
+                return;
+            }
+            if (!circuitBreaker.isCallPermitted()) {
+                // 本次失败触发了熔断，不计入该交易的尝试次数
+                return;
+            }
+            recordFailure(transaction, analysis);
+        } catch (Exception e) {
+            logger.error("交易 {} 后台分类出错", transaction.getId(), e);
+            try {
+                recordFailure(transaction, null);
+            } catch (Exception retryError) {
+                logger.error("交易 {} 记录分类失败出错，将由定时扫描重试", transaction.getId(), retryError);
+            }
+        } finally {
+            inFlight.remove(transaction.getId());
+        }
+    }
+
+    /**
+     * 记一次失败：未达最大次数时按指数退避推迟，达到后标记为分类失败；
+     * 分类过程本身出错时没有兜底结果，保留当前分类直接标记
+     */
+    private void recordFailure(Transaction transaction, AiAnalysisService.AiAnalysisResult fallback) {
+        int attempts = (transaction.getEnrichmentAttempts() == null ? 0 : transaction.getEnrichmentAttempts()) + 1;
+        if (attempts >= maxAttempts) {
+            if (fallback != null) {
+                transactionService.completeEnrichment(transaction.getId(), fallback);
+            } else {
+                transactionService.failEnrichment(transaction.getId());
+            }
+            failedCount.incrementAndGet();
+            return;
+        }
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(
+                Duration.ofMillis(retryBackoffMs << (attempts - 1)));
+        transactionRepository.deferEnrichment(transaction.getId(), attempts, nextAttemptAt);
+        retryCount.incrementAndGet();
+    }
+
+    public PipelineStats getStats() {
+        return new PipelineStats(executor.getQueueSize(), executor.getQueueCapacity(), executor.getActiveCount(),
+                transactionRepository.countByEnrichmentStatus(EnrichmentStatus.PENDING),
+                submittedCount.get(), completedCount.get(), failedCount.get(), retryCount.get(), rejectedCount.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 流水线统计信息
+     */
+    public static class PipelineStats {
+        private final int queueSize;
+        private final int queueCapacity;
+        private final int activeWorkers;
+        private final long pendingTransactions;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long retries;
+        private final long rejected;
+
+        public PipelineStats(int queueSize, int queueCapacity, int activeWorkers, long pendingTransactions,
+                             long submitted, long completed, long failed, long retries, long rejected) {
+            this.queueSize = queueSize;
+            this.queueCapacity = queueCapacity;
+            this.activeWorkers = activeWorkers;
+            this.pendingTransactions = pendingTransactions;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.retries = retries;
+            this.rejected = rejected;
+        }
+
+        public int getQueueSize() { return queueSize; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public int getActiveWorkers() { return activeWorkers; }
+        public long getPendingTransactions() { return pendingTransactions; }
+        public long getSubmitted() { return submitted; }
+        public long getCompleted() { return completed; }
+        public long getFailed() { return failed; }
+        public long getRetries() { return retries; }
+        public long getRejected() { return rejected; }
+    }
+}
@@ -0,0 +1,118 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 外部ID索引
+ * 用布隆过滤器记录已存在的外部ID，导入去重时只有可能存在的ID才需要查库确认，
+ * 并按批合并为一次IN查询，避免逐行调用existsByExternalId。
+ */
+@Component
+public class ExternalIdIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalIdIndex.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile boolean loaded;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong confirmations = new AtomicLong();
+
+    public ExternalIdIndex(TransactionRepository transactionRepository,
+                           @Value("${app.import.external-id-index.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${app.import.external-id-index.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.transactionRepository = transactionRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * 启动时从数据库加载全部外部ID
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, falsePositiveRate);
+        long count = 0;
+        long afterId = 0;
+        while (true) {
+            List<TransactionRepository.ExternalIdView> page = transactionRepository.findExternalIdsAfter(
+                    afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (TransactionRepository.ExternalIdView view : page) {
+                rebuilt.add(view.getExternalId());
+                afterId = view.getId();
+                count++;
+            }
+            if (page.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+        filter = rebuilt;
+        size.set(count);
+        loaded = true;
+        logger.info("外部ID索引加载完成，共{}条，耗时{}ms", count, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (event.getCurrent() != null) {
+            add(event.getCurrent().getExternalId());
+        }
+    }
+
+    public void add(String externalId) {
+        if (externalId != null && !externalId.isEmpty()) {
+            filter.add(externalId);
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * 返回给定外部ID中已存在于数据库的部分
+     */
+    public Set<String> findExisting(Collection<String> externalIds) {
+        lookups.addAndGet(externalIds.size());
+        List<String> candidates = new ArrayList<>();
+        for (String externalId : externalIds) {
+            if (!loaded || filter.mightContain(externalId)) {
+                candidates.add(externalId);
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i += QUERY_CHUNK_SIZE) {
+            List<String> chunk = candidates.subList(i, Math.min(i + QUERY_CHUNK_SIZE, candidates.size()));
+            confirmations.addAndGet(chunk.size());
+            existing.addAll(transactionRepository.findExistingExternalIds(chunk));
+        }
+        return existing;
+    }
+
+    public long getSize() { return size.get(); }
+    public long getLookups() { return lookups.get(); }
+    public long getConfirmations() { return confirmations.get(); }
+}
@@ -0,0 +1,475 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 本地分类器
+ * 在JVM内完成分类，避免网络调用：先按商户前缀树匹配历史商户，
+ * 再用基于字符n-gram的朴素贝叶斯模型预测，置信度不足时交由大模型处理。
+ * 模型启动时从已标注的交易训练，并随新交易增量更新。
+ */
+@Component
+public class LocalClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalClassifier.class);
+
+    private static final int TRAINING_PAGE_SIZE = 1000;
+    private static final int MIN_MERCHANT_MATCH_LENGTH = 2;
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final double minConfidence;
+    private final int minTrainingSamples;
+    private final int minMerchantSupport;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrieNode merchantTrie = new TrieNode();
+    private final Map<Label, LabelModel> labelModels = new HashMap<>();
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private int totalDocuments;
+
+    private final AtomicLong merchantHits = new AtomicLong();
+    private final AtomicLong modelHits = new AtomicLong();
+    private final AtomicLong lowConfidence = new AtomicLong();
+
+    public LocalClassifier(TransactionRepository transactionRepository,
+                           @Value("${app.local-classifier.enabled:true}") boolean enabled,
+                           @Value("${app.local-classifier.min-confidence:0.9}") double minConfidence,
+                           @Value("${app.local-classifier.min-training-samples:20}") int minTrainingSamples,
+                           @Value("${app.local-classifier.min-merchant-support:2}") int minMerchantSupport) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+        this.minTrainingSamples = minTrainingSamples;
+        this.minMerchantSupport = minMerchantSupport;
+    }
+
+    /**
+     * 对交易进行本地分类，置信度低于阈值时返回空
+     */
+    public Optional<AiAnalysisService.AiAnalysisResult> classify(BigDecimal amount, String description,
+                                                                String merchant, String location) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String normalizedMerchant = ClassificationCache.normalize(merchant);
+        String normalizedDescription = ClassificationCache.normalize(description);
+        if (normalizedMerchant.isEmpty() && normalizedDescription.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Prediction prediction = predict(amount, normalizedDescription, normalizedMerchant);
+        if (prediction == null || prediction.confidence < minConfidence) {
+            lowConfidence.incrementAndGet();
+            return Optional.empty();
+        }
+        (prediction.byMerchant ? merchantHits : modelHits).incrementAndGet();
+
+        return Optional.of(AiAnalysisService.AiAnalysisResult.builder()
+                .type(prediction.label.type)
+                .category(prediction.label.category)
+                .scenario(prediction.label.scenario)
+                .merchant(merchant)
+                .description(description != null ? description : "交易")
+                .analysis(String.format("本地%s分类（置信度 %.2f）",
+                        prediction.byMerchant ? "商户匹配" : "模型", prediction.confidence))
+                .source(ClassificationSource.LOCAL_MODEL)
+                .build());
+    }
+
+    /**
+     * 不设置信度阈值的本地分类，大模型不可用时用作兜底；结果标记为默认分类，不写入缓存，之后可重新分类
+     */
+    public Optional<AiAnalysisService.AiAnalysisResult> bestGuess(BigDecimal amount, String description,
+                                                                 String merchant, String location) {
+        String normalizedMerchant = ClassificationCache.normalize(merchant);
+        String normalizedDescription = ClassificationCache.normalize(description);
+        if (!enabled || (normalizedMerchant.isEmpty() && normalizedDescription.isEmpty())) {
+            return Optional.empty();
+        }
+        Prediction prediction = predict(amount, normalizedDescription, normalizedMerchant);
+        if (prediction == null) {
+            return Optional.empty();
+        }
+        return Optional.of(AiAnalysisService.AiAnalysisResult.builder()
+                .type(prediction.label.type)
+                .category(prediction.label.category)
+                .scenario(prediction.label.scenario)
+                .merchant(merchant != null ? merchant : "未知商户")
+                .description(description != null ? description : "交易")
+                .analysis(String.format("大模型暂不可用，本地%s兜底分类（置信度 %.2f）",
+                        prediction.byMerchant ? "商户匹配" : "模型", prediction.confidence))
+                .source(ClassificationSource.DEFAULT)
+                .build());
+    }
+
+    private Prediction predict(BigDecimal amount, String normalizedDescription, String normalizedMerchant) {
+        lock.readLock().lock();
+        try {
+            Prediction prediction = predictByMerchant(normalizedMerchant, normalizedDescription);
+            if (prediction == null && totalDocuments >= minTrainingSamples) {
+                prediction = predictByModel(extractFeatures(amount, normalizedDescription, normalizedMerchant));
+            }
+            return prediction;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 启动时使用已标注的交易训练模型
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void trainFromRepository() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int trained = 0;
+        Page<Transaction> page = transactionRepository.findAll(
+                PageRequest.of(0, TRAINING_PAGE_SIZE, Sort.by("id")));
+        while (true) {
+            for (Transaction transaction : page) {
+                if (learn(transaction)) {
+                    trained++;
+                }
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = transactionRepository.findAll(page.nextPageable());
+        }
+        logger.info("本地分类器训练完成，样本数: {}，耗时: {}ms", trained, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 交易提交后增量更新模型
+     */
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getPrevious() != null) {
+            forget(event.getPrevious());
+        }
+        if (event.getCurrent() != null) {
+            learn(event.getCurrent());
+        }
+    }
+
+    /**
+     * 学习一条交易，返回是否被用作训练样本
+     */
+    public boolean learn(Transaction transaction) {
+        return update(transaction, 1);
+    }
+
+    /**
+     * 撤销一条交易对模型的贡献
+     */
+    public boolean forget(Transaction transaction) {
+        return update(transaction, -1);
+    }
+
+    public ClassifierStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new ClassifierStats(enabled, totalDocuments, labelModels.size(), vocabulary.size(),
+                    merchantHits.get(), modelHits.get(), lowConfidence.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 只学习由大模型或缓存产生的标注，避免本地预测和默认分类自我强化
+     */
+    static boolean isTrainable(Transaction transaction) {
+        ClassificationSource source = transaction.getClassificationSource();
+        if (source == ClassificationSource.LOCAL_MODEL || source == ClassificationSource.DEFAULT) {
+            return false;
+        }
+        if (source == null && AiAnalysisService.DEFAULT_ANALYSIS.equals(transaction.getAiAnalysis())) {
+            return false;
+        }
+        return transaction.getType() != null && transaction.getCategory() != null
+                && transaction.getScenario() != null;
+    }
+
+    private boolean update(Transaction transaction, int delta) {
+        if (!isTrainable(transaction)) {
+            return false;
+        }
+        String merchant = ClassificationCache.normalize(transaction.getMerchant());
+        String description = ClassificationCache.normalize(transaction.getDescription());
+        Label label = new Label(transaction.getType(), transaction.getCategory(), transaction.getScenario());
+        List<String> features = extractFeatures(transaction.getAmount(), description, merchant);
+
+        lock.writeLock().lock();
+        try {
+            if (delta < 0 && !labelModels.containsKey(label)) {
+                return false;
+            }
+            if (!merchant.isEmpty()) {
+                merchantTrie.add(merchant, label, delta);
+            }
+            LabelModel model = labelModels.computeIfAbsent(label, key -> new LabelModel());
+            model.documents += delta;
+            for (String feature : features) {
+                model.tokens.merge(feature, delta, Integer::sum);
+                model.tokenTotal += delta;
+                vocabulary.merge(feature, delta, Integer::sum);
+                if (model.tokens.get(feature) <= 0) {
+                    model.tokens.remove(feature);
+                }
+                if (vocabulary.get(feature) <= 0) {
+                    vocabulary.remove(feature);
+                }
+            }
+            if (model.documents <= 0) {
+                labelModels.remove(label);
+            }
+            totalDocuments += delta;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在商户名（其次是描述）中查找最长的已知商户，按历史标注的多数票给出结果
+     */
+    private Prediction predictByMerchant(String merchant, String description) {
+        TrieNode node = merchantTrie.longestMatch(merchant);
+        if (node == null) {
+            node = merchantTrie.longestMatch(description);
+        }
+        if (node == null || node.total < minMerchantSupport) {
+            return null;
+        }
+        Label best = null;
+        int bestCount = 0;
+        for (Map.Entry<Label, Integer> entry : node.labels.entrySet()) {
+            if (entry.getValue() > bestCount) {
+                best = entry.getKey();
+                bestCount = entry.getValue();
+            }
+        }
+        // 拉普拉斯平滑，样本越少置信度越低
+        double confidence = (bestCount + 1.0) / (node.total + 2.0);
+        return best == null ? null : new Prediction(best, confidence, true);
+    }
+
+    /**
+     * 朴素贝叶斯：计算各标签的对数后验并归一化
+     */
+    private Prediction predictByModel(List<String> features) {
+        if (labelModels.isEmpty()) {
+            return null;
+        }
+        int vocabularySize = Math.max(vocabulary.size(), 1);
+        List<Label> labels = new ArrayList<>(labelModels.size());
+        double[] scores = new double[labelModels.size()];
+        int i = 0;
+        double maxScore = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<Label, LabelModel> entry : labelModels.entrySet()) {
+            LabelModel model = entry.getValue();
+            double score = Math.log((double) model.documents / totalDocuments);
+            double denominator = model.tokenTotal + vocabularySize;
+            for (String feature : features) {
+                score += Math.log((model.tokens.getOrDefault(feature, 0) + 1.0) / denominator);
+            }
+            labels.add(entry.getKey());
+            scores[i] = score;
+            maxScore = Math.max(maxScore, score);
+            i++;
+        }
+        double sum = 0;
+        int best = 0;
+        for (int j = 0; j < scores.length; j++) {
+            scores[j] = Math.exp(scores[j] - maxScore);
+            sum += scores[j];
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        return new Prediction(labels.get(best), scores[best] / sum, false);
+    }
+
+    /**
+     * 特征：商户与描述的字符一元/二元组，以及金额区间
+     */
+    static List<String> extractFeatures(BigDecimal amount, String description, String merchant) {
+        List<String> features = new ArrayList<>();
+        addCharGrams(features, "m:", merchant);
+        addCharGrams(features, "d:", description);
+        features.add("a:" + ClassificationCache.amountBucket(amount));
+        return features;
+    }
+
+    private static void addCharGrams(List<String> features, String prefix, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int[] codePoints = text.codePoints().filter(cp -> !Character.isWhitespace(cp)).toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            features.add(prefix + new String(codePoints, i, 1));
+            if (i + 1 < codePoints.length) {
+                features.add(prefix + new String(codePoints, i, 2));
+            }
+        }
+    }
+
+    /**
+     * 分类标签：类型+分类+场景
+     */
+    private static final class Label {
+        private final TransactionType type;
+        private final TransactionCategory category;
+        private final TransactionScenario scenario;
+
+        private Label(TransactionType type, TransactionCategory category, TransactionScenario scenario) {
+            this.type = type;
+            this.category = category;
+            this.scenario = scenario;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Label other)) return false;
+            return type == other.type && category == other.category && scenario == other.scenario;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, category, scenario);
+        }
+    }
+
+    private static final class LabelModel {
+        private int documents;
+        private long tokenTotal;
+        private final Map<String, Integer> tokens = new HashMap<>();
+    }
+
+    private static final class Prediction {
+        private final Label label;
+        private final double confidence;
+        private final boolean byMerchant;
+
+        private Prediction(Label label, double confidence, boolean byMerchant) {
+            this.label = label;
+            this.confidence = confidence;
+            this.byMerchant = byMerchant;
+        }
+    }
+
+    /**
+     * 商户前缀树，节点上记录以该前缀为完整商户名的标注计数
+     */
+    private static final class TrieNode {
+        private final Map<Integer, TrieNode> children = new HashMap<>();
+        private final Map<Label, Integer> labels = new HashMap<>();
+        private int total;
+
+        private void add(String merchant, Label label, int delta) {
+            TrieNode node = this;
+            int[] codePoints = merchant.codePoints().toArray();
+            for (int codePoint : codePoints) {
+                node = node.children.computeIfAbsent(codePoint, key -> new TrieNode());
+            }
+            node.total += delta;
+            node.labels.merge(label, delta, Integer::sum);
+            if (node.labels.get(label) <= 0) {
+                node.labels.remove(label);
+            }
+        }
+
+        /**
+         * 在文本任意位置查找最长的已知商户
+         */
+        private TrieNode longestMatch(String text) {
+            if (text == null || text.isEmpty()) {
+                return null;
+            }
+            int[] codePoints = text.codePoints().toArray();
+            TrieNode best = null;
+            int bestLength = 0;
+            for (int start = 0; start < codePoints.length; start++) {
+                TrieNode node = this;
+                for (int i = start; i < codePoints.length; i++) {
+                    node = node.children.get(codePoints[i]);
+                    if (node == null) {
+                        break;
+                    }
+                    int length = i - start + 1;
+                    if (node.total > 0 && length >= MIN_MERCHANT_MATCH_LENGTH && length > bestLength) {
+                        best = node;
+                        bestLength = length;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * 本地分类器统计信息
+     */
+    public static class ClassifierStats {
+        private final boolean enabled;
+        private final int trainingSamples;
+        private final int labels;
+        private final int vocabularySize;
+        private final long merchantHits;
+        private final long modelHits;
+        private final long lowConfidence;
+
+        public ClassifierStats(boolean enabled, int trainingSamples, int labels, int vocabularySize,
+                               long merchantHits, long modelHits, long lowConfidence) {
+            this.enabled = enabled;
+            this.trainingSamples = trainingSamples;
+            this.labels = labels;
+            this.vocabularySize = vocabularySize;
+            this.merchantHits = merchantHits;
+            this.modelHits = modelHits;
+            this.lowConfidence = lowConfidence;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public int getTrainingSamples() { return trainingSamples; }
+        public int getLabels() { return labels; }
+        public int getVocabularySize() { return vocabularySize; }
+        public long getMerchantHits() { return merchantHits; }
+        public long getModelHits() { return modelHits; }
+        public long getLowConfidence() { return lowConfidence; }
+    }
+}
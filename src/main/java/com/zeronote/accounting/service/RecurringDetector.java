@@ -0,0 +1,422 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 周期交易检测
+ * 按 (交易类型, 归一化商户) 分组，每组只保留最近 max-occurrences 笔，交易变更提交后增量更新，写入时不回扫历史。
+ * 组内至少 min-occurrences 笔、相邻间隔都接近间隔中位数时视为周期交易：
+ * 金额与中位数的偏差都不超过 subscription-amount-tolerance 的为订阅（SUBSCRIPTION），
+ * 不超过 max-amount-deviation 的为定期交易（RECURRING），如水电费。
+ * 判定只依赖历史间隔与金额，不调用大模型。被标记为疑似重复的交易不计入。
+ */
+@Component
+public class RecurringDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecurringDetector.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int MIN_INTERVAL_DAYS = 5;
+    private static final int MAX_INTERVAL_DAYS = 400;
+    private static final int MIN_INTERVAL_SLACK_DAYS = 2;
+    private static final String UNKNOWN_MERCHANT = ClassificationCache.normalize(AiAnalysisService.DEFAULT_MERCHANT);
+    private static final Comparator<Occurrence> ORDER =
+            Comparator.comparing((Occurrence occurrence) -> occurrence.date).thenComparing(occurrence -> occurrence.id);
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final int minOccurrences;
+    private final int maxOccurrences;
+    private final double intervalTolerance;
+    private final double subscriptionAmountTolerance;
+    private final double maxAmountDeviation;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<SeriesKey, Series> series = new HashMap<>();
+    private volatile boolean loaded;
+
+    public RecurringDetector(TransactionRepository transactionRepository,
+                             @Value("${app.recurring-detection.enabled:true}") boolean enabled,
+                             @Value("${app.recurring-detection.min-occurrences:3}") int minOccurrences,
+                             @Value("${app.recurring-detection.max-occurrences:12}") int maxOccurrences,
+                             @Value("${app.recurring-detection.interval-tolerance:0.15}") double intervalTolerance,
+                             @Value("${app.recurring-detection.subscription-amount-tolerance:0.05}") double subscriptionAmountTolerance,
+                             @Value("${app.recurring-detection.max-amount-deviation:0.5}") double maxAmountDeviation) {
+        if (minOccurrences < 3 || maxOccurrences < minOccurrences) {
+            throw new IllegalArgumentException("周期检测至少需要3笔，且保留笔数不少于最少笔数");
+        }
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.minOccurrences = minOccurrences;
+        this.maxOccurrences = maxOccurrences;
+        this.intervalTolerance = intervalTolerance;
+        this.subscriptionAmountTolerance = subscriptionAmountTolerance;
+        this.maxAmountDeviation = maxAmountDeviation;
+    }
+
+    /**
+     * 启动时按ID游标加载有商户的交易，每组只保留最近的若干笔
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        lock.writeLock().lock();
+        try {
+            series.clear();
+            long afterId = 0;
+            while (true) {
+                List<TransactionRepository.RecurringView> page = transactionRepository.findRecurringViewsAfter(
+                        afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (TransactionRepository.RecurringView view : page) {
+                    SeriesKey key = SeriesKey.of(view.getType(), view.getMerchant());
+                    if (key != null) {
+                        Series target = series.computeIfAbsent(key, k -> new Series());
+                        target.add(new Occurrence(view.getId(), view.getTransactionDate(), view.getAmount(),
+                                view.getScenario(), view.getMerchant()), maxOccurrences);
+                    }
+                    afterId = view.getId();
+                    rows++;
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            // 加载期间不逐笔分析，全部加载后每组分析一次
+            series.values().forEach(this::refresh);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("周期交易检测加载完成，共{}笔，{}个商户组，耗时{}ms", rows, series.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Transaction previous = event.getPrevious();
+            if (previous != null) {
+                SeriesKey key = SeriesKey.of(previous.getType(), previous.getMerchant());
+                Series target = key != null ? series.get(key) : null;
+                if (target != null && target.remove(previous.getId())) {
+                    if (target.occurrences.isEmpty()) {
+                        series.remove(key);
+                    } else {
+                        refresh(target);
+                    }
+                }
+            }
+            Transaction current = event.getCurrent();
+            if (current != null && current.getTransactionDate() != null && current.getAmount() != null
+                    && current.getDuplicateOfId() == null) {
+                SeriesKey key = SeriesKey.of(current.getType(), current.getMerchant());
+                if (key != null) {
+                    Series target = series.computeIfAbsent(key, k -> new Series());
+                    target.add(new Occurrence(current.getId(), current.getTransactionDate(), current.getAmount(),
+                            current.getScenario(), current.getMerchant()), maxOccurrences);
+                    refresh(target);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 判断交易加入所属商户组后是否构成周期交易，不构成时返回null
+     * 结果中包含组内仍为常规场景、需要一并标记的交易ID
+     */
+    public Detection detect(Transaction transaction) {
+        if (!enabled || transaction.getTransactionDate() == null || transaction.getAmount() == null
+                || transaction.getDuplicateOfId() != null) {
+            return null;
+        }
+        SeriesKey key = SeriesKey.of(transaction.getType(), transaction.getMerchant());
+        if (key == null) {
+            return null;
+        }
+        List<Occurrence> occurrences;
+        lock.readLock().lock();
+        try {
+            Series existing = series.get(key);
+            if (existing == null || existing.occurrences.size() + 1 < minOccurrences) {
+                return null;
+            }
+            Series probe = new Series();
+            for (Occurrence occurrence : existing.occurrences) {
+                if (!occurrence.id.equals(transaction.getId())) {
+                    probe.add(occurrence, maxOccurrences);
+                }
+            }
+            probe.add(new Occurrence(transaction.getId() != null ? transaction.getId() : Long.MAX_VALUE,
+                    transaction.getTransactionDate(), transaction.getAmount(), transaction.getScenario(),
+                    transaction.getMerchant()), maxOccurrences);
+            occurrences = new ArrayList<>(probe.occurrences);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Pattern pattern = analyze(occurrences);
+        if (pattern == null) {
+            return null;
+        }
+        List<Long> regularIds = new ArrayList<>();
+        for (Occurrence occurrence : occurrences) {
+            if (occurrence.scenario == TransactionScenario.REGULAR && !occurrence.id.equals(transaction.getId())
+                    && occurrence.id != Long.MAX_VALUE) {
+                regularIds.add(occurrence.id);
+            }
+        }
+        return new Detection(pattern.scenario, pattern.intervalDays, regularIds);
+    }
+
+    /**
+     * 当前仍活跃的周期交易（下次预计日期加容差未过期），按下次预计日期升序
+     */
+    public List<Subscription> getSubscriptions(LocalDate today) {
+        List<Subscription> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+                Pattern pattern = entry.getValue().pattern;
+                if (pattern == null || today.isAfter(pattern.nextExpectedDate.plusDays(slackDays(pattern.intervalDays)))) {
+                    continue;
+                }
+                Occurrence last = entry.getValue().occurrences.last();
+                result.add(new Subscription(last.merchant, entry.getKey().type, pattern.scenario, pattern.intervalDays,
+                        entry.getValue().occurrences.size(), last.date, Money.ofMinor(last.minorUnits),
+                        pattern.nextExpectedDate, Money.ofMinor(pattern.medianMinorUnits)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparing(Subscription::getNextExpectedDate));
+        return result;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void refresh(Series target) {
+        target.pattern = analyze(new ArrayList<>(target.occurrences));
+    }
+
+    /**
+     * 分析按日期排序的一组交易：间隔都接近中位数且金额偏差在容差内时返回周期模式
+     */
+    Pattern analyze(List<Occurrence> occurrences) {
+        int n = occurrences.size();
+        if (n < minOccurrences) {
+            return null;
+        }
+        long[] intervals = new long[n - 1];
+        for (int i = 1; i < n; i++) {
+            intervals[i - 1] = ChronoUnit.DAYS.between(occurrences.get(i - 1).date, occurrences.get(i).date);
+        }
+        long medianInterval = median(intervals);
+        if (medianInterval < MIN_INTERVAL_DAYS || medianInterval > MAX_INTERVAL_DAYS) {
+            return null;
+        }
+        long slack = slackDays(medianInterval);
+        for (long interval : intervals) {
+            if (Math.abs(interval - medianInterval) > slack) {
+                return null;
+            }
+        }
+
+        long[] amounts = new long[n];
+        for (int i = 0; i < n; i++) {
+            amounts[i] = occurrences.get(i).minorUnits;
+        }
+        long medianAmount = median(amounts);
+        double deviation = 0;
+        for (long amount : amounts) {
+            deviation = Math.max(deviation, Math.abs(amount - medianAmount) / (double) medianAmount);
+        }
+        TransactionScenario scenario;
+        if (deviation <= subscriptionAmountTolerance) {
+            scenario = TransactionScenario.SUBSCRIPTION;
+        } else if (deviation <= maxAmountDeviation) {
+            scenario = TransactionScenario.RECURRING;
+        } else {
+            return null;
+        }
+        return new Pattern(scenario, medianInterval, medianAmount,
+                nextDate(occurrences.get(n - 1).date, medianInterval));
+    }
+
+    private long slackDays(long intervalDays) {
+        return Math.max(MIN_INTERVAL_SLACK_DAYS, Math.round(intervalDays * intervalTolerance));
+    }
+
+    /**
+     * 间隔接近整月、整年的按日历推算，避免大小月累积误差
+     */
+    static LocalDate nextDate(LocalDate last, long intervalDays) {
+        if (intervalDays >= 27 && intervalDays <= 33) {
+            return last.plusMonths(1);
+        }
+        if (intervalDays >= 85 && intervalDays <= 97) {
+            return last.plusMonths(3);
+        }
+        if (intervalDays >= 355 && intervalDays <= 375) {
+            return last.plusYears(1);
+        }
+        return last.plusDays(intervalDays);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(sorted.length - 1) / 2];
+    }
+
+    /**
+     * 分组键：交易类型 + 归一化商户，商户缺失或未知时不参与检测
+     */
+    private record SeriesKey(TransactionType type, String merchant) {
+        static SeriesKey of(TransactionType type, String merchant) {
+            String normalized = ClassificationCache.normalize(merchant);
+            if (type == null || normalized.isEmpty() || normalized.equals(UNKNOWN_MERCHANT)) {
+                return null;
+            }
+            return new SeriesKey(type, normalized);
+        }
+    }
+
+    /**
+     * 一组交易：按日期排序，只保留最近的若干笔，并缓存最近一次分析结果
+     */
+    private static final class Series {
+        private final TreeSet<Occurrence> occurrences = new TreeSet<>(ORDER);
+        private Pattern pattern;
+
+        void add(Occurrence occurrence, int capacity) {
+            remove(occurrence.id);
+            occurrences.add(occurrence);
+            while (occurrences.size() > capacity) {
+                occurrences.pollFirst();
+            }
+        }
+
+        boolean remove(Long id) {
+            return occurrences.removeIf(occurrence -> occurrence.id.equals(id));
+        }
+    }
+
+    static final class Occurrence {
+        private final Long id;
+        private final LocalDate date;
+        private final long minorUnits;
+        private final TransactionScenario scenario;
+        private final String merchant;
+
+        Occurrence(Long id, LocalDateTime transactionDate, BigDecimal amount, TransactionScenario scenario,
+                   String merchant) {
+            this.id = id;
+            this.date = transactionDate.toLocalDate();
+            this.minorUnits = Money.minorUnitsOf(amount, RoundingMode.HALF_UP);
+            this.scenario = scenario;
+            this.merchant = merchant;
+        }
+    }
+
+    record Pattern(TransactionScenario scenario, long intervalDays, long medianMinorUnits,
+                   LocalDate nextExpectedDate) {
+    }
+
+    /**
+     * 检测结果
+     */
+    public static class Detection {
+        private final TransactionScenario scenario;
+        private final long intervalDays;
+        private final List<Long> regularIds;
+
+        public Detection(TransactionScenario scenario, long intervalDays, List<Long> regularIds) {
+            this.scenario = scenario;
+            this.intervalDays = intervalDays;
+            this.regularIds = regularIds;
+        }
+
+        public TransactionScenario getScenario() { return scenario; }
+        public long getIntervalDays() { return intervalDays; }
+        public List<Long> getRegularIds() { return regularIds; }
+    }
+
+    /**
+     * 周期交易及下次预计扣款
+     */
+    public static class Subscription {
+        private final String merchant;
+        private final TransactionType type;
+        private final TransactionScenario scenario;
+        private final long intervalDays;
+        private final int occurrences;
+        private final LocalDate lastDate;
+        private final Money lastAmount;
+        private final LocalDate nextExpectedDate;
+        private final Money expectedAmount;
+
+        public Subscription(String merchant, TransactionType type, TransactionScenario scenario, long intervalDays,
+                            int occurrences, LocalDate lastDate, Money lastAmount, LocalDate nextExpectedDate,
+                            Money expectedAmount) {
+            this.merchant = merchant;
+            this.type = type;
+            this.scenario = scenario;
+            this.intervalDays = intervalDays;
+            this.occurrences = occurrences;
+            this.lastDate = lastDate;
+            this.lastAmount = lastAmount;
+            this.nextExpectedDate = nextExpectedDate;
+            this.expectedAmount = expectedAmount;
+        }
+
+        public String getMerchant() { return merchant; }
+        public TransactionType getType() { return type; }
+        public TransactionScenario getScenario() { return scenario; }
+        public long getIntervalDays() { return intervalDays; }
+        public int getOccurrences() { return occurrences; }
+        public LocalDate getLastDate() { return lastDate; }
+        public Money getLastAmount() { return lastAmount; }
+        public LocalDate getNextExpectedDate() { return nextExpectedDate; }
+        public Money getExpectedAmount() { return expectedAmount; }
+    }
+}
@@ -0,0 +1,430 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.DailyRollupRepository;
+import com.zeronote.accounting.repository.MonthlyRollupRepository;
+import com.zeronote.accounting.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * 统计汇总服务
+ * 维护按日、按月的金额汇总表：交易增删改时在同一事务内累加增量（同一事务内的多次变更合并后在提交前写入）。
+ * 查询时整月读月汇总、整天读日汇总，只有首尾不足一天的部分扫描交易表，耗时与时间桶数量相关而与交易笔数无关。
+ * 汇总写入从提交前持锁到事务结束：并发事务首次写入同一时间桶时，MERGE只能看到已提交的行，不加锁会同时走插入分支而主键冲突。
+ * 锁按时间桶分段，事务只按序持有本次涉及的分段，写入不同时间桶、分类的提交互不阻塞。
+ * 该锁只在当前JVM内有效，仅保证单实例部署；多个实例共用数据库时需改为数据库锁或在主键冲突时重试MERGE。
+ */
+@Service
+public class RollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollupService.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final TransactionRepository transactionRepository;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ReentrantLock[] writeLocks = new ReentrantLock[LOCK_STRIPES];
+
+    @Autowired
+    public RollupService(TransactionRepository transactionRepository,
+                         DailyRollupRepository dailyRollupRepository,
+                         MonthlyRollupRepository monthlyRollupRepository,
+                         TransactionTemplate transactionTemplate,
+                         EntityManager entityManager) {
+        this.transactionRepository = transactionRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.monthlyRollupRepository = monthlyRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 在发布事件的事务内记录汇总增量
+     */
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        Map<DeltaKey, Delta> deltas = currentDeltas();
+        if (event.getPrevious() != null) {
+            accumulate(deltas, event.getPrevious(), -1);
+        }
+        if (event.getCurrent() != null) {
+            accumulate(deltas, event.getCurrent(), 1);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            int[] stripes = stripesOf(deltas);
+            lock(stripes);
+            try {
+                applyDeltas(deltas);
+            } finally {
+                unlock(stripes);
+            }
+        }
+    }
+
+    /**
+     * 取当前事务的增量表，首次使用时注册提交前写入的回调；无事务时返回临时表由调用方立即写入
+     */
+    @SuppressWarnings("unchecked")
+    private Map<DeltaKey, Delta> currentDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new LinkedHashMap<>();
+        }
+        Map<DeltaKey, Delta> deltas = (Map<DeltaKey, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null) {
+            Map<DeltaKey, Delta> created = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private int[] locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // 先刷出实体变更，持锁期间不再等待其他事务持有的交易行锁
+                    entityManager.flush();
+                    int[] stripes = stripesOf(created);
+                    lock(stripes);
+                    locked = stripes;
+                    applyDeltas(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (locked != null) {
+                        unlock(locked);
+                    }
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RollupService.this);
+                }
+            });
+            deltas = created;
+        }
+        return deltas;
+    }
+
+    private static void accumulate(Map<DeltaKey, Delta> deltas, Transaction transaction, int sign) {
+        if (transaction.getTransactionDate() == null || transaction.getAmount() == null) {
+            return;
+        }
+        LocalDate day = transaction.getTransactionDate().toLocalDate();
+        long amount = toMinorUnits(transaction.getAmount()) * sign;
+        for (boolean monthly : new boolean[]{false, true}) {
+            DeltaKey key = new DeltaKey(monthly, monthly ? day.withDayOfMonth(1) : day,
+                    transaction.getType(), transaction.getCategory(), transaction.getScenario());
+            deltas.computeIfAbsent(key, k -> new Delta()).add(amount, sign);
+        }
+    }
+
+    /**
+     * 增量涉及的锁分段，去重后升序排列，各事务按同一顺序加锁避免死锁
+     */
+    private static int[] stripesOf(Map<DeltaKey, Delta> deltas) {
+        return deltas.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .mapToInt(entry -> entry.getKey().stripe())
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private void lock(int[] stripes) {
+        for (int stripe : stripes) {
+            writeLocks[stripe].lock();
+        }
+    }
+
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            writeLocks[stripes[i]].unlock();
+        }
+    }
+
+    private void applyDeltas(Map<DeltaKey, Delta> deltas) {
+        for (Map.Entry<DeltaKey, Delta> entry : deltas.entrySet()) {
+            DeltaKey key = entry.getKey();
+            Delta delta = entry.getValue();
+            if (delta.isEmpty()) {
+                continue;
+            }
+            // 只删除本次涉及且笔数减为0的行，不触碰其他事务持锁写入的时间桶
+            if (key.monthly) {
+                monthlyRollupRepository.mergeDelta(key.bucketDate, key.type.name(), key.category.name(),
+                        key.scenario.name(), Money.ofMinor(delta.amount).toBigDecimal(), delta.count);
+                if (delta.count < 0) {
+                    monthlyRollupRepository.deleteIfEmpty(key.bucketDate, key.type.name(), key.category.name(),
+                            key.scenario.name());
+                }
+            } else {
+                dailyRollupRepository.mergeDelta(key.bucketDate, key.type.name(), key.category.name(),
+                        key.scenario.name(), Money.ofMinor(delta.amount).toBigDecimal(), delta.count);
+                if (delta.count < 0) {
+                    dailyRollupRepository.deleteIfEmpty(key.bucketDate, key.type.name(), key.category.name(),
+                            key.scenario.name());
+                }
+            }
+        }
+        deltas.clear();
+    }
+
+    /**
+     * 清空并从交易表重新生成全部汇总
+     */
+    @Transactional
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int[] allStripes = IntStream.range(0, LOCK_STRIPES).toArray();
+        lock(allStripes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(allStripes);
+            }
+        });
+        dailyRollupRepository.deleteAllInBatch();
+        monthlyRollupRepository.deleteAllInBatch();
+        int daily = dailyRollupRepository.rebuildFromTransactions();
+        int monthly = monthlyRollupRepository.rebuildFromTransactions();
+        logger.info("统计汇总重建完成：日汇总{}行，月汇总{}行，耗时{}ms", daily, monthly, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 启动时若汇总表为空而交易表有数据（首次升级），在开始接收请求前自动重建
+     */
+    @PostConstruct
+    public void rebuildIfEmpty() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (dailyRollupRepository.count() == 0 && transactionRepository.count() > 0) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * 汇总时间范围[startDate, endDate]（含两端）内各类型、分类的金额与笔数
+     */
+    @Transactional(readOnly = true)
+    public List<RollupTotal> aggregate(LocalDateTime startDate, LocalDateTime endDate) {
+        Map<TransactionType, Map<TransactionCategory, RollupTotal>> totals = new EnumMap<>(TransactionType.class);
+        for (Segment segment : plan(startDate, endDate)) {
+            List<Object[]> rows = switch (segment.kind) {
+                case RAW -> transactionRepository.sumByTypeAndCategory(segment.rawStart, segment.rawEnd);
+                case DAILY -> dailyRollupRepository.sumByTypeAndCategory(segment.fromBucket, segment.toBucket);
+                case MONTHLY -> monthlyRollupRepository.sumByTypeAndCategory(segment.fromBucket, segment.toBucket);
+            };
+            for (Object[] row : rows) {
+                TransactionType type = (TransactionType) row[0];
+                TransactionCategory category = (TransactionCategory) row[1];
+                // 汇总表的金额列经转换器读出为Money，交易表为BigDecimal
+                long amount = row[2] instanceof Money money ? money.getMinorUnits() : toMinorUnits((BigDecimal) row[2]);
+                long count = row[3] != null ? ((Number) row[3]).longValue() : 0;
+                totals.computeIfAbsent(type, t -> new EnumMap<>(TransactionCategory.class))
+                        .computeIfAbsent(category, c -> new RollupTotal(type, c))
+                        .add(amount, count);
+            }
+        }
+        List<RollupTotal> result = new ArrayList<>();
+        totals.values().forEach(byCategory -> result.addAll(byCategory.values()));
+        return result;
+    }
+
+    /**
+     * 交易金额按数据库列精度（两位小数，四舍五入）转换为分，与写入后再读出的值一致
+     */
+    static long toMinorUnits(BigDecimal amount) {
+        return amount != null ? Money.minorUnitsOf(amount, RoundingMode.HALF_UP) : 0;
+    }
+
+    /**
+     * 将查询范围拆分为：首尾不足一天的部分读交易表，整月读月汇总，其余整天读日汇总
+     */
+    static List<Segment> plan(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Segment> segments = new ArrayList<>();
+        if (startDate.isAfter(endDate)) {
+            return segments;
+        }
+        // 完整覆盖的第一天与最后一天
+        LocalDate firstDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastDay = endDate.toLocalTime().equals(LocalTime.MAX)
+                ? endDate.toLocalDate() : endDate.toLocalDate().minusDays(1);
+        LocalDateTime endExclusive = endDate.plusNanos(1);
+
+        if (firstDay.isAfter(lastDay)) {
+            segments.add(Segment.raw(startDate, endExclusive));
+            return segments;
+        }
+        if (startDate.isBefore(firstDay.atStartOfDay())) {
+            segments.add(Segment.raw(startDate, firstDay.atStartOfDay()));
+        }
+
+        LocalDate firstMonth = firstDay.getDayOfMonth() == 1 ? firstDay : firstDay.withDayOfMonth(1).plusMonths(1);
+        LocalDate lastMonthEnd = lastDay.equals(lastDay.withDayOfMonth(lastDay.lengthOfMonth()))
+                ? lastDay : lastDay.withDayOfMonth(1).minusDays(1);
+        if (firstMonth.isBefore(lastMonthEnd)) {
+            if (firstDay.isBefore(firstMonth)) {
+                segments.add(Segment.daily(firstDay, firstMonth.minusDays(1)));
+            }
+            segments.add(Segment.monthly(firstMonth, lastMonthEnd.withDayOfMonth(1)));
+            if (lastMonthEnd.isBefore(lastDay)) {
+                segments.add(Segment.daily(lastMonthEnd.plusDays(1), lastDay));
+            }
+        } else {
+            segments.add(Segment.daily(firstDay, lastDay));
+        }
+
+        LocalDateTime afterLastDay = lastDay.plusDays(1).atStartOfDay();
+        if (afterLastDay.isBefore(endExclusive)) {
+            segments.add(Segment.raw(afterLastDay, endExclusive));
+        }
+        return segments;
+    }
+
+    /**
+     * 查询区段
+     */
+    static final class Segment {
+        enum Kind { RAW, DAILY, MONTHLY }
+
+        final Kind kind;
+        final LocalDateTime rawStart;
+        final LocalDateTime rawEnd;
+        final LocalDate fromBucket;
+        final LocalDate toBucket;
+
+        private Segment(Kind kind, LocalDateTime rawStart, LocalDateTime rawEnd, LocalDate fromBucket, LocalDate toBucket) {
+            this.kind = kind;
+            this.rawStart = rawStart;
+            this.rawEnd = rawEnd;
+            this.fromBucket = fromBucket;
+            this.toBucket = toBucket;
+        }
+
+        static Segment raw(LocalDateTime startInclusive, LocalDateTime endExclusive) {
+            return new Segment(Kind.RAW, startInclusive, endExclusive, null, null);
+        }
+
+        static Segment daily(LocalDate from, LocalDate to) {
+            return new Segment(Kind.DAILY, null, null, from, to);
+        }
+
+        static Segment monthly(LocalDate fromMonth, LocalDate toMonth) {
+            return new Segment(Kind.MONTHLY, null, null, fromMonth, toMonth);
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.RAW ? kind + "[" + rawStart + ", " + rawEnd + ")" : kind + "[" + fromBucket + ", " + toBucket + "]";
+        }
+    }
+
+    private static final class DeltaKey {
+        private final boolean monthly;
+        private final LocalDate bucketDate;
+        private final TransactionType type;
+        private final TransactionCategory category;
+        private final TransactionScenario scenario;
+
+        private DeltaKey(boolean monthly, LocalDate bucketDate, TransactionType type,
+                         TransactionCategory category, TransactionScenario scenario) {
+            this.monthly = monthly;
+            this.bucketDate = bucketDate;
+            this.type = type;
+            this.category = category;
+            this.scenario = scenario;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DeltaKey)) return false;
+            DeltaKey that = (DeltaKey) o;
+            return monthly == that.monthly && bucketDate.equals(that.bucketDate) && type == that.type
+                    && category == that.category && scenario == that.scenario;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(monthly, bucketDate, type, category, scenario);
+        }
+
+        /**
+         * 锁分段下标，按枚举序号计算，不依赖枚举的身份哈希
+         */
+        int stripe() {
+            int hash = Objects.hash(monthly, bucketDate, type.ordinal(), category.ordinal(), scenario.ordinal());
+            return Math.floorMod(hash, LOCK_STRIPES);
+        }
+    }
+
+    // 金额以分累加
+    private static final class Delta {
+        private long amount;
+        private long count;
+
+        private void add(long amount, long count) {
+            this.amount = Math.addExact(this.amount, amount);
+            this.count += count;
+        }
+
+        private boolean isEmpty() {
+            return amount == 0 && count == 0;
+        }
+    }
+
+    /**
+     * 按类型、分类的汇总结果
+     */
+    public static class RollupTotal {
+        private final TransactionType type;
+        private final TransactionCategory category;
+        private long totalMinorUnits;
+        private long transactionCount;
+
+        public RollupTotal(TransactionType type, TransactionCategory category) {
+            this.type = type;
+            this.category = category;
+        }
+
+        void add(long amount, long count) {
+            this.totalMinorUnits = Math.addExact(this.totalMinorUnits, amount);
+            this.transactionCount += count;
+        }
+
+        public TransactionType getType() { return type; }
+        public TransactionCategory getCategory() { return category; }
+        public Money getTotalAmount() { return Money.ofMinor(totalMinorUnits); }
+        public long getTransactionCount() { return transactionCount; }
+    }
+}
@@ -0,0 +1,419 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 交易搜索倒排索引
+ * 对商户名和描述做二元分词（中文与字母数字一视同仁，连续字符两两成词），另对每个字符建单字倒排表，
+ * 检索时先求各词倒排表的交集（只有一个字符的片段用单字表），再用规范化后的原文做子串校验，
+ * 结果与数据库LIKE '%关键词%'一致但不需要全表扫描；查询中没有字母数字时才逐条校验。
+ * 排序：商户完全匹配 > 商户前缀匹配 > 商户包含 > 仅描述包含，同分按交易时间倒序。
+ */
+@Component
+public class SearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 文档按序号存储，更新或删除时旧序号标记为失效，失效过多时压缩
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private String[] merchants = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private long[] dates = new long[INITIAL_CAPACITY];
+    private int docCount;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final AtomicLong fullScans = new AtomicLong();
+    private volatile boolean loaded;
+
+    public SearchIndex(TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * 启动时按ID游标分批加载全部交易的商户与描述
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            long afterId = 0;
+            while (true) {
+                List<TransactionRepository.SearchView> page = transactionRepository.findSearchViewsAfter(
+                        afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (TransactionRepository.SearchView view : page) {
+                    addDocument(view.getId(), view.getMerchant(), view.getDescription(), view.getTransactionDate());
+                    afterId = view.getId();
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("搜索索引加载完成，共{}条交易，{}个词，耗时{}ms", ordinalById.size(), postings.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getPrevious() != null) {
+                removeDocument(event.getPrevious().getId());
+            }
+            Transaction current = event.getCurrent();
+            if (current != null) {
+                removeDocument(current.getId());
+                addDocument(current.getId(), current.getMerchant(), current.getDescription(),
+                        current.getTransactionDate());
+            }
+            if (deletedCount > 1000 && deletedCount > ordinalById.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 检索关键词，返回按相关度排序后指定页的交易ID及命中总数
+     */
+    public SearchResult search(String keyword, int page, int size) {
+        String query = ClassificationCache.normalize(keyword);
+        if (query.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = new ArrayList<>();
+            int[] candidates = candidates(query);
+            if (candidates == null) {
+                fullScans.incrementAndGet();
+                for (int ordinal = 0; ordinal < docCount; ordinal++) {
+                    collect(hits, ordinal, query);
+                }
+            } else {
+                for (int ordinal : candidates) {
+                    collect(hits, ordinal, query);
+                }
+            }
+            hits.sort(Comparator.comparingInt((Hit hit) -> hit.score).reversed()
+                    .thenComparing(Comparator.comparingLong((Hit hit) -> hit.date).reversed())
+                    .thenComparing(Comparator.comparingLong((Hit hit) -> hit.id).reversed()));
+
+            int from = Math.min(Math.max(page, 0) * Math.max(size, 1), hits.size());
+            int to = Math.min(from + Math.max(size, 1), hits.size());
+            List<Long> pageIds = new ArrayList<>(to - from);
+            for (Hit hit : hits.subList(from, to)) {
+                pageIds.add(hit.id);
+            }
+            return new SearchResult(pageIds, hits.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public IndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            long postingEntries = 0;
+            for (Postings list : postings.values()) {
+                postingEntries += list.size;
+            }
+            return new IndexStats(loaded, ordinalById.size(), deletedCount, postings.size(), postingEntries,
+                    fullScans.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 求查询词各二元词（单字符片段取单字）倒排表的交集；查询中没有字母数字时返回null表示需逐条校验
+     */
+    private int[] candidates(String query) {
+        Set<String> tokens = queryTerms(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+        int length = result.length;
+        for (int i = 1; i < lists.size() && length > 0; i++) {
+            length = intersect(result, length, lists.get(i));
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private static int intersect(int[] result, int length, Postings other) {
+        int matched = 0;
+        int j = 0;
+        for (int i = 0; i < length && j < other.size; i++) {
+            int target = result[i];
+            int position = Arrays.binarySearch(other.ordinals, j, other.size, target);
+            if (position >= 0) {
+                result[matched++] = target;
+                j = position + 1;
+            } else {
+                j = -position - 1;
+            }
+        }
+        return matched;
+    }
+
+    private void collect(List<Hit> hits, int ordinal, String query) {
+        if (deleted.get(ordinal)) {
+            return;
+        }
+        String merchant = merchants[ordinal];
+        String description = descriptions[ordinal];
+        int score;
+        if (merchant.equals(query)) {
+            score = 4;
+        } else if (merchant.startsWith(query)) {
+            score = 3;
+        } else if (merchant.contains(query)) {
+            score = 2;
+        } else if (description.contains(query)) {
+            score = 1;
+        } else {
+            return;
+        }
+        hits.add(new Hit(ids[ordinal], dates[ordinal], score));
+    }
+
+    private void addDocument(Long id, String merchant, String description, LocalDateTime transactionDate) {
+        if (id == null) {
+            return;
+        }
+        if (docCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            merchants = Arrays.copyOf(merchants, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            dates = Arrays.copyOf(dates, capacity);
+        }
+        int ordinal = docCount++;
+        ids[ordinal] = id;
+        merchants[ordinal] = ClassificationCache.normalize(merchant);
+        descriptions[ordinal] = ClassificationCache.normalize(description);
+        dates[ordinal] = transactionDate != null ? transactionDate.toEpochSecond(ZoneOffset.UTC) : 0;
+        ordinalById.put(id, ordinal);
+
+        Set<String> tokens = tokenize(merchants[ordinal]);
+        tokens.addAll(tokenize(descriptions[ordinal]));
+        tokens.addAll(unigrams(merchants[ordinal]));
+        tokens.addAll(unigrams(descriptions[ordinal]));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+        }
+    }
+
+    private void removeDocument(Long id) {
+        if (id == null) {
+            return;
+        }
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal != null) {
+            deleted.set(ordinal);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * 丢弃失效文档并重新编号
+     */
+    private void compact() {
+        long[] oldIds = ids;
+        String[] oldMerchants = merchants;
+        String[] oldDescriptions = descriptions;
+        long[] oldDates = dates;
+        int oldCount = docCount;
+        BitSet oldDeleted = (BitSet) deleted.clone();
+        clear();
+        for (int ordinal = 0; ordinal < oldCount; ordinal++) {
+            if (!oldDeleted.get(ordinal)) {
+                addDocument(oldIds[ordinal], oldMerchants[ordinal], oldDescriptions[ordinal],
+                        LocalDateTime.ofEpochSecond(oldDates[ordinal], 0, ZoneOffset.UTC));
+            }
+        }
+    }
+
+    private void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        merchants = new String[INITIAL_CAPACITY];
+        descriptions = new String[INITIAL_CAPACITY];
+        dates = new long[INITIAL_CAPACITY];
+        docCount = 0;
+        deleted.clear();
+        deletedCount = 0;
+        ordinalById.clear();
+        postings.clear();
+    }
+
+    /**
+     * 二元分词：按非字母数字字符切分，每段内相邻两个字符组成一个词
+     */
+    static Set<String> tokenize(String normalized) {
+        return tokenize(normalized, false);
+    }
+
+    /**
+     * 查询词：与二元分词相同，但只有一个字符的片段取该字符本身，对应单字倒排表
+     */
+    static Set<String> queryTerms(String normalized) {
+        return tokenize(normalized, true);
+    }
+
+    private static Set<String> tokenize(String normalized, boolean keepSingles) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int runStart = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && runStart < 0) {
+                runStart = i;
+            } else if (!wordChar && runStart >= 0) {
+                if (keepSingles && i - runStart == 1) {
+                    tokens.add(normalized.substring(runStart, i));
+                }
+                for (int j = runStart; j + 2 <= i; j++) {
+                    tokens.add(normalized.substring(j, j + 2));
+                }
+                runStart = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 单字词：每个字母数字字符本身，长度为1，不会与二元词冲突
+     */
+    private static Set<String> unigrams(String normalized) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (Character.isLetterOrDigit(normalized.charAt(i))) {
+                tokens.add(normalized.substring(i, i + 1));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 有序的文档序号列表（序号只增不减，追加即有序）
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+
+    private static final class Hit {
+        private final long id;
+        private final long date;
+        private final int score;
+
+        private Hit(long id, long date, int score) {
+            this.id = id;
+            this.date = date;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 检索结果：当前页的交易ID（已排序）与命中总数
+     */
+    public static class SearchResult {
+        private final List<Long> ids;
+        private final long total;
+
+        public SearchResult(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public long getTotal() { return total; }
+    }
+
+    /**
+     * 索引统计信息
+     */
+    public static class IndexStats {
+        private final boolean loaded;
+        private final int documents;
+        private final int deletedDocuments;
+        private final int terms;
+        private final long postingEntries;
+        private final long fullScans;
+
+        public IndexStats(boolean loaded, int documents, int deletedDocuments, int terms, long postingEntries,
+                          long fullScans) {
+            this.loaded = loaded;
+            this.documents = documents;
+            this.deletedDocuments = deletedDocuments;
+            this.terms = terms;
+            this.postingEntries = postingEntries;
+            this.fullScans = fullScans;
+        }
+
+        public boolean isLoaded() { return loaded; }
+        public int getDocuments() { return documents; }
+        public int getDeletedDocuments() { return deletedDocuments; }
+        public int getTerms() { return terms; }
+        public long getPostingEntries() { return postingEntries; }
+        public long getFullScans() { return fullScans; }
+    }
+}
@@ -0,0 +1,661 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.QuantileSketch;
+import com.zeronote.accounting.util.SpaceSaving;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 支出近似统计草图
+ * 每个分类每月一个分位数草图（相对误差α），每个分类一个高频商户草图（Space-Saving，容量m），
+ * 交易变更提交后增量更新，定期落盘，重启时校验支出笔数与总额一致后直接加载，否则从交易表重建。
+ * 查询只合并所选月份的草图，耗时与交易笔数无关：
+ * 分位数估计值与真实值的相对误差不超过α；商户笔数最多高估N/m（N为该分类累计写入的笔数）。
+ * 修改、删除不会减小N，某分类因此累计的多余笔数超过当前笔数时，由定期任务从交易表重建，使上界不随修改次数无限放宽。
+ * 只修改分类或商户而笔数、总额不变的变更若发生在最后一次落盘之后且进程异常退出，重启后无法察觉，可调用重建接口修正。
+ */
+@Component
+public class SpendSketches {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpendSketches.class);
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int FORMAT_VERSION = 2;
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final double relativeAccuracy;
+    private final int merchantCapacity;
+    private final Path storeFile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private final Map<TransactionCategory, NavigableMap<YearMonth, QuantileSketch>> amountSketches =
+            new EnumMap<>(TransactionCategory.class);
+    private final Map<TransactionCategory, SpaceSaving<String>> merchantSketches =
+            new EnumMap<>(TransactionCategory.class);
+    private long expenseCount;
+    private long expenseMinorUnits;
+    private long driftCount;
+    private volatile boolean loaded;
+
+    public SpendSketches(TransactionRepository transactionRepository,
+                         @Value("${app.sketches.enabled:true}") boolean enabled,
+                         @Value("${app.sketches.relative-accuracy:0.01}") double relativeAccuracy,
+                         @Value("${app.sketches.merchant-capacity:100}") int merchantCapacity,
+                         @Value("${app.sketches.file:./data/spend-sketches.json}") String storeFile) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.relativeAccuracy = relativeAccuracy;
+        this.merchantCapacity = merchantCapacity;
+        this.storeFile = Paths.get(storeFile);
+    }
+
+    /**
+     * 启动时优先从文件加载，文件缺失或与交易表不一致时重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (!restore()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从交易表重建全部草图
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            long afterId = 0;
+            while (true) {
+                List<TransactionRepository.SketchView> page = transactionRepository.findExpenseSketchViewsAfter(
+                        afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (TransactionRepository.SketchView view : page) {
+                    apply(view.getAmount(), view.getTransactionDate(), TransactionType.EXPENSE, view.getCategory(),
+                            view.getMerchant(), 1);
+                    afterId = view.getId();
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            loaded = true;
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("支出统计草图重建完成，共{}笔支出，耗时{}ms", expenseCount, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Transaction previous = event.getPrevious();
+            if (previous != null) {
+                apply(previous.getAmount(), previous.getTransactionDate(), previous.getType(),
+                        previous.getCategory(), previous.getMerchant(), -1);
+            }
+            Transaction current = event.getCurrent();
+            if (current != null) {
+                apply(current.getAmount(), current.getTransactionDate(), current.getType(),
+                        current.getCategory(), current.getMerchant(), 1);
+            }
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 分类在[fromMonth, toMonth]内单笔支出的p50/p90/p99，月份为null表示不限
+     */
+    public SpendPercentiles percentiles(TransactionCategory category, YearMonth fromMonth, YearMonth toMonth) {
+        lock.readLock().lock();
+        try {
+            return percentilesLocked(category, fromMonth, toMonth);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有有支出的分类的分位数，按笔数降序
+     */
+    public List<SpendPercentiles> percentiles(YearMonth fromMonth, YearMonth toMonth) {
+        List<SpendPercentiles> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (TransactionCategory category : amountSketches.keySet()) {
+                SpendPercentiles percentiles = percentilesLocked(category, fromMonth, toMonth);
+                if (percentiles.getTransactionCount() > 0) {
+                    result.add(percentiles);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort((a, b) -> Long.compare(b.getTransactionCount(), a.getTransactionCount()));
+        return result;
+    }
+
+    /**
+     * 分类下支出笔数最多的商户，category为null时合并所有分类
+     */
+    public TopMerchants topMerchants(TransactionCategory category, int limit) {
+        lock.readLock().lock();
+        try {
+            SpaceSaving<String> sketch = new SpaceSaving<>(merchantCapacity);
+            if (category != null) {
+                SpaceSaving<String> categorySketch = merchantSketches.get(category);
+                if (categorySketch != null) {
+                    sketch.merge(categorySketch);
+                }
+            } else {
+                merchantSketches.values().forEach(sketch::merge);
+            }
+            List<MerchantCount> merchants = new ArrayList<>();
+            for (SpaceSaving.Counter<String> counter : sketch.top(limit)) {
+                merchants.add(new MerchantCount(counter.getItem(), counter.getCount(), counter.getGuaranteedCount()));
+            }
+            return new TopMerchants(category, merchants, sketch.getErrorBound(), merchantCapacity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SketchStats getStats() {
+        lock.readLock().lock();
+        try {
+            int sketches = 0;
+            long buckets = 0;
+            for (NavigableMap<YearMonth, QuantileSketch> byMonth : amountSketches.values()) {
+                sketches += byMonth.size();
+                for (QuantileSketch sketch : byMonth.values()) {
+                    buckets += sketch.getCounts().length;
+                }
+            }
+            int merchants = merchantSketches.values().stream().mapToInt(SpaceSaving::size).sum();
+            return new SketchStats(enabled, loaded, expenseCount, sketches, buckets, merchants, driftCount,
+                    relativeAccuracy, merchantCapacity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定期将有变更的草图写回文件，商户草图误差上界过松时先重建
+     */
+    @Scheduled(fixedDelayString = "${app.sketches.flush-interval-ms:60000}")
+    public void flushIfDirty() {
+        if (rebuildPending.compareAndSet(true, false)) {
+            logger.info("商户草图因修改、删除累计的误差上界过松，从交易表重建");
+            rebuild();
+        }
+        if (dirty.compareAndSet(true, false)) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        if (!enabled || !loaded) {
+            return;
+        }
+        PersistedSketches persisted;
+        lock.readLock().lock();
+        try {
+            persisted = snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Path parent = storeFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), persisted);
+            Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("支出统计草图已写入: {}", storeFile);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("写入支出统计草图失败: {}", storeFile, e);
+        }
+    }
+
+    private SpendPercentiles percentilesLocked(TransactionCategory category, YearMonth fromMonth, YearMonth toMonth) {
+        QuantileSketch merged = new QuantileSketch(relativeAccuracy);
+        NavigableMap<YearMonth, QuantileSketch> byMonth = amountSketches.get(category);
+        if (byMonth != null) {
+            NavigableMap<YearMonth, QuantileSketch> range = byMonth;
+            if (fromMonth != null) {
+                range = range.tailMap(fromMonth, true);
+            }
+            if (toMonth != null) {
+                range = range.headMap(toMonth, true);
+            }
+            range.values().forEach(merged::merge);
+        }
+        return new SpendPercentiles(category, fromMonth, toMonth, merged.getCount(),
+                toMoney(merged.quantile(0.5)), toMoney(merged.quantile(0.9)), toMoney(merged.quantile(0.99)),
+                relativeAccuracy);
+    }
+
+    private void apply(BigDecimal amount, LocalDateTime transactionDate, TransactionType type,
+                       TransactionCategory category, String merchant, int sign) {
+        if (type != TransactionType.EXPENSE || amount == null || transactionDate == null || category == null
+                || amount.signum() <= 0) {
+            return;
+        }
+        long minorUnits = Money.minorUnitsOf(amount, RoundingMode.HALF_UP);
+        YearMonth month = YearMonth.from(transactionDate);
+        String merchantKey = merchantKey(merchant);
+        if (sign > 0) {
+            amountSketches.computeIfAbsent(category, c -> new TreeMap<>())
+                    .computeIfAbsent(month, m -> new QuantileSketch(relativeAccuracy))
+                    .add(minorUnits);
+            if (merchantKey != null) {
+                merchantSketches.computeIfAbsent(category, c -> new SpaceSaving<>(merchantCapacity)).add(merchantKey);
+            }
+        } else {
+            NavigableMap<YearMonth, QuantileSketch> byMonth = amountSketches.get(category);
+            QuantileSketch sketch = byMonth != null ? byMonth.get(month) : null;
+            if (sketch == null || !removeAmount(sketch, minorUnits)) {
+                // 草图与交易表已不一致（例如进程异常退出后加载了旧文件），计数后等待重建
+                driftCount++;
+                return;
+            }
+            if (sketch.getCount() == 0) {
+                byMonth.remove(month);
+                if (byMonth.isEmpty()) {
+                    amountSketches.remove(category);
+                }
+            }
+            SpaceSaving<String> merchants = merchantSketches.get(category);
+            if (merchantKey != null && merchants != null) {
+                merchants.remove(merchantKey, 1);
+                long churned = merchants.getInsertedWeight() - merchants.getLiveWeight();
+                if (churned > Math.max(merchants.getLiveWeight(), merchantCapacity)) {
+                    rebuildPending.set(true);
+                }
+            }
+        }
+        expenseCount += sign;
+        expenseMinorUnits += sign * minorUnits;
+    }
+
+    private static boolean removeAmount(QuantileSketch sketch, long minorUnits) {
+        try {
+            sketch.add(minorUnits, -1);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    // 未知商户不参与排名
+    private static String merchantKey(String merchant) {
+        if (merchant == null || merchant.isBlank()) {
+            return null;
+        }
+        String trimmed = merchant.trim();
+        return AiAnalysisService.DEFAULT_MERCHANT.equals(trimmed) ? null : trimmed;
+    }
+
+    private static Money toMoney(double minorUnits) {
+        return Double.isNaN(minorUnits) ? null : Money.ofMinor(Math.round(minorUnits));
+    }
+
+    private void clear() {
+        amountSketches.clear();
+        merchantSketches.clear();
+        expenseCount = 0;
+        expenseMinorUnits = 0;
+        driftCount = 0;
+        rebuildPending.set(false);
+    }
+
+    /**
+     * 从文件加载，文件中的支出笔数与总额须与交易表一致
+     */
+    private boolean restore() {
+        if (!Files.exists(storeFile)) {
+            return false;
+        }
+        try {
+            PersistedSketches persisted = objectMapper.readValue(storeFile.toFile(), PersistedSketches.class);
+            if (persisted.getVersion() != FORMAT_VERSION || persisted.getRelativeAccuracy() != relativeAccuracy
+                    || persisted.getMerchantCapacity() != merchantCapacity) {
+                logger.info("支出统计草图参数已变化，重新构建: {}", storeFile);
+                return false;
+            }
+            Object[] totals = transactionRepository.countAndSumExpenses().get(0);
+            long count = ((Number) totals[0]).longValue();
+            long minorUnits = Money.minorUnitsOf((BigDecimal) totals[1], RoundingMode.HALF_UP);
+            if (count != persisted.getExpenseCount() || minorUnits != persisted.getExpenseMinorUnits()) {
+                logger.info("支出统计草图与交易表不一致（文件{}笔，交易表{}笔），重新构建",
+                        persisted.getExpenseCount(), count);
+                return false;
+            }
+            lock.writeLock().lock();
+            try {
+                clear();
+                for (PersistedAmounts amounts : persisted.getAmounts()) {
+                    amountSketches.computeIfAbsent(amounts.getCategory(), c -> new TreeMap<>())
+                            .put(YearMonth.parse(amounts.getMonth()),
+                                    QuantileSketch.restore(relativeAccuracy, amounts.getOffset(), amounts.getCounts()));
+                }
+                for (PersistedMerchants merchants : persisted.getMerchants()) {
+                    List<SpaceSaving.Counter<String>> counters = new ArrayList<>();
+                    for (PersistedCounter counter : merchants.getCounters()) {
+                        counters.add(new SpaceSaving.Counter<>(counter.getMerchant(), counter.getCount(),
+                                counter.getError()));
+                    }
+                    merchantSketches.put(merchants.getCategory(),
+                            SpaceSaving.restore(merchantCapacity, merchants.getInsertedWeight(),
+                                    merchants.getLiveWeight(), counters));
+                }
+                expenseCount = persisted.getExpenseCount();
+                expenseMinorUnits = persisted.getExpenseMinorUnits();
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("已加载支出统计草图，共{}笔支出: {}", expenseCount, storeFile);
+            return true;
+        } catch (Exception e) {
+            logger.warn("加载支出统计草图失败，将从交易表重建: {}", storeFile, e);
+            return false;
+        }
+    }
+
+    private PersistedSketches snapshot() {
+        PersistedSketches persisted = new PersistedSketches();
+        persisted.setVersion(FORMAT_VERSION);
+        persisted.setRelativeAccuracy(relativeAccuracy);
+        persisted.setMerchantCapacity(merchantCapacity);
+        persisted.setExpenseCount(expenseCount);
+        persisted.setExpenseMinorUnits(expenseMinorUnits);
+        List<PersistedAmounts> amounts = new ArrayList<>();
+        amountSketches.forEach((category, byMonth) -> byMonth.forEach((month, sketch) -> {
+            PersistedAmounts entry = new PersistedAmounts();
+            entry.setCategory(category);
+            entry.setMonth(month.toString());
+            entry.setOffset(sketch.getOffset());
+            entry.setCounts(sketch.getCounts());
+            amounts.add(entry);
+        }));
+        persisted.setAmounts(amounts);
+        List<PersistedMerchants> merchants = new ArrayList<>();
+        merchantSketches.forEach((category, sketch) -> {
+            PersistedMerchants entry = new PersistedMerchants();
+            entry.setCategory(category);
+            entry.setInsertedWeight(sketch.getInsertedWeight());
+            entry.setLiveWeight(sketch.getLiveWeight());
+            List<PersistedCounter> counters = new ArrayList<>();
+            for (SpaceSaving.Counter<String> counter : sketch.top(merchantCapacity)) {
+                PersistedCounter persistedCounter = new PersistedCounter();
+                persistedCounter.setMerchant(counter.getItem());
+                persistedCounter.setCount(counter.getCount());
+                persistedCounter.setError(counter.getError());
+                counters.add(persistedCounter);
+            }
+            entry.setCounters(counters);
+            merchants.add(entry);
+        });
+        persisted.setMerchants(merchants);
+        return persisted;
+    }
+
+    /**
+     * 分类单笔支出分位数；relativeAccuracy为各分位数的最大相对误差
+     */
+    public static class SpendPercentiles {
+        private final TransactionCategory category;
+        private final YearMonth fromMonth;
+        private final YearMonth toMonth;
+        private final long transactionCount;
+        private final Money p50;
+        private final Money p90;
+        private final Money p99;
+        private final double relativeAccuracy;
+
+        public SpendPercentiles(TransactionCategory category, YearMonth fromMonth, YearMonth toMonth,
+                                long transactionCount, Money p50, Money p90, Money p99, double relativeAccuracy) {
+            this.category = category;
+            this.fromMonth = fromMonth;
+            this.toMonth = toMonth;
+            this.transactionCount = transactionCount;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.relativeAccuracy = relativeAccuracy;
+        }
+
+        public TransactionCategory getCategory() { return category; }
+        public YearMonth getFromMonth() { return fromMonth; }
+        public YearMonth getToMonth() { return toMonth; }
+        public long getTransactionCount() { return transactionCount; }
+        public Money getP50() { return p50; }
+        public Money getP90() { return p90; }
+        public Money getP99() { return p99; }
+        public double getRelativeAccuracy() { return relativeAccuracy; }
+    }
+
+    /**
+     * 高频商户；每个商户的笔数最多高估maxOverestimate，guaranteedCount为笔数下界
+     */
+    public static class TopMerchants {
+        private final TransactionCategory category;
+        private final List<MerchantCount> merchants;
+        private final long maxOverestimate;
+        private final int capacity;
+
+        public TopMerchants(TransactionCategory category, List<MerchantCount> merchants, long maxOverestimate,
+                            int capacity) {
+            this.category = category;
+            this.merchants = merchants;
+            this.maxOverestimate = maxOverestimate;
+            this.capacity = capacity;
+        }
+
+        public TransactionCategory getCategory() { return category; }
+        public List<MerchantCount> getMerchants() { return merchants; }
+        public long getMaxOverestimate() { return maxOverestimate; }
+        public int getCapacity() { return capacity; }
+    }
+
+    public static class MerchantCount {
+        private final String merchant;
+        private final long count;
+        private final long guaranteedCount;
+
+        public MerchantCount(String merchant, long count, long guaranteedCount) {
+            this.merchant = merchant;
+            this.count = count;
+            this.guaranteedCount = guaranteedCount;
+        }
+
+        public String getMerchant() { return merchant; }
+        public long getCount() { return count; }
+        public long getGuaranteedCount() { return guaranteedCount; }
+    }
+
+    /**
+     * 草图统计信息
+     */
+    public static class SketchStats {
+        private final boolean enabled;
+        private final boolean loaded;
+        private final long expenseCount;
+        private final int quantileSketches;
+        private final long buckets;
+        private final int trackedMerchants;
+        private final long driftCount;
+        private final double relativeAccuracy;
+        private final int merchantCapacity;
+
+        public SketchStats(boolean enabled, boolean loaded, long expenseCount, int quantileSketches, long buckets,
+                           int trackedMerchants, long driftCount, double relativeAccuracy, int merchantCapacity) {
+            this.enabled = enabled;
+            this.loaded = loaded;
+            this.expenseCount = expenseCount;
+            this.quantileSketches = quantileSketches;
+            this.buckets = buckets;
+            this.trackedMerchants = trackedMerchants;
+            this.driftCount = driftCount;
+            this.relativeAccuracy = relativeAccuracy;
+            this.merchantCapacity = merchantCapacity;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public boolean isLoaded() { return loaded; }
+        public long getExpenseCount() { return expenseCount; }
+        public int getQuantileSketches() { return quantileSketches; }
+        public long getBuckets() { return buckets; }
+        public int getTrackedMerchants() { return trackedMerchants; }
+        public long getDriftCount() { return driftCount; }
+        public double getRelativeAccuracy() { return relativeAccuracy; }
+        public int getMerchantCapacity() { return merchantCapacity; }
+    }
+
+    /**
+     * 落盘格式
+     */
+    public static class PersistedSketches {
+        private int version;
+        private double relativeAccuracy;
+        private int merchantCapacity;
+        private long expenseCount;
+        private long expenseMinorUnits;
+        private List<PersistedAmounts> amounts = new ArrayList<>();
+        private List<PersistedMerchants> merchants = new ArrayList<>();
+
+        public int getVersion() { return version; }
+        public void setVersion(int version) { this.version = version; }
+
+        public double getRelativeAccuracy() { return relativeAccuracy; }
+        public void setRelativeAccuracy(double relativeAccuracy) { this.relativeAccuracy = relativeAccuracy; }
+
+        public int getMerchantCapacity() { return merchantCapacity; }
+        public void setMerchantCapacity(int merchantCapacity) { this.merchantCapacity = merchantCapacity; }
+
+        public long getExpenseCount() { return expenseCount; }
+        public void setExpenseCount(long expenseCount) { this.expenseCount = expenseCount; }
+
+        public long getExpenseMinorUnits() { return expenseMinorUnits; }
+        public void setExpenseMinorUnits(long expenseMinorUnits) { this.expenseMinorUnits = expenseMinorUnits; }
+
+        public List<PersistedAmounts> getAmounts() { return amounts; }
+        public void setAmounts(List<PersistedAmounts> amounts) { this.amounts = amounts; }
+
+        public List<PersistedMerchants> getMerchants() { return merchants; }
+        public void setMerchants(List<PersistedMerchants> merchants) { this.merchants = merchants; }
+    }
+
+    public static class PersistedAmounts {
+        private TransactionCategory category;
+        private String month;
+        private int offset;
+        private long[] counts;
+
+        public TransactionCategory getCategory() { return category; }
+        public void setCategory(TransactionCategory category) { this.category = category; }
+
+        public String getMonth() { return month; }
+        public void setMonth(String month) { this.month = month; }
+
+        public int getOffset() { return offset; }
+        public void setOffset(int offset) { this.offset = offset; }
+
+        public long[] getCounts() { return counts; }
+        public void setCounts(long[] counts) { this.counts = counts; }
+    }
+
+    public static class PersistedMerchants {
+        private TransactionCategory category;
+        private long insertedWeight;
+        private long liveWeight;
+        private List<PersistedCounter> counters = new ArrayList<>();
+
+        public TransactionCategory getCategory() { return category; }
+        public void setCategory(TransactionCategory category) { this.category = category; }
+
+        public long getInsertedWeight() { return insertedWeight; }
+        public void setInsertedWeight(long insertedWeight) { this.insertedWeight = insertedWeight; }
+
+        public long getLiveWeight() { return liveWeight; }
+        public void setLiveWeight(long liveWeight) { this.liveWeight = liveWeight; }
+
+        public List<PersistedCounter> getCounters() { return counters; }
+        public void setCounters(List<PersistedCounter> counters) { this.counters = counters; }
+    }
+
+    public static class PersistedCounter {
+        private String merchant;
+        private long count;
+        private long error;
+
+        public String getMerchant() { return merchant; }
+        public void setMerchant(String merchant) { this.merchant = merchant; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public long getError() { return error; }
+        public void setError(long error) { this.error = error; }
+    }
+}
@@ -0,0 +1,319 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.dto.TransactionRequest;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.util.ThreadFactories;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 账单批量导入服务
+ * 上传的账单先落到临时文件，由后台任务流式解析，按块去重、并发分类后整块写入；
+ * 导入进度与逐行错误通过任务ID查询。
+ */
+@Service
+public class StatementImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementImportService.class);
+
+    private static final int MAX_RETAINED_JOBS = 20;
+
+    private final StatementParser statementParser;
+    private final AiAnalysisService aiAnalysisService;
+    private final TransactionService transactionService;
+    private final ExternalIdIndex externalIdIndex;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    private final ExecutorService jobExecutor;
+    private final ExecutorService classifyExecutor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public StatementImportService(StatementParser statementParser,
+                                  AiAnalysisService aiAnalysisService,
+                                  TransactionService transactionService,
+                                  ExternalIdIndex externalIdIndex,
+                                  @Value("${app.import.chunk-size:500}") int chunkSize,
+                                  @Value("${app.import.classify-concurrency:8}") int classifyConcurrency,
+                                  @Value("${app.import.max-errors:1000}") int maxErrors,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.statementParser = statementParser;
+        this.aiAnalysisService = aiAnalysisService;
+        this.transactionService = transactionService;
+        this.externalIdIndex = externalIdIndex;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+        this.jobExecutor = Executors.newSingleThreadExecutor(ThreadFactories.named("statement-import", false));
+        // 虚拟线程下每笔分类一个线程，调用大模型的并发由AiConcurrencyLimiter限制
+        this.classifyExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(ThreadFactories.named("statement-classify", true))
+                : Executors.newFixedThreadPool(Math.max(1, classifyConcurrency),
+                        ThreadFactories.named("statement-classify", false));
+    }
+
+    /**
+     * 保存上传文件并提交后台导入任务
+     */
+    public ImportJob startImport(MultipartFile file, StatementParser.Format format, Charset charset, String source)
+            throws IOException {
+        Path tempFile = Files.createTempFile("statement-import-", "." + format.name().toLowerCase());
+        file.transferTo(tempFile);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+        jobs.put(job.getJobId(), job);
+        evictFinishedJobs();
+        logger.info("开始导入账单: {}，任务ID: {}，格式: {}", file.getOriginalFilename(), job.getJobId(), format);
+
+        jobExecutor.execute(() -> runImport(job, tempFile, format, charset, source));
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void runImport(ImportJob job, Path file, StatementParser.Format format, Charset charset, String source) {
+        Set<String> seenExternalIds = new HashSet<>();
+        List<StatementParser.ParsedRow> chunk = new ArrayList<>(chunkSize);
+        try (InputStream input = Files.newInputStream(file)) {
+            statementParser.parse(input, format, charset, row -> {
+                job.totalRows.incrementAndGet();
+                if (!row.isValid()) {
+                    job.failed.incrementAndGet();
+                    job.processedRows.incrementAndGet();
+                    job.recordError(row.getLineNumber(), row.getError(), maxErrors);
+                    return;
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    processChunk(job, chunk, seenExternalIds, source);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                processChunk(job, chunk, seenExternalIds, source);
+            }
+            job.finish(ImportStatus.COMPLETED, null);
+            logger.info("账单导入完成，任务ID: {}，共{}行，导入{}，重复跳过{}，失败{}", job.getJobId(),
+                    job.getTotalRows(), job.getImported(), job.getSkippedDuplicates(), job.getFailed());
+        } catch (Exception e) {
+            logger.error("账单导入失败，任务ID: {}", job.getJobId(), e);
+            job.finish(ImportStatus.FAILED, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("删除导入临时文件失败: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * 处理一个数据块：按外部ID去重、并发分类、整块写入
+     */
+    private void processChunk(ImportJob job, List<StatementParser.ParsedRow> rows,
+                              Set<String> seenExternalIds, String source) {
+        Set<String> candidateIds = new HashSet<>();
+        for (StatementParser.ParsedRow row : rows) {
+            String externalId = row.getRequest().getExternalId();
+            if (externalId != null && !seenExternalIds.contains(externalId)) {
+                candidateIds.add(externalId);
+            }
+        }
+        Set<String> existingIds = candidateIds.isEmpty() ? Set.of() : externalIdIndex.findExisting(candidateIds);
+
+        List<StatementParser.ParsedRow> accepted = new ArrayList<>(rows.size());
+        for (StatementParser.ParsedRow row : rows) {
+            String externalId = row.getRequest().getExternalId();
+            if (externalId != null && (existingIds.contains(externalId) || !seenExternalIds.add(externalId))) {
+                job.skippedDuplicates.incrementAndGet();
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        // 并发提交分类，同时在途的请求由微批处理器合并为少量大模型调用
+        List<CompletableFuture<AiAnalysisService.AiAnalysisResult>> analyses = new ArrayList<>(accepted.size());
+        for (StatementParser.ParsedRow row : accepted) {
+            TransactionRequest request = row.getRequest();
+            analyses.add(CompletableFuture.supplyAsync(() -> aiAnalysisService.analyzeTransaction(
+                    request.getAmount(),
+                    request.getDescription(),
+                    request.getMerchant(),
+                    request.getLocation()
+            ), classifyExecutor));
+        }
+
+        List<Transaction> transactions = new ArrayList<>(accepted.size());
+        List<Integer> lineNumbers = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            StatementParser.ParsedRow row = accepted.get(i);
+            try {
+                transactions.add(toTransaction(row, analyses.get(i).join(), source));
+                lineNumbers.add(row.getLineNumber());
+            } catch (Exception e) {
+                job.failed.incrementAndGet();
+                job.recordError(row.getLineNumber(), "分类失败: " + e.getMessage(), maxErrors);
+            }
+        }
+        save(job, transactions, lineNumbers);
+        job.processedRows.addAndGet(rows.size());
+    }
+
+    private void save(ImportJob job, List<Transaction> transactions, List<Integer> lineNumbers) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        try {
+            transactionService.saveImportedTransactions(transactions);
+            job.imported.addAndGet(transactions.size());
+        } catch (Exception chunkFailure) {
+            // 整块写入失败时逐行重试，定位出错的行
+            logger.warn("导入数据块写入失败，改为逐行写入: {}", chunkFailure.getMessage());
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                transaction.setId(null);
+                try {
+                    transactionService.saveImportedTransactions(List.of(transaction));
+                    job.imported.incrementAndGet();
+                } catch (Exception e) {
+                    job.failed.incrementAndGet();
+                    job.recordError(lineNumbers.get(i), "保存失败: " + e.getMessage(), maxErrors);
+                }
+            }
+        }
+    }
+
+    private Transaction toTransaction(StatementParser.ParsedRow row, AiAnalysisService.AiAnalysisResult analysis,
+                                      String source) {
+        TransactionRequest request = row.getRequest();
+        Transaction transaction = new Transaction(request.getAmount());
+        transaction.setLocation(request.getLocation());
+        transaction.setTransactionDate(request.getTransactionDate() != null ?
+                request.getTransactionDate() : LocalDateTime.now());
+        transaction.setSource(source);
+        transaction.setExternalId(request.getExternalId());
+        transaction.setDescription(request.getDescription());
+        transaction.setMerchant(request.getMerchant());
+        TransactionService.applyAnalysis(transaction, analysis);
+        // 账单中的收支方向比模型推断更可靠
+        if (row.getTypeHint() != null) {
+            transaction.setType(row.getTypeHint());
+        }
+        return transaction;
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() <= MAX_RETAINED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.getStatus() != ImportStatus.RUNNING)
+                .sorted((a, b) -> a.getStartedAt().compareTo(b.getStartedAt()))
+                .limit(jobs.size() - MAX_RETAINED_JOBS)
+                .forEach(job -> jobs.remove(job.getJobId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        classifyExecutor.shutdownNow();
+    }
+
+    public enum ImportStatus {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * 导入任务进度
+     */
+    public static class ImportJob {
+        private final String jobId;
+        private final String fileName;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile LocalDateTime finishedAt;
+        private volatile ImportStatus status = ImportStatus.RUNNING;
+        private volatile String message;
+        private final AtomicLong totalRows = new AtomicLong();
+        private final AtomicLong processedRows = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong skippedDuplicates = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicInteger errorCount = new AtomicInteger();
+        private final ConcurrentLinkedQueue<RowError> errors = new ConcurrentLinkedQueue<>();
+
+        ImportJob(String jobId, String fileName) {
+            this.jobId = jobId;
+            this.fileName = fileName;
+        }
+
+        void recordError(int lineNumber, String message, int maxErrors) {
+            if (errorCount.getAndIncrement() < maxErrors) {
+                errors.add(new RowError(lineNumber, message));
+            }
+        }
+
+        void finish(ImportStatus status, String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        public String getJobId() { return jobId; }
+        public String getFileName() { return fileName; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public ImportStatus getStatus() { return status; }
+        public String getMessage() { return message; }
+        public long getTotalRows() { return totalRows.get(); }
+        public long getProcessedRows() { return processedRows.get(); }
+        public long getImported() { return imported.get(); }
+        public long getSkippedDuplicates() { return skippedDuplicates.get(); }
+        public long getFailed() { return failed.get(); }
+        public int getErrorCount() { return errorCount.get(); }
+        public List<RowError> getErrors() { return new ArrayList<>(errors); }
+    }
+
+    /**
+     * 行级错误
+     */
+    public static class RowError {
+        private final int lineNumber;
+        private final String message;
+
+        public RowError(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,341 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.dto.TransactionRequest;
+import com.zeronote.accounting.model.TransactionType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 账单解析器
+ * 流式解析微信支付、支付宝、银行流水等导出的CSV/JSON账单，逐行回调，不把整个文件读入内存。
+ * CSV会跳过表头前的说明行，按常见列名识别金额、时间、商户等字段。
+ */
+@Component
+public class StatementParser {
+
+    private static final int MAX_PREAMBLE_RECORDS = 50;
+
+    private static final List<DateTimeFormatter> DATE_TIME_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-M-d H:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy/M/d H:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-M-d H:mm"),
+            DateTimeFormatter.ofPattern("yyyy/M/d H:mm"),
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-M-d"),
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.BASIC_ISO_DATE);
+
+    private static final Map<String, Field> COLUMN_ALIASES = new HashMap<>();
+
+    static {
+        alias(Field.AMOUNT, "amount", "金额", "金额(元)", "金额（元）", "交易金额", "交易金额(元)");
+        alias(Field.DATE, "transactiondate", "date", "time", "交易时间", "交易创建时间", "付款时间", "记账日期", "交易日期");
+        alias(Field.MERCHANT, "merchant", "交易对方", "对方户名", "对方名称", "商户名称", "商户");
+        alias(Field.DESCRIPTION, "description", "商品", "商品名称", "商品说明", "摘要", "交易描述", "备注");
+        alias(Field.LOCATION, "location", "地点", "交易地点");
+        alias(Field.EXTERNAL_ID, "externalid", "id", "交易单号", "交易订单号", "交易号", "流水号");
+        alias(Field.DIRECTION, "type", "direction", "收/支", "收支", "收/付款");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    /**
+     * 解析账单，每解析出一行（成功或失败）回调一次
+     */
+    public void parse(InputStream input, Format format, Charset charset, Consumer<ParsedRow> consumer)
+            throws IOException {
+        if (format == Format.JSON) {
+            parseJson(input, consumer);
+        } else {
+            parseCsv(new BufferedReader(new InputStreamReader(input, charset)), consumer);
+        }
+    }
+
+    private void parseCsv(BufferedReader reader, Consumer<ParsedRow> consumer) throws IOException {
+        CsvRecordReader records = new CsvRecordReader(reader);
+        Map<Integer, Field> columns = null;
+        List<String> record;
+        int preamble = 0;
+        while (columns == null && (record = records.next()) != null) {
+            columns = detectHeader(record);
+            if (columns == null && ++preamble > MAX_PREAMBLE_RECORDS) {
+                throw new IOException("未找到账单表头（需要包含金额列）");
+            }
+        }
+        if (columns == null) {
+            throw new IOException("账单为空或缺少表头");
+        }
+        while ((record = records.next()) != null) {
+            if (countNonBlank(record) < 2) {
+                continue;
+            }
+            Map<Field, String> values = new HashMap<>();
+            for (Map.Entry<Integer, Field> column : columns.entrySet()) {
+                if (column.getKey() < record.size()) {
+                    values.putIfAbsent(column.getValue(), record.get(column.getKey()));
+                }
+            }
+            consumer.accept(toRow(records.getLineNumber(), values));
+        }
+    }
+
+    private void parseJson(InputStream input, Consumer<ParsedRow> consumer) throws IOException {
+        int index = 0;
+        try (MappingIterator<JsonNode> iterator = objectMapper.readerFor(JsonNode.class).readValues(input)) {
+            while (iterator.hasNextValue()) {
+                JsonNode node = iterator.nextValue();
+                index++;
+                if (!node.isObject()) {
+                    consumer.accept(ParsedRow.error(index, "不是JSON对象"));
+                    continue;
+                }
+                Map<Field, String> values = new HashMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = fields.next();
+                    Field field = COLUMN_ALIASES.get(normalizeHeader(entry.getKey()));
+                    if (field != null && !entry.getValue().isNull()) {
+                        values.putIfAbsent(field, entry.getValue().asText());
+                    }
+                }
+                consumer.accept(toRow(index, values));
+            }
+        }
+    }
+
+    private ParsedRow toRow(int lineNumber, Map<Field, String> values) {
+        try {
+            String amountText = clean(values.get(Field.AMOUNT));
+            if (amountText == null) {
+                return ParsedRow.error(lineNumber, "缺少金额");
+            }
+            BigDecimal amount = new BigDecimal(amountText.replaceAll("[¥￥,\\s]", ""));
+            TransactionType typeHint = parseDirection(clean(values.get(Field.DIRECTION)));
+            if (amount.signum() < 0) {
+                // 银行流水以负数表示支出
+                amount = amount.negate();
+                if (typeHint == null) {
+                    typeHint = TransactionType.EXPENSE;
+                }
+            }
+            if (amount.signum() == 0) {
+                return ParsedRow.error(lineNumber, "金额必须大于0");
+            }
+
+            TransactionRequest request = new TransactionRequest();
+            request.setAmount(amount);
+            request.setDescription(clean(values.get(Field.DESCRIPTION)));
+            request.setMerchant(clean(values.get(Field.MERCHANT)));
+            request.setLocation(clean(values.get(Field.LOCATION)));
+            request.setExternalId(clean(values.get(Field.EXTERNAL_ID)));
+            String dateText = clean(values.get(Field.DATE));
+            request.setTransactionDate(dateText != null ? parseDateTime(dateText) : null);
+            return new ParsedRow(lineNumber, request, typeHint, null);
+        } catch (NumberFormatException e) {
+            return ParsedRow.error(lineNumber, "金额格式错误: " + values.get(Field.AMOUNT));
+        } catch (DateTimeParseException e) {
+            return ParsedRow.error(lineNumber, "时间格式错误: " + values.get(Field.DATE));
+        }
+    }
+
+    static LocalDateTime parseDateTime(String text) {
+        for (DateTimeFormatter formatter : DATE_TIME_FORMATS) {
+            try {
+                return LocalDateTime.parse(text, formatter);
+            } catch (DateTimeParseException ignored) {
+                // 尝试下一种格式
+            }
+        }
+        for (DateTimeFormatter formatter : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, formatter).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // 尝试下一种格式
+            }
+        }
+        throw new DateTimeParseException("无法识别的时间格式", text, 0);
+    }
+
+    private static TransactionType parseDirection(String direction) {
+        if (direction == null) {
+            return null;
+        }
+        String value = direction.toUpperCase(Locale.ROOT);
+        if (value.contains("支出") || value.contains("付款") || value.equals("EXPENSE")) {
+            return TransactionType.EXPENSE;
+        }
+        if (value.contains("收入") || value.contains("收款") || value.equals("INCOME")) {
+            return TransactionType.INCOME;
+        }
+        if (value.contains("转账") || value.equals("TRANSFER")) {
+            return TransactionType.TRANSFER;
+        }
+        return null;
+    }
+
+    private static Map<Integer, Field> detectHeader(List<String> record) {
+        Map<Integer, Field> columns = new HashMap<>();
+        for (int i = 0; i < record.size(); i++) {
+            Field field = COLUMN_ALIASES.get(normalizeHeader(record.get(i)));
+            if (field != null && !columns.containsValue(field)) {
+                columns.put(i, field);
+            }
+        }
+        return columns.containsValue(Field.AMOUNT) ? columns : null;
+    }
+
+    private static String normalizeHeader(String header) {
+        return header.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 去除首尾空白及制表符（微信账单的单号带有\t），空串视为null
+     */
+    private static String clean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.strip();
+        return trimmed.isEmpty() || trimmed.equals("/") ? null : trimmed;
+    }
+
+    private static int countNonBlank(List<String> record) {
+        int count = 0;
+        for (String value : record) {
+            if (!value.isBlank()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void alias(Field field, String... names) {
+        for (String name : names) {
+            COLUMN_ALIASES.put(name.toLowerCase(Locale.ROOT), field);
+        }
+    }
+
+    private enum Field {
+        AMOUNT, DATE, MERCHANT, DESCRIPTION, LOCATION, EXTERNAL_ID, DIRECTION
+    }
+
+    /**
+     * 逐条读取CSV记录，支持引号内的逗号、换行及""转义
+     */
+    private static final class CsvRecordReader {
+        private final Reader reader;
+        private int lineNumber;
+        private int recordLineNumber;
+
+        private CsvRecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private List<String> next() throws IOException {
+            List<String> record = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+            boolean any = false;
+            int c;
+            recordLineNumber = lineNumber + 1;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (inQuotes) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int nextChar = reader.read();
+                        if (nextChar == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            if (nextChar != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineNumber++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    lineNumber++;
+                    record.add(field.toString());
+                    return record;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            lineNumber++;
+            record.add(field.toString());
+            return record;
+        }
+
+        private int getLineNumber() {
+            return recordLineNumber;
+        }
+    }
+
+    /**
+     * 解析出的账单行
+     */
+    public static class ParsedRow {
+        private final int lineNumber;
+        private final TransactionRequest request;
+        private final TransactionType typeHint;
+        private final String error;
+
+        public ParsedRow(int lineNumber, TransactionRequest request, TransactionType typeHint, String error) {
+            this.lineNumber = lineNumber;
+            this.request = request;
+            this.typeHint = typeHint;
+            this.error = error;
+        }
+
+        static ParsedRow error(int lineNumber, String error) {
+            return new ParsedRow(lineNumber, null, null, error);
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public TransactionRequest getRequest() { return request; }
+        public TransactionType getTypeHint() { return typeHint; }
+        public String getError() { return error; }
+        public boolean isValid() { return error == null; }
+    }
+}
@@ -0,0 +1,118 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 交易导出服务
+ * 通过数据库游标逐行读取并直接写入输出流，每行写出后即从持久化上下文中移除，内存占用与导出行数无关
+ */
+@Service
+public class TransactionExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+
+    private static final String CSV_HEADER = "id,transactionDate,amount,type,category,scenario,merchant,"
+            + "description,location,source,externalId,classificationSource";
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    @Autowired
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    EntityManager entityManager,
+                                    ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 按时间范围导出交易，返回导出行数
+     */
+    @Transactional(readOnly = true)
+    public long export(LocalDateTime startDate, LocalDateTime endDate, Format format, OutputStream output)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            // BOM使Excel按UTF-8识别中文
+            writer.write('\uFEFF');
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try (Stream<Transaction> transactions =
+                     transactionRepository.streamByTransactionDateBetween(startDate, endDate)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, transaction);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(TransactionService.convertToResponse(transaction)));
+                    writer.write('\n');
+                }
+                entityManager.detach(transaction);
+                rows++;
+            }
+        }
+        writer.flush();
+        logger.info("导出交易 {} 条（{}），耗时{}ms", rows, format, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(String.valueOf(transaction.getId()));
+        writeCsvField(writer, transaction.getTransactionDate());
+        writeCsvField(writer, transaction.getAmount() != null ? transaction.getAmount().toPlainString() : null);
+        writeCsvField(writer, transaction.getType());
+        writeCsvField(writer, transaction.getCategory());
+        writeCsvField(writer, transaction.getScenario());
+        writeCsvField(writer, transaction.getMerchant());
+        writeCsvField(writer, transaction.getDescription());
+        writeCsvField(writer, transaction.getLocation());
+        writeCsvField(writer, transaction.getSource());
+        writeCsvField(writer, transaction.getExternalId());
+        writeCsvField(writer, transaction.getClassificationSource());
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 交易响应缓存
+ * 按ID缓存交易详情，并在内存中维护按交易时间倒序的最近N条交易，供客户端轮询直接命中。
+ * 交易提交后按变更事件精确失效：详情只移除变更的那一条；最近列表能就地调整时直接调整，
+ * 无法确定新的前N条时（如删除其中一条）才整体失效，下次读取时重新加载。
+ * 回填前记录代数，读库期间若有交易提交则放弃回填，避免把旧数据写回缓存。
+ */
+@Component
+public class TransactionResponseCache {
+
+    public static final int RECENT_SIZE = 10;
+
+    private static final Comparator<TransactionResponse> NEWEST_FIRST = Comparator
+            .comparing(TransactionResponse::getTransactionDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TransactionResponse::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final boolean enabled;
+    private final LruCache<Long, TransactionResponse> entries;
+    private final ReentrantLock recentLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+
+    // 最近交易按时间倒序排列；为null表示未加载或已失效
+    private TransactionResponse[] recent;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong recentHitCount = new AtomicLong();
+    private final AtomicLong recentMissCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    public TransactionResponseCache(@Value("${app.response-cache.enabled:true}") boolean enabled,
+                                    @Value("${app.response-cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.entries = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * 当前代数，读库前获取，回填时传回
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public TransactionResponse get(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        TransactionResponse response = entries.get(id);
+        if (response == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return response;
+    }
+
+    public void put(long expectedGeneration, TransactionResponse response) {
+        if (!enabled || response.getId() == null) {
+            return;
+        }
+        entries.put(response.getId(), response);
+        // 读库期间有交易提交，回填的可能是旧数据
+        if (generation.get() != expectedGeneration) {
+            entries.remove(response.getId());
+        }
+    }
+
+    /**
+     * 最近交易，未加载时返回null
+     */
+    public List<TransactionResponse> getRecent() {
+        if (!enabled) {
+            return null;
+        }
+        recentLock.lock();
+        try {
+            if (recent == null) {
+                recentMissCount.incrementAndGet();
+                return null;
+            }
+            recentHitCount.incrementAndGet();
+            return List.of(recent);
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    public void putRecent(long expectedGeneration, List<TransactionResponse> responses) {
+        if (!enabled) {
+            return;
+        }
+        recentLock.lock();
+        try {
+            if (generation.get() == expectedGeneration) {
+                TransactionResponse[] loaded = responses.toArray(new TransactionResponse[0]);
+                Arrays.sort(loaded, NEWEST_FIRST);
+                recent = loaded;
+            }
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        generation.incrementAndGet();
+        Transaction current = event.getCurrent();
+        Transaction previous = event.getPrevious();
+        Long id = current != null ? current.getId() : previous.getId();
+        if (entries.remove(id) != null) {
+            invalidationCount.incrementAndGet();
+        }
+
+        recentLock.lock();
+        try {
+            if (recent != null) {
+                TransactionResponse response = current != null ? TransactionService.convertToResponse(current) : null;
+                recent = updateRecent(recent, id, response);
+                if (recent == null) {
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    /**
+     * 就地调整最近交易；无法确定新的前N条时返回null
+     */
+    static TransactionResponse[] updateRecent(TransactionResponse[] recent, Long id, TransactionResponse current) {
+        boolean full = recent.length >= RECENT_SIZE;
+        TransactionResponse boundary = recent.length > 0 ? recent[recent.length - 1] : null;
+        List<TransactionResponse> updated = new ArrayList<>(recent.length + 1);
+        boolean member = false;
+        for (TransactionResponse response : recent) {
+            if (Objects.equals(response.getId(), id)) {
+                member = true;
+            } else {
+                updated.add(response);
+            }
+        }
+
+        if (current == null) {
+            // 删除了前N条之一，第N+1条是谁只有数据库知道
+            return member && full ? null : updated.toArray(new TransactionResponse[0]);
+        }
+        boolean withinBoundary = !full || NEWEST_FIRST.compare(current, boundary) <= 0;
+        if (!withinBoundary) {
+            // 原成员时间被改早到边界之后，同样需要重新加载；非成员则不影响
+            return member ? null : recent;
+        }
+        updated.add(current);
+        updated.sort(NEWEST_FIRST);
+        if (updated.size() > RECENT_SIZE) {
+            updated = updated.subList(0, RECENT_SIZE);
+        }
+        return updated.toArray(new TransactionResponse[0]);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        recentLock.lock();
+        try {
+            recent = null;
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    public ResponseCacheStats getStats() {
+        return new ResponseCacheStats(enabled, entries.size(), entries.getMaxEntries(), hitCount.get(),
+                missCount.get(), entries.getEvictionCount(), recentHitCount.get(), recentMissCount.get(),
+                invalidationCount.get());
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public static class ResponseCacheStats {
+        private final boolean enabled;
+        private final int size;
+        private final int maxEntries;
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long recentHitCount;
+        private final long recentMissCount;
+        private final long invalidationCount;
+
+        public ResponseCacheStats(boolean enabled, int size, int maxEntries, long hitCount, long missCount,
+                                  long evictionCount, long recentHitCount, long recentMissCount,
+                                  long invalidationCount) {
+            this.enabled = enabled;
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.recentHitCount = recentHitCount;
+            this.recentMissCount = recentMissCount;
+            this.invalidationCount = invalidationCount;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHitCount() { return hitCount; }
+        public long getMissCount() { return missCount; }
+        public long getEvictionCount() { return evictionCount; }
+        public long getRecentHitCount() { return recentHitCount; }
+        public long getRecentMissCount() { return recentMissCount; }
+        public long getInvalidationCount() { return invalidationCount; }
+
+        public double getHitRatio() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+
+        public double getRecentHitRatio() {
+            long total = recentHitCount + recentMissCount;
+            return total == 0 ? 0.0 : (double) recentHitCount / total;
+        }
+    }
+}
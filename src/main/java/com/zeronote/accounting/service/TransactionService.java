@@ -1,20 +1,39 @@
 package com.zeronote.accounting.service;
 
+import com.zeronote.accounting.dto.CursorPage;
+import com.zeronote.accounting.dto.TransactionPatchRequest;
 import com.zeronote.accounting.dto.TransactionRequest;
 import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.EnrichmentStatus;
+import com.zeronote.accounting.model.Money;
 import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
 import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -28,58 +47,184 @@ public class TransactionService {
     
     private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
     
+    private static final String PENDING_ANALYSIS = "等待AI分类";
+    private static final String MANUAL_ANALYSIS = "用户手动指定分类";
+    private static final int MAX_SCROLL_SIZE = 200; // 游标分页每页最大条数
+    
     private final TransactionRepository transactionRepository;
     private final AiAnalysisService aiAnalysisService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RollupService rollupService;
+    private final SearchIndex searchIndex;
+    private final TransactionResponseCache responseCache;
+    private final DuplicateDetector duplicateDetector;
+    private final RecurringDetector recurringDetector;
+    
+    @Value("${app.enrichment.async-enabled:false}")
+    private boolean asyncEnrichment;
     
     @Autowired
     public TransactionService(TransactionRepository transactionRepository, 
-                            AiAnalysisService aiAnalysisService) {
+                            AiAnalysisService aiAnalysisService,
+                            ApplicationEventPublisher eventPublisher,
+                            RollupService rollupService,
+                            SearchIndex searchIndex,
+                            TransactionResponseCache responseCache,
+                            DuplicateDetector duplicateDetector,
+                            RecurringDetector recurringDetector) {
         this.transactionRepository = transactionRepository;
         this.aiAnalysisService = aiAnalysisService;
+        this.eventPublisher = eventPublisher;
+        this.rollupService = rollupService;
+        this.searchIndex = searchIndex;
+        this.responseCache = responseCache;
+        this.duplicateDetector = duplicateDetector;
+        this.recurringDetector = recurringDetector;
     }
     
     /**
      * 创建新交易（智能分类）
+     * 异步分类模式下，缓存和本地模型无法分类的交易先以待分类状态保存，由后台流水线调用大模型
      */
     public TransactionResponse createTransaction(TransactionRequest request) {
         logger.info("创建新交易: {}", request);
         
-        // 使用AI分析交易信息
-        AiAnalysisService.AiAnalysisResult analysis = aiAnalysisService.analyzeTransaction(
-                request.getAmount(),
-                request.getDescription(),
-                request.getMerchant(),
-                request.getLocation()
-        );
-        
         // 创建交易实体
         Transaction transaction = new Transaction(request.getAmount());
-        transaction.setType(analysis.getType());
-        transaction.setCategory(analysis.getCategory());
-        transaction.setScenario(analysis.getScenario());
-        transaction.setDescription(analysis.getDescription());
-        transaction.setMerchant(analysis.getMerchant());
         transaction.setLocation(request.getLocation());
         transaction.setTransactionDate(request.getTransactionDate() != null ? 
                 request.getTransactionDate() : LocalDateTime.now());
         transaction.setSource(request.getSource() != null ? request.getSource() : "手动输入");
         transaction.setExternalId(request.getExternalId());
-        transaction.setAiAnalysis(analysis.getAnalysis());
+        transaction.setDescription(request.getDescription());
+        transaction.setMerchant(request.getMerchant());
+        
+        if (asyncEnrichment) {
+            Optional<AiAnalysisService.AiAnalysisResult> localAnalysis = aiAnalysisService.analyzeLocally(
+                    request.getAmount(),
+                    request.getDescription(),
+                    request.getMerchant(),
+                    request.getLocation()
+            );
+            if (localAnalysis.isPresent()) {
+                applyAnalysis(transaction, localAnalysis.get());
+            } else {
+                transaction.setAiAnalysis(PENDING_ANALYSIS);
+                transaction.setEnrichmentStatus(EnrichmentStatus.PENDING);
+            }
+        } else {
+            // 使用AI分析交易信息
+            AiAnalysisService.AiAnalysisResult analysis = aiAnalysisService.analyzeTransaction(
+                    request.getAmount(),
+                    request.getDescription(),
+                    request.getMerchant(),
+                    request.getLocation()
+            );
+            applyAnalysis(transaction, analysis);
+        }
+        markDuplicate(transaction);
+        applyRecurringScenario(transaction);
         
         // 保存交易
         Transaction savedTransaction = transactionRepository.save(transaction);
-        logger.info("交易创建成功: {}", savedTransaction);
+        logger.info("交易创建成功: {}，分类来源: {}，分类状态: {}", savedTransaction,
+                savedTransaction.getClassificationSource(), savedTransaction.getEnrichmentStatus());
+        eventPublisher.publishEvent(TransactionChangedEvent.created(savedTransaction));
         
         return convertToResponse(savedTransaction);
     }
     
+    /**
+     * 写入后台分类结果，仅对仍处于待分类状态的交易生效
+     */
+    public Optional<TransactionResponse> completeEnrichment(Long id, AiAnalysisService.AiAnalysisResult analysis) {
+        return transactionRepository.findById(id)
+                .filter(transaction -> transaction.getEnrichmentStatus() == EnrichmentStatus.PENDING)
+                .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
+                    applyAnalysis(transaction, analysis);
+                    if (analysis.isFallback()) {
+                        transaction.setEnrichmentStatus(EnrichmentStatus.FAILED);
+                    }
+                    applyRecurringScenario(transaction);
+                    
+                    Transaction savedTransaction = transactionRepository.save(transaction);
+                    logger.info("交易后台分类完成: {}，分类状态: {}", savedTransaction, savedTransaction.getEnrichmentStatus());
+                    eventPublisher.publishEvent(TransactionChangedEvent.updated(previous, savedTransaction));
+                    
+                    return convertToResponse(savedTransaction);
+                });
+    }
+    
+    /**
+     * 分类过程本身出错且已达最大次数时，保留当前分类直接标记为分类失败
+     */
+    public Optional<TransactionResponse> failEnrichment(Long id) {
+        return transactionRepository.findById(id)
+                .filter(transaction -> transaction.getEnrichmentStatus() == EnrichmentStatus.PENDING)
+                .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
+                    transaction.setEnrichmentStatus(EnrichmentStatus.FAILED);
+                    
+                    Transaction savedTransaction = transactionRepository.save(transaction);
+                    logger.info("交易后台分类失败，已标记: {}", savedTransaction);
+                    eventPublisher.publishEvent(TransactionChangedEvent.updated(previous, savedTransaction));
+                    
+                    return convertToResponse(savedTransaction);
+                });
+    }
+    
+    /**
+     * 写入积压重分类结果，仅对仍在使用默认分类的交易生效（期间被手动修改的不覆盖）
+     */
+    public Optional<TransactionResponse> completeBackfill(Long id, AiAnalysisService.AiAnalysisResult analysis) {
+        return transactionRepository.findById(id)
+                .filter(TransactionService::isFallback)
+                .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
+                    applyAnalysis(transaction, analysis);
+                    applyRecurringScenario(transaction);
+                    
+                    Transaction savedTransaction = transactionRepository.save(transaction);
+                    logger.info("交易重新分类完成: {}，分类来源: {}", savedTransaction,
+                            savedTransaction.getClassificationSource());
+                    eventPublisher.publishEvent(TransactionChangedEvent.updated(previous, savedTransaction));
+                    
+                    return convertToResponse(savedTransaction);
+                });
+    }
+    
+    /**
+     * 批量保存导入的交易（已完成分类），整批在同一事务中写入
+     * 只与已提交的交易比对重复和周期，同一批内的交易之间不比对
+     */
+    public List<Transaction> saveImportedTransactions(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            markDuplicate(transaction);
+            applyRecurringScenario(transaction);
+        }
+        List<Transaction> savedTransactions = transactionRepository.saveAll(transactions);
+        for (Transaction savedTransaction : savedTransactions) {
+            eventPublisher.publishEvent(TransactionChangedEvent.created(savedTransaction));
+        }
+        logger.info("批量导入交易 {} 条", savedTransactions.size());
+        return savedTransactions;
+    }
+    
     /**
      * 根据ID获取交易
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<TransactionResponse> getTransactionById(Long id) {
-        return transactionRepository.findById(id)
-                .map(this::convertToResponse);
+        TransactionResponse cached = responseCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = responseCache.generation();
+        Optional<TransactionResponse> response = transactionRepository.findById(id)
+                .map(TransactionService::convertToResponse);
+        response.ifPresent(value -> responseCache.put(generation, value));
+        return response;
     }
     
     /**
@@ -87,19 +232,64 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> getAllTransactions(Pageable pageable) {
-        return transactionRepository.findAllByOrderByTransactionDateDesc(pageable)
-                .map(this::convertToResponse);
+        return transactionRepository.findResponsePage(pageable);
     }
     
     /**
-     * 获取最近的交易
+     * 游标分页查询所有交易（按交易时间、ID倒序）
+     * 每页多取一条判断是否还有下一页，不执行count查询，深翻页耗时与首页相同；每页条数限制在1~200
      */
     @Transactional(readOnly = true)
+    public CursorPage<TransactionResponse> scrollTransactions(String cursor, int size) {
+        int pageSize = clampScrollSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(transactionRepository.findFirstKeysetPage(limit), pageSize);
+        }
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toCursorPage(transactionRepository.findKeysetPageAfter(
+                position.getTransactionDate(), position.getId(), limit), pageSize);
+    }
+    
+    /**
+     * 游标分页查询指定分类的交易
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionResponse> scrollTransactionsByCategory(String category, String cursor, int size) {
+        TransactionCategory categoryEnum;
+        try {
+            categoryEnum = TransactionCategory.valueOf(category.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("无效的分类: {}", category);
+            return new CursorPage<>(List.of(), null);
+        }
+        int pageSize = clampScrollSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(transactionRepository.findFirstKeysetPageByCategory(categoryEnum, limit), pageSize);
+        }
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toCursorPage(transactionRepository.findKeysetPageByCategoryAfter(
+                categoryEnum, position.getTransactionDate(), position.getId(), limit), pageSize);
+    }
+    
+    /**
+     * 获取最近的交易
+     * 缓存命中时不开启事务、不访问数据库
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<TransactionResponse> getRecentTransactions() {
-        return transactionRepository.findTop10ByOrderByTransactionDateDesc()
+        List<TransactionResponse> cached = responseCache.getRecent();
+        if (cached != null) {
+            return cached;
+        }
+        long generation = responseCache.generation();
+        List<TransactionResponse> recent = transactionRepository.findTop10ByOrderByTransactionDateDesc()
                 .stream()
-                .map(this::convertToResponse)
+                .map(TransactionService::convertToResponse)
                 .collect(Collectors.toList());
+        responseCache.putRecent(generation, recent);
+        return recent;
     }
     
     /**
@@ -109,8 +299,7 @@ public class TransactionService {
     public Page<TransactionResponse> getTransactionsByCategory(String category, Pageable pageable) {
         try {
             var categoryEnum = com.zeronote.accounting.model.TransactionCategory.valueOf(category.toUpperCase());
-            return transactionRepository.findByCategoryOrderByTransactionDateDesc(categoryEnum, pageable)
-                    .map(this::convertToResponse);
+            return transactionRepository.findResponsePageByCategory(categoryEnum, pageable);
         } catch (IllegalArgumentException e) {
             logger.warn("无效的分类: {}", category);
             return Page.empty(pageable);
@@ -122,24 +311,34 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public List<TransactionResponse> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByTransactionDateBetween(startDate, endDate)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return transactionRepository.findResponsesByDateRange(startDate, endDate);
     }
     
     /**
-     * 搜索交易
+     * 搜索交易（商户名或描述包含关键词）
+     * 命中ID由内存倒排索引排序分页后一次批量取回；索引未加载完成时回退到数据库模糊查询
      */
     @Transactional(readOnly = true)
-    public List<TransactionResponse> searchTransactions(String keyword) {
-        List<Transaction> transactions = transactionRepository.findByDescriptionContainingIgnoreCase(keyword);
-        transactions.addAll(transactionRepository.findByMerchantContainingIgnoreCase(keyword));
+    public Page<TransactionResponse> searchTransactions(String keyword, Pageable pageable) {
+        if (!searchIndex.isLoaded()) {
+            List<TransactionResponse> matched = transactionRepository.findResponsesByKeyword(keyword);
+            int from = (int) Math.min(pageable.getOffset(), matched.size());
+            int to = Math.min(from + pageable.getPageSize(), matched.size());
+            return new PageImpl<>(matched.subList(from, to), pageable, matched.size());
+        }
         
-        return transactions.stream()
-                .distinct()
-                .map(this::convertToResponse)
+        SearchIndex.SearchResult result = searchIndex.search(keyword, pageable.getPageNumber(), pageable.getPageSize());
+        Map<Long, TransactionResponse> byId = new HashMap<>();
+        if (!result.getIds().isEmpty()) {
+            for (TransactionResponse response : transactionRepository.findResponsesByIdIn(result.getIds())) {
+                byId.put(response.getId(), response);
+            }
+        }
+        List<TransactionResponse> content = result.getIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.getTotal());
     }
     
     /**
@@ -147,24 +346,57 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public TransactionStatistics getStatistics(LocalDateTime startDate, LocalDateTime endDate) {
-        BigDecimal totalExpenses = transactionRepository.sumExpensesByDateRange(startDate, endDate);
-        BigDecimal totalIncome = transactionRepository.sumIncomeByDateRange(startDate, endDate);
+        Money totalExpenses = Money.zero();
+        Money totalIncome = Money.zero();
+        for (RollupService.RollupTotal total : rollupService.aggregate(startDate, endDate)) {
+            if (total.getType() == TransactionType.EXPENSE) {
+                totalExpenses = totalExpenses.plus(total.getTotalAmount());
+            } else if (total.getType() == TransactionType.INCOME) {
+                totalIncome = totalIncome.plus(total.getTotalAmount());
+            }
+        }
         
         return TransactionStatistics.builder()
                 .totalExpenses(totalExpenses)
                 .totalIncome(totalIncome)
-                .netAmount(totalIncome.subtract(totalExpenses))
+                .netAmount(totalIncome.minus(totalExpenses))
                 .startDate(startDate)
                 .endDate(endDate)
                 .build();
     }
     
     /**
-     * 更新交易
+     * 按分类统计指定类型的金额、笔数及占比（按金额降序）
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryBreakdown> getCategoryBreakdown(LocalDateTime startDate, LocalDateTime endDate,
+                                                        TransactionType type) {
+        List<RollupService.RollupTotal> totals = rollupService.aggregate(startDate, endDate).stream()
+                .filter(total -> total.getType() == type && total.getTransactionCount() > 0)
+                .collect(Collectors.toList());
+        Money grandTotal = totals.stream()
+                .map(RollupService.RollupTotal::getTotalAmount)
+                .reduce(Money.zero(), Money::plus);
+        
+        return totals.stream()
+                .map(total -> new CategoryBreakdown(
+                        total.getCategory(),
+                        total.getTotalAmount(),
+                        total.getTransactionCount(),
+                        total.getTotalAmount().percentageOf(grandTotal)))
+                .sorted((a, b) -> b.getTotalAmount().compareTo(a.getTotalAmount()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 更新交易（整体替换可编辑字段）
+     * 只有描述、商户、地点变化时才重新分类，手动指定的分类保持不变
      */
     public Optional<TransactionResponse> updateTransaction(Long id, TransactionRequest request) {
         return transactionRepository.findById(id)
                 .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
+                    
                     // 更新基本信息
                     transaction.setAmount(request.getAmount());
                     transaction.setDescription(request.getDescription());
@@ -172,42 +404,345 @@ public class TransactionService {
                     transaction.setLocation(request.getLocation());
                     transaction.setTransactionDate(request.getTransactionDate());
                     
-                    // 重新进行AI分析
-                    AiAnalysisService.AiAnalysisResult analysis = aiAnalysisService.analyzeTransaction(
-                            request.getAmount(),
-                            request.getDescription(),
-                            request.getMerchant(),
-                            request.getLocation()
-                    );
-                    
-                    transaction.setType(analysis.getType());
-                    transaction.setCategory(analysis.getCategory());
-                    transaction.setScenario(analysis.getScenario());
-                    transaction.setAiAnalysis(analysis.getAnalysis());
+                    reclassifyIfNeeded(previous, transaction, false);
+                    return saveChanges(previous, transaction);
+                });
+    }
+    
+    /**
+     * 部分更新交易
+     * 只修改请求中非null的字段；多数修改只涉及金额或日期，不触发大模型调用。
+     * 指定分类时记为手动分类并固定，reclassify为true时解除固定并重新自动分类。
+     */
+    public Optional<TransactionResponse> patchTransaction(Long id, TransactionPatchRequest request) {
+        return transactionRepository.findById(id)
+                .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
                     
-                    Transaction savedTransaction = transactionRepository.save(transaction);
-                    logger.info("交易更新成功: {}", savedTransaction);
+                    if (request.getAmount() != null) {
+                        transaction.setAmount(request.getAmount());
+                    }
+                    if (request.getTransactionDate() != null) {
+                        transaction.setTransactionDate(request.getTransactionDate());
+                    }
+                    if (request.getDescription() != null) {
+                        transaction.setDescription(request.getDescription());
+                    }
+                    if (request.getMerchant() != null) {
+                        transaction.setMerchant(request.getMerchant());
+                    }
+                    if (request.getLocation() != null) {
+                        transaction.setLocation(request.getLocation());
+                    }
                     
-                    return convertToResponse(savedTransaction);
+                    if (request.hasManualClassification()) {
+                        applyManualClassification(transaction, request);
+                    } else {
+                        reclassifyIfNeeded(previous, transaction, request.isReclassify());
+                    }
+                    return saveChanges(previous, transaction);
                 });
     }
     
+    /**
+     * 分类输入变化时重新分类；手动分类已固定时不覆盖，除非强制重新分类
+     */
+    private void reclassifyIfNeeded(Transaction previous, Transaction transaction, boolean force) {
+        if (!force) {
+            if (transaction.getClassificationSource() == ClassificationSource.MANUAL) {
+                logger.debug("交易 {} 的分类已手动指定，跳过重新分类", transaction.getId());
+                return;
+            }
+            if (!classificationInputsChanged(previous, transaction)) {
+                logger.debug("交易 {} 的描述、商户、地点未变化，跳过重新分类", transaction.getId());
+                return;
+            }
+        }
+        
+        AiAnalysisService.AiAnalysisResult analysis = aiAnalysisService.analyzeTransaction(
+                transaction.getAmount(),
+                transaction.getDescription(),
+                transaction.getMerchant(),
+                transaction.getLocation()
+        );
+        
+        transaction.setType(analysis.getType());
+        transaction.setCategory(analysis.getCategory());
+        transaction.setScenario(analysis.getScenario());
+        transaction.setAiAnalysis(analysis.getAnalysis());
+        transaction.setClassificationSource(analysis.getSource());
+        transaction.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+        applyRecurringScenario(transaction);
+    }
+    
+    /**
+     * 写入手动指定的分类，未指定的分类字段保持原值
+     * 状态置为已完成，后台分类流水线不会再覆盖
+     */
+    private static void applyManualClassification(Transaction transaction, TransactionPatchRequest request) {
+        if (request.getType() != null) {
+            transaction.setType(request.getType());
+        }
+        if (request.getCategory() != null) {
+            transaction.setCategory(request.getCategory());
+        }
+        if (request.getScenario() != null) {
+            transaction.setScenario(request.getScenario());
+        }
+        transaction.setAiAnalysis(MANUAL_ANALYSIS);
+        transaction.setClassificationSource(ClassificationSource.MANUAL);
+        transaction.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+    }
+    
+    /**
+     * 有字段变化时保存并发布更新事件，没有变化时不写库
+     */
+    private TransactionResponse saveChanges(Transaction previous, Transaction transaction) {
+        List<String> changed = changedFields(previous, transaction);
+        if (changed.isEmpty()) {
+            logger.info("交易 {} 无变化，跳过保存", transaction.getId());
+            return convertToResponse(transaction);
+        }
+        
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        logger.info("交易更新成功: {}，变更字段: {}", savedTransaction, changed);
+        eventPublisher.publishEvent(TransactionChangedEvent.updated(previous, savedTransaction));
+        
+        return convertToResponse(savedTransaction);
+    }
+    
+    /**
+     * 描述、商户、地点任一变化即需要重新分类；金额和日期不影响分类
+     */
+    static boolean classificationInputsChanged(Transaction previous, Transaction current) {
+        return !Objects.equals(previous.getDescription(), current.getDescription())
+                || !Objects.equals(previous.getMerchant(), current.getMerchant())
+                || !Objects.equals(previous.getLocation(), current.getLocation());
+    }
+    
+    /**
+     * 比较可编辑字段，返回发生变化的字段名
+     */
+    static List<String> changedFields(Transaction previous, Transaction current) {
+        List<String> changed = new ArrayList<>();
+        // 金额按数值比较，25.5与25.50视为相同
+        if (previous.getAmount().compareTo(current.getAmount()) != 0) {
+            changed.add("amount");
+        }
+        if (!Objects.equals(previous.getTransactionDate(), current.getTransactionDate())) {
+            changed.add("transactionDate");
+        }
+        if (!Objects.equals(previous.getDescription(), current.getDescription())) {
+            changed.add("description");
+        }
+        if (!Objects.equals(previous.getMerchant(), current.getMerchant())) {
+            changed.add("merchant");
+        }
+        if (!Objects.equals(previous.getLocation(), current.getLocation())) {
+            changed.add("location");
+        }
+        if (previous.getType() != current.getType()) {
+            changed.add("type");
+        }
+        if (previous.getCategory() != current.getCategory()) {
+            changed.add("category");
+        }
+        if (previous.getScenario() != current.getScenario()) {
+            changed.add("scenario");
+        }
+        if (!Objects.equals(previous.getAiAnalysis(), current.getAiAnalysis())) {
+            changed.add("aiAnalysis");
+        }
+        if (previous.getClassificationSource() != current.getClassificationSource()) {
+            changed.add("classificationSource");
+        }
+        if (previous.getEnrichmentStatus() != current.getEnrichmentStatus()) {
+            changed.add("enrichmentStatus");
+        }
+        if (!Objects.equals(previous.getExternalId(), current.getExternalId())) {
+            changed.add("externalId");
+        }
+        if (!Objects.equals(previous.getDuplicateOfId(), current.getDuplicateOfId())) {
+            changed.add("duplicateOfId");
+        }
+        return changed;
+    }
+    
     /**
      * 删除交易
      */
     public boolean deleteTransaction(Long id) {
         if (transactionRepository.existsById(id)) {
+            // 先加载到持久化上下文，deleteById会复用该实体，不额外查询
+            Optional<Transaction> existing = transactionRepository.findById(id);
             transactionRepository.deleteById(id);
             logger.info("交易删除成功: {}", id);
+            existing.ifPresent(transaction ->
+                    eventPublisher.publishEvent(TransactionChangedEvent.deleted(transaction)));
+            unlinkDuplicates(id);
             return true;
         }
         return false;
     }
     
+    /**
+     * 分页获取被标记为疑似重复的交易
+     */
+    @Transactional(readOnly = true)
+    public Page<TransactionResponse> getDuplicateTransactions(Pageable pageable) {
+        return transactionRepository.findDuplicateResponses(pageable);
+    }
+    
+    /**
+     * 合并疑似重复交易：原交易缺失的商户、地点、外部ID从重复交易补全，然后删除重复交易
+     * 返回合并后的原交易；交易不存在时返回空，未被标记为重复时抛出IllegalArgumentException
+     */
+    public Optional<TransactionResponse> mergeDuplicate(Long id) {
+        Optional<Transaction> found = transactionRepository.findById(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Transaction duplicate = found.get();
+        if (duplicate.getDuplicateOfId() == null) {
+            throw new IllegalArgumentException("交易未被标记为疑似重复: " + id);
+        }
+        Transaction original = transactionRepository.findById(duplicate.getDuplicateOfId())
+                .orElseThrow(() -> new IllegalArgumentException("原交易已不存在: " + duplicate.getDuplicateOfId()));
+        
+        Transaction previous = new Transaction(original);
+        if (isBlank(original.getMerchant()) || AiAnalysisService.DEFAULT_MERCHANT.equals(original.getMerchant())) {
+            original.setMerchant(duplicate.getMerchant());
+        }
+        if (isBlank(original.getLocation())) {
+            original.setLocation(duplicate.getLocation());
+        }
+        if (isBlank(original.getExternalId())) {
+            // 保留外部ID，重新导入同一账单时仍能按外部ID去重
+            original.setExternalId(duplicate.getExternalId());
+        }
+        transactionRepository.delete(duplicate);
+        eventPublisher.publishEvent(TransactionChangedEvent.deleted(duplicate));
+        logger.info("疑似重复交易 {} 已合并到 {}", id, original.getId());
+        unlinkDuplicates(id);
+        
+        return Optional.of(saveChanges(previous, original));
+    }
+    
+    /**
+     * 取消疑似重复标记（确认为两笔不同的交易）
+     */
+    public Optional<TransactionResponse> dismissDuplicate(Long id) {
+        return transactionRepository.findById(id)
+                .map(transaction -> {
+                    Transaction previous = new Transaction(transaction);
+                    transaction.setDuplicateOfId(null);
+                    return saveChanges(previous, transaction);
+                });
+    }
+    
+    /**
+     * 保存前检测疑似重复，命中时指向最早记录的那笔交易
+     */
+    private void markDuplicate(Transaction transaction) {
+        Long duplicateOfId = duplicateDetector.findDuplicateOf(transaction);
+        if (duplicateOfId != null) {
+            transaction.setDuplicateOfId(duplicateOfId);
+            logger.info("疑似重复交易: 金额{}，商户{}，来源{}，原交易{}", transaction.getAmount(),
+                    transaction.getMerchant(), transaction.getSource(), duplicateOfId);
+        }
+    }
+    
+    /**
+     * 按商户历史间隔判定周期交易：常规场景的交易改标为订阅或定期交易，
+     * 同组内此前仍为常规场景的交易一并改标；手动指定分类的交易不覆盖
+     */
+    private void applyRecurringScenario(Transaction transaction) {
+        if (transaction.getScenario() != TransactionScenario.REGULAR
+                || transaction.getClassificationSource() == ClassificationSource.MANUAL) {
+            return;
+        }
+        RecurringDetector.Detection detection = recurringDetector.detect(transaction);
+        if (detection == null) {
+            return;
+        }
+        transaction.setScenario(detection.getScenario());
+        logger.info("周期交易: 商户{}，间隔{}天，标记为{}", transaction.getMerchant(), detection.getIntervalDays(),
+                detection.getScenario());
+        if (detection.getRegularIds().isEmpty()) {
+            return;
+        }
+        for (Transaction earlier : transactionRepository.findAllById(detection.getRegularIds())) {
+            if (earlier.getScenario() == TransactionScenario.REGULAR
+                    && earlier.getClassificationSource() != ClassificationSource.MANUAL) {
+                Transaction previous = new Transaction(earlier);
+                earlier.setScenario(detection.getScenario());
+                saveChanges(previous, earlier);
+            }
+        }
+    }
+    
+    /**
+     * 原交易被删除后，清除指向它的重复标记
+     */
+    private void unlinkDuplicates(Long id) {
+        for (Transaction duplicate : transactionRepository.findByDuplicateOfId(id)) {
+            Transaction previous = new Transaction(duplicate);
+            duplicate.setDuplicateOfId(null);
+            saveChanges(previous, duplicate);
+        }
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+    
+    /**
+     * 是否为使用默认分类兜底的交易
+     */
+    static boolean isFallback(Transaction transaction) {
+        ClassificationSource source = transaction.getClassificationSource();
+        return source == ClassificationSource.DEFAULT
+                || (source == null && AiAnalysisService.DEFAULT_ANALYSIS.equals(transaction.getAiAnalysis()));
+    }
+    
+    /**
+     * 将分析结果写入交易实体
+     * 默认分类兜底时保留用户输入的描述和商户（为空时才使用占位值），以便之后重新分类
+     */
+    static void applyAnalysis(Transaction transaction, AiAnalysisService.AiAnalysisResult analysis) {
+        transaction.setType(analysis.getType());
+        transaction.setCategory(analysis.getCategory());
+        transaction.setScenario(analysis.getScenario());
+        if (!analysis.isFallback() || transaction.getDescription() == null) {
+            transaction.setDescription(analysis.getDescription());
+        }
+        if (!analysis.isFallback() || transaction.getMerchant() == null) {
+            transaction.setMerchant(analysis.getMerchant());
+        }
+        transaction.setAiAnalysis(analysis.getAnalysis());
+        transaction.setClassificationSource(analysis.getSource());
+        transaction.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+    }
+    
+    private static int clampScrollSize(int size) {
+        return Math.min(Math.max(1, size), MAX_SCROLL_SIZE);
+    }
+    
+    private CursorPage<TransactionResponse> toCursorPage(List<TransactionResponse> rows, int pageSize) {
+        boolean hasNext = rows.size() > pageSize;
+        List<TransactionResponse> page = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionResponse last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getTransactionDate(), last.getId()).encode();
+        }
+        return new CursorPage<>(page, nextCursor);
+    }
+    
     /**
      * 转换为响应DTO
      */
-    private TransactionResponse convertToResponse(Transaction transaction) {
+    static TransactionResponse convertToResponse(Transaction transaction) {
         TransactionResponse response = new TransactionResponse();
         response.setId(transaction.getId());
         response.setAmount(transaction.getAmount());
@@ -219,8 +754,11 @@ public class TransactionService {
         response.setScenario(transaction.getScenario());
         response.setTransactionDate(transaction.getTransactionDate());
         response.setAiAnalysis(transaction.getAiAnalysis());
+        response.setClassificationSource(transaction.getClassificationSource());
+        response.setEnrichmentStatus(transaction.getEnrichmentStatus());
         response.setSource(transaction.getSource());
         response.setCreatedAt(transaction.getCreatedAt());
+        response.setDuplicateOfId(transaction.getDuplicateOfId());
         return response;
     }
     
@@ -228,9 +766,9 @@ public class TransactionService {
      * 交易统计信息内部类
      */
     public static class TransactionStatistics {
-        private BigDecimal totalExpenses;
-        private BigDecimal totalIncome;
-        private BigDecimal netAmount;
+        private Money totalExpenses;
+        private Money totalIncome;
+        private Money netAmount;
         private LocalDateTime startDate;
         private LocalDateTime endDate;
         
@@ -242,17 +780,17 @@ public class TransactionService {
         public static class Builder {
             private TransactionStatistics stats = new TransactionStatistics();
             
-            public Builder totalExpenses(BigDecimal totalExpenses) {
+            public Builder totalExpenses(Money totalExpenses) {
                 stats.totalExpenses = totalExpenses;
                 return this;
             }
             
-            public Builder totalIncome(BigDecimal totalIncome) {
+            public Builder totalIncome(Money totalIncome) {
                 stats.totalIncome = totalIncome;
                 return this;
             }
             
-            public Builder netAmount(BigDecimal netAmount) {
+            public Builder netAmount(Money netAmount) {
                 stats.netAmount = netAmount;
                 return this;
             }
@@ -273,10 +811,36 @@ public class TransactionService {
         }
         
         // Getter方法
-        public BigDecimal getTotalExpenses() { return totalExpenses; }
-        public BigDecimal getTotalIncome() { return totalIncome; }
-        public BigDecimal getNetAmount() { return netAmount; }
+        public Money getTotalExpenses() { return totalExpenses; }
+        public Money getTotalIncome() { return totalIncome; }
+        public Money getNetAmount() { return netAmount; }
         public LocalDateTime getStartDate() { return startDate; }
         public LocalDateTime getEndDate() { return endDate; }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 分类统计项
+     */
+    public static class CategoryBreakdown {
+        private final TransactionCategory category;
+        private final String displayName;
+        private final Money totalAmount;
+        private final long transactionCount;
+        private final BigDecimal percentage;
+        
+        public CategoryBreakdown(TransactionCategory category, Money totalAmount, long transactionCount,
+                                 BigDecimal percentage) {
+            this.category = category;
+            this.displayName = category.getDisplayName();
+            this.totalAmount = totalAmount;
+            this.transactionCount = transactionCount;
+            this.percentage = percentage;
+        }
+        
+        public TransactionCategory getCategory() { return category; }
+        public String getDisplayName() { return displayName; }
+        public Money getTotalAmount() { return totalAmount; }
+        public long getTransactionCount() { return transactionCount; }
+        public BigDecimal getPercentage() { return percentage; }
+    }
+}
\ No newline at end of file
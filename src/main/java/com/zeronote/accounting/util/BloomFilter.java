@@ -0,0 +1,75 @@
+package com.zeronote.accounting.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器
+ * mightContain返回false时元素一定不存在；返回true时可能存在，误判率约为构造时指定的fpp。
+ * 位数组使用AtomicLongArray，支持并发添加与查询。
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long expected = Math.max(expectedInsertions, 1);
+        double fpp = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long optimalBits = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expected * Math.log(2)));
+    }
+
+    public void add(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << (bit & 63);
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitSize() { return bitSize; }
+    public int getHashFunctions() { return hashFunctions; }
+
+    /**
+     * 基于UTF-8字节的FNV-1a散列，再经过murmur3的finalizer混合
+     */
+    private static long hash(String value, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,48 @@
+package com.zeronote.accounting.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 键集分页游标
+ * 记录上一页最后一行的(交易时间, ID)，编码为URL安全的Base64字符串，对客户端不透明。
+ */
+public final class KeysetCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime transactionDate;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime transactionDate, Long id) {
+        this.transactionDate = transactionDate;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = transactionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，格式不正确时抛出IllegalArgumentException
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public Long getId() { return id; }
+}
@@ -0,0 +1,101 @@
+package com.zeronote.accounting.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界LRU缓存
+ * 基于访问顺序的LinkedHashMap实现，超出容量时淘汰最久未访问的条目并计数
+ */
+public class LruCache<K, V> {
+
+    private final int maxEntries;
+    private final LinkedHashMap<K, V> map;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public LruCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries必须大于0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxEntries) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            map.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            return map.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按从旧到新的访问顺序返回当前条目的快照
+     */
+    public List<Map.Entry<K, V>> snapshot() {
+        lock.lock();
+        try {
+            List<Map.Entry<K, V>> entries = new ArrayList<>(map.size());
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                entries.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public long getEvictionCount() { return evictionCount.get(); }
+}
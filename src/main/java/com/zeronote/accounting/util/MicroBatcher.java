@@ -0,0 +1,151 @@
+package com.zeronote.accounting.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 微批处理器
+ * 收集并发提交的请求，凑满maxBatchSize条或等待maxWaitMillis后合并为一批交给处理函数，
+ * 处理函数按输入顺序返回结果，结果分别回填到各调用方的Future。
+ */
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Function<List<I>, List<O>> handler;
+    private final BlockingQueue<PendingItem<I, O>> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService dispatchExecutor;
+    private final Thread collector;
+    private volatile boolean running = true;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong itemCount = new AtomicLong();
+
+    public MicroBatcher(String name, int maxBatchSize, long maxWaitMillis, Function<List<I>, List<O>> handler) {
+        this(name, maxBatchSize, maxWaitMillis, handler, false);
+    }
+
+    /**
+     * @param virtualThreads 批处理函数是否在虚拟线程上执行（处理函数通常阻塞在网络调用上）
+     */
+    public MicroBatcher(String name, int maxBatchSize, long maxWaitMillis, Function<List<I>, List<O>> handler,
+                        boolean virtualThreads) {
+        this.name = name;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.handler = handler;
+        ThreadFactory dispatchThreads = ThreadFactories.named(name + "-dispatch", virtualThreads);
+        this.dispatchExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(dispatchThreads)
+                : Executors.newCachedThreadPool(dispatchThreads);
+        this.collector = new Thread(this::collectLoop, name + "-collector");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * 提交一条请求，返回该请求结果的Future
+     */
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException(name + " 已关闭"));
+            return future;
+        }
+        queue.add(new PendingItem<>(item, future));
+        return future;
+    }
+
+    private void collectLoop() {
+        while (running) {
+            try {
+                PendingItem<I, O> first = queue.take();
+                List<PendingItem<I, O>> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingItem<I, O> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatchExecutor.execute(() -> dispatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("{} 收集批次失败", name, e);
+            }
+        }
+    }
+
+    private void dispatch(List<PendingItem<I, O>> batch) {
+        batchCount.incrementAndGet();
+        itemCount.addAndGet(batch.size());
+        List<I> inputs = new ArrayList<>(batch.size());
+        for (PendingItem<I, O> pending : batch) {
+            inputs.add(pending.item);
+        }
+        try {
+            List<O> outputs = handler.apply(inputs);
+            if (outputs == null || outputs.size() != inputs.size()) {
+                throw new IllegalStateException(String.format("%s 批处理结果数量不匹配: 期望%d，实际%s",
+                        name, inputs.size(), outputs == null ? "null" : outputs.size()));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(outputs.get(i));
+            }
+        } catch (Exception e) {
+            for (PendingItem<I, O> pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    public long getBatchCount() { return batchCount.get(); }
+    public long getItemCount() { return itemCount.get(); }
+    public int getQueueSize() { return queue.size(); }
+    public int getMaxBatchSize() { return maxBatchSize; }
+
+    @Override
+    public void close() {
+        running = false;
+        collector.interrupt();
+        dispatchExecutor.shutdown();
+        PendingItem<I, O> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException(name + " 已关闭"));
+        }
+    }
+
+    private static final class PendingItem<I, O> {
+        private final I item;
+        private final CompletableFuture<O> future;
+
+        private PendingItem(I item, CompletableFuture<O> future) {
+            this.item = item;
+            this.future = future;
+        }
+    }
+}
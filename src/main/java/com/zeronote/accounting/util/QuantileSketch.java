@@ -0,0 +1,148 @@
+package com.zeronote.accounting.util;
+
+/**
+ * 相对误差分位数草图（DDSketch）
+ * 正数值按对数分桶：桶i覆盖(γ^(i-1), γ^i]，γ=(1+α)/(1-α)，桶的代表值2γ^i/(γ+1)与桶内任意值的相对误差不超过α。
+ * 因此任意分位数的估计值与该排名上真实值的相对误差不超过α，与数据量和分布无关。
+ * 桶计数可以直接相加（合并）与相减（删除），合并、删除后误差保证不变。
+ * 桶以连续的long数组保存，长度只与最大值/最小值之比的对数成正比。非线程安全。
+ */
+public class QuantileSketch {
+
+    private static final int INITIAL_BUCKETS = 64;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    // counts[i]对应桶下标offset+i
+    private int offset;
+    private long[] counts;
+    private long count;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy必须在(0, 1)之间: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.counts = new long[0];
+    }
+
+    /**
+     * 从持久化的桶恢复
+     */
+    public static QuantileSketch restore(double relativeAccuracy, int offset, long[] counts) {
+        QuantileSketch sketch = new QuantileSketch(relativeAccuracy);
+        sketch.offset = offset;
+        sketch.counts = counts.clone();
+        for (long bucketCount : counts) {
+            if (bucketCount < 0) {
+                throw new IllegalArgumentException("桶计数不能为负: " + bucketCount);
+            }
+            sketch.count += bucketCount;
+        }
+        return sketch;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * 增加（count为正）或删除（count为负）一个值；删除不存在的值时抛出IllegalStateException
+     */
+    public void add(double value, long count) {
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("只支持有限正数: " + value);
+        }
+        int index = index(value);
+        if (count < 0) {
+            int slot = index - offset;
+            if (slot < 0 || slot >= counts.length || counts[slot] < -count) {
+                throw new IllegalStateException("删除的值不在草图中: " + value);
+            }
+            counts[slot] += count;
+        } else {
+            ensureCapacity(index, index);
+            counts[index - offset] += count;
+        }
+        this.count += count;
+    }
+
+    /**
+     * 合并另一个相同精度的草图
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("草图精度不同: " + relativeAccuracy + " / " + other.relativeAccuracy);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    /**
+     * 第q分位数（0≤q≤1）的估计值，排名取⌊q·(n-1)⌋；草图为空时返回NaN
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("分位数必须在[0, 1]之间: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (q * (count - 1));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return value(offset + i);
+            }
+        }
+        return value(offset + counts.length - 1);
+    }
+
+    public long getCount() { return count; }
+    public double getRelativeAccuracy() { return relativeAccuracy; }
+    public int getOffset() { return offset; }
+    public long[] getCounts() { return counts.clone(); }
+
+    public QuantileSketch copy() {
+        return restore(relativeAccuracy, offset, counts);
+    }
+
+    int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private void ensureCapacity(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            counts = new long[Math.max(INITIAL_BUCKETS, maxIndex - minIndex + 1)];
+            // 两侧预留空间，后续的值多在首个值附近
+            offset = minIndex - (counts.length - (maxIndex - minIndex + 1)) / 2;
+            return;
+        }
+        int currentMax = offset + counts.length - 1;
+        if (minIndex >= offset && maxIndex <= currentMax) {
+            return;
+        }
+        // 向需要的一侧至少扩展当前长度的一半，避免逐个扩展时反复复制
+        int headroom = counts.length / 2;
+        int newMin = minIndex < offset ? Math.min(minIndex, offset - headroom) : offset;
+        int newMax = maxIndex > currentMax ? Math.max(maxIndex, currentMax + headroom) : currentMax;
+        long[] grown = new long[newMax - newMin + 1];
+        System.arraycopy(counts, 0, grown, offset - newMin, counts.length);
+        counts = grown;
+        offset = newMin;
+    }
+}
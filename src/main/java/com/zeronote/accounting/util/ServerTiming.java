@@ -0,0 +1,77 @@
+package com.zeronote.accounting.util;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 单个请求内各阶段耗时的累加器，用于生成Server-Timing响应头
+ * 绑定在处理请求的线程上；不在请求线程上执行的阶段（如微批线程上的大模型调用）调用record时直接忽略。
+ * 同一阶段多次记录时累加耗时与次数，例如一次请求内的多次数据库查询。
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    private ServerTiming() {
+    }
+
+    /**
+     * 开始记录当前线程上的请求
+     */
+    public static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 记录一个阶段的耗时，当前线程没有在记录时忽略
+     */
+    public static void record(String stage, long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(stage, nanos);
+        }
+    }
+
+    public void add(String stage, long nanos) {
+        Stage entry = stages.computeIfAbsent(stage, name -> new Stage());
+        entry.nanos += nanos;
+        entry.count++;
+    }
+
+    /**
+     * 生成Server-Timing头，如：db;dur=3.2;desc="2x", llm;dur=812.5, total;dur=830.1
+     */
+    public String toHeaderValue() {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            appendMetric(header, entry.getKey(), entry.getValue().nanos, entry.getValue().count);
+        }
+        appendMetric(header, "total", System.nanoTime() - startNanos, 1);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos, int count) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1e6));
+        if (count > 1) {
+            header.append(";desc=\"").append(count).append("x\"");
+        }
+    }
+
+    private static final class Stage {
+        private long nanos;
+        private int count;
+    }
+}
@@ -0,0 +1,178 @@
+package com.zeronote.accounting.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 高频项草图（Space-Saving）
+ * 最多跟踪capacity个计数器；新元素到来而计数器已满时，替换计数最小的计数器并继承其计数作为误差。
+ * 每个计数count满足 真实值 ≤ count ≤ 真实值 + error，且error ≤ N/capacity（N为累计写入的权重），
+ * 真实权重超过N/capacity的元素一定被跟踪。
+ * 删除只能扣减仍被跟踪的元素；未被跟踪的元素已经不在计数器中，删除后它的权重仍计入N，上界依然成立。
+ * 因此删除后再写入（修改）会使N持续增长、上界越来越松；另行记录当前权重（写入减删除），
+ * 两者差距过大时调用方应从原始数据重建。
+ * 替换时线性查找最小计数器，适合几十到几百的容量。非线程安全。
+ */
+public class SpaceSaving<K> {
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    private long insertedWeight;
+    private long liveWeight;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 从持久化的计数器恢复
+     */
+    public static <K> SpaceSaving<K> restore(int capacity, long insertedWeight, long liveWeight,
+                                             List<Counter<K>> counters) {
+        SpaceSaving<K> sketch = new SpaceSaving<>(capacity);
+        sketch.insertedWeight = insertedWeight;
+        sketch.liveWeight = liveWeight;
+        for (Counter<K> counter : counters) {
+            sketch.counters.put(counter.item, new Counter<>(counter.item, counter.count, counter.error));
+        }
+        sketch.trim();
+        return sketch;
+    }
+
+    public void add(K item) {
+        add(item, 1);
+    }
+
+    public void add(K item, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight必须大于0: " + weight);
+        }
+        insertedWeight += weight;
+        liveWeight += weight;
+        Counter<K> counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+        } else if (counters.size() < capacity) {
+            counters.put(item, new Counter<>(item, weight, 0));
+        } else {
+            Counter<K> min = minCounter();
+            counters.remove(min.item);
+            counters.put(item, new Counter<>(item, min.count + weight, min.count));
+        }
+    }
+
+    /**
+     * 扣减元素的权重，元素未被跟踪时只扣减当前权重；计数减到误差以下时移除计数器
+     */
+    public void remove(K item, long weight) {
+        liveWeight -= weight;
+        Counter<K> counter = counters.get(item);
+        if (counter == null) {
+            return;
+        }
+        counter.count -= weight;
+        if (counter.count <= 0) {
+            counters.remove(item);
+        } else if (counter.error > counter.count) {
+            counter.error = counter.count;
+        }
+    }
+
+    /**
+     * 合并另一个草图：一侧未跟踪的元素按该侧的最小计数补足（计数器未满时为0），再保留计数最大的capacity个
+     */
+    public void merge(SpaceSaving<K> other) {
+        long minThis = counters.size() < capacity ? 0 : minCounter().count;
+        long minOther = other.counters.size() < other.capacity ? 0 : other.minCounter().count;
+        Set<K> items = new HashSet<>(counters.keySet());
+        items.addAll(other.counters.keySet());
+        Map<K, Counter<K>> merged = new HashMap<>(items.size() * 2);
+        for (K item : items) {
+            Counter<K> a = counters.get(item);
+            Counter<K> b = other.counters.get(item);
+            long count = (a != null ? a.count : minThis) + (b != null ? b.count : minOther);
+            long error = (a != null ? a.error : minThis) + (b != null ? b.error : minOther);
+            merged.put(item, new Counter<>(item, count, error));
+        }
+        counters.clear();
+        counters.putAll(merged);
+        insertedWeight += other.insertedWeight;
+        liveWeight += other.liveWeight;
+        trim();
+    }
+
+    /**
+     * 按计数降序返回前limit个计数器的副本
+     */
+    public List<Counter<K>> top(int limit) {
+        List<Counter<K>> result = new ArrayList<>(counters.size());
+        for (Counter<K> counter : counters.values()) {
+            result.add(new Counter<>(counter.item, counter.count, counter.error));
+        }
+        result.sort(Comparator.comparingLong((Counter<K> c) -> c.count).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 计数的最大高估量
+     */
+    public long getErrorBound() {
+        return insertedWeight / capacity;
+    }
+
+    public int getCapacity() { return capacity; }
+    public long getInsertedWeight() { return insertedWeight; }
+    public long getLiveWeight() { return liveWeight; }
+    public int size() { return counters.size(); }
+
+    private Counter<K> minCounter() {
+        Counter<K> min = null;
+        for (Counter<K> counter : counters.values()) {
+            if (min == null || counter.count < min.count) {
+                min = counter;
+            }
+        }
+        return min;
+    }
+
+    private void trim() {
+        if (counters.size() <= capacity) {
+            return;
+        }
+        List<Counter<K>> kept = top(capacity);
+        counters.clear();
+        for (Counter<K> counter : kept) {
+            counters.put(counter.item, counter);
+        }
+    }
+
+    /**
+     * 计数器：count为估计权重，error为可能的高估量
+     */
+    public static class Counter<K> {
+        private final K item;
+        private long count;
+        private long error;
+
+        public Counter(K item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getItem() { return item; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        // 真实权重的下界
+        public long getGuaranteedCount() { return count - error; }
+    }
+}
@@ -0,0 +1,29 @@
+package com.zeronote.accounting.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程工厂
+ * 与spring.threads.virtual.enabled配合：开启时后台执行器改用虚拟线程，阻塞在网络或数据库上不占用平台线程
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * 按前缀命名的线程工厂：虚拟线程，或守护平台线程
+     */
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(prefix + "-", 1).factory();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.zeronote.accounting;
+
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.service.TransactionService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 虚拟线程在@Transactional路径上不应被钉住在载体线程上
+ * 连接池只给4个连接，让大量虚拟线程在借连接、数据库锁上排队，期间用JFR记录jdk.VirtualThreadPinned事件
+ */
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:pinning;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "app.classification-cache.enabled=false",
+        "app.sketches.enabled=false",
+        "app.local-classifier.enabled=false",
+        "ai.openai.api-key=test-key"
+})
+class VirtualThreadPinningTest {
+
+    private static final int TASKS = 200;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void testTransactionalPath_DoesNotPinCarrierThreads() throws Exception {
+        ConcurrentLinkedQueue<RecordedEvent> pinned = new ConcurrentLinkedQueue<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new java.util.ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> exerciseTransactionalPath(index)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+        }
+
+        String stacks = pinned.stream()
+                .map(event -> String.valueOf(event.getStackTrace()))
+                .distinct()
+                .limit(3)
+                .collect(Collectors.joining("\n---\n"));
+        assertTrue(pinned.isEmpty(), "虚拟线程被钉住 " + pinned.size() + " 次:\n" + stacks);
+    }
+
+    private void exerciseTransactionalPath(int index) {
+        Transaction transaction = new Transaction(new BigDecimal("12.50"));
+        transaction.setMerchant("商户" + (index % 7));
+        transaction.setDescription("虚拟线程测试 " + index);
+        transaction.setTransactionDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(index));
+        Long id = transactionService.saveImportedTransactions(List.of(transaction)).get(0).getId();
+
+        assertTrue(transactionService.getTransactionById(id).isPresent());
+        transactionService.getAllTransactions(PageRequest.of(0, 5));
+        transactionService.getStatistics(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+    }
+}
@@ -0,0 +1,154 @@
+package com.zeronote.accounting.benchmark;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 插入吞吐量基准
+ * 对比Hibernate在两种ID策略下实际发出的JDBC调用：
+ * 自增列需逐行执行INSERT并回读生成的ID；序列+pooled优化器每50行取一次号，INSERT合并为JDBC batch。
+ * 默认不随单元测试运行，执行方式：mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class InsertThroughputBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_COLUMNS =
+            "amount, type, category, scenario, description, merchant, transaction_date, created_at, updated_at";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE identity_transactions (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + columnDefinitions() + ")");
+            statement.execute("CREATE TABLE sequence_transactions (id BIGINT PRIMARY KEY, " + columnDefinitions() + ")");
+            statement.execute("CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY " + BATCH_SIZE);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareIdentityAndPooledSequenceInserts() throws Exception {
+        // 预热
+        insertWithIdentity(2_000);
+        insertWithPooledSequence(2_000);
+        truncate();
+
+        long identityNanos = insertWithIdentity(ROWS);
+        long sequenceNanos = insertWithPooledSequence(ROWS);
+
+        assertEquals(ROWS, count("identity_transactions"));
+        assertEquals(ROWS, count("sequence_transactions"));
+        System.out.printf("IDENTITY 逐行插入: %d 行 %.1f ms，%.0f 行/秒%n",
+                ROWS, identityNanos / 1e6, ROWS / (identityNanos / 1e9));
+        System.out.printf("SEQUENCE 批量插入: %d 行 %.1f ms，%.0f 行/秒（%.1fx）%n",
+                ROWS, sequenceNanos / 1e6, ROWS / (sequenceNanos / 1e9), (double) identityNanos / sequenceNanos);
+    }
+
+    private long insertWithIdentity(int rows) throws Exception {
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO identity_transactions (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return System.nanoTime() - start;
+    }
+
+    private long insertWithPooledSequence(int rows) throws Exception {
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        try (PreparedStatement nextValue = connection.prepareStatement("SELECT NEXT VALUE FOR transactions_seq");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO sequence_transactions (id, " + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            long nextId = 0;
+            long hiValue = -1;
+            for (int i = 0; i < rows; i++) {
+                if (nextId > hiValue) {
+                    try (ResultSet result = nextValue.executeQuery()) {
+                        result.next();
+                        hiValue = result.getLong(1) + BATCH_SIZE - 1;
+                        nextId = result.getLong(1);
+                    }
+                }
+                insert.setLong(1, nextId++);
+                bind(insert, 2, i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return System.nanoTime() - start;
+    }
+
+    private static void bind(PreparedStatement insert, int offset, int row) throws Exception {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        insert.setBigDecimal(offset, BigDecimal.valueOf(1000 + row % 50000, 2));
+        insert.setString(offset + 1, "EXPENSE");
+        insert.setString(offset + 2, "FOOD_DINING");
+        insert.setString(offset + 3, "REGULAR");
+        insert.setString(offset + 4, "午餐 " + row);
+        insert.setString(offset + 5, "商户" + row % 200);
+        insert.setTimestamp(offset + 6, now);
+        insert.setTimestamp(offset + 7, now);
+        insert.setTimestamp(offset + 8, now);
+    }
+
+    private static String columnDefinitions() {
+        return "amount DECIMAL(10, 2) NOT NULL, type VARCHAR(20) NOT NULL, category VARCHAR(40) NOT NULL, "
+                + "scenario VARCHAR(20) NOT NULL, description VARCHAR(500), merchant VARCHAR(200), "
+                + "transaction_date TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL";
+    }
+
+    private void truncate() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE identity_transactions");
+            statement.execute("TRUNCATE TABLE sequence_transactions");
+        }
+    }
+
+    private long count(String table) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.zeronote.accounting.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测驱动：以固定并发的闭环方式混合请求交易接口，统计吞吐量与p50/p99/p999延迟
+ * 每个虚拟线程循环按权重随机选择一种请求，发完一个再发下一个；预热期的请求不计入结果。
+ * 请求参数由固定种子生成，配合OpenAiStubServer可以离线对比每次改动前后的表现。
+ *
+ * 运行方式（应用需已以loadtest profile启动）：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.zeronote.accounting.loadtest.LoadDriver \
+ *     -Dexec.args="--url http://localhost:8080 --concurrency 32 --duration 60 --mix create=1,quick=1,search=4,statistics=2,list=2"
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[][] MERCHANTS = {
+            {"星巴克", "拿铁"}, {"瑞幸咖啡", "生椰拿铁"}, {"麦当劳", "午餐套餐"}, {"海底捞", "聚餐"},
+            {"滴滴出行", "打车回家"}, {"北京地铁", "地铁"}, {"中国石化", "加油"}, {"京东", "蓝牙耳机"},
+            {"淘宝", "日用百货"}, {"盒马鲜生", "买菜"}, {"当当网", "技术书籍"}, {"万达影城", "电影票"}
+    };
+    private static final String[] KEYWORDS = {"星巴克", "咖啡", "滴滴", "京东", "午餐", "地铁", "加油", "电影"};
+
+    /**
+     * 请求类型
+     */
+    enum Operation {
+        CREATE, QUICK, SEARCH, STATISTICS, LIST
+    }
+
+    private final Options options;
+    private final HttpClient client;
+    private final String authorization;
+    private final Map<Operation, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final Operation[] weighted;
+
+    LoadDriver(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (options.user + ":" + options.password).getBytes(StandardCharsets.UTF_8));
+        int total = options.mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.weighted = new Operation[total];
+        int index = 0;
+        for (Map.Entry<Operation, Integer> entry : options.mix.entrySet()) {
+            recorders.put(entry.getKey(), new LatencyRecorder());
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted[index++] = entry.getKey();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadDriver driver = new LoadDriver(options);
+        System.out.printf("压测开始: %s，并发%d，预热%ds，持续%ds，配比%s%n", options.url, options.concurrency,
+                options.warmupSeconds, options.durationSeconds, options.mix);
+        ObjectNode report = driver.run();
+        driver.print(report);
+        if (options.output != null) {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(new File(options.output), report);
+            System.out.println("结果已写入 " + options.output);
+        }
+    }
+
+    ObjectNode run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < options.concurrency; worker++) {
+                SplittableRandom random = new SplittableRandom(options.seed + worker);
+                workers.execute(() -> loop(random, measureFrom, end));
+            }
+        }
+        return report(TimeUnit.NANOSECONDS.toMillis(end - measureFrom));
+    }
+
+    private void loop(SplittableRandom random, long measureFrom, long end) {
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Operation operation = weighted[random.nextInt(weighted.length)];
+            HttpRequest request = request(operation, random);
+            boolean ok;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ok = false;
+            }
+            if (now >= measureFrom) {
+                recorders.get(operation).record(System.nanoTime() - now, ok);
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        String base = options.url + "/api/transactions";
+        HttpRequest.Builder builder;
+        switch (operation) {
+            case CREATE -> {
+                String[] merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+                ObjectNode body = MAPPER.createObjectNode();
+                body.put("amount", amount(random));
+                body.put("merchant", merchant[0]);
+                body.put("description", merchant[1] + " " + random.nextInt(1000));
+                body.put("location", "北京市");
+                builder = HttpRequest.newBuilder(URI.create(base))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+            }
+            case QUICK -> builder = HttpRequest.newBuilder(URI.create(base + "/quick?amount=" + amount(random)))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+            case SEARCH -> builder = HttpRequest.newBuilder(URI.create(base + "/search?keyword="
+                    + URLEncoder.encode(KEYWORDS[random.nextInt(KEYWORDS.length)], StandardCharsets.UTF_8)
+                    + "&page=" + random.nextInt(3) + "&size=20"));
+            case STATISTICS -> {
+                LocalDateTime from = LocalDateTime.of(2024, 1 + random.nextInt(12), 1 + random.nextInt(28),
+                        random.nextInt(24), 0);
+                LocalDateTime to = from.plusDays(1 + random.nextInt(90)).plusHours(random.nextInt(24));
+                builder = HttpRequest.newBuilder(URI.create(base + "/statistics?startDate=" + from + "&endDate=" + to));
+            }
+            default -> builder = HttpRequest.newBuilder(URI.create(base + "?page=" + random.nextInt(10) + "&size=20"));
+        }
+        return builder.header("Authorization", authorization)
+                .timeout(Duration.ofSeconds(options.timeoutSeconds))
+                .build();
+    }
+
+    private static String amount(SplittableRandom random) {
+        return String.valueOf((100 + random.nextInt(50_000)) / 100.0);
+    }
+
+    private ObjectNode report(long elapsedMillis) {
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("url", options.url);
+        report.put("concurrency", options.concurrency);
+        report.put("durationMillis", elapsedMillis);
+        ArrayNode operations = report.putArray("operations");
+        LatencyRecorder all = new LatencyRecorder();
+        for (Map.Entry<Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            operations.add(entry.getValue().summary(entry.getKey().name().toLowerCase(), elapsedMillis));
+            all.addAll(entry.getValue());
+        }
+        report.set("total", all.summary("total", elapsedMillis));
+        return report;
+    }
+
+    private void print(ObjectNode report) {
+        System.out.printf("%-12s %9s %7s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        for (JsonNode node : report.get("operations")) {
+            printRow(node);
+        }
+        printRow(report.get("total"));
+    }
+
+    private static void printRow(JsonNode node) {
+        System.out.printf("%-12s %9d %7d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+                node.get("operation").asText(), node.get("requests").asLong(), node.get("errors").asLong(),
+                node.get("throughput").asDouble(), node.get("p50").asDouble(), node.get("p99").asDouble(),
+                node.get("p999").asDouble(), node.get("max").asDouble());
+    }
+
+    /**
+     * 保存全部样本的延迟记录器，结束后排序求精确分位数
+     */
+    static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized void addAll(LatencyRecorder other) {
+            synchronized (other) {
+                for (int i = 0; i < other.size; i++) {
+                    record(other.samples[i], true);
+                }
+                errors += other.errors;
+            }
+        }
+
+        /**
+         * 第quantile分位的延迟（毫秒），取排序后第ceil(q*n)个样本
+         */
+        synchronized double percentile(double quantile) {
+            if (size == 0) {
+                return 0.0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(quantile * size);
+            return sorted[Math.min(Math.max(rank, 1), size) - 1] / 1e6;
+        }
+
+        synchronized ObjectNode summary(String operation, long elapsedMillis) {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("operation", operation);
+            node.put("requests", size);
+            node.put("errors", errors);
+            node.put("throughput", elapsedMillis == 0 ? 0.0 : size * 1000.0 / elapsedMillis);
+            node.put("p50", percentile(0.50));
+            node.put("p99", percentile(0.99));
+            node.put("p999", percentile(0.999));
+            node.put("max", percentile(1.0));
+            return node;
+        }
+    }
+
+    /**
+     * 压测参数
+     */
+    static class Options {
+        String url = "http://localhost:8080";
+        String user = "admin";
+        String password = "admin123";
+        int concurrency = 32;
+        int warmupSeconds = 10;
+        int durationSeconds = 60;
+        int timeoutSeconds = 60;
+        long seed = 42;
+        String output;
+        Map<Operation, Integer> mix = parseMix("create=1,quick=1,search=4,statistics=2,list=2");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--url" -> options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    case "--user" -> options.user = value;
+                    case "--password" -> options.password = value;
+                    case "--concurrency" -> options.concurrency = Integer.parseInt(value);
+                    case "--warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "--timeout" -> options.timeoutSeconds = Integer.parseInt(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    case "--output" -> options.output = value;
+                    case "--mix" -> options.mix = parseMix(value);
+                    default -> throw new IllegalArgumentException("未知参数: " + args[i]);
+                }
+            }
+            return options;
+        }
+
+        static Map<Operation, Integer> parseMix(String mix) {
+            Map<Operation, Integer> weights = new LinkedHashMap<>();
+            for (String part : mix.split(",")) {
+                String[] pair = part.trim().split("=");
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight > 0) {
+                    weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("请求配比不能为空: " + mix);
+            }
+            return weights;
+        }
+    }
+}
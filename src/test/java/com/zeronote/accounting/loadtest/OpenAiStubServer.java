@@ -0,0 +1,247 @@
+package com.zeronote.accounting.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.service.AnalysisPrompt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地模拟的OpenAI对话补全服务，压测时替代真实接口，不消耗额度
+ * 从用户消息的交易行中解析出商户与描述，按关键词（无命中时按哈希）确定性地给出分类，
+ * 以AnalysisPrompt约定的紧凑格式{"r":[...]}返回，与AiAnalysisService的解析一致。
+ * 响应延迟服从对数正态分布，并可按比例注入慢响应和500错误。
+ *
+ * 运行方式：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.zeronote.accounting.loadtest.OpenAiStubServer \
+ *     -Dexec.args="--port 18081 --latency-ms 800 --error-rate 0.02"
+ * 应用启动时指定 --ai.openai.base-url=http://localhost:18081/
+ */
+public class OpenAiStubServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // 序号|金额|描述|商户|位置
+    private static final Pattern TRANSACTION_LINE = Pattern.compile(
+            "^(\\d+)\\|(.*?)\\|(.*?)\\|(.*?)\\|(.*)$", Pattern.MULTILINE);
+
+    // 关键词 -> 分类，按顺序匹配商户名与描述
+    private static final String[][] KEYWORDS = {
+            {"咖啡", "COFFEE_TEA"}, {"星巴克", "COFFEE_TEA"}, {"瑞幸", "COFFEE_TEA"}, {"茶", "COFFEE_TEA"},
+            {"滴滴", "TAXI_RIDESHARE"}, {"打车", "TAXI_RIDESHARE"}, {"地铁", "PUBLIC_TRANSPORT"},
+            {"公交", "PUBLIC_TRANSPORT"}, {"加油", "FUEL"}, {"石化", "FUEL"}, {"停车", "PARKING"},
+            {"京东", "ELECTRONICS"}, {"耳机", "ELECTRONICS"}, {"淘宝", "SHOPPING"}, {"超市", "GROCERIES"},
+            {"盒马", "GROCERIES"}, {"书", "BOOKS"}, {"电影", "MOVIES"}, {"影城", "MOVIES"}, {"游戏", "GAMES"},
+            {"话费", "UTILITIES"}, {"电费", "UTILITIES"}, {"麦当劳", "FOOD_DINING"}, {"餐", "FOOD_DINING"}
+    };
+    private static final String[] FALLBACK_CATEGORIES = {
+            "FOOD_DINING", "SHOPPING", "GROCERIES", "TRANSPORTATION", "ENTERTAINMENT", "OTHER"
+    };
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+    private final AtomicLong jsonModeCount = new AtomicLong();
+
+    private OpenAiStubServer(Options options) throws IOException {
+        this.options = options;
+        this.random = new Random(options.seed);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port), 1024);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static OpenAiStubServer start(Options options) throws IOException {
+        OpenAiStubServer stub = new OpenAiStubServer(options);
+        stub.server.start();
+        return stub;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        OpenAiStubServer stub = start(options);
+        System.out.printf("OpenAI模拟服务已启动: %s（延迟中位数%dms，sigma=%.2f，错误率%.3f，慢响应率%.3f）%n",
+                stub.baseUrl(), options.latencyMillis, options.latencySigma, options.errorRate, options.slowRate);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.printf("共处理%d个请求，错误%d个，慢响应%d个%n",
+                    stub.getRequestCount(), stub.getErrorCount(), stub.getSlowCount());
+            stub.close();
+        }));
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public long getRequestCount() { return requestCount.get(); }
+    public long getErrorCount() { return errorCount.get(); }
+    public long getSlowCount() { return slowCount.get(); }
+    public long getJsonModeCount() { return jsonModeCount.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requestCount.incrementAndGet();
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            JsonNode messages = request.path("messages");
+            String prompt = messages.path(messages.size() - 1).path("content").asText();
+            if ("json_object".equals(request.path("response_format").path("type").asText())) {
+                jsonModeCount.incrementAndGet();
+            }
+
+            double roll;
+            double gaussian;
+            synchronized (random) {
+                roll = random.nextDouble();
+                gaussian = random.nextGaussian();
+            }
+            long delay = roll < options.slowRate
+                    ? options.slowMillis
+                    : Math.round(options.latencyMillis * Math.exp(options.latencySigma * gaussian));
+            if (roll < options.slowRate) {
+                slowCount.incrementAndGet();
+            }
+            sleep(delay);
+
+            if (roll >= options.slowRate && roll < options.slowRate + options.errorRate) {
+                errorCount.incrementAndGet();
+                write(exchange, 500, "{\"error\":{\"message\":\"stub upstream error\",\"type\":\"server_error\"}}");
+                return;
+            }
+            write(exchange, 200, MAPPER.writeValueAsString(completion(request.path("model").asText(), prompt)));
+        }
+    }
+
+    private ObjectNode completion(String model, String prompt) throws IOException {
+        String content = MAPPER.writeValueAsString(analyze(prompt));
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("id", "chatcmpl-stub-" + requestCount.get());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", model);
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop");
+        // 粗略按字符数估算token，系统提示词计入输入
+        int promptTokens = (AnalysisPrompt.SYSTEM_PROMPT.length() + prompt.length()) / 2;
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", content.length() / 2);
+        usage.put("total_tokens", promptTokens + content.length() / 2);
+        return response;
+    }
+
+    /**
+     * 根据用户消息中的交易行生成分析结果，每行一个元素
+     */
+    static JsonNode analyze(String prompt) {
+        Matcher line = TRANSACTION_LINE.matcher(prompt);
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode results = root.putArray("r");
+        while (line.find()) {
+            ObjectNode item = result(line.group(4).trim(), line.group(3).trim());
+            item.put("i", Integer.parseInt(line.group(1)));
+            results.add(item);
+        }
+        return root;
+    }
+
+    private static ObjectNode result(String merchant, String description) {
+        String text = merchant + " " + description;
+        String category = null;
+        for (String[] keyword : KEYWORDS) {
+            if (text.contains(keyword[0])) {
+                category = keyword[1];
+                break;
+            }
+        }
+        if (category == null) {
+            category = FALLBACK_CATEGORIES[Math.floorMod(text.hashCode(), FALLBACK_CATEGORIES.length)];
+        }
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("t", AnalysisPrompt.code(TransactionType.EXPENSE));
+        node.put("c", AnalysisPrompt.code(TransactionCategory.valueOf(category)));
+        node.put("s", AnalysisPrompt.code(TransactionScenario.REGULAR));
+        node.put("m", merchant.isBlank() ? "未知商户" : merchant);
+        node.put("d", description.isBlank() ? "日常消费" : description);
+        node.put("a", "关键词判定为" + category);
+        return node;
+    }
+
+    private static void write(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(Math.max(0, millis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 模拟服务参数
+     */
+    public static class Options {
+        int port = 18081;
+        long latencyMillis = 800;
+        double latencySigma = 0.5;
+        double errorRate = 0.0;
+        double slowRate = 0.0;
+        long slowMillis = 15000;
+        long seed = 42;
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--port" -> options.port = Integer.parseInt(value);
+                    case "--latency-ms" -> options.latencyMillis = Long.parseLong(value);
+                    case "--latency-sigma" -> options.latencySigma = Double.parseDouble(value);
+                    case "--error-rate" -> options.errorRate = Double.parseDouble(value);
+                    case "--slow-rate" -> options.slowRate = Double.parseDouble(value);
+                    case "--slow-ms" -> options.slowMillis = Long.parseLong(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("未知参数: " + args[i]);
+                }
+            }
+            return options;
+        }
+    }
+}
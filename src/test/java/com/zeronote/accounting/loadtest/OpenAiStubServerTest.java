@@ -0,0 +1,101 @@
+package com.zeronote.accounting.loadtest;
+
+import com.zeronote.accounting.config.OpenAiClientConfig;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.service.AiAnalysisService;
+import com.zeronote.accounting.service.AiCircuitBreaker;
+import com.zeronote.accounting.service.AiConcurrencyLimiter;
+import com.zeronote.accounting.service.ClassificationCache;
+import com.zeronote.accounting.service.LocalClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 模拟服务的响应须能被真实的客户端与解析逻辑处理（单笔与微批两种提示词）
+ */
+class OpenAiStubServerTest {
+
+    @Test
+    void testSingleAndBatchPrompts_ParsedByAnalysisService() throws Exception {
+        try (OpenAiStubServer stub = OpenAiStubServer.start(options("--latency-ms", "0", "--latency-sigma", "0"))) {
+            AiAnalysisService single = analysisService(stub, false);
+            AiAnalysisService batched = analysisService(stub, true);
+            try {
+                AiAnalysisService.AiAnalysisResult result = single.analyzeTransaction(
+                        new BigDecimal("25.50"), "拿铁", "星巴克", null);
+                assertEquals(TransactionCategory.COFFEE_TEA, result.getCategory());
+                assertEquals(ClassificationSource.LLM, result.getSource());
+
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    Future<AiAnalysisService.AiAnalysisResult> taxi = executor.submit(() ->
+                            batched.analyzeTransaction(new BigDecimal("30.00"), "打车", "滴滴出行", null));
+                    Future<AiAnalysisService.AiAnalysisResult> phone = executor.submit(() ->
+                            batched.analyzeTransaction(new BigDecimal("99.00"), "耳机", "京东", null));
+                    assertEquals(TransactionCategory.TAXI_RIDESHARE, taxi.get().getCategory());
+                    assertEquals(TransactionCategory.ELECTRONICS, phone.get().getCategory());
+                    assertFalse(phone.get().isFallback());
+                }
+                // 所有请求都带上JSON模式，且token用量被累计
+                assertEquals(stub.getRequestCount(), stub.getJsonModeCount());
+                assertTrue(single.getTokenStats().getPromptTokens() > 0);
+                assertEquals(1, single.getTokenStats().getItemCount());
+            } finally {
+                single.shutdown();
+                batched.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testErrorRate_FallsBackToDefault() throws Exception {
+        try (OpenAiStubServer stub = OpenAiStubServer.start(
+                options("--latency-ms", "0", "--latency-sigma", "0", "--error-rate", "1"))) {
+            AiAnalysisService service = analysisService(stub, false);
+            try {
+                AiAnalysisService.AiAnalysisResult result = service.analyzeTransaction(
+                        new BigDecimal("25.50"), "拿铁", "星巴克", null);
+                assertTrue(result.isFallback());
+                assertEquals(1, stub.getErrorCount());
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testLatencyRecorder_Percentiles() {
+        LoadDriver.LatencyRecorder recorder = new LoadDriver.LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(i * 1_000_000L, i % 100 != 0);
+        }
+
+        assertEquals(500.0, recorder.percentile(0.50));
+        assertEquals(990.0, recorder.percentile(0.99));
+        assertEquals(999.0, recorder.percentile(0.999));
+        assertEquals(10, recorder.summary("all", 1000).get("errors").asLong());
+    }
+
+    private static OpenAiStubServer.Options options(String... args) {
+        return OpenAiStubServer.Options.parse(
+                Stream.concat(Stream.of("--port", "0"), Arrays.stream(args)).toArray(String[]::new));
+    }
+
+    private static AiAnalysisService analysisService(OpenAiStubServer stub, boolean batchEnabled) {
+        return new AiAnalysisService(
+                new OpenAiClientConfig().openAiService("test-key", 5000, 1000, stub.baseUrl(), true),
+                5000, batchEnabled, 20, 50, false, 0, false,
+                mock(ClassificationCache.class), mock(LocalClassifier.class), new AiConcurrencyLimiter(4, 1000),
+                new AiCircuitBreaker(20, 10, 0.5, 10000, 30000, 3), new SimpleMeterRegistry());
+    }
+}
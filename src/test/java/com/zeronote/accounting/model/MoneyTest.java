@@ -0,0 +1,116 @@
+package com.zeronote.accounting.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    // 随机样例数与固定种子，失败时可复现
+    private static final int SAMPLES = 10_000;
+    private static final long SEED = 20240101L;
+
+    @Test
+    void testArithmetic_MatchesBigDecimalForRandomAmounts() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal a = randomAmount(random);
+            BigDecimal b = randomAmount(random);
+            long multiplier = random.nextInt(2001) - 1000;
+            Money x = Money.of(a);
+            Money y = Money.of(b);
+
+            assertEquals(a.add(b), x.plus(y).toBigDecimal(), () -> a + " + " + b);
+            assertEquals(a.subtract(b), x.minus(y).toBigDecimal(), () -> a + " - " + b);
+            assertEquals(a.negate(), x.negate().toBigDecimal());
+            assertEquals(a.multiply(BigDecimal.valueOf(multiplier)), x.times(multiplier).toBigDecimal());
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(x.compareTo(y)));
+            assertEquals(a.compareTo(b) == 0, x.equals(y));
+            assertEquals(a.signum(), x.signum());
+        }
+    }
+
+    @Test
+    void testSum_MatchesBigDecimalOverLargeSet() {
+        Random random = new Random(SEED);
+        BigDecimal expected = BigDecimal.ZERO;
+        long minorUnits = 0;
+        Money money = Money.zero();
+        for (int i = 0; i < SAMPLES * 10; i++) {
+            BigDecimal amount = randomAmount(random);
+            expected = expected.add(amount);
+            minorUnits += Money.minorUnitsOf(amount, RoundingMode.UNNECESSARY);
+            money = money.plus(Money.of(amount));
+        }
+        assertEquals(expected, Money.ofMinor(minorUnits).toBigDecimal());
+        assertEquals(expected, money.toBigDecimal());
+    }
+
+    @Test
+    void testOf_RoundingRules() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            // 三位小数，需要舍入
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 100_000_000_000L, 3);
+            for (RoundingMode mode : new RoundingMode[]{RoundingMode.HALF_UP, RoundingMode.HALF_EVEN,
+                    RoundingMode.FLOOR, RoundingMode.CEILING}) {
+                assertEquals(amount.setScale(2, mode), Money.of(amount, Money.DEFAULT_CURRENCY, mode).toBigDecimal());
+            }
+        }
+        assertEquals(Money.of("12.50"), Money.of(new BigDecimal("12.500000")));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("12.345")));
+        assertEquals(1235, Money.minorUnitsOf(new BigDecimal("12.345"), RoundingMode.HALF_UP));
+        assertEquals(-1235, Money.minorUnitsOf(new BigDecimal("-12.345"), RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void testOverflowAndCurrencyMismatch_Throw() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20")));
+
+        Money yen = Money.of(new BigDecimal("500"), Currency.getInstance("JPY"));
+        assertEquals(500, yen.getMinorUnits());
+        assertEquals(new BigDecimal("500"), yen.toBigDecimal());
+        assertThrows(IllegalArgumentException.class, () -> Money.of("1.00").plus(yen));
+        assertNotEquals(Money.ofMinor(500), yen);
+    }
+
+    @Test
+    void testPercentageOf() {
+        assertEquals(new BigDecimal("33.33"), Money.of("1.00").percentageOf(Money.of("3.00")));
+        assertEquals(new BigDecimal("66.67"), Money.of("2.00").percentageOf(Money.of("3.00")));
+        assertEquals(BigDecimal.ZERO, Money.of("2.00").percentageOf(Money.zero()));
+    }
+
+    @Test
+    void testJson_RoundTripsAsPlainNumber() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals("42.50", mapper.writeValueAsString(Money.of("42.5")));
+        assertEquals(Money.of("42.50"), mapper.readValue("42.5", Money.class));
+        assertEquals(Money.of("7.00"), mapper.readValue("\"7\"", Money.class));
+        assertThrows(InvalidFormatException.class, () -> mapper.readValue("1.234", Money.class));
+    }
+
+    @Test
+    void testConverter_RoundTrips() {
+        MoneyConverter converter = new MoneyConverter();
+        assertEquals(new BigDecimal("19.90"), converter.convertToDatabaseColumn(Money.of("19.9")));
+        assertEquals(Money.of("19.90"), converter.convertToEntityAttribute(new BigDecimal("19.90")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    // 两位小数，绝对值不超过一千亿
+    private static BigDecimal randomAmount(Random random) {
+        return BigDecimal.valueOf(random.nextLong() % 10_000_000_000_000L, 2);
+    }
+}
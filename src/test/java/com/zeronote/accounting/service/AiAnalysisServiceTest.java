@@ -0,0 +1,118 @@
+package com.zeronote.accounting.service;
+
+import com.theokanning.openai.service.OpenAiService;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.TransactionCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class AiAnalysisServiceTest {
+
+    private AiAnalysisService aiAnalysisService;
+    private AiCircuitBreaker circuitBreaker;
+    private SimpleMeterRegistry meterRegistry;
+    private List<AiAnalysisService.AnalysisRequest> items;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = mock(AiCircuitBreaker.class);
+        meterRegistry = new SimpleMeterRegistry();
+        aiAnalysisService = new AiAnalysisService(new OpenAiService("test-key"), 1000, false, 20, 50, false, 0, false,
+                mock(ClassificationCache.class), mock(LocalClassifier.class), new AiConcurrencyLimiter(4, 1000),
+                circuitBreaker, meterRegistry);
+        items = List.of(
+                new AiAnalysisService.AnalysisRequest(new BigDecimal("25.50"), "午餐", "星巴克", null),
+                new AiAnalysisService.AnalysisRequest(new BigDecimal("30.00"), "打车", "滴滴出行", null),
+                new AiAnalysisService.AnalysisRequest(new BigDecimal("99.00"), "耳机", "京东", null));
+    }
+
+    @Test
+    void testParseBatchAnalysisResult_MapsByIndex() throws Exception {
+        String response = """
+                [
+                  {"index": 2, "type": "EXPENSE", "category": "ELECTRONICS", "scenario": "REGULAR",
+                   "merchant": "京东", "description": "耳机", "analysis": "电子产品"},
+                  {"index": 0, "type": "EXPENSE", "category": "COFFEE_TEA", "scenario": "REGULAR",
+                   "merchant": "星巴克", "description": "午餐", "analysis": "咖啡"},
+                  {"index": 1, "type": "EXPENSE", "category": "TAXI_RIDESHARE", "scenario": "REGULAR",
+                   "merchant": "滴滴出行", "description": "打车", "analysis": "打车"}
+                ]
+                """;
+
+        List<AiAnalysisService.AiAnalysisResult> results = aiAnalysisService.parseBatchAnalysisResult(response, items);
+
+        assertEquals(TransactionCategory.COFFEE_TEA, results.get(0).getCategory());
+        assertEquals(TransactionCategory.TAXI_RIDESHARE, results.get(1).getCategory());
+        assertEquals(TransactionCategory.ELECTRONICS, results.get(2).getCategory());
+        assertEquals(ClassificationSource.LLM, results.get(2).getSource());
+    }
+
+    @Test
+    void testParseBatchAnalysisResult_MalformedElementFallsBackAlone() throws Exception {
+        String response = """
+                [
+                  {"index": 0, "type": "EXPENSE", "category": "COFFEE_TEA", "scenario": "REGULAR",
+                   "merchant": "星巴克", "description": "午餐", "analysis": "咖啡"},
+                  {"index": 1, "type": "EXPENSE", "category": "NOT_A_CATEGORY", "scenario": "REGULAR",
+                   "merchant": "滴滴出行", "description": "打车", "analysis": "打车"}
+                ]
+                """;
+
+        List<AiAnalysisService.AiAnalysisResult> results = aiAnalysisService.parseBatchAnalysisResult(response, items);
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isFallback());
+        assertTrue(results.get(1).isFallback());
+        assertTrue(results.get(2).isFallback());
+    }
+
+    @Test
+    void testParseCompactResult_DecodesCodesAndStripsProse() throws Exception {
+        String response = "以下是分析结果：\n```json\n{\"r\":[{\"i\":1,\"t\":0,\"c\":"
+                + AnalysisPrompt.code(TransactionCategory.TAXI_RIDESHARE)
+                + ",\"s\":0,\"m\":\"滴滴出行\",\"d\":\"打车\",\"a\":\"网约车\"},"
+                + "{\"i\":0,\"t\":0,\"c\":\"COFFEE_TEA\",\"s\":0,\"m\":\"星巴克\",\"d\":\"午餐\",\"a\":\"咖啡\"}]}\n```";
+
+        List<AiAnalysisService.AiAnalysisResult> results = aiAnalysisService.parseBatchAnalysisResult(response, items);
+
+        assertEquals(TransactionCategory.COFFEE_TEA, results.get(0).getCategory());
+        assertEquals(TransactionCategory.TAXI_RIDESHARE, results.get(1).getCategory());
+        assertEquals("滴滴出行", results.get(1).getMerchant());
+        assertTrue(results.get(2).isFallback());
+        assertEquals(TransactionCategory.TAXI_RIDESHARE,
+                aiAnalysisService.parseAnalysisResult(response).getCategory());
+    }
+
+    @Test
+    void testPrompt_StaticSystemPromptCoversAllCodes() {
+        for (TransactionCategory category : TransactionCategory.values()) {
+            assertTrue(AnalysisPrompt.SYSTEM_PROMPT.contains(category.ordinal() + category.getDisplayName()));
+        }
+        // 用户消息只含交易内容，相同输入逐字节相同
+        String prompt = aiAnalysisService.buildAnalysisPrompt(new BigDecimal("25.50"), "午餐|外卖", "星巴克", null);
+        assertEquals("0|25.50|午餐 外卖|星巴克|\n", prompt);
+        assertEquals(prompt, aiAnalysisService.buildAnalysisPrompt(new BigDecimal("25.50"), "午餐|外卖", "星巴克", null));
+    }
+
+    @Test
+    void testAnalyzeTransaction_OpenCircuitSkipsLlm() {
+        // 熔断器默认不放行，本地分类无结果时直接返回默认分类
+        AiAnalysisService.AiAnalysisResult result =
+                aiAnalysisService.analyzeTransaction(new BigDecimal("25.50"), "午餐", "星巴克", null);
+
+        assertTrue(result.isFallback());
+        assertEquals(1, aiAnalysisService.getResilienceStats().getShortCircuitCount());
+        verify(circuitBreaker, never()).tryAcquirePermission();
+        assertEquals(1.0, meterRegistry.counter("ai.analysis.fallback", "reason", "circuit_open").count());
+        assertEquals(1, meterRegistry.timer("ai.analysis", "source", "DEFAULT").count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.zeronote.accounting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AiCircuitBreaker breaker = new AiCircuitBreaker(10, 4, 0.5, 1000, 30000, 2, now::get);
+
+    @Test
+    void testRecord_OpensAfterFailureRateAndRejects() {
+        call(true, 0);
+        call(false, 0);
+        call(true, 0);
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getStats().getState());
+
+        // 慢调用同样计为失败：4次中2次失败，达到50%
+        call(true, TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getStats().getState());
+        assertFalse(breaker.isCallPermitted());
+        assertNull(breaker.tryAcquirePermission());
+        assertEquals(1, breaker.getStats().getRejectedCount());
+    }
+
+    @Test
+    void testHalfOpen_ClosesAfterSuccessfulProbes() {
+        openBreaker();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getStats().getState());
+        AiCircuitBreaker.Permit first = breaker.tryAcquirePermission();
+        AiCircuitBreaker.Permit second = breaker.tryAcquirePermission();
+        assertTrue(first.isTrial());
+        assertTrue(second.isTrial());
+        // 试探名额用完
+        assertNull(breaker.tryAcquirePermission());
+
+        breaker.record(first, true, 0);
+        breaker.record(second, true, 0);
+
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getStats().getState());
+        assertTrue(breaker.isCallPermitted());
+    }
+
+    @Test
+    void testHalfOpen_ReopensOnFailedProbe() {
+        openBreaker();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        breaker.record(breaker.tryAcquirePermission(), false, 0);
+
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getStats().getState());
+        assertEquals(2, breaker.getStats().getOpenedCount());
+    }
+
+    @Test
+    void testHalfOpen_IgnoresCallsAdmittedBeforeOpening() {
+        // 关闭状态下放行的两次调用挂起，熔断、半开之后才返回
+        AiCircuitBreaker.Permit hungSuccess = breaker.tryAcquirePermission();
+        AiCircuitBreaker.Permit hungFailure = breaker.tryAcquirePermission();
+        openBreaker();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        AiCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+
+        breaker.record(hungSuccess, true, TimeUnit.MILLISECONDS.toNanos(500));
+        breaker.record(hungSuccess, true, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getStats().getState());
+        breaker.record(hungFailure, false, 0);
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getStats().getState());
+
+        // 旧调用没有释放试探名额：只剩1个
+        assertNotNull(breaker.tryAcquirePermission());
+        assertNull(breaker.tryAcquirePermission());
+        breaker.record(probe, true, 0);
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getStats().getState());
+    }
+
+    private void call(boolean success, long durationNanos) {
+        breaker.record(breaker.tryAcquirePermission(), success, durationNanos);
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 0);
+        }
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getStats().getState());
+    }
+}
@@ -0,0 +1,71 @@
+package com.zeronote.accounting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiConcurrencyLimiterTest {
+
+    @Test
+    void testExecute_QueuesBeyondLimitAndReportsQueueLength() throws Exception {
+        AiConcurrencyLimiter limiter = new AiConcurrencyLimiter(1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = executor.submit(() -> limiter.execute(() -> {
+                started.countDown();
+                await(release);
+                return "first";
+            }));
+            started.await(1, TimeUnit.SECONDS);
+            Future<String> second = executor.submit(() -> limiter.execute(() -> "second"));
+
+            long deadline = System.currentTimeMillis() + 1000;
+            while (limiter.getStats().getQueueLength() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, limiter.getStats().getInUse());
+            assertEquals(1, limiter.getStats().getQueueLength());
+
+            release.countDown();
+            assertEquals("first", first.get(1, TimeUnit.SECONDS));
+            assertEquals("second", second.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(2, limiter.getStats().getAcquiredCount());
+        assertEquals(0, limiter.getStats().getInUse());
+    }
+
+    @Test
+    void testExecute_TimesOutWhenNoPermit() throws Exception {
+        AiConcurrencyLimiter limiter = new AiConcurrencyLimiter(1, 20);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> limiter.execute(() -> {
+                await(release);
+                return null;
+            }));
+            while (limiter.getStats().getInUse() == 0) {
+                Thread.sleep(1);
+            }
+            assertThrows(IllegalStateException.class, () -> limiter.execute(() -> "late"));
+            release.countDown();
+        }
+        assertEquals(1, limiter.getStats().getTimeoutCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
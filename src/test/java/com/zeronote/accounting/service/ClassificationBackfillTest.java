@@ -0,0 +1,204 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.JobCheckpoint;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.JobCheckpointRepository;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ClassificationBackfillTest {
+
+    private TransactionRepository transactionRepository;
+    private JobCheckpointRepository checkpointRepository;
+    private TransactionService transactionService;
+    private AiAnalysisService aiAnalysisService;
+    private AiCircuitBreaker circuitBreaker;
+    private final AtomicLong clock = new AtomicLong();
+    private ClassificationBackfill backfill;
+    private JobCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        checkpointRepository = mock(JobCheckpointRepository.class);
+        transactionService = mock(TransactionService.class);
+        aiAnalysisService = mock(AiAnalysisService.class);
+        circuitBreaker = mock(AiCircuitBreaker.class);
+        when(circuitBreaker.isCallPermitted()).thenReturn(true);
+        checkpoint = new JobCheckpoint(ClassificationBackfill.JOB_NAME);
+        when(checkpointRepository.findById(ClassificationBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(transactionService.completeBackfill(anyLong(), any()))
+                .thenReturn(Optional.of(new TransactionResponse()));
+        // 每批3笔，每分钟补充6笔，同一位置整批失败2次后越过
+        backfill = new ClassificationBackfill(transactionRepository, checkpointRepository, transactionService,
+                aiAnalysisService, circuitBreaker, true, 3, 6, 2, 2, false, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backfill.shutdown();
+    }
+
+    @Test
+    void testRunOnce_ReclassifiesAndAdvancesCheckpoint() {
+        when(transactionRepository.findFallbackAfter(eq(0L), any(), any()))
+                .thenReturn(List.of(fallbackRow(5L, "拿铁"), fallbackRow(7L, "交易"), fallbackRow(9L, "耳机")));
+        when(aiAnalysisService.analyzeTransaction(any(), eq("拿铁"), any(), any())).thenReturn(result(false));
+        when(aiAnalysisService.analyzeTransaction(any(), isNull(), any(), any())).thenReturn(result(true));
+        when(aiAnalysisService.analyzeTransaction(any(), eq("耳机"), any(), any())).thenReturn(result(false));
+
+        assertEquals(2, backfill.runOnce());
+
+        // 占位描述不作为分类依据；部分成功时越过整批
+        assertEquals(9L, checkpoint.getLastId());
+        verify(checkpointRepository).save(checkpoint);
+        verify(transactionService).completeBackfill(eq(5L), any());
+        verify(transactionService, never()).completeBackfill(eq(7L), any());
+    }
+
+    @Test
+    void testRunOnce_WholeBatchFallbackKeepsCheckpoint() {
+        checkpoint.setLastId(4L);
+        when(transactionRepository.findFallbackAfter(eq(4L), any(), any()))
+                .thenReturn(List.of(fallbackRow(5L, "拿铁"), fallbackRow(7L, "打车")));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(result(true));
+
+        assertEquals(0, backfill.runOnce());
+
+        assertEquals(4L, checkpoint.getLastId());
+        verify(checkpointRepository, never()).save(any());
+        assertEquals(2, backfill.getStats().getStillFallback());
+    }
+
+    @Test
+    void testRunOnce_UnclassifiableRowsDoNotPinCheckpoint() {
+        checkpoint.setLastId(4L);
+        when(transactionRepository.findFallbackAfter(eq(4L), any(), any()))
+                .thenReturn(List.of(fallbackRow(5L, "？？"), fallbackRow(7L, "###")));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(fallback("parse_error"), fallback("timeout"));
+
+        assertEquals(0, backfill.runOnce());
+
+        // 大模型已响应，只是这几条分不出来，检查点照常前进
+        assertEquals(7L, checkpoint.getLastId());
+        verify(checkpointRepository).save(checkpoint);
+    }
+
+    @Test
+    void testRunOnce_SkipsBatchAfterRepeatedOutages() {
+        checkpoint.setLastId(4L);
+        when(transactionRepository.findFallbackAfter(eq(4L), any(), any()))
+                .thenReturn(List.of(fallbackRow(5L, "拿铁"), fallbackRow(7L, "打车")));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(fallback("timeout"), fallback("error"), fallback("circuit_open"), fallback("timeout"));
+
+        backfill.runOnce();
+        assertEquals(4L, checkpoint.getLastId());
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        backfill.runOnce();
+        assertEquals(7L, checkpoint.getLastId());
+        assertEquals(1, backfill.getStats().getStalledSkips());
+    }
+
+    @Test
+    void testScheduledRun_ProcessesSeveralBatchesWithinBudget() {
+        when(transactionRepository.findFallbackAfter(eq(0L), any(), any()))
+                .thenReturn(List.of(fallbackRow(1L, "a"), fallbackRow(2L, "b"), fallbackRow(3L, "c")));
+        when(transactionRepository.findFallbackAfter(eq(3L), any(), any()))
+                .thenReturn(List.of(fallbackRow(4L, "d"), fallbackRow(5L, "e"), fallbackRow(6L, "f")));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(result(false));
+
+        // 桶容量为每分钟预算6笔，超过一批
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        backfill.scheduledRun();
+
+        assertEquals(6L, checkpoint.getLastId());
+        assertEquals(6, backfill.getStats().getReclassified());
+        verify(transactionRepository, never()).findFallbackAfter(eq(6L), any(), any());
+    }
+
+    @Test
+    void testRunOnce_RespectsBudgetAndCircuit() {
+        when(transactionRepository.findFallbackAfter(anyLong(), any(), any()))
+                .thenReturn(List.of(fallbackRow(1L, "a"), fallbackRow(2L, "b"), fallbackRow(3L, "c")));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(result(false));
+
+        backfill.runOnce();
+        // 预算用完，立即再运行不查询积压
+        assertEquals(0, backfill.runOnce());
+        assertEquals(1, backfill.getStats().getBudgetSkips());
+
+        // 10秒补充1笔
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        backfill.runOnce();
+        verify(transactionRepository).findFallbackAfter(eq(3L), any(), argThat((Pageable page) -> page.getPageSize() == 1));
+
+        when(circuitBreaker.isCallPermitted()).thenReturn(false);
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals(0, backfill.runOnce());
+        assertEquals(1, backfill.getStats().getCircuitSkips());
+    }
+
+    @Test
+    void testRunOnce_EndOfPassRestartsFromBeginning() {
+        checkpoint.setLastId(42L);
+        when(transactionRepository.findFallbackAfter(eq(42L), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, backfill.runOnce());
+
+        assertEquals(0L, checkpoint.getLastId());
+        assertEquals(1L, checkpoint.getPassCount());
+        verify(aiAnalysisService, never()).analyzeTransaction(any(), any(), any(), any());
+    }
+
+    private static Transaction fallbackRow(Long id, String description) {
+        Transaction transaction = new Transaction(new BigDecimal("25.50"));
+        transaction.setId(id);
+        transaction.setDescription(description);
+        transaction.setAiAnalysis(AiAnalysisService.DEFAULT_ANALYSIS);
+        transaction.setClassificationSource(ClassificationSource.DEFAULT);
+        return transaction;
+    }
+
+    private static AiAnalysisService.AiAnalysisResult fallback(String reason) {
+        return AiAnalysisService.AiAnalysisResult.builder()
+                .type(TransactionType.EXPENSE)
+                .category(TransactionCategory.OTHER)
+                .scenario(TransactionScenario.REGULAR)
+                .source(ClassificationSource.DEFAULT)
+                .fallbackReason(reason)
+                .build();
+    }
+
+    private static AiAnalysisService.AiAnalysisResult result(boolean fallback) {
+        return AiAnalysisService.AiAnalysisResult.builder()
+                .type(TransactionType.EXPENSE)
+                .category(fallback ? TransactionCategory.OTHER : TransactionCategory.COFFEE_TEA)
+                .scenario(TransactionScenario.REGULAR)
+                .source(fallback ? ClassificationSource.DEFAULT : ClassificationSource.LLM)
+                .build();
+    }
+}
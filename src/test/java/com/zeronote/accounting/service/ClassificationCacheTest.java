@@ -0,0 +1,90 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassificationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AiAnalysisService.AiAnalysisResult testAnalysis;
+
+    @BeforeEach
+    void setUp() {
+        testAnalysis = AiAnalysisService.AiAnalysisResult.builder()
+                .type(TransactionType.EXPENSE)
+                .category(TransactionCategory.COFFEE_TEA)
+                .scenario(TransactionScenario.REGULAR)
+                .merchant("星巴克")
+                .description("午餐")
+                .analysis("AI分析：咖啡消费")
+                .build();
+    }
+
+    @Test
+    void testBuildKey_NormalizesTextAndBucketsAmount() {
+        String key1 = ClassificationCache.buildKey(new BigDecimal("25.50"), " 午餐 ", "星巴克", null);
+        String key2 = ClassificationCache.buildKey(new BigDecimal("30.00"), "午餐", "星巴克", "");
+        String key3 = ClassificationCache.buildKey(new BigDecimal("40.00"), "午餐", "星巴克", "");
+
+        assertEquals(key1, key2);
+        assertNotEquals(key1, key3);
+        assertEquals(ClassificationCache.buildKey(BigDecimal.TEN, "Coffee  Time", "ＳＴＡＲＢＵＣＫＳ", null),
+                ClassificationCache.buildKey(BigDecimal.TEN, "coffee time", "starbucks", null));
+    }
+
+    @Test
+    void testGetAndPut_TracksHitsMissesAndEvictions() {
+        ClassificationCache cache = new ClassificationCache(true, 2, tempDir.resolve("cache.json").toString());
+
+        assertTrue(cache.get("a").isEmpty());
+        cache.put("a", testAnalysis);
+        cache.put("b", testAnalysis);
+        assertTrue(cache.get("a").isPresent());
+        cache.put("c", testAnalysis);
+
+        assertTrue(cache.get("b").isEmpty());
+        ClassificationCache.CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getEvictionCount());
+    }
+
+    @Test
+    void testFlushAndLoad_RestoresEntries() {
+        String file = tempDir.resolve("cache.json").toString();
+        ClassificationCache cache = new ClassificationCache(true, 10, file);
+        String key = ClassificationCache.buildKey(new BigDecimal("25.50"), "午餐", "星巴克", null);
+        cache.put(key, testAnalysis);
+        cache.flush();
+
+        ClassificationCache reloaded = new ClassificationCache(true, 10, file);
+        reloaded.load();
+
+        Optional<AiAnalysisService.AiAnalysisResult> result = reloaded.get(key);
+        assertTrue(result.isPresent());
+        assertEquals(TransactionCategory.COFFEE_TEA, result.get().getCategory());
+        assertEquals("星巴克", result.get().getMerchant());
+    }
+
+    @Test
+    void testDisabledCache_NeverStoresEntries() {
+        ClassificationCache cache = new ClassificationCache(false, 10, tempDir.resolve("cache.json").toString());
+        cache.put("a", testAnalysis);
+
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals(0, cache.getStats().getSize());
+    }
+}
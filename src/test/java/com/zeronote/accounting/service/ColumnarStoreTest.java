@@ -0,0 +1,143 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ColumnarStoreTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ColumnarStore columnarStore;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionRepository.findColumnarViewsAfter(anyLong(), any())).thenReturn(List.of());
+        columnarStore = new ColumnarStore(transactionRepository, true, 100000);
+        columnarStore.rebuild();
+        add(1L, "12.50", LocalDate.of(2024, 1, 5), TransactionType.EXPENSE, TransactionCategory.FOOD_DINING,
+                "微信");
+        add(2L, "30.00", LocalDate.of(2024, 1, 31), TransactionType.EXPENSE, TransactionCategory.FOOD_DINING,
+                "支付宝");
+        add(3L, "99.99", LocalDate.of(2024, 2, 1), TransactionType.EXPENSE, TransactionCategory.SHOPPING, "微信");
+        add(4L, "8000", LocalDate.of(2024, 2, 10), TransactionType.INCOME, TransactionCategory.OTHER, null);
+    }
+
+    @Test
+    void testAggregate_GroupsByMonthAndCategory() {
+        List<ColumnarStore.GroupTotal> totals = columnarStore.aggregate(null, null, TransactionType.EXPENSE, null,
+                List.of(ColumnarStore.Dimension.MONTH, ColumnarStore.Dimension.CATEGORY));
+
+        assertEquals(2, totals.size());
+        assertEquals(YearMonth.of(2024, 1), totals.get(0).getMonth());
+        assertEquals(TransactionCategory.FOOD_DINING, totals.get(0).getCategory());
+        assertEquals(Money.of("42.50"), totals.get(0).getTotalAmount());
+        assertEquals(2, totals.get(0).getTransactionCount());
+        assertEquals(YearMonth.of(2024, 2), totals.get(1).getMonth());
+        assertEquals(Money.of("99.99"), totals.get(1).getTotalAmount());
+        assertNull(totals.get(1).getType());
+    }
+
+    @Test
+    void testAggregate_FiltersDateRangeAndGroupsBySource() {
+        List<ColumnarStore.GroupTotal> totals = columnarStore.aggregate(LocalDate.of(2024, 1, 31),
+                LocalDate.of(2024, 2, 10), null, null, List.of(ColumnarStore.Dimension.SOURCE));
+
+        assertEquals(List.of("微信", "支付宝", ColumnarStore.UNKNOWN_SOURCE),
+                totals.stream().map(ColumnarStore.GroupTotal::getSource).toList());
+        assertEquals(List.of(1L, 1L, 1L), totals.stream().map(ColumnarStore.GroupTotal::getTransactionCount).toList());
+
+        List<ColumnarStore.GroupTotal> all = columnarStore.aggregate(null, null, null, null, List.of());
+        assertEquals(1, all.size());
+        assertEquals(Money.of("8142.49"), all.get(0).getTotalAmount());
+    }
+
+    @Test
+    void testOnTransactionChanged_ReplacesAndRemovesRows() {
+        Transaction previous = transaction(1L, "12.50", LocalDate.of(2024, 1, 5), TransactionType.EXPENSE,
+                TransactionCategory.FOOD_DINING, "微信");
+        Transaction current = transaction(1L, "20.00", LocalDate.of(2024, 1, 5), TransactionType.EXPENSE,
+                TransactionCategory.TRANSPORTATION, "微信");
+        columnarStore.onTransactionChanged(TransactionChangedEvent.updated(previous, current));
+        columnarStore.onTransactionChanged(TransactionChangedEvent.deleted(transaction(2L, "30.00",
+                LocalDate.of(2024, 1, 31), TransactionType.EXPENSE, TransactionCategory.FOOD_DINING, "支付宝")));
+
+        List<ColumnarStore.GroupTotal> totals = columnarStore.aggregate(null, null, TransactionType.EXPENSE, null,
+                List.of(ColumnarStore.Dimension.CATEGORY));
+        assertEquals(List.of(TransactionCategory.TRANSPORTATION, TransactionCategory.SHOPPING),
+                totals.stream().map(ColumnarStore.GroupTotal::getCategory).toList());
+        assertEquals(Money.of("20.00"), totals.get(0).getTotalAmount());
+        assertEquals(3, columnarStore.getStats().getRows());
+        assertEquals(2, columnarStore.getStats().getDeletedRows());
+    }
+
+    @Test
+    void testAggregate_ParallelScanMatchesSequential() {
+        ColumnarStore parallel = new ColumnarStore(transactionRepository, true, 1);
+        ColumnarStore sequential = new ColumnarStore(transactionRepository, true, Integer.MAX_VALUE);
+        parallel.rebuild();
+        sequential.rebuild();
+        TransactionCategory[] categories = TransactionCategory.values();
+        for (long id = 1; id <= 150_000; id++) {
+            Transaction transaction = transaction(id, BigDecimal.valueOf(id % 10_000, 2).toPlainString(),
+                    LocalDate.of(2023, 1, 1).plusDays(id % 500), TransactionType.EXPENSE,
+                    categories[(int) (id % categories.length)], id % 3 == 0 ? "微信" : "支付宝");
+            parallel.onTransactionChanged(TransactionChangedEvent.created(transaction));
+            sequential.onTransactionChanged(TransactionChangedEvent.created(transaction));
+        }
+
+        List<ColumnarStore.Dimension> groupBy = List.of(ColumnarStore.Dimension.MONTH,
+                ColumnarStore.Dimension.CATEGORY, ColumnarStore.Dimension.SOURCE);
+        List<ColumnarStore.GroupTotal> expected = sequential.aggregate(null, null, null, null, groupBy);
+        List<ColumnarStore.GroupTotal> actual = parallel.aggregate(null, null, null, null, groupBy);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTotalAmount(), actual.get(i).getTotalAmount());
+            assertEquals(expected.get(i).getTransactionCount(), actual.get(i).getTransactionCount());
+        }
+        assertEquals(150_000, actual.stream().mapToLong(ColumnarStore.GroupTotal::getTransactionCount).sum());
+    }
+
+    private void add(Long id, String amount, LocalDate date, TransactionType type, TransactionCategory category,
+                     String source) {
+        columnarStore.onTransactionChanged(TransactionChangedEvent.created(
+                transaction(id, amount, date, type, category, source)));
+    }
+
+    private static Transaction transaction(Long id, String amount, LocalDate date, TransactionType type,
+                                           TransactionCategory category, String source) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionDate(LocalDateTime.of(date, LocalTime.NOON));
+        transaction.setType(type);
+        transaction.setCategory(category);
+        transaction.setScenario(TransactionScenario.REGULAR);
+        transaction.setSource(source);
+        return transaction;
+    }
+}
@@ -0,0 +1,127 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DuplicateDetectorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withSecond(0).withNano(0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private DuplicateDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new DuplicateDetector(transactionRepository, true, 30, 90, 0.5);
+        when(transactionRepository.findDuplicateViewsSince(any(), anyLong(), any())).thenReturn(List.of());
+        detector.load();
+        index(transaction(1L, "35.00", NOW, "星巴克咖啡(国贸店)", "微信支付", "wx-1"));
+    }
+
+    @Test
+    void testFindDuplicateOf_MatchesAcrossSourcesWithinWindow() {
+        // 银行账单晚入账25分钟，商户名互相包含
+        assertEquals(1L, detector.findDuplicateOf(
+                transaction(null, "35.00", NOW.plusMinutes(25), "星巴克", "银行账单", "bank-9")));
+        // 快速记账没有商户，按描述比较
+        assertEquals(1L, detector.findDuplicateOf(quickEntry("35", NOW.minusMinutes(10), "星巴克咖啡")));
+
+        assertNull(detector.findDuplicateOf(transaction(null, "35.01", NOW, "星巴克", "银行账单", null)));
+        assertNull(detector.findDuplicateOf(transaction(null, "35.00", NOW.plusMinutes(31), "星巴克", "银行账单", null)));
+        assertNull(detector.findDuplicateOf(transaction(null, "35.00", NOW, "瑞幸咖啡", "银行账单", null)));
+        // 同一来源且都有外部ID：账单里的两条不同记录
+        assertNull(detector.findDuplicateOf(transaction(null, "35.00", NOW, "星巴克", "微信支付", "wx-2")));
+        Transaction refund = transaction(null, "35.00", NOW, "星巴克", "微信支付", null);
+        refund.setType(TransactionType.INCOME);
+        assertNull(detector.findDuplicateOf(refund));
+        assertEquals(7, detector.getStats().getChecks());
+        assertEquals(2, detector.getStats().getFlagged());
+    }
+
+    @Test
+    void testFindDuplicateOf_LinksToOriginalAndFollowsUpdates() {
+        Transaction second = transaction(2L, "35.00", NOW.plusMinutes(20), "星巴克", "银行账单", "bank-9");
+        second.setDuplicateOfId(1L);
+        index(second);
+        // 第三笔离第二笔更近，仍指向最早的那笔
+        assertEquals(1L, detector.findDuplicateOf(quickEntry("35.00", NOW.plusMinutes(45), "星巴克")));
+
+        Transaction moved = new Transaction(second);
+        moved.setAmount(new BigDecimal("36.00"));
+        detector.onTransactionChanged(TransactionChangedEvent.updated(second, moved));
+        detector.onTransactionChanged(TransactionChangedEvent.deleted(
+                transaction(1L, "35.00", NOW, "星巴克咖啡(国贸店)", "微信支付", "wx-1")));
+        // 原交易删除后重复标记被清除，第二笔成为新的原交易
+        Transaction unlinked = new Transaction(moved);
+        unlinked.setDuplicateOfId(null);
+        detector.onTransactionChanged(TransactionChangedEvent.updated(moved, unlinked));
+        assertNull(detector.findDuplicateOf(quickEntry("35.00", NOW, "星巴克")));
+        assertEquals(2L, detector.findDuplicateOf(quickEntry("36.00", NOW.plusMinutes(5), "星巴克")));
+        assertEquals(1, detector.getStats().getIndexedTransactions());
+    }
+
+    @Test
+    void testFindDuplicateOf_RowsWithoutKnownMerchantNeedMatchingDescriptions() {
+        Transaction blank = quickEntry("18.00", NOW, null);
+        blank.setId(2L);
+        index(blank);
+        Transaction described = quickEntry("20.00", NOW, "地铁");
+        described.setId(3L);
+        index(described);
+
+        // 同金额同时间但双方都没有商户和描述，不能据此判为重复
+        assertNull(detector.findDuplicateOf(quickEntry("18.00", NOW.plusMinutes(5), null)));
+        assertNull(detector.findDuplicateOf(quickEntry("18.00", NOW.plusMinutes(5), AiAnalysisService.DEFAULT_DESCRIPTION)));
+        assertNull(detector.findDuplicateOf(quickEntry("20.00", NOW.plusMinutes(5), "午饭")));
+        assertEquals(3L, detector.findDuplicateOf(quickEntry("20.00", NOW.plusMinutes(5), "地铁")));
+    }
+
+    @Test
+    void testMerchantSimilarity() {
+        assertEquals(1, DuplicateDetector.merchantSimilarity("星巴克", "星巴克咖啡"));
+        assertEquals(0, DuplicateDetector.merchantSimilarity(null, "星巴克"));
+        assertEquals(0, DuplicateDetector.merchantSimilarity("", ""));
+        assertTrue(DuplicateDetector.merchantSimilarity("美团外卖-黄焖鸡", "美团 黄焖鸡米饭") >= 0.5);
+        assertEquals(0, DuplicateDetector.merchantSimilarity("滴滴出行", "星巴克"));
+    }
+
+    private void index(Transaction transaction) {
+        detector.onTransactionChanged(TransactionChangedEvent.created(transaction));
+    }
+
+    private static Transaction quickEntry(String amount, LocalDateTime date, String description) {
+        Transaction transaction = transaction(null, amount, date, AiAnalysisService.DEFAULT_MERCHANT, "快速记账", null);
+        transaction.setDescription(description);
+        return transaction;
+    }
+
+    private static Transaction transaction(Long id, String amount, LocalDateTime date, String merchant,
+                                           String source, String externalId) {
+        Transaction transaction = new Transaction(new BigDecimal(amount));
+        transaction.setId(id);
+        transaction.setTransactionDate(date);
+        transaction.setMerchant(merchant);
+        transaction.setSource(source);
+        transaction.setExternalId(externalId);
+        return transaction;
+    }
+}
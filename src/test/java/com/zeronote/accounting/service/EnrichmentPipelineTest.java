@@ -0,0 +1,152 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.EnrichmentStatus;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EnrichmentPipelineTest {
+
+    private TransactionRepository transactionRepository;
+    private TransactionService transactionService;
+    private AiAnalysisService aiAnalysisService;
+    private AiCircuitBreaker circuitBreaker;
+    private EnrichmentPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        transactionService = mock(TransactionService.class);
+        aiAnalysisService = mock(AiAnalysisService.class);
+        circuitBreaker = mock(AiCircuitBreaker.class);
+        when(circuitBreaker.isCallPermitted()).thenReturn(true);
+        // 最多3次，首次退避1秒
+        pipeline = new EnrichmentPipeline(transactionRepository, transactionService, aiAnalysisService,
+                circuitBreaker, 1, 1, 10, 3, 1000, 100, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testEnrich_FallbackDefersWithBackoffInsteadOfSleeping() {
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(result(true));
+
+        LocalDateTime before = LocalDateTime.now();
+        pipeline.enrich(pending(1L, null));
+        Transaction retried = pending(2L, 1);
+        pipeline.enrich(retried);
+
+        verify(transactionRepository).deferEnrichment(eq(1L), eq(1),
+                argThat(at -> !at.isBefore(before.plusSeconds(1)) && at.isBefore(before.plusSeconds(2))));
+        verify(transactionRepository).deferEnrichment(eq(2L), eq(2),
+                argThat(at -> !at.isBefore(before.plusSeconds(2))));
+        verify(transactionService, never()).completeEnrichment(anyLong(), any());
+        assertEquals(2, pipeline.getStats().getRetries());
+    }
+
+    @Test
+    void testEnrich_MarksFailedOnLastAttemptAndCompletesOnSuccess() {
+        AiAnalysisService.AiAnalysisResult fallback = result(true);
+        AiAnalysisService.AiAnalysisResult success = result(false);
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(fallback, success);
+
+        pipeline.enrich(pending(1L, 2));
+        pipeline.enrich(pending(2L, 2));
+
+        verify(transactionService).completeEnrichment(1L, fallback);
+        verify(transactionService).completeEnrichment(2L, success);
+        verify(transactionRepository, never()).deferEnrichment(anyLong(), anyInt(), any());
+        assertEquals(1, pipeline.getStats().getFailed());
+        assertEquals(1, pipeline.getStats().getCompleted());
+    }
+
+    @Test
+    void testEnrich_WriteErrorsConsumeAttemptsInsteadOfRetryingImmediately() {
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(result(false));
+        when(transactionService.completeEnrichment(anyLong(), any())).thenThrow(new IllegalStateException("写入失败"));
+
+        LocalDateTime before = LocalDateTime.now();
+        pipeline.enrich(pending(1L, null));
+        pipeline.enrich(pending(2L, 2));
+
+        verify(transactionRepository).deferEnrichment(eq(1L), eq(1),
+                argThat(at -> !at.isBefore(before.plusSeconds(1))));
+        verify(transactionService).failEnrichment(2L);
+        verify(transactionRepository, never()).deferEnrichment(eq(2L), anyInt(), any());
+        assertEquals(1, pipeline.getStats().getRetries());
+        assertEquals(1, pipeline.getStats().getFailed());
+        assertEquals(0, pipeline.getStats().getCompleted());
+    }
+
+    @Test
+    void testEnrich_SkipsWorkWhileCircuitIsOpen() {
+        when(circuitBreaker.isCallPermitted()).thenReturn(false);
+
+        pipeline.enrich(pending(1L, null));
+        pipeline.sweepPending();
+
+        verifyNoInteractions(aiAnalysisService, transactionService);
+        verify(transactionRepository, never()).findEnrichmentDue(any(), any());
+        verify(transactionRepository, never()).deferEnrichment(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void testEnrich_TrippingTheBreakerDoesNotConsumeAttempt() {
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenAnswer(invocation -> {
+            when(circuitBreaker.isCallPermitted()).thenReturn(false);
+            return result(true);
+        });
+
+        pipeline.enrich(pending(1L, 2));
+
+        verifyNoInteractions(transactionService);
+        verify(transactionRepository, never()).deferEnrichment(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void testSweepPending_QueriesOnlyDueRows() {
+        when(transactionRepository.findEnrichmentDue(any(), any())).thenReturn(List.of());
+
+        LocalDateTime before = LocalDateTime.now();
+        pipeline.sweepPending();
+
+        verify(transactionRepository).findEnrichmentDue(argThat(now -> !now.isBefore(before)), any());
+    }
+
+    private static Transaction pending(Long id, Integer attempts) {
+        Transaction transaction = new Transaction(new BigDecimal("35.00"));
+        transaction.setId(id);
+        transaction.setEnrichmentStatus(EnrichmentStatus.PENDING);
+        transaction.setEnrichmentAttempts(attempts);
+        return transaction;
+    }
+
+    private static AiAnalysisService.AiAnalysisResult result(boolean fallback) {
+        return AiAnalysisService.AiAnalysisResult.builder()
+                .type(TransactionType.EXPENSE)
+                .category(fallback ? TransactionCategory.OTHER : TransactionCategory.COFFEE_TEA)
+                .scenario(TransactionScenario.REGULAR)
+                .source(fallback ? ClassificationSource.DEFAULT : ClassificationSource.LLM)
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExternalIdIndexTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ExternalIdIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ExternalIdIndex(transactionRepository, 1000, 0.001);
+    }
+
+    @Test
+    void testFindExisting_QueriesOnlyIdsThatMightExist() {
+        when(transactionRepository.findExternalIdsAfter(anyLong(), any())).thenReturn(List.of(
+                view(1L, "wx-1"), view(2L, "wx-2")));
+        index.rebuild();
+        when(transactionRepository.findExistingExternalIds(List.of("wx-2"))).thenReturn(List.of("wx-2"));
+
+        assertEquals(Set.of("wx-2"), index.findExisting(List.of("wx-2", "wx-3", "wx-4")));
+        assertEquals(3, index.getLookups());
+        assertEquals(1, index.getConfirmations());
+        assertEquals(2, index.getSize());
+    }
+
+    @Test
+    void testFindExisting_TracksCommittedRowsAndQueriesAllBeforeLoad() {
+        when(transactionRepository.findExistingExternalIds(any())).thenReturn(List.of());
+
+        // 加载完成前布隆过滤器为空，全部查库确认
+        index.findExisting(List.of("wx-1", "wx-2"));
+        verify(transactionRepository).findExistingExternalIds(List.of("wx-1", "wx-2"));
+
+        when(transactionRepository.findExternalIdsAfter(anyLong(), any())).thenReturn(List.of());
+        index.rebuild();
+        Transaction transaction = new Transaction(new BigDecimal("35.00"));
+        transaction.setExternalId("wx-9");
+        index.onTransactionChanged(TransactionChangedEvent.created(transaction));
+
+        index.findExisting(List.of("wx-1", "wx-9"));
+        verify(transactionRepository).findExistingExternalIds(List.of("wx-9"));
+        assertEquals(1, index.getSize());
+    }
+
+    private static TransactionRepository.ExternalIdView view(Long id, String externalId) {
+        return new TransactionRepository.ExternalIdView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public String getExternalId() { return externalId; }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LocalClassifierTest {
+
+    private LocalClassifier localClassifier;
+
+    @BeforeEach
+    void setUp() {
+        localClassifier = new LocalClassifier(mock(TransactionRepository.class), true, 0.7, 4, 2);
+    }
+
+    @Test
+    void testClassify_KnownMerchantPrefix() {
+        localClassifier.learn(labeled("星巴克", "拿铁", TransactionCategory.COFFEE_TEA, ClassificationSource.LLM));
+        localClassifier.learn(labeled("星巴克", "美式", TransactionCategory.COFFEE_TEA, ClassificationSource.LLM));
+        localClassifier.learn(labeled("星巴克", "早餐", TransactionCategory.COFFEE_TEA, ClassificationSource.LLM));
+
+        Optional<AiAnalysisService.AiAnalysisResult> result =
+                localClassifier.classify(new BigDecimal("30"), "下午茶", "星巴克(国贸店)", null);
+
+        assertTrue(result.isPresent());
+        assertEquals(TransactionCategory.COFFEE_TEA, result.get().getCategory());
+        assertEquals(ClassificationSource.LOCAL_MODEL, result.get().getSource());
+        assertEquals(1, localClassifier.getStats().getMerchantHits());
+    }
+
+    @Test
+    void testClassify_NaiveBayesOnDescription() {
+        for (int i = 0; i < 5; i++) {
+            localClassifier.learn(labeled("滴滴出行" + i, "打车回家", TransactionCategory.TAXI_RIDESHARE, ClassificationSource.LLM));
+            localClassifier.learn(labeled("超市" + i, "买水果蔬菜", TransactionCategory.GROCERIES, ClassificationSource.LLM));
+        }
+
+        Optional<AiAnalysisService.AiAnalysisResult> result =
+                localClassifier.classify(new BigDecimal("20"), "打车去公司", null, null);
+
+        assertTrue(result.isPresent());
+        assertEquals(TransactionCategory.TAXI_RIDESHARE, result.get().getCategory());
+    }
+
+    @Test
+    void testClassify_LowConfidenceFallsThrough() {
+        localClassifier.learn(labeled("便利店", "零食", TransactionCategory.SNACKS, ClassificationSource.LLM));
+        localClassifier.learn(labeled("便利店", "日用品", TransactionCategory.GROCERIES, ClassificationSource.LLM));
+
+        assertTrue(localClassifier.classify(BigDecimal.TEN, null, "便利店", null).isEmpty());
+        assertTrue(localClassifier.classify(BigDecimal.TEN, null, null, null).isEmpty());
+        assertEquals(1, localClassifier.getStats().getLowConfidence());
+    }
+
+    @Test
+    void testLearn_SkipsLocalAndDefaultLabels() {
+        assertFalse(localClassifier.learn(labeled("星巴克", "拿铁", TransactionCategory.COFFEE_TEA, ClassificationSource.LOCAL_MODEL)));
+        assertFalse(localClassifier.learn(labeled("星巴克", "拿铁", TransactionCategory.OTHER, ClassificationSource.DEFAULT)));
+        assertTrue(localClassifier.learn(labeled("星巴克", "拿铁", TransactionCategory.COFFEE_TEA, ClassificationSource.CACHE)));
+
+        assertEquals(1, localClassifier.getStats().getTrainingSamples());
+    }
+
+    @Test
+    void testForget_RemovesContribution() {
+        Transaction transaction = labeled("星巴克", "拿铁", TransactionCategory.COFFEE_TEA, ClassificationSource.LLM);
+        localClassifier.learn(transaction);
+        localClassifier.learn(transaction);
+        localClassifier.forget(transaction);
+        localClassifier.forget(transaction);
+
+        assertEquals(0, localClassifier.getStats().getTrainingSamples());
+        assertEquals(0, localClassifier.getStats().getVocabularySize());
+        assertTrue(localClassifier.classify(BigDecimal.TEN, null, "星巴克", null).isEmpty());
+    }
+
+    private Transaction labeled(String merchant, String description, TransactionCategory category,
+                                ClassificationSource source) {
+        Transaction transaction = new Transaction(new BigDecimal("25.00"));
+        transaction.setType(TransactionType.EXPENSE);
+        transaction.setCategory(category);
+        transaction.setScenario(TransactionScenario.REGULAR);
+        transaction.setMerchant(merchant);
+        transaction.setDescription(description);
+        transaction.setClassificationSource(source);
+        return transaction;
+    }
+}
@@ -0,0 +1,104 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecurringDetectorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private RecurringDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new RecurringDetector(transactionRepository, true, 3, 12, 0.15, 0.05, 0.5);
+        when(transactionRepository.findRecurringViewsAfter(anyLong(), any())).thenReturn(List.of());
+        detector.load();
+    }
+
+    @Test
+    void testDetect_LabelsMonthlySubscriptionOnThirdCharge() {
+        // 大小月交替，间隔29~31天
+        index(transaction(1L, "Netflix", "45.00", START));
+        index(transaction(2L, "netflix ", "45.00", START.plusMonths(1)));
+        assertNull(detector.detect(transaction(null, "Netflix", "45.00", START.plusDays(40))));
+
+        RecurringDetector.Detection detection = detector.detect(
+                transaction(null, "NETFLIX", "45.00", START.plusMonths(2)));
+        assertEquals(TransactionScenario.SUBSCRIPTION, detection.getScenario());
+        assertEquals(List.of(1L, 2L), detection.getRegularIds());
+
+        index(transaction(3L, "Netflix", "45.00", START.plusMonths(2)));
+        List<RecurringDetector.Subscription> subscriptions = detector.getSubscriptions(LocalDate.of(2024, 4, 1));
+        assertEquals(1, subscriptions.size());
+        assertEquals(LocalDate.of(2024, 4, 30), subscriptions.get(0).getNextExpectedDate());
+        assertEquals(Money.of("45.00"), subscriptions.get(0).getExpectedAmount());
+        // 超过预计日期加容差后不再活跃
+        assertTrue(detector.getSubscriptions(LocalDate.of(2024, 6, 1)).isEmpty());
+    }
+
+    @Test
+    void testDetect_VaryingAmountIsRecurringAndIrregularIsNot() {
+        index(transaction(1L, "国家电网", "120.00", START));
+        index(transaction(2L, "国家电网", "95.50", START.plusMonths(1)));
+        index(transaction(3L, "瑞幸咖啡", "15.00", START));
+        index(transaction(4L, "瑞幸咖啡", "15.00", START.plusDays(2)));
+
+        assertEquals(TransactionScenario.RECURRING, detector.detect(
+                transaction(null, "国家电网", "150.00", START.plusMonths(2))).getScenario());
+        assertNull(detector.detect(transaction(null, "国家电网", "400.00", START.plusMonths(2))));
+        assertNull(detector.detect(transaction(null, "瑞幸咖啡", "15.00", START.plusDays(20))));
+        assertNull(detector.detect(transaction(null, AiAnalysisService.DEFAULT_MERCHANT, "15.00", START)));
+    }
+
+    @Test
+    void testOnTransactionChanged_RemovesDeletedAndDuplicateRows() {
+        index(transaction(1L, "爱奇艺", "25.00", START));
+        index(transaction(2L, "爱奇艺", "25.00", START.plusMonths(1)));
+        index(transaction(3L, "爱奇艺", "25.00", START.plusMonths(2)));
+        assertEquals(1, detector.getSubscriptions(LocalDate.of(2024, 4, 1)).size());
+
+        // 疑似重复的交易不计入，否则同一天的间隔会破坏周期
+        Transaction duplicate = transaction(4L, "爱奇艺", "25.00", START.plusMonths(2));
+        duplicate.setDuplicateOfId(3L);
+        index(duplicate);
+        assertEquals(1, detector.getSubscriptions(LocalDate.of(2024, 4, 1)).size());
+
+        detector.onTransactionChanged(TransactionChangedEvent.deleted(transaction(2L, "爱奇艺", "25.00", START)));
+        assertTrue(detector.getSubscriptions(LocalDate.of(2024, 4, 1)).isEmpty());
+    }
+
+    private void index(Transaction transaction) {
+        detector.onTransactionChanged(TransactionChangedEvent.created(transaction));
+    }
+
+    private static Transaction transaction(Long id, String merchant, String amount, LocalDateTime date) {
+        Transaction transaction = new Transaction(new BigDecimal(amount));
+        transaction.setId(id);
+        transaction.setMerchant(merchant);
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+}
@@ -0,0 +1,154 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.DailyRollupRepository;
+import com.zeronote.accounting.repository.MonthlyRollupRepository;
+import com.zeronote.accounting.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RollupServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private DailyRollupRepository dailyRollupRepository;
+
+    @Mock
+    private MonthlyRollupRepository monthlyRollupRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private RollupService rollupService;
+
+    @Test
+    void testPlan_SplitsIntoRawEdgesDaysAndMonths() {
+        List<RollupService.Segment> segments = RollupService.plan(
+                LocalDateTime.of(2024, 1, 15, 10, 0), LocalDateTime.of(2024, 4, 10, 12, 0));
+
+        assertEquals(List.of(
+                "RAW[2024-01-15T10:00, 2024-01-16T00:00)",
+                "DAILY[2024-01-16, 2024-01-31]",
+                "MONTHLY[2024-02-01, 2024-03-01]",
+                "DAILY[2024-04-01, 2024-04-09]",
+                "RAW[2024-04-10T00:00, 2024-04-10T12:00:00.000000001)"
+        ), segments.stream().map(Object::toString).toList());
+    }
+
+    @Test
+    void testPlan_WholeMonthsAndSameDay() {
+        List<RollupService.Segment> wholeMonths = RollupService.plan(
+                LocalDate.of(2024, 1, 1).atStartOfDay(), LocalDate.of(2024, 12, 31).atTime(LocalTime.MAX));
+        List<RollupService.Segment> sameDay = RollupService.plan(
+                LocalDateTime.of(2024, 1, 15, 8, 0), LocalDateTime.of(2024, 1, 15, 20, 0));
+
+        assertEquals(List.of("MONTHLY[2024-01-01, 2024-12-01]"), wholeMonths.stream().map(Object::toString).toList());
+        assertEquals(1, sameDay.size());
+        assertEquals(RollupService.Segment.Kind.RAW, sameDay.get(0).kind);
+    }
+
+    @Test
+    void testOnTransactionChanged_MovesAmountBetweenBuckets() {
+        Transaction previous = new Transaction(new BigDecimal("30.00"));
+        previous.setCategory(TransactionCategory.FOOD_DINING);
+        previous.setTransactionDate(LocalDateTime.of(2024, 3, 5, 12, 0));
+        Transaction current = new Transaction(previous);
+        current.setCategory(TransactionCategory.COFFEE_TEA);
+
+        rollupService.onTransactionChanged(TransactionChangedEvent.updated(previous, current));
+
+        LocalDate day = LocalDate.of(2024, 3, 5);
+        verify(dailyRollupRepository).mergeDelta(eq(day), eq("EXPENSE"), eq("FOOD_DINING"), eq("REGULAR"),
+                eq(new BigDecimal("-30.00")), eq(-1L));
+        verify(dailyRollupRepository).mergeDelta(eq(day), eq("EXPENSE"), eq("COFFEE_TEA"), eq("REGULAR"),
+                eq(new BigDecimal("30.00")), eq(1L));
+        verify(monthlyRollupRepository, times(2)).mergeDelta(eq(LocalDate.of(2024, 3, 1)), any(), any(), any(),
+                any(), anyLong());
+        verify(dailyRollupRepository).deleteIfEmpty(day, "EXPENSE", "FOOD_DINING", "REGULAR");
+        verify(dailyRollupRepository, never()).deleteIfEmpty(day, "EXPENSE", "COFFEE_TEA", "REGULAR");
+    }
+
+    @Test
+    void testCommit_LocksOnlyTouchedBuckets() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            rollupService.onTransactionChanged(TransactionChangedEvent.created(
+                    transaction(TransactionCategory.FOOD_DINING)));
+            TransactionSynchronization commit = TransactionSynchronizationManager.getSynchronizations().get(0);
+            commit.beforeCommit(false);
+
+            // 持锁期间其他分类的写入不被阻塞，同一时间桶的写入等到事务结束
+            other.submit(() -> rollupService.onTransactionChanged(TransactionChangedEvent.created(
+                    transaction(TransactionCategory.COFFEE_TEA)))).get(5, TimeUnit.SECONDS);
+            Future<?> sameBucket = other.submit(() -> rollupService.onTransactionChanged(
+                    TransactionChangedEvent.created(transaction(TransactionCategory.FOOD_DINING))));
+            assertThrows(TimeoutException.class, () -> sameBucket.get(200, TimeUnit.MILLISECONDS));
+
+            commit.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            sameBucket.get(5, TimeUnit.SECONDS);
+            verify(dailyRollupRepository, times(2)).mergeDelta(any(), any(), eq("FOOD_DINING"), any(), any(), anyLong());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAggregate_CombinesSegments() {
+        when(transactionRepository.sumByTypeAndCategory(any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{TransactionType.EXPENSE, TransactionCategory.FOOD_DINING, new BigDecimal("10.00"), 1L}));
+        when(dailyRollupRepository.sumByTypeAndCategory(any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{TransactionType.EXPENSE, TransactionCategory.FOOD_DINING, new BigDecimal("20.00"), 2L}));
+
+        // 首尾两段读交易表，中间整天读日汇总
+        List<RollupService.RollupTotal> totals = rollupService.aggregate(
+                LocalDateTime.of(2024, 1, 15, 10, 0), LocalDateTime.of(2024, 1, 20, 23, 0));
+
+        assertEquals(1, totals.size());
+        assertEquals(Money.of("40.00"), totals.get(0).getTotalAmount());
+        assertEquals(4, totals.get(0).getTransactionCount());
+    }
+
+    private static Transaction transaction(TransactionCategory category) {
+        Transaction transaction = new Transaction(new BigDecimal("30.00"));
+        transaction.setCategory(category);
+        transaction.setTransactionDate(LocalDateTime.of(2024, 3, 5, 12, 0));
+        return transaction;
+    }
+}
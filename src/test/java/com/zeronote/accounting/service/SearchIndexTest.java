@@ -0,0 +1,98 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionRepository.findSearchViewsAfter(anyLong(), any())).thenReturn(List.of());
+        searchIndex.rebuild();
+        index(1L, "星巴克咖啡", "早餐拿铁", 1);
+        index(2L, "瑞幸", "星巴克旁边买的咖啡", 2);
+        index(3L, "星巴克", "下午茶", 3);
+        index(4L, "McDonald's", "Big Mac meal", 4);
+    }
+
+    @Test
+    void testTokenize_BigramsPerRun() {
+        assertEquals(Set.of("星巴", "巴克", "la", "at", "tt", "te"), SearchIndex.tokenize("星巴克 latte"));
+        assertTrue(SearchIndex.tokenize("a 咖").isEmpty());
+        assertEquals(Set.of("a", "咖", "啡"), SearchIndex.queryTerms("a 咖-啡"));
+    }
+
+    @Test
+    void testSearch_RanksMerchantMatchesBeforeDescription() {
+        SearchIndex.SearchResult result = searchIndex.search("星巴克", 0, 10);
+
+        // 商户完全匹配 > 商户前缀匹配 > 仅描述匹配
+        assertEquals(List.of(3L, 1L, 2L), result.getIds());
+        assertEquals(3, result.getTotal());
+        assertEquals(List.of(2L), searchIndex.search("星巴克", 1, 2).getIds());
+    }
+
+    @Test
+    void testSearch_SubstringSemanticsAndSingleCharacter() {
+        assertEquals(List.of(4L), searchIndex.search("BIG MAC", 0, 10).getIds());
+        assertEquals(List.of(1L, 2L), searchIndex.search("啡", 0, 10).getIds());
+        assertEquals(List.of(4L), searchIndex.search("m", 0, 10).getIds());
+        assertEquals(List.of(4L), searchIndex.search("d's", 0, 10).getIds());
+        // 两个二元词都存在但不相邻，不应命中
+        assertTrue(searchIndex.search("克拿", 0, 10).getIds().isEmpty());
+        assertTrue(searchIndex.search("茶 拿", 0, 10).getIds().isEmpty());
+        // 单字查询走单字倒排表，只有没有字母数字的查询才逐条校验
+        assertEquals(0, searchIndex.getStats().getFullScans());
+        assertEquals(List.of(4L), searchIndex.search("'", 0, 10).getIds());
+        assertEquals(1, searchIndex.getStats().getFullScans());
+    }
+
+    @Test
+    void testOnTransactionChanged_ReplacesAndRemovesDocuments() {
+        Transaction previous = transaction(1L, "星巴克咖啡", "早餐拿铁", 1);
+        Transaction current = transaction(1L, "Costa", "早餐拿铁", 1);
+        searchIndex.onTransactionChanged(TransactionChangedEvent.updated(previous, current));
+        searchIndex.onTransactionChanged(TransactionChangedEvent.deleted(transaction(3L, "星巴克", "下午茶", 3)));
+
+        assertEquals(List.of(2L), searchIndex.search("星巴克", 0, 10).getIds());
+        assertEquals(List.of(1L), searchIndex.search("costa", 0, 10).getIds());
+        assertEquals(3, searchIndex.getStats().getDocuments());
+    }
+
+    private void index(Long id, String merchant, String description, int day) {
+        searchIndex.onTransactionChanged(TransactionChangedEvent.created(transaction(id, merchant, description, day)));
+    }
+
+    private static Transaction transaction(Long id, String merchant, String description, int day) {
+        Transaction transaction = new Transaction(new BigDecimal("10.00"));
+        transaction.setId(id);
+        transaction.setMerchant(merchant);
+        transaction.setDescription(description);
+        transaction.setTransactionDate(LocalDateTime.of(2024, 1, day, 12, 0));
+        return transaction;
+    }
+}
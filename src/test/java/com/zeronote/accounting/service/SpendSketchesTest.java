@@ -0,0 +1,157 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Money;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionType;
+import com.zeronote.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendSketchesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private SpendSketches spendSketches;
+
+    @BeforeEach
+    void setUp() {
+        spendSketches = newSketches();
+        when(transactionRepository.findExpenseSketchViewsAfter(anyLong(), any())).thenReturn(List.of());
+        spendSketches.load();
+        for (int i = 1; i <= 100; i++) {
+            add(i, String.valueOf(i), 1, TransactionCategory.FOOD_DINING, i % 4 == 0 ? "麦当劳" : "食堂");
+        }
+        add(101, "30", 2, TransactionCategory.FOOD_DINING, "麦当劳");
+        add(102, "5000", 1, TransactionCategory.RENT, null);
+    }
+
+    @Test
+    void testPercentiles_MergesMonthsWithinRelativeError() {
+        SpendSketches.SpendPercentiles january = spendSketches.percentiles(TransactionCategory.FOOD_DINING,
+                YearMonth.of(2024, 1), YearMonth.of(2024, 1));
+
+        assertEquals(100, january.getTransactionCount());
+        assertWithin(Money.of("50"), january.getP50());
+        assertWithin(Money.of("90"), january.getP90());
+        assertWithin(Money.of("99"), january.getP99());
+        assertEquals(101, spendSketches.percentiles(TransactionCategory.FOOD_DINING, null, null).getTransactionCount());
+        assertNull(spendSketches.percentiles(TransactionCategory.TRAVEL, null, null).getP50());
+    }
+
+    @Test
+    void testOnTransactionChanged_IgnoresIncomeAndAppliesUpdates() {
+        Transaction income = transaction(200, "8000", 1, TransactionCategory.FOOD_DINING, "公司");
+        income.setType(TransactionType.INCOME);
+        spendSketches.onTransactionChanged(TransactionChangedEvent.created(income));
+        Transaction previous = transaction(101, "30", 2, TransactionCategory.FOOD_DINING, "麦当劳");
+        Transaction current = transaction(101, "30", 2, TransactionCategory.COFFEE_TEA, "星巴克");
+        spendSketches.onTransactionChanged(TransactionChangedEvent.updated(previous, current));
+
+        assertEquals(100, spendSketches.percentiles(TransactionCategory.FOOD_DINING, null, null).getTransactionCount());
+        SpendSketches.TopMerchants food = spendSketches.topMerchants(TransactionCategory.FOOD_DINING, 10);
+        assertEquals(List.of("食堂", "麦当劳"), food.getMerchants().stream()
+                .map(SpendSketches.MerchantCount::getMerchant).toList());
+        assertEquals(75, food.getMerchants().get(0).getCount());
+        assertEquals(25, food.getMerchants().get(1).getCount());
+        assertEquals(3, spendSketches.topMerchants(null, 10).getMerchants().size());
+    }
+
+    @Test
+    void testOnTransactionChanged_RemovalDoesNotCreateEmptySketches() {
+        // 草图中没有的月份：计入偏差，不新建空草图
+        spendSketches.onTransactionChanged(TransactionChangedEvent.deleted(
+                transaction(300, "12", 6, TransactionCategory.TRAVEL, "携程")));
+        assertEquals(1, spendSketches.getStats().getDriftCount());
+        assertEquals(3, spendSketches.getStats().getQuantileSketches());
+
+        spendSketches.onTransactionChanged(TransactionChangedEvent.deleted(
+                transaction(102, "5000", 1, TransactionCategory.RENT, null)));
+        assertEquals(2, spendSketches.getStats().getQuantileSketches());
+    }
+
+    @Test
+    void testFlushIfDirty_RebuildsWhenMerchantChurnLoosensBound() {
+        // 反复修改同一笔交易的商户：累计写入笔数增长而当前笔数不变
+        Transaction current = transaction(101, "30", 2, TransactionCategory.FOOD_DINING, "麦当劳");
+        for (int i = 0; i < 110; i++) {
+            Transaction next = new Transaction(current);
+            next.setMerchant("商户" + i);
+            spendSketches.onTransactionChanged(TransactionChangedEvent.updated(current, next));
+            current = next;
+        }
+        assertTrue(spendSketches.topMerchants(TransactionCategory.FOOD_DINING, 1).getMaxOverestimate() > 10);
+
+        spendSketches.flushIfDirty();
+        verify(transactionRepository, times(2)).findExpenseSketchViewsAfter(anyLong(), any());
+    }
+
+    @Test
+    void testLoad_RestoresFromFileOnlyWhenTotalsMatch() {
+        spendSketches.flush();
+
+        when(transactionRepository.countAndSumExpenses()).thenReturn(List.<Object[]>of(
+                new Object[]{102L, new BigDecimal("10080.00")}));
+        SpendSketches restored = newSketches();
+        restored.load();
+        assertEquals(102, restored.getStats().getExpenseCount());
+        assertEquals(spendSketches.percentiles(TransactionCategory.FOOD_DINING, null, null).getP90(),
+                restored.percentiles(TransactionCategory.FOOD_DINING, null, null).getP90());
+        assertEquals(75, restored.topMerchants(TransactionCategory.FOOD_DINING, 1).getMerchants().get(0).getCount());
+
+        // 交易表多了一笔，文件作废并从交易表重建
+        when(transactionRepository.countAndSumExpenses()).thenReturn(List.<Object[]>of(
+                new Object[]{103L, new BigDecimal("10090.00")}));
+        SpendSketches rebuilt = newSketches();
+        rebuilt.load();
+        assertEquals(0, rebuilt.getStats().getExpenseCount());
+        verify(transactionRepository, times(2)).findExpenseSketchViewsAfter(anyLong(), any());
+    }
+
+    private SpendSketches newSketches() {
+        return new SpendSketches(transactionRepository, true, 0.01, 10,
+                tempDir.resolve("sketches.json").toString());
+    }
+
+    private void add(long id, String amount, int month, TransactionCategory category, String merchant) {
+        spendSketches.onTransactionChanged(TransactionChangedEvent.created(
+                transaction(id, amount, month, category, merchant)));
+    }
+
+    private static Transaction transaction(long id, String amount, int month, TransactionCategory category,
+                                           String merchant) {
+        Transaction transaction = new Transaction(new BigDecimal(amount));
+        transaction.setId(id);
+        transaction.setType(TransactionType.EXPENSE);
+        transaction.setCategory(category);
+        transaction.setMerchant(merchant);
+        transaction.setTransactionDate(LocalDateTime.of(2024, month, 10, 12, 0));
+        return transaction;
+    }
+
+    private static void assertWithin(Money expected, Money actual) {
+        long error = Math.abs(expected.getMinorUnits() - actual.getMinorUnits());
+        assertTrue(error <= expected.getMinorUnits() * 0.01 + 1, () -> expected + " ~ " + actual);
+    }
+}
@@ -0,0 +1,126 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.model.TransactionScenario;
+import com.zeronote.accounting.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class StatementImportServiceTest {
+
+    private AiAnalysisService aiAnalysisService;
+    private TransactionService transactionService;
+    private ExternalIdIndex externalIdIndex;
+    private StatementImportService importService;
+    private final List<String> savedExternalIds = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        aiAnalysisService = mock(AiAnalysisService.class);
+        transactionService = mock(TransactionService.class);
+        externalIdIndex = mock(ExternalIdIndex.class);
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any())).thenReturn(
+                AiAnalysisService.AiAnalysisResult.builder()
+                        .type(TransactionType.EXPENSE)
+                        .category(TransactionCategory.SHOPPING)
+                        .scenario(TransactionScenario.REGULAR)
+                        .source(ClassificationSource.LLM)
+                        .build());
+        when(transactionService.saveImportedTransactions(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> savedExternalIds.add(transaction.getExternalId()));
+            return transactions;
+        });
+        // 每块2行
+        importService = new StatementImportService(new StatementParser(), aiAnalysisService, transactionService,
+                externalIdIndex, 2, 2, 10, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void testImport_SkipsDuplicatesWithinFileAndAgainstExistingRows() throws Exception {
+        when(externalIdIndex.findExisting(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.contains("B003") ? Set.of("B003") : Set.of();
+        });
+
+        StatementImportService.ImportJob job = importAndWait("记账日期,摘要,交易金额,流水号\n"
+                + "2024/3/5,超市购物,-88.8,B001\n"
+                + "2024/3/6,便利店,-12.5,B002\n"
+                + "2024/3/7,超市购物,-88.8,B001\n"
+                + "2024/3/8,已导入,-20,B003\n"
+                + "2024/3/9,水果,-30,B004\n");
+
+        assertEquals(StatementImportService.ImportStatus.COMPLETED, job.getStatus());
+        assertEquals(5, job.getTotalRows());
+        assertEquals(3, job.getImported());
+        assertEquals(2, job.getSkippedDuplicates());
+        assertEquals(List.of("B001", "B002", "B004"), savedExternalIds);
+        // 文件内已出现过的ID不再查库
+        verify(externalIdIndex).findExisting(Set.of("B001", "B002"));
+        verify(externalIdIndex).findExisting(Set.of("B003"));
+        verify(externalIdIndex).findExisting(Set.of("B004"));
+    }
+
+    @Test
+    void testImport_FallsBackToRowByRowSaveWithLineErrors() throws Exception {
+        when(externalIdIndex.findExisting(any())).thenReturn(Set.of());
+        when(transactionService.saveImportedTransactions(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            if (transactions.size() > 1 || "C002".equals(transactions.get(0).getExternalId())) {
+                throw new DataIntegrityViolationException("外部ID重复");
+            }
+            savedExternalIds.add(transactions.get(0).getExternalId());
+            return transactions;
+        });
+
+        StatementImportService.ImportJob job = importAndWait("记账日期,摘要,交易金额,流水号\n"
+                + "2024/3/5,超市购物,-88.8,C001\n"
+                + "2024/3/6,便利店,-12.5,C002\n"
+                + "2024/3/7,工资,abc,C003\n"
+                + "2024/3/8,水果,-30,C004\n");
+
+        assertEquals(StatementImportService.ImportStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getImported());
+        assertEquals(2, job.getFailed());
+        assertEquals(List.of("C001", "C004"), savedExternalIds);
+        List<StatementImportService.RowError> errors = job.getErrors();
+        // 第3行整块写入失败后单独重试仍失败，第4行解析失败
+        assertEquals(List.of(3, 4), errors.stream().map(StatementImportService.RowError::getLineNumber).toList());
+        assertTrue(errors.get(0).getMessage().startsWith("保存失败"));
+    }
+
+    private StatementImportService.ImportJob importAndWait(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "statement.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        StatementImportService.ImportJob job = importService.startImport(file, StatementParser.Format.CSV,
+                StandardCharsets.UTF_8, "银行账单");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getStatus() == StatementImportService.ImportStatus.RUNNING) {
+            assertTrue(System.currentTimeMillis() < deadline, "导入超时");
+            Thread.sleep(10);
+        }
+        return job;
+    }
+}
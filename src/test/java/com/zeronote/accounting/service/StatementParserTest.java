@@ -0,0 +1,88 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementParserTest {
+
+    private final StatementParser parser = new StatementParser();
+
+    @Test
+    void testParseCsv_SkipsPreambleAndHandlesQuotedFields() throws Exception {
+        String csv = "\uFEFF微信支付账单明细\n"
+                + "起始时间：[2024-01-01 00:00:00]\n"
+                + "\n"
+                + "交易时间,交易类型,交易对方,商品,收/支,金额(元),支付方式,当前状态,交易单号\n"
+                + "2024-01-02 08:30:00,商户消费,星巴克,\"拿铁,大杯\",支出,¥32.00,零钱,支付成功,4200001\t\n"
+                + "2024-01-03 12:00:00,转账,张三,\"午饭\n AA\",收入,\"¥1,200.50\",零钱,已收钱,4200002\t\n"
+                + ",,,,,,,,\n";
+
+        List<StatementParser.ParsedRow> rows = parse(csv, StatementParser.Format.CSV, StandardCharsets.UTF_8);
+
+        assertEquals(2, rows.size());
+        StatementParser.ParsedRow first = rows.get(0);
+        assertTrue(first.isValid());
+        assertEquals(new BigDecimal("32.00"), first.getRequest().getAmount());
+        assertEquals("星巴克", first.getRequest().getMerchant());
+        assertEquals("拿铁,大杯", first.getRequest().getDescription());
+        assertEquals("4200001", first.getRequest().getExternalId());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 8, 30), first.getRequest().getTransactionDate());
+        assertEquals(TransactionType.EXPENSE, first.getTypeHint());
+        assertEquals(5, first.getLineNumber());
+
+        StatementParser.ParsedRow second = rows.get(1);
+        assertEquals(new BigDecimal("1200.50"), second.getRequest().getAmount());
+        assertEquals(TransactionType.INCOME, second.getTypeHint());
+        assertTrue(second.getRequest().getDescription().contains("AA"));
+    }
+
+    @Test
+    void testParseCsv_GbkNegativeAmountAndRowErrors() throws Exception {
+        String csv = "记账日期,摘要,交易金额,流水号\n"
+                + "2024/3/5,超市购物,-88.8,B001\n"
+                + "2024/3/6,工资,abc,B002\n";
+
+        List<StatementParser.ParsedRow> rows = parse(csv, StatementParser.Format.CSV, Charset.forName("GBK"));
+
+        assertEquals(2, rows.size());
+        assertEquals(new BigDecimal("88.8"), rows.get(0).getRequest().getAmount());
+        assertEquals(TransactionType.EXPENSE, rows.get(0).getTypeHint());
+        assertEquals(LocalDateTime.of(2024, 3, 5, 0, 0), rows.get(0).getRequest().getTransactionDate());
+        assertFalse(rows.get(1).isValid());
+        assertEquals(3, rows.get(1).getLineNumber());
+    }
+
+    @Test
+    void testParseJson_ArrayAndNdjson() throws Exception {
+        String array = "[{\"amount\": 25.5, \"merchant\": \"麦当劳\", \"externalId\": \"J1\"},"
+                + " {\"amount\": 12, \"description\": \"地铁\"}]";
+        String ndjson = "{\"amount\": 25.5, \"merchant\": \"麦当劳\"}\n{\"merchant\": \"缺金额\"}\n";
+
+        List<StatementParser.ParsedRow> arrayRows = parse(array, StatementParser.Format.JSON, StandardCharsets.UTF_8);
+        List<StatementParser.ParsedRow> ndjsonRows = parse(ndjson, StatementParser.Format.JSON, StandardCharsets.UTF_8);
+
+        assertEquals(2, arrayRows.size());
+        assertEquals("J1", arrayRows.get(0).getRequest().getExternalId());
+        assertEquals("地铁", arrayRows.get(1).getRequest().getDescription());
+        assertEquals(2, ndjsonRows.size());
+        assertTrue(ndjsonRows.get(0).isValid());
+        assertFalse(ndjsonRows.get(1).isValid());
+    }
+
+    private List<StatementParser.ParsedRow> parse(String content, StatementParser.Format format, Charset charset)
+            throws Exception {
+        List<StatementParser.ParsedRow> rows = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(content.getBytes(charset)), format, charset, rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,88 @@
+package com.zeronote.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zeronote.accounting.model.Transaction;
+import com.zeronote.accounting.model.TransactionCategory;
+import com.zeronote.accounting.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private TransactionExportService exportService;
+    private Transaction first;
+    private Transaction second;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new TransactionExportService(transactionRepository, entityManager,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+
+        first = new Transaction(new BigDecimal("25.50"));
+        first.setId(1L);
+        first.setMerchant("星巴克");
+        first.setDescription("拿铁,大杯 \"热\"");
+        first.setCategory(TransactionCategory.COFFEE_TEA);
+        first.setTransactionDate(LocalDateTime.of(2024, 1, 2, 8, 30));
+
+        second = new Transaction(new BigDecimal("12.00"));
+        second.setId(2L);
+        second.setTransactionDate(LocalDateTime.of(2024, 1, 3, 9, 0));
+    }
+
+    @Test
+    void testExportNdjson_WritesOneObjectPerLineAndDetaches() throws Exception {
+        when(transactionRepository.streamByTransactionDateBetween(any(), any()))
+                .thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exportService.export(LocalDateTime.MIN, LocalDateTime.MAX,
+                TransactionExportService.Format.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(2, lines.length);
+        JsonNode node = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1, node.get("id").asLong());
+        assertEquals("COFFEE_TEA", node.get("category").asText());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void testExportCsv_EscapesFields() throws Exception {
+        when(transactionRepository.streamByTransactionDateBetween(any(), any()))
+                .thenReturn(Stream.of(first));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.export(LocalDateTime.MIN, LocalDateTime.MAX, TransactionExportService.Format.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].startsWith("\uFEFFid,transactionDate,amount"));
+        assertEquals("1,2024-01-02T08:30,25.50,EXPENSE,COFFEE_TEA,REGULAR,星巴克,\"拿铁,大杯 \"\"热\"\"\",,,,",
+                lines[1]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.zeronote.accounting.service;
+
+import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.event.TransactionChangedEvent;
+import com.zeronote.accounting.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionResponseCacheTest {
+
+    private TransactionResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TransactionResponseCache(true, 100);
+        List<TransactionResponse> recent = new ArrayList<>();
+        for (long id = 1; id <= TransactionResponseCache.RECENT_SIZE; id++) {
+            recent.add(TransactionService.convertToResponse(transaction(id, (int) id)));
+        }
+        cache.putRecent(cache.generation(), recent);
+    }
+
+    @Test
+    void testGet_InvalidatedByCommittedChange() {
+        cache.put(cache.generation(), TransactionService.convertToResponse(transaction(1L, 1)));
+        assertNotNull(cache.get(1L));
+
+        cache.onTransactionChanged(TransactionChangedEvent.updated(transaction(1L, 1), transaction(1L, 1)));
+
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getMissCount());
+    }
+
+    @Test
+    void testPut_DiscardsFillStartedBeforeCommit() {
+        long generation = cache.generation();
+        cache.onTransactionChanged(TransactionChangedEvent.created(transaction(50L, 1)));
+
+        cache.put(generation, TransactionService.convertToResponse(transaction(2L, 2)));
+
+        assertNull(cache.get(2L));
+    }
+
+    @Test
+    void testRecent_NewTransactionPushesOutOldest() {
+        cache.onTransactionChanged(TransactionChangedEvent.created(transaction(11L, 20)));
+
+        List<Long> ids = cache.getRecent().stream().map(TransactionResponse::getId).toList();
+        assertEquals(List.of(11L, 10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L), ids);
+    }
+
+    @Test
+    void testRecent_OlderTransactionIgnoredAndMemberDeleteInvalidates() {
+        cache.onTransactionChanged(TransactionChangedEvent.created(transaction(11L, 0)));
+        assertEquals(10L, cache.getRecent().get(0).getId());
+        assertFalse(cache.getRecent().stream().anyMatch(response -> response.getId() == 11L));
+
+        // 成员被删除后第11条未知，需要重新加载
+        cache.onTransactionChanged(TransactionChangedEvent.deleted(transaction(5L, 5)));
+        assertNull(cache.getRecent());
+    }
+
+    @Test
+    void testRecent_MemberMovedPastBoundaryInvalidates() {
+        cache.onTransactionChanged(TransactionChangedEvent.updated(transaction(9L, 9), transaction(9L, 15)));
+        assertEquals(9L, cache.getRecent().get(0).getId());
+
+        cache.onTransactionChanged(TransactionChangedEvent.updated(transaction(3L, 3), transaction(3L, 0)));
+        assertNull(cache.getRecent());
+    }
+
+    private static Transaction transaction(Long id, int hour) {
+        Transaction transaction = new Transaction(new BigDecimal("10.00"));
+        transaction.setId(id);
+        transaction.setTransactionDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(hour));
+        return transaction;
+    }
+}
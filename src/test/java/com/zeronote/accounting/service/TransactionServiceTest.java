@@ -1,25 +1,35 @@
 package com.zeronote.accounting.service;
 
+import com.zeronote.accounting.dto.CursorPage;
+import com.zeronote.accounting.dto.TransactionPatchRequest;
 import com.zeronote.accounting.dto.TransactionRequest;
 import com.zeronote.accounting.dto.TransactionResponse;
+import com.zeronote.accounting.model.ClassificationSource;
+import com.zeronote.accounting.model.EnrichmentStatus;
 import com.zeronote.accounting.model.Transaction;
 import com.zeronote.accounting.model.TransactionCategory;
 import com.zeronote.accounting.model.TransactionScenario;
 import com.zeronote.accounting.model.TransactionType;
 import com.zeronote.accounting.repository.TransactionRepository;
+import com.zeronote.accounting.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +41,24 @@ class TransactionServiceTest {
     @Mock
     private AiAnalysisService aiAnalysisService;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private RollupService rollupService;
+    
+    @Mock
+    private SearchIndex searchIndex;
+    
+    @Mock
+    private TransactionResponseCache responseCache;
+    
+    @Mock
+    private DuplicateDetector duplicateDetector;
+    
+    @Mock
+    private RecurringDetector recurringDetector;
+    
     @InjectMocks
     private TransactionService transactionService;
     
@@ -100,6 +128,71 @@ class TransactionServiceTest {
         verify(transactionRepository).save(any(Transaction.class));
     }
     
+    @Test
+    void testCreateTransaction_FallbackKeepsUserInput() {
+        // 准备
+        AiAnalysisService.AiAnalysisResult fallback = AiAnalysisService.AiAnalysisResult.builder()
+                .type(TransactionType.EXPENSE)
+                .category(TransactionCategory.OTHER)
+                .scenario(TransactionScenario.REGULAR)
+                .merchant("未知商户")
+                .description("交易")
+                .analysis(AiAnalysisService.DEFAULT_ANALYSIS)
+                .source(ClassificationSource.DEFAULT)
+                .build();
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(fallback);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // 执行
+        TransactionResponse response = transactionService.createTransaction(testRequest);
+        
+        // 验证：保留原始描述与商户，供之后重新分类
+        assertEquals("午餐", response.getDescription());
+        assertEquals("星巴克", response.getMerchant());
+        assertEquals(ClassificationSource.DEFAULT, response.getClassificationSource());
+    }
+    
+    @Test
+    void testCreateTransaction_AsyncModeSavesPendingWithoutLlm() {
+        // 准备
+        ReflectionTestUtils.setField(transactionService, "asyncEnrichment", true);
+        when(aiAnalysisService.analyzeLocally(any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // 执行
+        TransactionResponse response = transactionService.createTransaction(testRequest);
+        
+        // 验证
+        assertEquals(EnrichmentStatus.PENDING, response.getEnrichmentStatus());
+        assertEquals(testRequest.getMerchant(), response.getMerchant());
+        assertEquals(TransactionCategory.OTHER, response.getCategory());
+        verify(aiAnalysisService, never()).analyzeTransaction(any(), any(), any(), any());
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+    
+    @Test
+    void testCompleteEnrichment_AppliesAnalysisToPendingTransaction() {
+        // 准备
+        testTransaction.setCategory(TransactionCategory.OTHER);
+        testTransaction.setEnrichmentStatus(EnrichmentStatus.PENDING);
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // 执行
+        Optional<TransactionResponse> response = transactionService.completeEnrichment(1L, testAnalysis);
+        
+        // 验证
+        assertTrue(response.isPresent());
+        assertEquals(TransactionCategory.FOOD_DINING, response.get().getCategory());
+        assertEquals(EnrichmentStatus.COMPLETED, response.get().getEnrichmentStatus());
+    }
+    
     @Test
     void testGetTransactionById_Exists() {
         // 准备
@@ -132,6 +225,49 @@ class TransactionServiceTest {
         verify(transactionRepository).findById(999L);
     }
     
+    @Test
+    void testCreateTransaction_LabelsRecurringSeries() {
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(testAnalysis);
+        Transaction earlier = new Transaction(new BigDecimal("25.50"));
+        earlier.setId(7L);
+        when(recurringDetector.detect(any(Transaction.class))).thenReturn(
+                new RecurringDetector.Detection(TransactionScenario.SUBSCRIPTION, 30, List.of(7L)));
+        when(transactionRepository.findAllById(List.of(7L))).thenReturn(List.of(earlier));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        TransactionResponse response = transactionService.createTransaction(testRequest);
+        
+        assertEquals(TransactionScenario.SUBSCRIPTION, response.getScenario());
+        assertEquals(TransactionScenario.SUBSCRIPTION, earlier.getScenario());
+        verify(transactionRepository).save(earlier);
+    }
+    
+    @Test
+    void testMergeDuplicate_FillsOriginalAndDeletesDuplicate() {
+        Transaction original = new Transaction(new BigDecimal("25.50"));
+        original.setId(1L);
+        original.setMerchant(AiAnalysisService.DEFAULT_MERCHANT);
+        original.setSource("快速记账");
+        Transaction duplicate = new Transaction(new BigDecimal("25.50"));
+        duplicate.setId(2L);
+        duplicate.setMerchant("星巴克");
+        duplicate.setSource("微信支付");
+        duplicate.setExternalId("wx-001");
+        duplicate.setDuplicateOfId(1L);
+        when(transactionRepository.findById(2L)).thenReturn(Optional.of(duplicate));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(original));
+        when(transactionRepository.save(original)).thenReturn(original);
+        
+        TransactionResponse response = transactionService.mergeDuplicate(2L).orElseThrow();
+        
+        assertEquals(1L, response.getId());
+        assertEquals("星巴克", response.getMerchant());
+        assertEquals("wx-001", original.getExternalId());
+        verify(transactionRepository).delete(duplicate);
+        assertThrows(IllegalArgumentException.class, () -> transactionService.mergeDuplicate(1L));
+    }
+    
     @Test
     void testDeleteTransaction_Exists() {
         // 准备
@@ -162,4 +298,172 @@ class TransactionServiceTest {
         verify(transactionRepository).existsById(999L);
         verify(transactionRepository, never()).deleteById(any());
     }
-} 
\ No newline at end of file
+    
+    @Test
+    void testPatchTransaction_DateAndAmountChangeSkipsReanalysis() {
+        // 准备
+        testTransaction.setClassificationSource(ClassificationSource.LLM);
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionPatchRequest patch = new TransactionPatchRequest();
+        patch.setAmount(new BigDecimal("30.00"));
+        patch.setTransactionDate(LocalDateTime.of(2024, 1, 15, 12, 0));
+        
+        // 执行
+        Optional<TransactionResponse> response = transactionService.patchTransaction(1L, patch);
+        
+        // 验证
+        assertTrue(response.isPresent());
+        assertEquals(new BigDecimal("30.00"), response.get().getAmount());
+        assertEquals(TransactionCategory.FOOD_DINING, response.get().getCategory());
+        assertEquals(ClassificationSource.LLM, response.get().getClassificationSource());
+        verify(aiAnalysisService, never()).analyzeTransaction(any(), any(), any(), any());
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+    
+    @Test
+    void testPatchTransaction_UnchangedFieldsSkipSave() {
+        // 准备
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        TransactionPatchRequest patch = new TransactionPatchRequest();
+        patch.setAmount(new BigDecimal("25.5"));
+        patch.setMerchant("星巴克");
+        
+        // 执行
+        Optional<TransactionResponse> response = transactionService.patchTransaction(1L, patch);
+        
+        // 验证
+        assertTrue(response.isPresent());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+    
+    @Test
+    void testPatchTransaction_ManualCategoryIsPinned() {
+        // 准备
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionPatchRequest manual = new TransactionPatchRequest();
+        manual.setCategory(TransactionCategory.ENTERTAINMENT);
+        
+        // 执行：手动修正分类后修改描述
+        transactionService.patchTransaction(1L, manual);
+        TransactionPatchRequest edit = new TransactionPatchRequest();
+        edit.setDescription("下午茶");
+        Optional<TransactionResponse> response = transactionService.patchTransaction(1L, edit);
+        
+        // 验证
+        assertTrue(response.isPresent());
+        assertEquals("下午茶", response.get().getDescription());
+        assertEquals(TransactionCategory.ENTERTAINMENT, response.get().getCategory());
+        assertEquals(ClassificationSource.MANUAL, response.get().getClassificationSource());
+        verify(aiAnalysisService, never()).analyzeTransaction(any(), any(), any(), any());
+    }
+    
+    @Test
+    void testPatchTransaction_ReclassifyWhenInputsChangeOrForced() {
+        // 准备
+        testTransaction.setClassificationSource(ClassificationSource.MANUAL);
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(testAnalysis.withSource(ClassificationSource.LLM));
+        TransactionPatchRequest patch = new TransactionPatchRequest();
+        patch.setMerchant("瑞幸咖啡");
+        patch.setReclassify(true);
+        
+        // 执行
+        Optional<TransactionResponse> response = transactionService.patchTransaction(1L, patch);
+        
+        // 验证：解除固定，按新的商户重新分类
+        assertTrue(response.isPresent());
+        assertEquals(ClassificationSource.LLM, response.get().getClassificationSource());
+        verify(aiAnalysisService).analyzeTransaction(testTransaction.getAmount(), "午餐", "瑞幸咖啡", "北京朝阳区");
+    }
+    
+    @Test
+    void testUpdateTransaction_ReanalyzesOnlyWhenInputsChange() {
+        // 准备
+        when(transactionRepository.findById(1L))
+                .thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        testRequest.setAmount(new BigDecimal("28.00"));
+        
+        // 执行：只改金额和日期
+        transactionService.updateTransaction(1L, testRequest);
+        
+        // 验证
+        verify(aiAnalysisService, never()).analyzeTransaction(any(), any(), any(), any());
+        
+        // 执行：修改描述
+        when(aiAnalysisService.analyzeTransaction(any(), any(), any(), any()))
+                .thenReturn(testAnalysis);
+        testRequest.setDescription("晚餐");
+        transactionService.updateTransaction(1L, testRequest);
+        
+        // 验证
+        verify(aiAnalysisService).analyzeTransaction(new BigDecimal("28.00"), "晚餐", "星巴克", "北京朝阳区");
+    }
+    
+    @Test
+    void testScrollTransactions_ReturnsCursorForNextPage() {
+        // 准备：请求2条，仓库返回3条说明还有下一页
+        Transaction second = new Transaction(testTransaction);
+        second.setId(2L);
+        Transaction third = new Transaction(testTransaction);
+        third.setId(3L);
+        when(transactionRepository.findFirstKeysetPage(any())).thenReturn(List.of(
+                TransactionService.convertToResponse(testTransaction),
+                TransactionService.convertToResponse(second),
+                TransactionService.convertToResponse(third)));
+        
+        // 执行
+        CursorPage<TransactionResponse> page = transactionService.scrollTransactions(null, 2);
+        
+        // 验证
+        assertEquals(2, page.getSize());
+        assertTrue(page.isHasNext());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(2L, cursor.getId());
+        assertEquals(second.getTransactionDate(), cursor.getTransactionDate());
+    }
+    
+    @Test
+    void testScrollTransactions_ContinuesFromCursor() {
+        // 准备
+        KeysetCursor cursor = new KeysetCursor(testTransaction.getTransactionDate(), 5L);
+        when(transactionRepository.findKeysetPageAfter(eq(cursor.getTransactionDate()), eq(5L), any()))
+                .thenReturn(List.of(TransactionService.convertToResponse(testTransaction)));
+        
+        // 执行
+        CursorPage<TransactionResponse> page = transactionService.scrollTransactions(cursor.encode(), 20);
+        
+        // 验证
+        assertEquals(1, page.getSize());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> transactionService.scrollTransactions("not-a-cursor", 20));
+    }
+    
+    @Test
+    void testScrollTransactions_ClampsPageSize() {
+        // 准备
+        when(transactionRepository.findFirstKeysetPage(any())).thenReturn(List.of());
+        
+        // 执行
+        transactionService.scrollTransactions(null, Integer.MAX_VALUE);
+        transactionService.scrollTransactions(null, 0);
+        
+        // 验证：每页多取一条
+        verify(transactionRepository).findFirstKeysetPage(PageRequest.of(0, 201));
+        verify(transactionRepository).findFirstKeysetPage(PageRequest.of(0, 2));
+    }
+}
\ No newline at end of file
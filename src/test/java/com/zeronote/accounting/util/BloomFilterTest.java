@@ -0,0 +1,45 @@
+package com.zeronote.accounting.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testSizing_MatchesOptimalBitsAndHashFunctions() {
+        // m = -n·ln(p)/ln²2，k = m/n·ln2，位数按64位字向上取整
+        BloomFilter onePercent = new BloomFilter(10_000, 0.01);
+        assertEquals(95_872, onePercent.getBitSize());
+        assertEquals(7, onePercent.getHashFunctions());
+
+        BloomFilter tenthPercent = new BloomFilter(10_000, 0.001);
+        assertEquals(143_808, tenthPercent.getBitSize());
+        assertEquals(10, tenthPercent.getHashFunctions());
+
+        // 预期数量至少按1计算，至少一个64位字
+        assertEquals(64, new BloomFilter(0, 0.01).getBitSize());
+    }
+
+    @Test
+    void testMightContain_NoFalseNegativesAndFalsePositiveRateNearTarget() {
+        int insertions = 10_000;
+        BloomFilter filter = new BloomFilter(insertions, 0.01);
+        for (int i = 0; i < insertions; i++) {
+            filter.add("wx-" + i);
+        }
+        for (int i = 0; i < insertions; i++) {
+            assertTrue(filter.mightContain("wx-" + i));
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("alipay-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.015, "误判率 " + rate);
+    }
+}
@@ -0,0 +1,50 @@
+package com.zeronote.accounting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    @Test
+    void testSubmit_GroupsConcurrentItemsAndMapsResultsBack() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = new MicroBatcher<>("test", 10, 200,
+                inputs -> inputs.stream().map(i -> "r" + i).toList())) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(batcher.submit(i));
+            }
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals("r" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, batcher.getBatchCount());
+            assertEquals(10, batcher.getItemCount());
+        }
+    }
+
+    @Test
+    void testSubmit_FlushesPartialBatchAfterMaxWait() throws Exception {
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 100, 20,
+                inputs -> inputs.stream().map(i -> i * 2).toList())) {
+            assertEquals(42, batcher.submit(21).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testSubmit_HandlerFailureFailsWholeBatch() {
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 5, 20, inputs -> {
+            throw new IllegalStateException("boom");
+        })) {
+            CompletableFuture<Integer> future = batcher.submit(1);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+}
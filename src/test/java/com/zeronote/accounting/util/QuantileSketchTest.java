@@ -0,0 +1,79 @@
+package com.zeronote.accounting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double ALPHA = 0.01;
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void testQuantile_WithinRelativeErrorOfExactRank() {
+        Random random = new Random(42);
+        double[] values = new double[50_000];
+        QuantileSketch sketch = new QuantileSketch(ALPHA);
+        for (int i = 0; i < values.length; i++) {
+            // 对数正态分布，跨越多个数量级
+            values[i] = Math.max(1, Math.round(Math.exp(7 + 2 * random.nextGaussian())));
+            sketch.add(values[i]);
+        }
+
+        assertQuantilesWithinBound(values, sketch);
+    }
+
+    @Test
+    void testMergeAndRemove_KeepErrorBound() {
+        Random random = new Random(7);
+        double[] values = new double[20_000];
+        QuantileSketch left = new QuantileSketch(ALPHA);
+        QuantileSketch right = new QuantileSketch(ALPHA);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextInt(1_000_000);
+            (i % 2 == 0 ? left : right).add(values[i]);
+        }
+        // 再加入一批随后删除的值
+        for (int i = 0; i < 5_000; i++) {
+            left.add(50_000_000);
+        }
+        left.merge(right);
+        for (int i = 0; i < 5_000; i++) {
+            left.add(50_000_000, -1);
+        }
+
+        assertEquals(values.length, left.getCount());
+        assertQuantilesWithinBound(values, left);
+        assertThrows(IllegalStateException.class, () -> left.add(50_000_000, -1));
+    }
+
+    @Test
+    void testRestore_RoundTripsBuckets() {
+        QuantileSketch sketch = new QuantileSketch(ALPHA);
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add(i);
+        }
+        QuantileSketch restored = QuantileSketch.restore(ALPHA, sketch.getOffset(), sketch.getCounts());
+
+        assertEquals(sketch.getCount(), restored.getCount());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), restored.quantile(q));
+        }
+        assertTrue(Double.isNaN(new QuantileSketch(ALPHA).quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(0));
+    }
+
+    private static void assertQuantilesWithinBound(double[] values, QuantileSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) (q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= ALPHA * exact + 1e-9,
+                    () -> "q=" + q + " exact=" + exact + " estimate=" + estimate);
+        }
+    }
+}
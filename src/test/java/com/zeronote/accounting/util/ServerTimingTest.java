@@ -0,0 +1,39 @@
+package com.zeronote.accounting.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        ServerTiming.end();
+    }
+
+    @Test
+    void testRecord_AccumulatesStagesOnRequestThread() {
+        ServerTiming timing = ServerTiming.start();
+        ServerTiming.record("db", 1_500_000);
+        ServerTiming.record("llm", 800_000_000);
+        ServerTiming.record("db", 500_000);
+
+        String header = timing.toHeaderValue();
+
+        assertTrue(header.startsWith("db;dur=2.0;desc=\"2x\", llm;dur=800.0, total;dur="), header);
+    }
+
+    @Test
+    void testRecord_IgnoredOffRequestThread() throws Exception {
+        ServerTiming timing = ServerTiming.start();
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            executor.submit(() -> ServerTiming.record("llm", 1_000_000)).get();
+        }
+
+        assertTrue(timing.toHeaderValue().startsWith("total;dur="));
+    }
+}
@@ -0,0 +1,77 @@
+package com.zeronote.accounting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void testTop_FindsHeavyHittersWithinErrorBound() {
+        Random random = new Random(42);
+        SpaceSaving<String> sketch = new SpaceSaving<>(20);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            // 前5个商户约占一半，其余为长尾
+            String item = random.nextBoolean() ? "hot" + random.nextInt(5) : "tail" + random.nextInt(10_000);
+            sketch.add(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        List<SpaceSaving.Counter<String>> top = sketch.top(5);
+        assertEquals(5, top.size());
+        for (SpaceSaving.Counter<String> counter : top) {
+            assertTrue(counter.getItem().startsWith("hot"));
+        }
+        long bound = sketch.getErrorBound();
+        assertEquals(5_000, bound);
+        for (SpaceSaving.Counter<String> counter : sketch.top(20)) {
+            long actual = exact.get(counter.getItem());
+            assertTrue(counter.getGuaranteedCount() <= actual && actual <= counter.getCount());
+            assertTrue(counter.getCount() - actual <= bound);
+        }
+    }
+
+    @Test
+    void testMergeAndRemove() {
+        SpaceSaving<String> left = new SpaceSaving<>(3);
+        SpaceSaving<String> right = new SpaceSaving<>(3);
+        for (int i = 0; i < 10; i++) {
+            left.add("a");
+            right.add("b");
+        }
+        left.add("c", 4);
+        right.add("c", 5);
+        right.add("d");
+
+        left.merge(right);
+        List<SpaceSaving.Counter<String>> top = left.top(3);
+        assertEquals(List.of("a", "b", "c"), top.stream().map(SpaceSaving.Counter::getItem).toList());
+        assertEquals(9, top.get(2).getCount());
+        assertEquals(30, left.getInsertedWeight());
+
+        left.remove("c", 9);
+        assertEquals(2, left.size());
+        left.remove("missing", 1);
+        assertEquals(2, left.size());
+        // 删除不降低上界，只扣减当前权重
+        assertEquals(30, left.getInsertedWeight());
+        assertEquals(20, left.getLiveWeight());
+    }
+
+    @Test
+    void testRestore_TrimsToCapacity() {
+        SpaceSaving<String> sketch = SpaceSaving.restore(2, 6, 6, List.of(
+                new SpaceSaving.Counter<>("a", 1, 0),
+                new SpaceSaving.Counter<>("b", 3, 0),
+                new SpaceSaving.Counter<>("c", 2, 1)));
+
+        assertEquals(List.of("b", "c"), sketch.top(10).stream().map(SpaceSaving.Counter::getItem).toList());
+        assertEquals(3, sketch.getErrorBound());
+    }
+}